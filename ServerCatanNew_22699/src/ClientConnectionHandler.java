@@ -1,5 +1,5 @@
-import com.google.gson.Gson;
-
+import networking.LoopbackConnection;
+import networking.MessageDispatcher;
 import networking.MessageObjects.*;
 
 import java.io.BufferedReader;
@@ -13,22 +13,50 @@ import java.net.Socket;
  * Handles messages sent from server to client and send messages or objects.
  *
  */
-public class ClientConnectionHandler extends Thread {
+public class ClientConnectionHandler implements Runnable {
 	private Server server;
+	/**
+	 * The room of the client, it changes once if the client resumes a seat in an other room
+	 */
+	private volatile GameRoom room;
 	private Socket socket;
 	private BufferedReader reader;
 	private PrintWriter writer;
+	/**
+	 * Only set if the client is served by the non-blocking transport
+	 */
+	private NioConnection nioConnection;
+	/**
+	 * Only set if the client runs in the same JVM as the server
+	 */
+	private LoopbackConnection loopbackConnection;
+	/**
+	 * Only set if the received lines are handled by the protocol executor of the server instead of the reading
+	 * thread
+	 */
+	private InboundQueue inboundQueue;
 	private Boolean clientActive;
 	private ServerProtocol protocol;
 	private int playerId;
+	/**
+	 * The session of the seat of the client, null until it is welcomed
+	 */
+	private volatile PlayerSession session;
+	/**
+	 * Watches the connection for a client which does not respond anymore, null for a loopback connection or if
+	 * the server has no idle timeout
+	 */
+	private volatile ConnectionHeartbeat heartbeat;
 
 /**
  * Sets up connectionhandler for new client.
  * @param server corresponding server
+ * @param room the room (game) the client is bound to
  * @param socket corresponding socket
  */
-	public ClientConnectionHandler(Server server, Socket socket) {
+	public ClientConnectionHandler(Server server, GameRoom room, Socket socket) {
 		this.server = server;
+		this.room = room;
 		this.socket = socket;
 		this.clientActive = true;
 		protocol = new ServerProtocol(this);
@@ -41,6 +69,39 @@ public class ClientConnectionHandler extends Thread {
 		}
 		protocol.sendHello(server.getVersion(), server.getProtocolInfo());
 	}
+
+/**
+ * Sets up connectionhandler for a new client served by the non-blocking transport. No thread is started for
+ * this handler, the event loop of the connection passes every received line to {@link #receiveLine(String)}.
+ * @param server corresponding server
+ * @param room the room (game) the client is bound to
+ * @param nioConnection corresponding non-blocking connection
+ */
+	public ClientConnectionHandler(Server server, GameRoom room, NioConnection nioConnection) {
+		this.server = server;
+		this.room = room;
+		this.nioConnection = nioConnection;
+		this.clientActive = true;
+		protocol = new ServerProtocol(this);
+		protocol.sendHello(server.getVersion(), server.getProtocolInfo());
+	}
+
+/**
+ * Sets up connectionhandler for a new client running in the same JVM. No thread is started for this handler,
+ * the requests of the client are handled on its own thread by {@link #receiveObject(String, Object)}.
+ * @param server corresponding server
+ * @param room the room (game) the client is bound to
+ * @param loopbackConnection corresponding in-memory connection
+ */
+	public ClientConnectionHandler(Server server, GameRoom room, LoopbackConnection loopbackConnection) {
+		this.server = server;
+		this.room = room;
+		this.loopbackConnection = loopbackConnection;
+		this.clientActive = true;
+		protocol = new ServerProtocol(this);
+		loopbackConnection.setServer(this::receiveObject, () -> server.removeConnectionHandler(this));
+		protocol.sendHello(server.getVersion(), server.getProtocolInfo());
+	}
 	
 	/**
 	 * Reads message.
@@ -50,7 +111,10 @@ public class ClientConnectionHandler extends Thread {
 		try {
 			String line;
 			while ((line = reader.readLine()) != null) {
-				handleMessage(line);
+				if (inboundQueue != null)
+					inboundQueue.add(line);
+				else
+					receiveLine(line);
 			}
 
 			reader.close();
@@ -62,190 +126,161 @@ public class ClientConnectionHandler extends Thread {
 			//GameStart.mainLogger.getLOGGER()().fine("Client connection disrupted");
 		}
 
+		if (inboundQueue != null)
+			inboundQueue.close();
 		server.removeConnectionHandler(this);
 	}
 	
+	/**
+	 * Handles one received line. Messages of one room are handled one after another.
+	 * @param line the received line
+	 */
+	public void receiveLine(String line) {
+		if (heartbeat != null && heartbeat.read())
+			server.printServerStatusUpdate("Room " + room.getRoomId() + ": player " + playerId + " is responding again");
+		synchronized (room.getLock()) {
+			handleMessage(line);
+		}
+	}
+
+	/**
+	 * Handles one message of a loopback connection, which has not been serialized.
+	 * @param key top-level key of the message
+	 * @param message the message object
+	 */
+	public void receiveObject(String key, Object message) {
+		synchronized (room.getLock()) {
+			getDispatcher().dispatch(protocol, key, message);
+		}
+	}
+
 	/**
 	 * Sends message.
 	 * @param message message
 	 */
 	public void sendMessage(String message) {
-		if (clientActive) {
-			Gson gson = new Gson();
-			String mes = gson.toJson(message);
-			writer.println(mes);
-		}
+		sendFrame(EncodedFrame.encodeMessage(message));
 	}
 
 	/**
 	 * Sends Object and prints message.
 	 * @param obj
 	 */
-	public synchronized void sendObject(Object obj) {
-		if (clientActive) {
-			Gson gson = new Gson();
-			// 4.1
-			if (obj instanceof InitialMessage)
-				writer.println("{\"Hallo\":" + (gson.toJson(obj, InitialMessage.class)) + "}");
-				// 4.3
-			else if (obj instanceof WelcomeMessage)
-				writer.println("{\"Willkommen\":" + (gson.toJson(obj, WelcomeMessage.class)) + "}");
-				// 6.1
-			else if (obj instanceof ServerResponse)
-				writer.println(gson.toJson(obj, ServerResponse.class));
-				// 6.3
-			else if (obj instanceof ReceiveChat)
-				writer.println("{\"Chatnachricht\":" + gson.toJson(obj, ReceiveChat.class) + "}");
-				// 7.3
-			else if (obj instanceof ServerError)
-				writer.println("{\"Fehler\":" + gson.toJson(obj, ServerError.class) + "}");
-				// 7.4
-			else if (obj instanceof GameStarted)
-				writer.println("{\"Spiel gestartet\":" + gson.toJson(obj, GameStarted.class) + "}");
-				// 8.1
-			else if (obj instanceof PlayerStatusUpdate)
-				writer.println("{\"Statusupdate\":" + gson.toJson(obj, PlayerStatusUpdate.class) + "}");
-				// 8.2
-			else if (obj instanceof DiceThrow)
-				writer.println("{\"Wuerfelwurf\":" + gson.toJson(obj, DiceThrow.class) + "}");
-				// 8.3
-			else if (obj instanceof Earnings)
-				writer.println("{\"Ertrag\":" + gson.toJson(obj, Earnings.class) + "}");
-				// 8.6
-			else if (obj instanceof Costs)
-				writer.println("{\"Kosten\":" + gson.toJson(obj, Costs.class) + "}");
-				// 8.5
-			else if (obj instanceof ThiefMoved)
-				writer.println("{\"Raeuber versetzt\":" + gson.toJson(obj, ThiefMoved.class) + "}");
-				// 8.4
-			else if (obj instanceof BuildingEvent)
-				writer.println("{\"Bauvorgang\":" + gson.toJson(obj, BuildingEvent.class) + "}");
-				//9.7
-			else if (obj instanceof DevelopmentCardBought)
-				writer.println("{\"Entwicklungskarte gekauft\":" + gson.toJson(obj, DevelopmentCardBought.class) + "}");
-				//9.10
-			else if (obj instanceof LongestRoad)
-				writer.println("{\"Laengste Handelsstrasse\":" + gson.toJson(obj, LongestRoad.class) + "}");
-				//9.10
-			else if (obj instanceof LargestArmy)
-				writer.println("{\"Groesste Rittermacht\":" + gson.toJson(obj, LargestArmy.class) + "}");
-				// 10.1
-			else if (obj instanceof ReceivedTradeOffer)
-				writer.println("{\"Handelsangebot\":" + gson.toJson(obj, ReceivedTradeOffer.class) + "}");
-				// 10.2
-			else if (obj instanceof PlayerWhoAcceptedTrade)
-				writer.println("{\"Handelsangebot angenommen\":" + gson.toJson(obj, PlayerWhoAcceptedTrade.class) + "}");
-				// 10.3
-			else if (obj instanceof TradeFinished)
-				writer.println("{\"Handel ausgefuehrt\":" + gson.toJson(obj, TradeFinished.class) + "}");
-				// 10.4
-			else if (obj instanceof AbandonedTrade)
-				writer.println("{\"Handelsangebot abgebrochen\":" + gson.toJson(obj, AbandonedTrade.class) + "}");
-				//12.1
-			else if (obj instanceof PlayKnightCard)
-				writer.println("{\"Ritter ausspielen\":" + gson.toJson(obj, PlayKnightCard.class) + "}");
-				//12.2
-			else if (obj instanceof PlayRoadBuildingCard)
-				writer.println("{\"Strassenbaukarte ausspielen\":" + gson.toJson(obj, PlayRoadBuildingCard.class) + "}");
-				//12.3
-			else if (obj instanceof Monopoly)
-				writer.println("{\"Monopol\":" + gson.toJson(obj, Monopoly.class) + "}");
-				//12.4
-			else if (obj instanceof YearOfPlenty)
-				writer.println("{\"Erfindung\":" + gson.toJson(obj, YearOfPlenty.class) + "}");
-			else if (obj instanceof GameOver)
-				writer.println("{\"Spiel beendet\":" + gson.toJson(obj, GameOver.class) + "}");
+	public void sendObject(Object obj) {
+		sendFrame(EncodedFrame.encode(obj));
+	}
+
+	/**
+	 * Sends an already serialized message. Broadcasts pass the same frame to all clients.
+	 * @param frame the frame to send (ignored if null)
+	 */
+	public synchronized void sendFrame(EncodedFrame frame) {
+		// Pings are not kept for a resume, the client does not count them
+		if (frame != null && session != null && !(frame.getMessage() instanceof Ping))
+			session.record(frame, this);
+		if (clientActive && frame != null) {
+			if (heartbeat != null)
+				heartbeat.written();
+			if (nioConnection != null)
+				nioConnection.send(frame);
+			else if (loopbackConnection != null)
+				loopbackConnection.sendToClient(frame.getKey(), frame.getMessage());
+			else
+				writer.println(frame.getLine());
 		}
 	}
 
+	/**
+	 * Handlers of all messages sent by the clients, looked up by the top-level key
+	 */
+	private static final MessageDispatcher<ServerProtocol> dispatcher = new MessageDispatcher<ServerProtocol>()
+			.on("Hallo", InitialMessage.class, ServerProtocol::receiveHello)
+			.on("Pong", Pong.class, ServerProtocol::receivePong)
+			.on("Sitzung fortsetzen", ResumeSession.class, ServerProtocol::receiveResumeRequest)
+			.on("Chatnachricht senden", SendChat.class, ServerProtocol::receiveSendChatRequest)
+			.on("Spieler", PlayerForProtocol.class, ServerProtocol::receivePlayer)
+			.on("Spiel starten", StartGame.class, (p, request) -> p.receiveStartGameRequest())
+			.on("Wuerfeln", ThrowDiceRequest.class, (p, request) -> p.receiveDiceThrowRequest())
+			.on("Bauen", Building.class, ServerProtocol::receiveBuildRequest)
+			.on("Zug beenden", TurnEnd.class, (p, request) -> p.receiveTurnEndRequest())
+			.on("Karten abgeben", ResourcesReturned.class, ServerProtocol::receiveResourceCardsReturnedRequest)
+			.on("Raeuber versetzen", MoveThief.class, ServerProtocol::receiveMoveThiefRequest)
+			.on("Entwicklungskarte kaufen", BuyDevelopmentCard.class, (p, request) -> p.receiveBuyDevelopmentCardRequest())
+			.on("Seehandel", MaritimeTrade.class, ServerProtocol::receiveMaritimeTrade)
+			.on("Handel anbieten", DomesticTradeOffer.class, ServerProtocol::receiveDomesticTrade)
+			.on("Handel annehmen", PlayerReadyForDomesticTrade.class, ServerProtocol::receiveAcceptTrade)
+			.on("Handel abschliessen", CompleteDomesticTrade.class, ServerProtocol::receiveExecuteDomesticTrade)
+			.on("Handel abbrechen", AbandonDomesticTrade.class, ServerProtocol::receiveAbandonDomesticTrade)
+			.on("Ritter ausspielen", PlayKnightCard.class, ServerProtocol::receivePlayKnightCardRequest)
+			.on("Strassenbaukarte ausspielen", PlayRoadBuildingCard.class, ServerProtocol::receivePlayRoadBuildingCardRequest)
+			.on("Monopol", Monopoly.class, ServerProtocol::receivePlayMonopolyCardRequest)
+			.on("Erfindung", YearOfPlenty.class, ServerProtocol::receivePlayYearOfPlentyCardRequest);
+
+	/**
+	 * Handlers of the messages of a client watching a replay, its requests do not change the game
+	 */
+	private static final MessageDispatcher<ServerProtocol> replayDispatcher = new MessageDispatcher<ServerProtocol>()
+			.on("Hallo", InitialMessage.class, ServerProtocol::receiveReplayHello)
+			.on("Pong", Pong.class, ServerProtocol::receivePong);
+
+	private MessageDispatcher<ServerProtocol> getDispatcher() {
+		return room.getReplay() == null ? dispatcher : replayDispatcher;
+	}
+
 	/**
 	 * HAndles message sent from server.
 	 * @param message corresponding message
 	 */
 	public void handleMessage(String message) {
-		Gson gson = new Gson();
 		//GameStart.mainLogger.getLOGGER()().fine("[-] " + message);
-		if(message == null){
-			//GameStart.mainLogger.getLOGGER()().fine("incorrect message");
-			return;
-		}
-		else if (message.contains("Hallo")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Hallo\":", "");
-			InitialMessage mes = gson.fromJson(objFromMessage, InitialMessage.class);
-			protocol.receiveHello(mes);
-		} else if (message.contains("Chatnachricht senden")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Chatnachricht senden\":",
-					"");
-			SendChat chat = gson.fromJson(objFromMessage, SendChat.class);
-			protocol.receiveSendChatRequest(chat);
-		} else if (message.contains("Spieler")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Spieler\":", "");
-			PlayerForProtocol player = gson.fromJson(objFromMessage, PlayerForProtocol.class);
-			protocol.receivePlayer(player);
-		} else if (message.contains("Spiel starten")) {
-			protocol.receiveStartGameRequest();
-		} else if (message.contains("Wuerfeln")) {
-			protocol.receiveDiceThrowRequest();
-		} else if (message.contains("Bauen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Bauen\":", "");
-			Building building = gson.fromJson(objFromMessage, Building.class);
-			protocol.receiveBuildRequest(building);
-		} else if (message.contains("Zug beenden")) {
-			protocol.receiveTurnEndRequest();
-		} else if (message.contains("Karten abgeben")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Karten abgeben\":", "");
-			ResourcesReturned resourcesReturned = gson.fromJson(objFromMessage, ResourcesReturned.class);
-			protocol.receiveResourceCardsReturnedRequest(resourcesReturned);
-		} else if (message.contains("Raeuber versetzen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Raeuber versetzen\":", "");
-			MoveThief moveThief = gson.fromJson(objFromMessage, MoveThief.class);
-			protocol.receiveMoveThiefRequest(moveThief);
-		}else if (message.contains("Entwicklungskarte kaufen")) {
-			protocol.receiveBuyDevelopmentCardRequest();
-		}
-		else if (message.contains("Seehandel")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Seehandel\":", "");
-			MaritimeTrade maritimeTrade  = gson.fromJson(objFromMessage, MaritimeTrade.class);
-			protocol.receiveMaritimeTrade(maritimeTrade);
-		} else if (message.contains("Handel anbieten")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Handel anbieten\":", "");
-			DomesticTradeOffer domesticTradeOffer  = gson.fromJson(objFromMessage, DomesticTradeOffer.class);
-			protocol.receiveDomesticTrade(domesticTradeOffer);
-		} else if (message.contains("Handel annehmen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Handel annehmen\":", "");
-			PlayerReadyForDomesticTrade playerReadyForDomesticTrade  = gson.fromJson(objFromMessage, PlayerReadyForDomesticTrade.class);
-			protocol.receiveAcceptTrade(playerReadyForDomesticTrade);
-		} else if (message.contains("Handel abschliessen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Handel abschliessen\":", "");
-			CompleteDomesticTrade completeDomesticTrade  = gson.fromJson(objFromMessage, CompleteDomesticTrade.class);
-			protocol.receiveExecuteDomesticTrade(completeDomesticTrade);
-		} else if (message.contains("Handel abbrechen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Handel abbrechen\":", "");
-			AbandonDomesticTrade abandonDomesticTrade = gson.fromJson(objFromMessage, AbandonDomesticTrade.class);	
-			protocol.receiveAbandonDomesticTrade(abandonDomesticTrade);
-		}
-		else if (message.contains("Ritter ausspielen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Ritter ausspielen\":", "");
-			PlayKnightCard playKnightCard = gson.fromJson(objFromMessage, PlayKnightCard.class);	
-			protocol.receivePlayKnightCardRequest(playKnightCard);
-		}
-		else if (message.contains("Strassenbaukarte ausspielen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Strassenbaukarte ausspielen\":", "");
-			PlayRoadBuildingCard playRoadBuildingCard = gson.fromJson(objFromMessage, PlayRoadBuildingCard.class);	
-			protocol.receivePlayRoadBuildingCardRequest(playRoadBuildingCard, false);
-		}
-		else if (message.contains("Monopol")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Monopol\":", "");
-			Monopoly monopolyCard = gson.fromJson(objFromMessage, Monopoly.class);	
-			protocol.receivePlayMonopolyCardRequest(monopolyCard);
-		}
-		else if (message.contains("Erfindung")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Erfindung\":", "");
-			YearOfPlenty yearOfPlentyCard = gson.fromJson(objFromMessage, YearOfPlenty.class);	
-			protocol.receivePlayYearOfPlentyCardRequest(yearOfPlentyCard);
-		}
+		// Unknown messages are ignored
+		getDispatcher().dispatch(protocol, message);
 	}
 	
+	/**
+	 * Closes the connection to the client, e.g. after its seat has been resumed on a new connection. The server
+	 * removes the handler once its connection has ended.
+	 */
+	public synchronized void close() {
+		clientActive = false;
+		try {
+			if (nioConnection != null)
+				nioConnection.close();
+			else if (loopbackConnection != null)
+				loopbackConnection.close();
+			else
+				socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts sending pings to the client and watching for it to stop responding (see {@link ConnectionHeartbeat}).
+	 * @param timers the timer wheel of the server
+	 * @param idleTimeout time (ms) without any message from the client until the room is told
+	 */
+	public void startHeartbeat(TimerWheel timers, long idleTimeout) {
+		heartbeat = new ConnectionHeartbeat(timers, idleTimeout, () -> sendObject(new Ping()),
+				() -> room.idleTimeout(this));
+		heartbeat.start();
+	}
+
+	/**
+	 * Stops the heartbeat once the connection has ended.
+	 */
+	public void stopHeartbeat() {
+		if (heartbeat != null)
+			heartbeat.stop();
+	}
+
+	/**
+	 * @return True, if the client has not sent anything for the idle timeout of the server
+	 */
+	public boolean isIdle() {
+		return heartbeat != null && heartbeat.isIdle();
+	}
+
 	/**
 	 * changes status of client to active.
 	 * @param active status if client is active 
@@ -259,6 +294,30 @@ public class ClientConnectionHandler extends Thread {
 		return server;
 	}
 
+	public void setInboundQueue(InboundQueue inboundQueue) {
+		this.inboundQueue = inboundQueue;
+	}
+
+	public GameRoom getRoom() {
+		return room;
+	}
+
+	public void setRoom(GameRoom room) {
+		this.room = room;
+	}
+
+	public ServerProtocol getProtocol() {
+		return protocol;
+	}
+
+	public PlayerSession getSession() {
+		return session;
+	}
+
+	public void setSession(PlayerSession session) {
+		this.session = session;
+	}
+
 	public void setPlayerId(Integer id) {
 		this.playerId = (int) id;
 	}
@@ -0,0 +1,120 @@
+/**
+ * Detects a dead client without waiting for its socket to fail, which takes
+ * minutes for a half-open connection. The client is pinged once nothing has
+ * been received from it for a third of the idle timeout and answers with a
+ * pong, so a client only watching the others play keeps responding. It is
+ * also pinged once nothing has been sent to it for as long, which keeps the
+ * connection open through routers dropping silent ones. If nothing has been
+ * received for the idle timeout, the client is taken for not responding (see
+ * {@link GameRoom#idleTimeout}). The checks wait on the {@link TimerWheel} of
+ * the server.
+ */
+public class ConnectionHeartbeat implements Runnable {
+	private final TimerWheel timers;
+	private final long idleTimeout;
+	private final long pingInterval;
+	private final Runnable sendPing;
+	private final Runnable idle;
+	private volatile long lastRead;
+	private volatile long lastWrite;
+	private volatile long lastPing;
+	/**
+	 * True from the idle timeout until the client sends again
+	 */
+	private volatile boolean idleSinceTimeout;
+	private volatile boolean stopped;
+	/**
+	 * The next check, cancelled when the heartbeat is stopped
+	 */
+	private volatile TimerWheel.Timeout next;
+
+	/**
+	 * @param timers
+	 *            the timer wheel of the server
+	 * @param idleTimeout
+	 *            time (ms) without any message from the client until it is
+	 *            taken for not responding
+	 * @param sendPing
+	 *            sends a ping to the client
+	 * @param idle
+	 *            called once the client does not respond
+	 */
+	public ConnectionHeartbeat(TimerWheel timers, long idleTimeout, Runnable sendPing, Runnable idle) {
+		this.timers = timers;
+		this.idleTimeout = idleTimeout;
+		this.pingInterval = idleTimeout / 3;
+		this.sendPing = sendPing;
+		this.idle = idle;
+	}
+
+	public void start() {
+		lastRead = System.currentTimeMillis();
+		lastWrite = lastRead;
+		lastPing = lastRead;
+		next = timers.schedule(this, pingInterval);
+	}
+
+	/**
+	 * Stops watching (connection closed).
+	 */
+	public void stop() {
+		stopped = true;
+		TimerWheel.Timeout timeout = next;
+		if (timeout != null)
+			timeout.cancel();
+	}
+
+	/**
+	 * A message has been received.
+	 *
+	 * @return True, if the client had been taken for not responding
+	 */
+	public boolean read() {
+		lastRead = System.currentTimeMillis();
+		if (!idleSinceTimeout)
+			return false;
+		idleSinceTimeout = false;
+		return true;
+	}
+
+	/**
+	 * A message has been sent. Only delays the keep-alive ping, the client
+	 * still has to answer.
+	 */
+	public void written() {
+		lastWrite = System.currentTimeMillis();
+	}
+
+	/**
+	 * Checks the connection once a timeout has expired, then waits for the
+	 * next one.
+	 */
+	@Override
+	public void run() {
+		if (stopped)
+			return;
+		long now = System.currentTimeMillis();
+		if (!idleSinceTimeout && now - lastRead >= idleTimeout) {
+			idleSinceTimeout = true;
+			idle.run();
+		}
+		boolean silent = now - lastRead >= pingInterval || now - lastWrite >= pingInterval;
+		if (silent && now - lastPing >= pingInterval) {
+			lastPing = now;
+			lastWrite = now;
+			sendPing.run();
+		}
+		long nextCheck = Math.max(Math.min(lastRead, lastWrite), lastPing) + pingInterval;
+		if (!idleSinceTimeout)
+			nextCheck = Math.min(nextCheck, lastRead + idleTimeout);
+		if (!stopped)
+			next = timers.schedule(this, nextCheck - System.currentTimeMillis());
+	}
+
+	/**
+	 * @return True, if the client has not sent anything for the idle timeout
+	 */
+	public boolean isIdle() {
+		return idleSinceTimeout;
+	}
+}
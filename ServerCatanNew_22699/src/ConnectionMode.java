@@ -0,0 +1,38 @@
+/**
+ * Defines how the server serves its clients. Selected at startup with
+ * "--mode=..." (see {@link ServerLauncher}).
+ */
+public enum ConnectionMode {
+	/**
+	 * One blocking thread per client (default)
+	 */
+	THREAD,
+	/**
+	 * Non-blocking sockets served by a few event loops
+	 */
+	NIO,
+	/**
+	 * Blocking reads on pooled threads, the messages are handled by a bounded
+	 * protocol pool shared by all rooms. Every client still keeps a reader
+	 * thread blocked (as many threads as THREAD), only the work of the
+	 * protocol is bounded. NIO needs no thread per client.
+	 */
+	EXECUTOR;
+
+	/**
+	 * Translates a startup argument into a connection mode.
+	 *
+	 * @param argument
+	 *            the value of "--mode" (may be null)
+	 * @return the matching mode, THREAD if unknown
+	 */
+	public static ConnectionMode fromArgument(String argument) {
+		if (argument != null) {
+			for (ConnectionMode mode : values()) {
+				if (mode.name().equalsIgnoreCase(argument.trim()))
+					return mode;
+			}
+		}
+		return THREAD;
+	}
+}
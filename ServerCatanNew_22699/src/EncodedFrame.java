@@ -0,0 +1,218 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+
+import networking.ProtocolCodec;
+import networking.MessageObjects.*;
+
+/**
+ * A message serialized for sending. A broadcast is serialized once into a
+ * frame and the same frame is then passed to all recipients instead of
+ * serializing the message again for every client. The line is only serialized
+ * when a socket needs it, clients of a loopback connection get the message
+ * object itself. Frames are immutable.
+ */
+public final class EncodedFrame {
+	/**
+	 * Number of frames serialized (messages handed over in memory are not counted)
+	 */
+	private static final AtomicLong serializations = new AtomicLong();
+	/**
+	 * Serializations avoided because a frame has been sent to several clients
+	 */
+	private static final AtomicLong serializationsSaved = new AtomicLong();
+	/**
+	 * Bytes which did not have to be serialized again thanks to shared frames
+	 */
+	private static final AtomicLong bytesSaved = new AtomicLong();
+
+	/**
+	 * Top-level key of the message, null for a plain text message
+	 */
+	private final String key;
+	private final Object message;
+	/**
+	 * The serialized message (without line break), created on first use
+	 */
+	private volatile String line;
+	/**
+	 * UTF-8 encoding of the line including the line break, created on first use
+	 */
+	private volatile byte[] bytes;
+
+	/**
+	 * Constructor
+	 *
+	 * @param key
+	 *            top-level key of the message, null for a plain text message
+	 * @param message
+	 *            the value of the message
+	 */
+	private EncodedFrame(String key, Object message) {
+		this.key = key;
+		this.message = message;
+	}
+
+	/**
+	 * Creates the frame of a message object the way the protocol expects it.
+	 *
+	 * @param obj
+	 *            the message object
+	 * @return the frame, null if the object is no message sent by the server
+	 */
+	public static EncodedFrame encode(Object obj) {
+		// 4.1
+		if (obj instanceof InitialMessage)
+			return new EncodedFrame("Hallo", obj);
+			// 4.3
+		else if (obj instanceof WelcomeMessage)
+			return new EncodedFrame("Willkommen", obj);
+		else if (obj instanceof Ping)
+			return new EncodedFrame("Ping", obj);
+			// 6.1
+		else if (obj instanceof ServerResponse)
+			return new EncodedFrame("Serverantwort", ((ServerResponse) obj).getServerResponse());
+			// 6.3
+		else if (obj instanceof ReceiveChat)
+			return new EncodedFrame("Chatnachricht", obj);
+			// 7.3
+		else if (obj instanceof ServerError)
+			return new EncodedFrame("Fehler", obj);
+			// 7.4
+		else if (obj instanceof GameStarted)
+			return new EncodedFrame("Spiel gestartet", obj);
+			// 8.1
+		else if (obj instanceof PlayerStatusUpdate)
+			return new EncodedFrame("Statusupdate", obj);
+			// 8.2
+		else if (obj instanceof DiceThrow)
+			return new EncodedFrame("Wuerfelwurf", obj);
+			// 8.3
+		else if (obj instanceof Earnings)
+			return new EncodedFrame("Ertrag", obj);
+			// 8.6
+		else if (obj instanceof Costs)
+			return new EncodedFrame("Kosten", obj);
+			// 8.5
+		else if (obj instanceof ThiefMoved)
+			return new EncodedFrame("Raeuber versetzt", obj);
+			// 8.4
+		else if (obj instanceof BuildingEvent)
+			return new EncodedFrame("Bauvorgang", obj);
+			//9.7
+		else if (obj instanceof DevelopmentCardBought)
+			return new EncodedFrame("Entwicklungskarte gekauft", obj);
+			//9.10
+		else if (obj instanceof LongestRoad)
+			return new EncodedFrame("Laengste Handelsstrasse", obj);
+			//9.10
+		else if (obj instanceof LargestArmy)
+			return new EncodedFrame("Groesste Rittermacht", obj);
+			// 10.1
+		else if (obj instanceof ReceivedTradeOffer)
+			return new EncodedFrame("Handelsangebot", obj);
+			// 10.2
+		else if (obj instanceof PlayerWhoAcceptedTrade)
+			return new EncodedFrame("Handelsangebot angenommen", obj);
+			// 10.3
+		else if (obj instanceof TradeFinished)
+			return new EncodedFrame("Handel ausgefuehrt", obj);
+			// 10.4
+		else if (obj instanceof AbandonedTrade)
+			return new EncodedFrame("Handelsangebot abgebrochen", obj);
+			//12.1
+		else if (obj instanceof PlayKnightCard)
+			return new EncodedFrame("Ritter ausspielen", obj);
+			//12.2
+		else if (obj instanceof PlayRoadBuildingCard)
+			return new EncodedFrame("Strassenbaukarte ausspielen", obj);
+			//12.3
+		else if (obj instanceof Monopoly)
+			return new EncodedFrame("Monopol", obj);
+			//12.4
+		else if (obj instanceof YearOfPlenty)
+			return new EncodedFrame("Erfindung", obj);
+		else if (obj instanceof GameOver)
+			return new EncodedFrame("Spiel beendet", obj);
+		return null;
+	}
+
+	/**
+	 * Serializes a plain text message.
+	 *
+	 * @param message
+	 * @return the frame
+	 */
+	public static EncodedFrame encodeMessage(String message) {
+		return new EncodedFrame(null, message);
+	}
+
+	/**
+	 * Counts a frame sent to several clients.
+	 *
+	 * @param recipients
+	 *            number of clients the frame was sent to
+	 */
+	public void recordFanOut(int recipients) {
+		// Messages only handed over in memory have not been serialized at all
+		if (recipients < 2 || line == null)
+			return;
+		serializationsSaved.addAndGet(recipients - 1);
+		bytesSaved.addAndGet((long) (recipients - 1) * getBytes().length);
+	}
+
+	/**
+	 * Returns a new buffer on the bytes of this frame, every connection needs
+	 * its own buffer (position) but the bytes are shared.
+	 *
+	 * @return read-only buffer containing the line and its line break
+	 */
+	public ByteBuffer newBuffer() {
+		return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+	}
+
+	private byte[] getBytes() {
+		byte[] b = bytes;
+		if (b == null) {
+			b = (getLine() + "\n").getBytes(StandardCharsets.UTF_8);
+			bytes = b;
+		}
+		return b;
+	}
+
+	/**
+	 * Describes how much serialization work the shared frames saved so far.
+	 *
+	 * @return the statistics as text
+	 */
+	public static String getStatistics() {
+		return "Frames serialized: " + serializations.get() + ", serializations saved: " + serializationsSaved.get()
+				+ ", bytes saved: " + bytesSaved.get();
+	}
+
+	/**
+	 * @return the serialized message (without line break)
+	 */
+	public String getLine() {
+		String l = line;
+		if (l == null) {
+			Gson gson = ProtocolCodec.getGson();
+			l = key == null ? gson.toJson(message)
+					: "{\"" + key + "\":" + gson.toJson(message, message.getClass()) + "}";
+			line = l;
+			serializations.incrementAndGet();
+		}
+		return l;
+	}
+
+	// Getters
+	public String getKey() {
+		return key;
+	}
+
+	public Object getMessage() {
+		return message;
+	}
+}
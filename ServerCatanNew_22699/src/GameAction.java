@@ -0,0 +1,317 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import networking.MessageObjects.Building;
+import networking.MessageObjects.Resources;
+
+/**
+ * A move of one player, applied to a game by {@link GameEngine#apply}. Every
+ * request of a client which changes the state of the game has its action, the
+ * actions are created by the static factory methods.
+ */
+public final class GameAction {
+
+	/**
+	 * Kinds of actions
+	 */
+	public enum Type {
+		BUILD, ROLL_DICE, RETURN_RESOURCES, MOVE_THIEF, END_TURN, BUY_DEVELOPMENT_CARD, PLAY_KNIGHT_CARD,
+		PLAY_ROAD_BUILDING_CARD, PLAY_MONOPOLY_CARD, PLAY_YEAR_OF_PLENTY_CARD, MARITIME_TRADE, DOMESTIC_TRADE
+	}
+
+	private final Type type;
+	private final int player;
+	private Building building;
+	/**
+	 * Location of the thief (field letter) or first street of a road building
+	 * card
+	 */
+	private String location;
+	/**
+	 * Second street of a road building card
+	 */
+	private String secondLocation;
+	/**
+	 * Player to steal from or trade partner
+	 */
+	private Integer target;
+	/**
+	 * Resources given away (returned, offered in a trade) or chosen with a year
+	 * of plenty card
+	 */
+	private Resources supply;
+	/**
+	 * Resources requested in a trade
+	 */
+	private Resources demand;
+	/**
+	 * Resource chosen with a monopoly card
+	 */
+	private String resource;
+
+	/**
+	 * Written instead of an Integer which is null
+	 */
+	private static final int NULL = Integer.MIN_VALUE;
+
+	private GameAction(Type type, int player) {
+		this.type = type;
+		this.player = player;
+	}
+
+	public static GameAction build(int player, Building building) {
+		GameAction action = new GameAction(Type.BUILD, player);
+		action.building = building;
+		return action;
+	}
+
+	public static GameAction rollDice(int player) {
+		return new GameAction(Type.ROLL_DICE, player);
+	}
+
+	public static GameAction returnResources(int player, Resources resources) {
+		GameAction action = new GameAction(Type.RETURN_RESOURCES, player);
+		action.supply = resources;
+		return action;
+	}
+
+	/**
+	 * @param location
+	 *            letter of the field
+	 * @param target
+	 *            player to steal from (may be null)
+	 */
+	public static GameAction moveThief(int player, String location, Integer target) {
+		GameAction action = new GameAction(Type.MOVE_THIEF, player);
+		action.location = location;
+		action.target = target;
+		return action;
+	}
+
+	public static GameAction endTurn(int player) {
+		return new GameAction(Type.END_TURN, player);
+	}
+
+	public static GameAction buyDevelopmentCard(int player) {
+		return new GameAction(Type.BUY_DEVELOPMENT_CARD, player);
+	}
+
+	/**
+	 * @param location
+	 *            letter of the field
+	 * @param target
+	 *            player to steal from (may be null)
+	 */
+	public static GameAction playKnightCard(int player, String location, Integer target) {
+		GameAction action = new GameAction(Type.PLAY_KNIGHT_CARD, player);
+		action.location = location;
+		action.target = target;
+		return action;
+	}
+
+	/**
+	 * @param street1
+	 *            location of the first street
+	 * @param street2
+	 *            location of the second street (may be null)
+	 */
+	public static GameAction playRoadBuildingCard(int player, String street1, String street2) {
+		GameAction action = new GameAction(Type.PLAY_ROAD_BUILDING_CARD, player);
+		action.location = street1;
+		action.secondLocation = street2;
+		return action;
+	}
+
+	/**
+	 * @param resource
+	 *            "Holz", "Lehm", "Wolle", "Getreide" or "Erz"
+	 */
+	public static GameAction playMonopolyCard(int player, String resource) {
+		GameAction action = new GameAction(Type.PLAY_MONOPOLY_CARD, player);
+		action.resource = resource;
+		return action;
+	}
+
+	public static GameAction playYearOfPlentyCard(int player, Resources resources) {
+		GameAction action = new GameAction(Type.PLAY_YEAR_OF_PLENTY_CARD, player);
+		action.supply = resources;
+		return action;
+	}
+
+	public static GameAction maritimeTrade(int player, Resources supply, Resources demand) {
+		GameAction action = new GameAction(Type.MARITIME_TRADE, player);
+		action.supply = supply;
+		action.demand = demand;
+		return action;
+	}
+
+	/**
+	 * A trade between two players which both agreed to it.
+	 *
+	 * @param player
+	 *            the player who offered the trade
+	 * @param partner
+	 *            the player who accepted the trade
+	 * @param supply
+	 *            the resources given by the player
+	 * @param demand
+	 *            the resources given by the partner
+	 */
+	public static GameAction domesticTrade(int player, int partner, Resources supply, Resources demand) {
+		GameAction action = new GameAction(Type.DOMESTIC_TRADE, player);
+		action.target = partner;
+		action.supply = supply;
+		action.demand = demand;
+		return action;
+	}
+
+	// Binary form (journal of the server)
+
+	/**
+	 * Writes the action in a compact binary form, read by
+	 * {@link #readFrom(DataInput)}.
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(type.ordinal());
+		out.writeInt(player);
+		int present = (building != null ? 1 : 0) | (location != null ? 2 : 0) | (secondLocation != null ? 4 : 0)
+				| (target != null ? 8 : 0) | (supply != null ? 16 : 0) | (demand != null ? 32 : 0)
+				| (resource != null ? 64 : 0);
+		out.writeByte(present);
+		if (building != null) {
+			writeInteger(out, building.getOwner());
+			writeString(out, building.getType());
+			writeString(out, building.getLocation());
+		}
+		if (location != null)
+			out.writeUTF(location);
+		if (secondLocation != null)
+			out.writeUTF(secondLocation);
+		if (target != null)
+			out.writeInt(target);
+		if (supply != null)
+			writeResources(out, supply);
+		if (demand != null)
+			writeResources(out, demand);
+		if (resource != null)
+			out.writeUTF(resource);
+	}
+
+	/**
+	 * Reads an action written by {@link #writeTo(DataOutput)}.
+	 */
+	public static GameAction readFrom(DataInput in) throws IOException {
+		Type[] types = Type.values();
+		int ordinal = in.readUnsignedByte();
+		if (ordinal >= types.length)
+			throw new IOException("Unknown action " + ordinal);
+		GameAction action = new GameAction(types[ordinal], in.readInt());
+		int present = in.readUnsignedByte();
+		if ((present & 1) != 0)
+			action.building = new Building(readInteger(in), readString(in), readString(in));
+		if ((present & 2) != 0)
+			action.location = in.readUTF();
+		if ((present & 4) != 0)
+			action.secondLocation = in.readUTF();
+		if ((present & 8) != 0)
+			action.target = in.readInt();
+		if ((present & 16) != 0)
+			action.supply = readResources(in);
+		if ((present & 32) != 0)
+			action.demand = readResources(in);
+		if ((present & 64) != 0)
+			action.resource = in.readUTF();
+		return action;
+	}
+
+	static void writeResources(DataOutput out, Resources resources) throws IOException {
+		writeInteger(out, resources.getWood());
+		writeInteger(out, resources.getLoam());
+		writeInteger(out, resources.getWool());
+		writeInteger(out, resources.getGrain());
+		writeInteger(out, resources.getStone());
+		writeInteger(out, resources.getHidden());
+	}
+
+	static Resources readResources(DataInput in) throws IOException {
+		return new Resources(readInteger(in), readInteger(in), readInteger(in), readInteger(in), readInteger(in),
+				readInteger(in));
+	}
+
+	static void writeInteger(DataOutput out, Integer value) throws IOException {
+		out.writeInt(value == null ? NULL : value);
+	}
+
+	static Integer readInteger(DataInput in) throws IOException {
+		int value = in.readInt();
+		return value == NULL ? null : value;
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			out.writeUTF(value);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(type.toString()).append('(').append(player);
+		if (building != null)
+			builder.append(',').append(building.getType()).append(' ').append(building.getLocation());
+		if (location != null)
+			builder.append(',').append(location);
+		if (secondLocation != null)
+			builder.append(',').append(secondLocation);
+		if (target != null)
+			builder.append(",target ").append(target);
+		if (resource != null)
+			builder.append(',').append(resource);
+		if (supply != null)
+			builder.append(',').append(supply);
+		if (demand != null)
+			builder.append(',').append(demand);
+		return builder.append(')').toString();
+	}
+
+	// Getters
+	public Type getType() {
+		return type;
+	}
+
+	public int getPlayer() {
+		return player;
+	}
+
+	public Building getBuilding() {
+		return building;
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public String getSecondLocation() {
+		return secondLocation;
+	}
+
+	public Integer getTarget() {
+		return target;
+	}
+
+	public Resources getSupply() {
+		return supply;
+	}
+
+	public Resources getDemand() {
+		return demand;
+	}
+
+	public String getResource() {
+		return resource;
+	}
+}
@@ -0,0 +1,28 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A player of a {@link GameEngine} without a client, used by simulations like
+ * the {@link Tournament} and standing in for clients which do not respond (see
+ * {@link IdleAction}). The same bot plays many games at once, state of a game
+ * must be kept per engine.
+ */
+public interface GameBot {
+	/**
+	 * Bot choosing any legal action
+	 */
+	GameBot RANDOM = (engine, actions, random) -> actions.get(random.nextInt(actions.size()));
+
+	/**
+	 * Chooses the next action of a player.
+	 *
+	 * @param engine
+	 *            the game, must not be changed
+	 * @param actions
+	 *            the legal actions of the player, not empty
+	 * @param random
+	 *            random of the game the bot may use
+	 * @return the action to apply, one of actions or an equivalent one
+	 */
+	GameAction chooseAction(GameEngine engine, ArrayList<GameAction> actions, Random random);
+}
@@ -0,0 +1,1216 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import networking.MessageObjects.*;
+import tools.BoardIndex;
+import tools.BoardTopology;
+import tools.BuildingType;
+import tools.PortTypes;
+
+/**
+ * The rules of one game, without any networking or user interface. The state
+ * is kept in a {@link ServerMemoryLogic}, all random decisions (board, dice,
+ * development cards, stolen cards, order of the players) are taken from its
+ * random, so a game started with the same seed and given the same actions
+ * always plays out the same way.
+ *
+ * The server protocol turns the requests of the clients into
+ * {@link GameAction}s and the {@link GameEventListener} events into messages.
+ * Simulations create engines directly and choose from
+ * {@link #getLegalActions(int)}.
+ */
+public class GameEngine {
+	/**
+	 * Names of the resources, in the order of the resource arrays of the
+	 * memory
+	 */
+	private static final String[] RESOURCES = { "Holz", "Lehm", "Wolle", "Getreide", "Erz" };
+	/**
+	 * Ports trading 2:1, in the order of RESOURCES
+	 */
+	private static final PortTypes[] PORTS = { PortTypes.TWO_WOOD_FOR_ONE, PortTypes.TWO_LOAM_FOR_ONE,
+			PortTypes.TWO_WOOL_FOR_ONE, PortTypes.TWO_GRAIN_FOR_ONE, PortTypes.TWO_STONE_FOR_ONE };
+	private static final Resources STREET_COSTS = new Resources(1, 1, 0, 0, 0, 0);
+	private static final Resources SETTLEMENT_COSTS = new Resources(1, 1, 1, 1, 0, 0);
+	private static final Resources CITY_COSTS = new Resources(0, 0, 0, 2, 3, 0);
+
+	/**
+	 * Locations (field letters) of every vertex and edge of the board
+	 */
+	private static final String[] VERTEX_LOCATIONS = new String[BoardTopology.NUMBER_OF_VERTICES];
+	private static final String[] EDGE_LOCATIONS = new String[BoardTopology.NUMBER_OF_EDGES];
+
+	static {
+		for (int vertex = 0; vertex < VERTEX_LOCATIONS.length; vertex++)
+			VERTEX_LOCATIONS[vertex] = getLocation(BoardTopology.getFieldsOfVertex(vertex));
+		for (int edge = 0; edge < EDGE_LOCATIONS.length; edge++)
+			EDGE_LOCATIONS[edge] = getLocation(BoardTopology.getFieldsOfEdge(edge));
+	}
+
+	private final ServerMemoryLogic memory;
+	/**
+	 * Shows if the player whose turn it is played a development card this turn
+	 */
+	private boolean playedDevelopmentCard;
+	private PlayerForProtocol winner;
+	/**
+	 * Actions applied since the game has been created or read from a
+	 * snapshot, in their order
+	 */
+	private final ArrayList<GameAction> history = new ArrayList<>();
+	/**
+	 * Number of actions applied before the snapshot the game has been read
+	 * from, they are not kept
+	 */
+	private int actionsBeforeHistory;
+	/**
+	 * Journal of the game of a room, null for simulations
+	 */
+	private GameJournal journal;
+
+	/**
+	 * Creates the engine of a new game with a random seed.
+	 */
+	public GameEngine() {
+		this(new Random());
+	}
+
+	/**
+	 * Creates the engine of a new game.
+	 *
+	 * @param seed
+	 *            seed of all random decisions of the game
+	 */
+	public GameEngine(long seed) {
+		this(new Random(seed));
+	}
+
+	private GameEngine(Random random) {
+		memory = new ServerMemoryLogic();
+		memory.random = random;
+	}
+
+	private GameEngine(ServerMemoryLogic memory) {
+		this.memory = memory;
+	}
+
+	/**
+	 * Copies the running game for a simulation. The copy takes its random
+	 * decisions from its own seed, so it does not know the dice and cards of
+	 * the original game.
+	 *
+	 * @param seed
+	 *            seed of all random decisions of the copy
+	 * @return the copy, changes do not affect this game
+	 */
+	public GameEngine copy(long seed) {
+		GameEngine copy = new GameEngine(memory.copy(new Random(seed)));
+		copy.playedDevelopmentCard = playedDevelopmentCard;
+		copy.winner = winner == null ? null : copy.memory.findPlayerByID(winner.getId());
+		copy.history.addAll(history);
+		copy.actionsBeforeHistory = actionsBeforeHistory;
+		return copy;
+	}
+
+	/**
+	 * Deals the development cards of the other players again from their cards
+	 * and the stack, as the player cannot know them. Cards bought in the
+	 * running turn are kept, they are known to be unplayable.
+	 *
+	 * @param playerId
+	 *            the player whose knowledge is simulated
+	 */
+	public void redealDevelopmentCards(int playerId) {
+		ArrayList<PlayerForProtocol> players = new ArrayList<>();
+		int[] numberOfCards = new int[memory.playerList.size()];
+		for (PlayerForProtocol player : memory.playerList) {
+			DevelopmentCards cards = player.getDevelopmentCards();
+			if (player.getId() == playerId || getBoughtThisRound(player).getTotalCards() > 0)
+				continue;
+			numberOfCards[players.size()] = cards.getTotalCards();
+			players.add(player);
+			int[] available = memory.availableDevelopmentCards;
+			available[0] += cards.getKnight();
+			available[1] += cards.getRoadBuilding();
+			available[2] += cards.getMonopoly();
+			available[3] += cards.getYearOfPlenty();
+			available[4] += cards.getVictoryPoint();
+			player.setDevelopmentCards(new DevelopmentCards(0, 0, 0, 0, 0, 0));
+		}
+		for (int i = 0; i < players.size(); i++) {
+			for (int card = 0; card < numberOfCards[i]; card++)
+				players.get(i).getDevelopmentCards().addCards(memory.getRandomDevelopmentCard());
+		}
+	}
+
+	/**
+	 * Writes the state of the game for a snapshot of its journal, read by
+	 * {@link #readSnapshot(DataInputStream)}. Only the number of actions
+	 * applied so far is written, not the actions, so the snapshot does not
+	 * grow with the game.
+	 */
+	public void writeSnapshot(DataOutputStream out) throws IOException {
+		out.writeBoolean(playedDevelopmentCard);
+		out.writeInt(winner == null ? -1 : winner.getId());
+		out.writeInt(getNumberOfActions());
+		memory.writeSnapshot(out);
+	}
+
+	/**
+	 * Reads a game written by {@link #writeSnapshot(DataOutputStream)}. The
+	 * game continues exactly like the one written, dice and cards included.
+	 *
+	 * @return the engine of the game, without journal
+	 */
+	public static GameEngine readSnapshot(DataInputStream in) throws IOException {
+		boolean playedDevelopmentCard = in.readBoolean();
+		int winnerId = in.readInt();
+		int numberOfActions = in.readInt();
+		GameEngine engine = new GameEngine(ServerMemoryLogic.readSnapshot(in));
+		engine.playedDevelopmentCard = playedDevelopmentCard;
+		engine.winner = engine.memory.findPlayerByID(winnerId);
+		engine.actionsBeforeHistory = numberOfActions;
+		return engine;
+	}
+
+	private static String getLocation(int[] fields) {
+		StringBuilder location = new StringBuilder();
+		for (int field : fields)
+			location.append(BoardTopology.getLetter(field));
+		return location.toString();
+	}
+
+	// Game start
+
+	/**
+	 * Adds a player before the game is started.
+	 *
+	 * @return the player, null if the color is already taken
+	 */
+	public PlayerForProtocol addPlayer(int id, String color, String name) {
+		for (PlayerForProtocol player : memory.playerList) {
+			if (player.getColor().equals(color))
+				return null;
+		}
+		PlayerForProtocol player = new PlayerForProtocol(id, color, name);
+		player.setStatus("Spiel starten");
+		memory.playerList.add(player);
+		if (journal != null)
+			journal.playerAdded(id, color, name);
+		return player;
+	}
+
+	/**
+	 * Creates the board and lets the first player place his settlement.
+	 *
+	 * @throws IllegalStateException
+	 *             if there are less than 3 players
+	 */
+	public void startGame(GameEventListener listener) {
+		memory.initialPhaseRemainingTurns = memory.playerList.size() * 2;
+		if (memory.initialPhaseRemainingTurns < 6)
+			throw new IllegalStateException("initialPhaseRemainingTurns (" + memory.initialPhaseRemainingTurns
+					+ ") must not be < 6 at game start");
+		for (PlayerForProtocol player : memory.playerList) {
+			memory.playerIdToAvailableBuildings.put(player.getId(), new int[] { 15, 5, 4 });
+			memory.playerIdToDevCardsBoughtThisRound.put(player.getId(), new DevelopmentCards(0, 0, 0, 0, 0, 0));
+			player.setStatus("Wartet auf Spielbeginn");
+			listener.statusChanged(player);
+		}
+		Field[] fields = memory.generateRandomFields();
+		Port[] ports = memory.generateRandomPorts();
+		// The thief starts in the desert
+		String thief = "S";
+		for (Field field : fields) {
+			if (field.getType().equals("Wueste"))
+				thief = field.getLocation();
+		}
+		memory.serverMap = new Map(fields, new Building[0], ports, thief);
+		memory.productionIndex = new ProductionIndex(fields);
+		memory.roadNetwork = new RoadNetwork();
+		listener.gameStarted(memory.serverMap);
+
+		Collections.shuffle(memory.playerList, memory.random);
+		PlayerForProtocol playerToStart = memory.playerList.get(0);
+		playerToStart.setStatus("Dorf bauen");
+		memory.setCurrentPlayer(playerToStart);
+		listener.statusChanged(playerToStart);
+		if (journal != null)
+			journal.gameStarted();
+	}
+
+	// Actions
+
+	/**
+	 * Applies the action of a player if it is legal.
+	 *
+	 * @param action
+	 * @param listener
+	 *            is told about everything that happens
+	 * @return True, if the action has been applied
+	 */
+	public boolean apply(GameAction action, GameEventListener listener) {
+		if (!applyAction(action, listener))
+			return false;
+		history.add(action);
+		if (journal != null)
+			journal.actionApplied(action);
+		return true;
+	}
+
+	private boolean applyAction(GameAction action, GameEventListener listener) {
+		PlayerForProtocol player = memory.findPlayerByID(action.getPlayer());
+		if (player == null || memory.serverMap == null || winner != null) {
+			listener.error("The game is not running");
+			return false;
+		}
+		switch (action.getType()) {
+		case BUILD:
+			return build(player, action.getBuilding(), listener);
+		case ROLL_DICE:
+			return rollDice(player, listener);
+		case RETURN_RESOURCES:
+			return returnResources(player, action.getSupply(), listener);
+		case MOVE_THIEF:
+			return moveThief(player, action.getLocation(), action.getTarget(), listener);
+		case END_TURN:
+			return endTurn(player, listener);
+		case BUY_DEVELOPMENT_CARD:
+			return buyDevelopmentCard(player, listener);
+		case PLAY_KNIGHT_CARD:
+			return playKnightCard(player, action.getLocation(), action.getTarget(), listener);
+		case PLAY_ROAD_BUILDING_CARD:
+			return playRoadBuildingCard(player, action.getLocation(), action.getSecondLocation(), listener);
+		case PLAY_MONOPOLY_CARD:
+			return playMonopolyCard(player, action.getResource(), listener);
+		case PLAY_YEAR_OF_PLENTY_CARD:
+			return playYearOfPlentyCard(player, action.getSupply(), listener);
+		case MARITIME_TRADE:
+			return maritimeTrade(player, action.getSupply(), action.getDemand(), listener);
+		case DOMESTIC_TRADE:
+			return domesticTrade(player, action.getTarget(), action.getSupply(), action.getDemand(), listener);
+		default:
+			return false;
+		}
+	}
+
+	private boolean build(PlayerForProtocol player, Building building, GameEventListener listener) {
+		if (building == null || building.getType() == null) {
+			listener.error("Your build request is not legal or invalid.");
+			return false;
+		}
+		building.setOwner(player.getId());
+		boolean initialPhase = memory.initialPhaseRemainingTurns > 0;
+		if (!ServerRequestCheck.buildingCheck(memory, building, initialPhase)) {
+			listener.error("Your build request is not legal or invalid.");
+			return false;
+		}
+		int[] availableBuildings = memory.playerIdToAvailableBuildings.get(player.getId());
+		if (building.getType().equals("Strasse"))
+			availableBuildings[0]--;
+		else if (building.getType().equals("Dorf"))
+			availableBuildings[1]--;
+		else if (building.getType().equals("Stadt")) {
+			availableBuildings[1]++;
+			availableBuildings[2]--;
+		}
+		memory.addBuilding(building);
+		listener.buildingBuilt(building);
+
+		if (initialPhase) {
+			if (player.getStatus().equals("Strasse bauen")) {
+				player.setStatus("Handeln oder Bauen");
+				endTurn(player, listener);
+			} else if (player.getStatus().equals("Dorf bauen")) {
+				// The street of the initial phase has to be built next to it
+				memory.playerIdToSecondInitialPhaseSettlement.put(player.getId(), building);
+				addVictoryPoints(player, 1, listener);
+				// add resources for second village build
+				if (memory.initialPhaseRemainingTurns <= memory.playerList.size()) {
+					Resources resources = new Resources(0, 0, 0, 0, 0, 0);
+					for (Field field : memory.serverMap.getFields()) {
+						if (building.getLocation().contains(field.getLocation())) {
+							String resource = getResourceOfFieldType(field.getType());
+							if (resource != null)
+								resources.addResource(resource, 1);
+						}
+					}
+					earn(player, resources, listener);
+				}
+				player.setStatus("Strasse bauen");
+				listener.statusChanged(player);
+			}
+		} else {
+			Resources costs = getCosts(building.getType());
+			if (!building.getType().equals("Strasse"))
+				addVictoryPoints(player, 1, listener);
+			player.substractFromPlayersResources(costs);
+			memory.increaseAvailableResourceCardsNumber(costs);
+			listener.costs(new Costs(player.getId(), costs), true);
+			updateLongestRoad(listener);
+		}
+		return true;
+	}
+
+	private boolean rollDice(PlayerForProtocol player, GameEventListener listener) {
+		if (!player.getStatus().equals("Wuerfeln")) {
+			listener.error("It is not your turn to roll the dice.");
+			return false;
+		}
+		int[] dice = { memory.random.nextInt(6) + 1, memory.random.nextInt(6) + 1 };
+		DiceThrow diceThrow = new DiceThrow(player.getId(), dice);
+		listener.diceThrown(diceThrow);
+		if (diceThrow.getDiceSum() != 7) {
+			for (Earnings earnings : memory.updatePlayerResoucesAfterDiceThrow(diceThrow.getDiceSum()))
+				earn(memory.findPlayerByID(earnings.getPlayer()), earnings.getResources(), listener);
+			player.setStatus("Handeln oder Bauen");
+			listener.statusChanged(player);
+			return true;
+		}
+		// Players with more than 7 cards return half of them, then the thief
+		// is moved
+		player.setStatus("Warten");
+		memory.playersWhoNeedToGiveBackCards.clear();
+		memory.playerToMoveThiefNext = player;
+		for (PlayerForProtocol p : memory.playerList) {
+			if (p.getResources().getTotalResources() > 7)
+				memory.playersWhoNeedToGiveBackCards.add(p.getId());
+		}
+		if (memory.playersWhoNeedToGiveBackCards.isEmpty()) {
+			requestThiefMove(listener);
+			return true;
+		}
+		for (Integer id : new ArrayList<>(memory.playersWhoNeedToGiveBackCards)) {
+			PlayerForProtocol p = memory.findPlayerByID(id);
+			p.setStatus("Karten wegen Raeuber abgeben");
+			listener.statusChanged(p);
+		}
+		return true;
+	}
+
+	private boolean returnResources(PlayerForProtocol player, Resources resources, GameEventListener listener) {
+		if (!memory.playersWhoNeedToGiveBackCards.contains(player.getId()) || memory.playerToMoveThiefNext == null) {
+			listener.error("You don't need to return resources");
+			return false;
+		}
+		// Check if enough resources are dropped
+		if (!isValidAmount(resources)
+				|| player.getResources().getTotalResources() / 2 > resources.getTotalResources()) {
+			listener.error("You need to drop more resources");
+			return false;
+		}
+		// Check if player has the resources he wants to drop
+		if (!ServerRequestCheck.checkIfEnoughResources(player, resources)) {
+			listener.error("You don't have this amount of resources");
+			return false;
+		}
+		player.substractFromPlayersResources(resources);
+		memory.increaseAvailableResourceCardsNumber(resources);
+		memory.playersWhoNeedToGiveBackCards.remove(player.getId());
+		listener.costs(new Costs(player.getId(), resources), false);
+		if (player != memory.playerToMoveThiefNext) {
+			player.setStatus("Warten");
+			listener.statusChanged(player);
+		}
+		if (memory.playersWhoNeedToGiveBackCards.isEmpty())
+			requestThiefMove(listener);
+		return true;
+	}
+
+	/**
+	 * Lets the player who rolled the 7 move the thief.
+	 */
+	private void requestThiefMove(GameEventListener listener) {
+		PlayerForProtocol player = memory.playerToMoveThiefNext;
+		memory.playerToMoveThiefNext = null;
+		if (player == null)
+			return;
+		player.setStatus("Raeuber versetzen");
+		listener.thiefMoveRequested(player);
+	}
+
+	private boolean moveThief(PlayerForProtocol player, String location, Integer target,
+			GameEventListener listener) {
+		if (!player.getStatus().equals("Raeuber versetzen")) {
+			listener.error("You are not allowed to move the thief");
+			return false;
+		}
+		if (!isValidThiefLocation(location)) {
+			listener.error("Your chosen " + location + " location is invalid.");
+			return false;
+		}
+		memory.serverMap.setThief(location);
+		if (target != null)
+			stealResource(player, target, listener);
+		listener.thiefMoved(new ThiefMoved(player.getId(), location, target));
+		// the player who moved the thief goes on with his turn
+		player.setStatus("Handeln oder Bauen");
+		memory.setCurrentPlayer(player);
+		listener.statusChanged(player);
+		return true;
+	}
+
+	/**
+	 * @return True, if the thief may be moved to the field (land, not its
+	 *         current field)
+	 */
+	private boolean isValidThiefLocation(String location) {
+		if (location == null || location.length() != 1 || location.equals(memory.serverMap.getThief()))
+			return false;
+		int field = BoardTopology.getField(location.charAt(0));
+		return field >= 0 && BoardTopology.isLand(field);
+	}
+
+	/**
+	 * Moves a random resource card of the target to the player (if the target
+	 * has any).
+	 */
+	private void stealResource(PlayerForProtocol player, int targetId, GameEventListener listener) {
+		PlayerForProtocol target = memory.findPlayerByID(targetId);
+		if (target == null || target == player || target.getResources().getTotalResources() == 0)
+			return;
+		// Start at a random type and take the next one the target has
+		int i = memory.random.nextInt(RESOURCES.length);
+		while (target.getResources().getResource(RESOURCES[i]) == 0)
+			i = (i + 1) % RESOURCES.length;
+		Resources stolenCard = new Resources(0, 0, 0, 0, 0, 1);
+		stolenCard.addResource(RESOURCES[i], 1);
+		listener.costs(new Costs(target.getId(), stolenCard), false);
+		target.substractFromPlayersResources(stolenCard);
+		listener.earnings(new Earnings(player.getId(), stolenCard));
+		player.addToPlayersResources(stolenCard);
+	}
+
+	private boolean endTurn(PlayerForProtocol player, GameEventListener listener) {
+		if (!player.getStatus().equals("Handeln oder Bauen")) {
+			listener.error("It is not your turn.");
+			return false;
+		}
+		memory.initialPhaseRemainingTurns--;
+		memory.playerIdToDevCardsBoughtThisRound.put(player.getId(), new DevelopmentCards(0, 0, 0, 0, 0, 0));
+		int index = memory.playerList.indexOf(player);
+		int players = memory.playerList.size();
+		int remaining = memory.initialPhaseRemainingTurns;
+		int indexNextTurn;
+		if (remaining == 0)
+			indexNextTurn = 0;
+		else if (remaining <= players && remaining > 0)
+			// second round of the initial phase, backwards starting with the last player
+			indexNextTurn = index - (players == remaining ? 0 : 1);
+		else
+			indexNextTurn = (index + 1) % players;
+
+		PlayerForProtocol nextPlayer = memory.playerList.get(indexNextTurn);
+		player.setStatus("Warten");
+		nextPlayer.setStatus(remaining > 0 ? "Dorf bauen" : "Wuerfeln");
+		playedDevelopmentCard = false;
+		memory.setCurrentPlayer(nextPlayer);
+		listener.turnEnded(player, nextPlayer);
+		return true;
+	}
+
+	private boolean buyDevelopmentCard(PlayerForProtocol player, GameEventListener listener) {
+		if (!ServerRequestCheck.checkIfAbleToBuyDevelopmentCard(player)) {
+			listener.error("You cannot buy a development card right now");
+			return false;
+		}
+		DevelopmentCards developmentCard = memory.getRandomDevelopmentCard();
+		if (developmentCard == null) {
+			listener.error("There are no development cards left");
+			return false;
+		}
+		memory.playerIdToDevCardsBoughtThisRound.get(player.getId()).addCards(developmentCard);
+		player.getDevelopmentCards().addCards(developmentCard);
+		listener.developmentCardBought(player.getId(), developmentCard);
+		pay(player, ServerMemoryLogic.costsOfADevelopmentCard, listener);
+		checkVictory(player, listener);
+		return true;
+	}
+
+	/**
+	 * Checks if a development card may be played now: once per turn, before or
+	 * after rolling the dice, and not in the turn it has been bought.
+	 *
+	 * @param cards
+	 *            number of cards of the type the player owns
+	 * @param boughtThisRound
+	 *            number of cards of the type bought this turn
+	 */
+	private boolean canPlayDevelopmentCard(PlayerForProtocol player, int cards, int boughtThisRound) {
+		return (player.getStatus().equals("Handeln oder Bauen") || player.getStatus().equals("Wuerfeln"))
+				&& cards >= 1 && !playedDevelopmentCard && boughtThisRound != cards;
+	}
+
+	private DevelopmentCards getBoughtThisRound(PlayerForProtocol player) {
+		return memory.playerIdToDevCardsBoughtThisRound.get(player.getId());
+	}
+
+	private boolean playKnightCard(PlayerForProtocol player, String location, Integer target,
+			GameEventListener listener) {
+		if (!canPlayDevelopmentCard(player, player.getDevelopmentCards().getKnight(),
+				getBoughtThisRound(player).getKnight())) {
+			listener.error("You can't play that now");
+			return false;
+		}
+		if (!isValidThiefLocation(location)) {
+			listener.error("Invalid location!");
+			return false;
+		}
+		player.setKnightPoints(player.getKnightPoints() == null ? 1 : player.getKnightPoints() + 1);
+		player.getDevelopmentCards().removeCard(new DevelopmentCards(1, 0, 0, 0, 0, 0));
+		memory.serverMap.setThief(location);
+		if (target != null)
+			stealResource(player, target, listener);
+		listener.knightCardPlayed(new PlayKnightCard(location, target, player.getId()));
+		playedDevelopmentCard = true;
+		if (player.getKnightPoints() > memory.largestArmy && !player.hasLargestArmy()) {
+			PlayerForProtocol previousPlayer = memory.currentPlayerWithLargestArmy;
+			if (previousPlayer != null) {
+				addVictoryPoints(previousPlayer, -2, listener);
+				previousPlayer.setLargestArmy(false);
+			}
+			memory.largestArmy = player.getKnightPoints();
+			memory.currentPlayerWithLargestArmy = player;
+			player.setLargestArmy(true);
+			addVictoryPoints(player, 2, listener);
+			listener.largestArmyChanged(player);
+		}
+		return true;
+	}
+
+	private boolean playRoadBuildingCard(PlayerForProtocol player, String street1, String street2,
+			GameEventListener listener) {
+		if (!canPlayDevelopmentCard(player, player.getDevelopmentCards().getRoadBuilding(),
+				getBoughtThisRound(player).getRoadBuilding())) {
+			listener.error("You can't play that now");
+			return false;
+		}
+		int[] availableBuildings = memory.playerIdToAvailableBuildings.get(player.getId());
+		if (availableBuildings[0] == 0) {
+			listener.error("You have no streets left");
+			return false;
+		}
+		if (street1 == null || street1.equals(street2)) {
+			listener.error("You chose the same street twice");
+			return false;
+		}
+		if (street2 != null && availableBuildings[0] == 1) {
+			listener.error("Only one street could be built");
+			street2 = null;
+		}
+		Building first = new Building(player.getId(), "Strasse", street1);
+		Building second = street2 == null ? null : new Building(player.getId(), "Strasse", street2);
+		// The second street may be required for the first one to be legal
+		if (!addStreets(first, second) && (second == null || !addStreets(second, first))) {
+			listener.error("Road building card declined, please choose different streets");
+			return false;
+		}
+		availableBuildings[0] -= second == null ? 1 : 2;
+		player.getDevelopmentCards().removeCard(new DevelopmentCards(0, 1, 0, 0, 0, 0));
+		playedDevelopmentCard = true;
+		listener.roadBuildingCardPlayed(second == null ? new PlayRoadBuildingCard(street1, player.getId())
+				: new PlayRoadBuildingCard(street1, street2, player.getId()));
+		listener.buildingBuilt(first);
+		if (second != null)
+			listener.buildingBuilt(second);
+		updateLongestRoad(listener);
+		return true;
+	}
+
+	/**
+	 * Adds the streets of a road building card if both are legal in this order.
+	 *
+	 * @param second
+	 *            may be null
+	 * @return True, if the streets have been added
+	 */
+	private boolean addStreets(Building first, Building second) {
+		if (!isLegalFreeStreet(first))
+			return false;
+		memory.addBuilding(first);
+		if (second == null)
+			return true;
+		if (!isLegalFreeStreet(second)) {
+			memory.removeBuilding(first);
+			return false;
+		}
+		memory.addBuilding(second);
+		return true;
+	}
+
+	/**
+	 * @return True, if the street of a road building card may be built
+	 */
+	private boolean isLegalFreeStreet(Building street) {
+		return BoardIndex.getLocationId(street) >= 0
+				&& memory.serverMap.isOccupiedBy(street) == BuildingType.NONE
+				&& ServerRequestCheck.checkStreetRequest(memory, street, false, true);
+	}
+
+	private boolean playMonopolyCard(PlayerForProtocol player, String resource, GameEventListener listener) {
+		if (!canPlayDevelopmentCard(player, player.getDevelopmentCards().getMonopoly(),
+				getBoughtThisRound(player).getMonopoly())) {
+			listener.error("You can't play that now");
+			return false;
+		}
+		if (getResourceIndex(resource) < 0) {
+			listener.error("Invalid resource");
+			return false;
+		}
+		player.getDevelopmentCards().setMonopoly(player.getDevelopmentCards().getMonopoly() - 1);
+		listener.monopolyCardPlayed(new Monopoly(resource, player.getId()));
+		playedDevelopmentCard = true;
+		// Every other player gives all his cards of the resource
+		Resources earnings = new Resources(0, 0, 0, 0, 0, 0);
+		for (PlayerForProtocol p : memory.playerList) {
+			if (p == player)
+				continue;
+			Resources resources = new Resources(0, 0, 0, 0, 0, 0);
+			resources.addResource(resource, p.getResources().getResource(resource));
+			listener.costs(new Costs(p.getId(), resources), false);
+			p.getResources().substractFromResources(resources);
+			earnings.addToResources(resources);
+		}
+		// Set hidden 0, because we send earnings always without hidden
+		earnings.setHidden(0);
+		listener.earnings(new Earnings(player.getId(), earnings));
+		player.getResources().addToResources(earnings);
+		return true;
+	}
+
+	private boolean playYearOfPlentyCard(PlayerForProtocol player, Resources resources,
+			GameEventListener listener) {
+		if (!canPlayDevelopmentCard(player, player.getDevelopmentCards().getYearOfPlenty(),
+				getBoughtThisRound(player).getYearOfPlenty())) {
+			listener.error("You can't play that now");
+			return false;
+		}
+		if (!isValidAmount(resources) || resources.getTotalResources() != 2) {
+			listener.error("Wrong amount of resources");
+			return false;
+		}
+		listener.yearOfPlentyCardPlayed(new YearOfPlenty(resources, player.getId()));
+		playedDevelopmentCard = true;
+		player.getDevelopmentCards().setYearOfPlenty(player.getDevelopmentCards().getYearOfPlenty() - 1);
+		earn(player, new Resources(resources.getWood(), resources.getLoam(), resources.getWool(),
+				resources.getGrain(), resources.getStone(), 0), listener);
+		return true;
+	}
+
+	private boolean maritimeTrade(PlayerForProtocol player, Resources supply, Resources demand,
+			GameEventListener listener) {
+		if (!isValidAmount(supply) || !isValidAmount(demand) || demand.getTotalResources() != 1
+				|| !ServerRequestCheck.mariTimeTradeCheck(memory, new MaritimeTrade(supply, demand), player)) {
+			listener.error("Your trade request is not legal or invalid.");
+			return false;
+		}
+		pay(player, supply, listener);
+		earn(player, new Resources(demand.getWood(), demand.getLoam(), demand.getWool(), demand.getGrain(),
+				demand.getStone(), 0), listener);
+		return true;
+	}
+
+	private boolean domesticTrade(PlayerForProtocol player, Integer partnerId, Resources supply, Resources demand,
+			GameEventListener listener) {
+		PlayerForProtocol partner = partnerId == null ? null : memory.findPlayerByID(partnerId);
+		if (partner == null || partner == player || !ServerRequestCheck.domesticTradeCheck(player, supply, demand)
+				|| !player.getStatus().equals("Handeln oder Bauen")
+				|| !ServerRequestCheck.checkIfEnoughResources(partner, demand)) {
+			listener.error("Your trade request is not legal or invalid.");
+			return false;
+		}
+		listener.costs(new Costs(player.getId(), supply), false);
+		player.substractFromPlayersResources(supply);
+		listener.earnings(new Earnings(player.getId(), demand));
+		player.addToPlayersResources(demand);
+
+		listener.costs(new Costs(partner.getId(), demand), false);
+		partner.substractFromPlayersResources(demand);
+		listener.earnings(new Earnings(partner.getId(), supply));
+		partner.addToPlayersResources(supply);
+		listener.tradeFinished(player.getId(), partner.getId());
+		return true;
+	}
+
+	// Helpers
+
+	/**
+	 * Gives resources of the bank to a player. If the bank runs out of a
+	 * resource the player only gets what is left.
+	 *
+	 * @param resources
+	 *            the resources (reduced to what the bank has)
+	 */
+	private void earn(PlayerForProtocol player, Resources resources, GameEventListener listener) {
+		boolean notEnoughResources = false;
+		int[] available = memory.availableResourceCards;
+		if (available[0] < resources.getWood()) {
+			resources.setWood(available[0]);
+			notEnoughResources = true;
+		}
+		if (available[1] < resources.getLoam()) {
+			resources.setLoam(available[1]);
+			notEnoughResources = true;
+		}
+		if (available[2] < resources.getWool()) {
+			resources.setWool(available[2]);
+			notEnoughResources = true;
+		}
+		if (available[3] < resources.getGrain()) {
+			resources.setGrain(available[3]);
+			notEnoughResources = true;
+		}
+		if (available[4] < resources.getStone()) {
+			resources.setStone(available[4]);
+			notEnoughResources = true;
+		}
+		memory.reduceAvailableResourceCardsNumber(resources);
+		if (notEnoughResources)
+			listener.error("There were not enough resources");
+		listener.earnings(new Earnings(player.getId(), resources));
+		player.addToPlayersResources(resources);
+	}
+
+	/**
+	 * Gives resources of a player to the bank.
+	 */
+	private void pay(PlayerForProtocol player, Resources resources, GameEventListener listener) {
+		listener.costs(new Costs(player.getId(), resources), false);
+		player.substractFromPlayersResources(resources);
+		memory.increaseAvailableResourceCardsNumber(resources);
+	}
+
+	/**
+	 * Gives resources of the bank to a player, bypassing the rules (used for
+	 * testing).
+	 */
+	public void giveResources(int playerId, Resources resources, GameEventListener listener) {
+		PlayerForProtocol player = memory.findPlayerByID(playerId);
+		if (player == null)
+			return;
+		earn(player, resources, listener);
+		if (journal != null)
+			journal.resourcesGiven(playerId, resources);
+	}
+
+	/**
+	 * Gives all resources of a player to the bank, bypassing the rules (used
+	 * for testing).
+	 */
+	public void dropResources(int playerId, GameEventListener listener) {
+		PlayerForProtocol player = memory.findPlayerByID(playerId);
+		if (player == null)
+			return;
+		Resources resources = player.getResources();
+		pay(player, new Resources(resources.getWood(), resources.getLoam(), resources.getWool(),
+				resources.getGrain(), resources.getStone(), 0), listener);
+		if (journal != null)
+			journal.resourcesDropped(playerId);
+	}
+
+	private void addVictoryPoints(PlayerForProtocol player, int amount, GameEventListener listener) {
+		player.setVictoryPoints(player.getVictoryPoints() + amount);
+		checkVictory(player, listener);
+	}
+
+	/**
+	 * Ends the game if the player reaches 10 points with his victory point
+	 * cards.
+	 */
+	private void checkVictory(PlayerForProtocol player, GameEventListener listener) {
+		int maximalPoints = player.getVictoryPoints() + player.getDevelopmentCards().getVictoryPoint();
+		if (winner == null && maximalPoints >= 10) {
+			player.setVictoryPoints(maximalPoints);
+			winner = player;
+			listener.gameOver(player);
+		}
+	}
+
+	/**
+	 * Moves the longest road (and its 2 points) to the player who has it now.
+	 */
+	private void updateLongestRoad(GameEventListener listener) {
+		PlayerForProtocol player = memory.getPlayerWithLongestRoute();
+		PlayerForProtocol previousPlayer = memory.currentPlayerWithLongestRoad;
+		if (player == previousPlayer)
+			return;
+		if (player != null) {
+			if (previousPlayer != null) {
+				addVictoryPoints(previousPlayer, -2, listener);
+				previousPlayer.setLongestRoad(false);
+			}
+			memory.currentPlayerWithLongestRoad = player;
+			listener.longestRoadChanged(player);
+			addVictoryPoints(player, 2, listener);
+			player.setLongestRoad(true);
+			listener.statusChanged(player);
+		} else {
+			listener.longestRoadChanged(null);
+			addVictoryPoints(previousPlayer, -2, listener);
+			previousPlayer.setLongestRoad(false);
+			listener.statusChanged(previousPlayer);
+			memory.currentPlayerWithLongestRoad = null;
+		}
+	}
+
+	private static Resources getCosts(String buildingType) {
+		switch (buildingType) {
+		case "Strasse":
+			return STREET_COSTS;
+		case "Dorf":
+			return SETTLEMENT_COSTS;
+		default:
+			return CITY_COSTS;
+		}
+	}
+
+	/**
+	 * @return the resource produced by a field type, null for desert and sea
+	 */
+	private static String getResourceOfFieldType(String type) {
+		switch (type) {
+		case "Wald":
+			return "Holz";
+		case "Huegelland":
+			return "Lehm";
+		case "Weideland":
+			return "Wolle";
+		case "Ackerland":
+			return "Getreide";
+		case "Gebirge":
+			return "Erz";
+		default:
+			return null;
+		}
+	}
+
+	private static int getResourceIndex(String resource) {
+		for (int i = 0; i < RESOURCES.length; i++) {
+			if (RESOURCES[i].equals(resource))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return True, if no amount of the resources is negative
+	 */
+	private static boolean isValidAmount(Resources resources) {
+		return resources != null && resources.getWood() >= 0 && resources.getLoam() >= 0
+				&& resources.getWool() >= 0 && resources.getGrain() >= 0 && resources.getStone() >= 0;
+	}
+
+	private static int[] toArray(Resources resources) {
+		return new int[] { resources.getWood(), resources.getLoam(), resources.getWool(), resources.getGrain(),
+				resources.getStone() };
+	}
+
+	private static Resources toResources(int[] amounts) {
+		return new Resources(amounts[0], amounts[1], amounts[2], amounts[3], amounts[4], 0);
+	}
+
+	// Legal actions
+
+	/**
+	 * Lists the actions a player may take now. Domestic trades are not listed,
+	 * they need the consent of an other player. Equivalent actions are listed
+	 * once: maritime trades only at the best rate, resources are returned
+	 * exactly half and the thief only steals from players with resources if
+	 * there are any next to the field.
+	 *
+	 * @param playerId
+	 * @return the actions, empty if the player has nothing to do
+	 */
+	public ArrayList<GameAction> getLegalActions(int playerId) {
+		ArrayList<GameAction> actions = new ArrayList<>();
+		PlayerForProtocol player = memory.findPlayerByID(playerId);
+		if (player == null || memory.serverMap == null || winner != null)
+			return actions;
+		switch (player.getStatus()) {
+		case "Dorf bauen":
+			addBuildActions(actions, player, "Dorf");
+			break;
+		case "Strasse bauen":
+			addBuildActions(actions, player, "Strasse");
+			break;
+		case "Wuerfeln":
+			actions.add(GameAction.rollDice(playerId));
+			addDevelopmentCardActions(actions, player);
+			break;
+		case "Handeln oder Bauen":
+			actions.add(GameAction.endTurn(playerId));
+			if (memory.initialPhaseRemainingTurns > 0)
+				break;
+			addBuildActions(actions, player, "Strasse");
+			addBuildActions(actions, player, "Dorf");
+			addBuildActions(actions, player, "Stadt");
+			if (ServerRequestCheck.checkIfAbleToBuyDevelopmentCard(player) && getNumberOfDevelopmentCards() > 0)
+				actions.add(GameAction.buyDevelopmentCard(playerId));
+			addMaritimeTradeActions(actions, player);
+			addDevelopmentCardActions(actions, player);
+			break;
+		case "Karten wegen Raeuber abgeben":
+			if (memory.playersWhoNeedToGiveBackCards.contains(playerId))
+				addReturnActions(actions, player);
+			break;
+		case "Raeuber versetzen":
+			addThiefActions(actions, player, false);
+			break;
+		default:
+			break;
+		}
+		return actions;
+	}
+
+	/**
+	 * @return the players who have to act now (more than one while resources
+	 *         are returned)
+	 */
+	public ArrayList<PlayerForProtocol> getPlayersToAct() {
+		ArrayList<PlayerForProtocol> players = new ArrayList<>();
+		if (memory.serverMap == null || winner != null)
+			return players;
+		for (PlayerForProtocol player : memory.playerList) {
+			switch (player.getStatus()) {
+			case "Dorf bauen":
+			case "Strasse bauen":
+			case "Wuerfeln":
+			case "Handeln oder Bauen":
+			case "Raeuber versetzen":
+				players.add(player);
+				break;
+			case "Karten wegen Raeuber abgeben":
+				// The player who rolled the 7 keeps the status until the thief is moved
+				if (memory.playersWhoNeedToGiveBackCards.contains(player.getId()))
+					players.add(player);
+				break;
+			default:
+				break;
+			}
+		}
+		return players;
+	}
+
+	private void addBuildActions(ArrayList<GameAction> actions, PlayerForProtocol player, String type) {
+		boolean initialPhase = memory.initialPhaseRemainingTurns > 0;
+		if (!initialPhase && !ServerRequestCheck.checkIfEnoughResources(player, getCosts(type)))
+			return;
+		BoardIndex index = memory.serverMap.getIndex();
+		int id = player.getId();
+		if (type.equals("Strasse")) {
+			for (int edge = 0; edge < EDGE_LOCATIONS.length; edge++) {
+				if (index.getOwnerOfEdge(edge) != BoardIndex.NO_OWNER)
+					continue;
+				Building building = new Building(id, type, EDGE_LOCATIONS[edge]);
+				if (ServerRequestCheck.buildingCheck(memory, building, initialPhase))
+					actions.add(GameAction.build(id, building));
+			}
+		} else {
+			BuildingType required = type.equals("Stadt") ? BuildingType.VILLAGE : BuildingType.NONE;
+			for (int vertex = 0; vertex < VERTEX_LOCATIONS.length; vertex++) {
+				if (index.getTypeOfVertex(vertex) != required
+						|| (required == BuildingType.VILLAGE && index.getOwnerOfVertex(vertex) != id))
+					continue;
+				Building building = new Building(id, type, VERTEX_LOCATIONS[vertex]);
+				if (ServerRequestCheck.buildingCheck(memory, building, initialPhase))
+					actions.add(GameAction.build(id, building));
+			}
+		}
+	}
+
+	private int getNumberOfDevelopmentCards() {
+		int cards = 0;
+		for (int available : memory.availableDevelopmentCards)
+			cards += available;
+		return cards;
+	}
+
+	private void addMaritimeTradeActions(ArrayList<GameAction> actions, PlayerForProtocol player) {
+		int[] resources = toArray(player.getResources());
+		boolean threeForOne = memory.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
+		for (int supply = 0; supply < RESOURCES.length; supply++) {
+			int rate = memory.serverMap.checkIfOwnPortNearby(player, PORTS[supply]) ? 2 : threeForOne ? 3 : 4;
+			if (resources[supply] < rate)
+				continue;
+			for (int demand = 0; demand < RESOURCES.length; demand++) {
+				if (demand == supply || memory.availableResourceCards[demand] == 0)
+					continue;
+				int[] supplied = new int[RESOURCES.length];
+				int[] demanded = new int[RESOURCES.length];
+				supplied[supply] = rate;
+				demanded[demand] = 1;
+				actions.add(GameAction.maritimeTrade(player.getId(), toResources(supplied), toResources(demanded)));
+			}
+		}
+	}
+
+	private void addDevelopmentCardActions(ArrayList<GameAction> actions, PlayerForProtocol player) {
+		DevelopmentCards cards = player.getDevelopmentCards();
+		DevelopmentCards boughtThisRound = getBoughtThisRound(player);
+		int id = player.getId();
+		if (canPlayDevelopmentCard(player, cards.getKnight(), boughtThisRound.getKnight()))
+			addThiefActions(actions, player, true);
+		if (canPlayDevelopmentCard(player, cards.getRoadBuilding(), boughtThisRound.getRoadBuilding())
+				&& memory.playerIdToAvailableBuildings.get(id)[0] > 0)
+			addRoadBuildingActions(actions, player);
+		if (canPlayDevelopmentCard(player, cards.getMonopoly(), boughtThisRound.getMonopoly())) {
+			for (String resource : RESOURCES)
+				actions.add(GameAction.playMonopolyCard(id, resource));
+		}
+		if (canPlayDevelopmentCard(player, cards.getYearOfPlenty(), boughtThisRound.getYearOfPlenty())) {
+			for (int first = 0; first < RESOURCES.length; first++) {
+				for (int second = first; second < RESOURCES.length; second++) {
+					int[] amounts = new int[RESOURCES.length];
+					amounts[first]++;
+					amounts[second]++;
+					if (memory.availableResourceCards[first] >= amounts[first]
+							&& memory.availableResourceCards[second] >= amounts[second])
+						actions.add(GameAction.playYearOfPlentyCard(id, toResources(amounts)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lists every pair of streets once (any order that is legal), single
+	 * streets only if no pair is possible.
+	 */
+	private void addRoadBuildingActions(ArrayList<GameAction> actions, PlayerForProtocol player) {
+		int id = player.getId();
+		boolean twoStreets = memory.playerIdToAvailableBuildings.get(id)[0] >= 2;
+		BoardIndex index = memory.serverMap.getIndex();
+		ArrayList<Integer> firstStreets = new ArrayList<>();
+		for (int edge = 0; edge < EDGE_LOCATIONS.length; edge++) {
+			if (index.getOwnerOfEdge(edge) == BoardIndex.NO_OWNER
+					&& isLegalFreeStreet(new Building(id, "Strasse", EDGE_LOCATIONS[edge])))
+				firstStreets.add(edge);
+		}
+		boolean[] listed = new boolean[EDGE_LOCATIONS.length * EDGE_LOCATIONS.length];
+		boolean pairFound = false;
+		if (twoStreets) {
+			for (int first : firstStreets) {
+				Building firstStreet = new Building(id, "Strasse", EDGE_LOCATIONS[first]);
+				memory.addBuilding(firstStreet);
+				for (int second = 0; second < EDGE_LOCATIONS.length; second++) {
+					int key = Math.min(first, second) * EDGE_LOCATIONS.length + Math.max(first, second);
+					if (listed[key] || index.getOwnerOfEdge(second) != BoardIndex.NO_OWNER
+							|| !isLegalFreeStreet(new Building(id, "Strasse", EDGE_LOCATIONS[second])))
+						continue;
+					listed[key] = true;
+					pairFound = true;
+					actions.add(GameAction.playRoadBuildingCard(id, EDGE_LOCATIONS[first], EDGE_LOCATIONS[second]));
+				}
+				memory.removeBuilding(firstStreet);
+			}
+		}
+		if (!pairFound) {
+			for (int first : firstStreets)
+				actions.add(GameAction.playRoadBuildingCard(id, EDGE_LOCATIONS[first], null));
+		}
+	}
+
+	/**
+	 * Lists every land field the thief may be moved to, with every player
+	 * next to it who has resources to steal.
+	 *
+	 * @param knight
+	 *            True for a knight card, else after a 7 has been rolled
+	 */
+	private void addThiefActions(ArrayList<GameAction> actions, PlayerForProtocol player, boolean knight) {
+		BoardIndex index = memory.serverMap.getIndex();
+		int id = player.getId();
+		for (int field = 0; field < BoardTopology.NUMBER_OF_FIELDS; field++) {
+			String location = String.valueOf(BoardTopology.getLetter(field));
+			if (!BoardTopology.isLand(field) || location.equals(memory.serverMap.getThief()))
+				continue;
+			ArrayList<Integer> targets = new ArrayList<>(3);
+			for (int vertex : BoardTopology.getVerticesOfField(field)) {
+				int owner = index.getOwnerOfVertex(vertex);
+				if (owner == BoardIndex.NO_OWNER || owner == id || targets.contains(owner))
+					continue;
+				if (memory.findPlayerByID(owner).getResources().getTotalResources() > 0)
+					targets.add(owner);
+			}
+			if (targets.isEmpty())
+				targets.add(null);
+			for (Integer target : targets)
+				actions.add(knight ? GameAction.playKnightCard(id, location, target)
+						: GameAction.moveThief(id, location, target));
+		}
+	}
+
+	/**
+	 * Lists every way to return exactly half of the resources.
+	 */
+	private void addReturnActions(ArrayList<GameAction> actions, PlayerForProtocol player) {
+		int[] resources = toArray(player.getResources());
+		int toReturn = player.getResources().getTotalResources() / 2;
+		addReturnActions(actions, player.getId(), resources, new int[RESOURCES.length], 0, toReturn);
+	}
+
+	private void addReturnActions(ArrayList<GameAction> actions, int id, int[] resources, int[] returned, int type,
+			int toReturn) {
+		if (type == RESOURCES.length - 1) {
+			if (toReturn > resources[type])
+				return;
+			returned[type] = toReturn;
+			actions.add(GameAction.returnResources(id, toResources(returned)));
+			return;
+		}
+		for (int amount = Math.min(toReturn, resources[type]); amount >= 0; amount--) {
+			returned[type] = amount;
+			addReturnActions(actions, id, resources, returned, type + 1, toReturn - amount);
+		}
+		returned[type] = 0;
+	}
+
+	// Getters
+	public ServerMemoryLogic getMemory() {
+		return memory;
+	}
+
+	/**
+	 * @return the actions applied since the game has been created or read
+	 *         from a snapshot, in their order
+	 */
+	public List<GameAction> getHistory() {
+		return Collections.unmodifiableList(history);
+	}
+
+	/**
+	 * @return the number of actions applied so far, the ones before the
+	 *         snapshot the game has been read from included
+	 */
+	public int getNumberOfActions() {
+		return actionsBeforeHistory + history.size();
+	}
+
+	public GameJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * @param journal
+	 *            journal everything changing the game is appended to from now
+	 *            on, null for none
+	 */
+	public void setJournal(GameJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * @return the winner, null while the game is running
+	 */
+	public PlayerForProtocol getWinner() {
+		return winner;
+	}
+
+	public boolean isGameOver() {
+		return winner != null;
+	}
+}
@@ -0,0 +1,104 @@
+import networking.MessageObjects.*;
+
+/**
+ * Receives what happens while a {@link GameEngine} applies an action, in the
+ * order the clients have to be told about it. The server protocol turns the
+ * events into messages, a simulation can ignore them ({@link #NONE}).
+ */
+public interface GameEventListener {
+	/**
+	 * Listener ignoring all events
+	 */
+	GameEventListener NONE = new GameEventListener() {
+	};
+
+	/**
+	 * The action could not be applied (or only partly), the state is unchanged
+	 * unless stated otherwise.
+	 */
+	default void error(String message) {
+	}
+
+	/**
+	 * Status, points or resources of a player have changed
+	 */
+	default void statusChanged(PlayerForProtocol player) {
+	}
+
+	default void gameStarted(Map map) {
+	}
+
+	default void diceThrown(DiceThrow diceThrow) {
+	}
+
+	/**
+	 * A player received resources
+	 */
+	default void earnings(Earnings earnings) {
+	}
+
+	/**
+	 * A player lost resources
+	 *
+	 * @param visibleToAll
+	 *            true if all players may know which resources (building costs)
+	 */
+	default void costs(Costs costs, boolean visibleToAll) {
+	}
+
+	default void buildingBuilt(Building building) {
+	}
+
+	default void thiefMoved(ThiefMoved thiefMoved) {
+	}
+
+	/**
+	 * The player has to move the thief now, the status is already set.
+	 */
+	default void thiefMoveRequested(PlayerForProtocol player) {
+	}
+
+	/**
+	 * A player has ended his turn, both statuses are already set.
+	 *
+	 * @param player
+	 *            the player who ended his turn
+	 * @param nextPlayer
+	 *            the player to play next (the same player during the initial
+	 *            phase)
+	 */
+	default void turnEnded(PlayerForProtocol player, PlayerForProtocol nextPlayer) {
+	}
+
+	/**
+	 * @param player
+	 *            the new holder of the longest road, null if nobody has it
+	 *            anymore
+	 */
+	default void longestRoadChanged(PlayerForProtocol player) {
+	}
+
+	default void largestArmyChanged(PlayerForProtocol player) {
+	}
+
+	default void developmentCardBought(int player, DevelopmentCards developmentCard) {
+	}
+
+	default void knightCardPlayed(PlayKnightCard playKnightCard) {
+	}
+
+	default void roadBuildingCardPlayed(PlayRoadBuildingCard playRoadBuildingCard) {
+	}
+
+	default void monopolyCardPlayed(Monopoly monopoly) {
+	}
+
+	default void yearOfPlentyCardPlayed(YearOfPlenty yearOfPlenty) {
+	}
+
+	default void tradeFinished(int player, int partner) {
+	}
+
+	default void gameOver(PlayerForProtocol winner) {
+	}
+}
@@ -0,0 +1,646 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import networking.MessageObjects.PlayerForProtocol;
+import networking.MessageObjects.Resources;
+
+/**
+ * Append-only journal of the game of one {@link GameRoom}, so the game survives
+ * a crash of the server. Everything changing the {@link GameEngine} (players
+ * joining, the game start, accepted actions, cheats) is appended as a compact
+ * record to a memory-mapped segment file. The segment is forced to disk at
+ * most {@link #FLUSH_DELAY} ms after a record, once for all records appended
+ * in the meantime.
+ *
+ * Every segment starts with a snapshot of the state of the game (not of its
+ * actions, so a snapshot does not grow with the game). A new segment is
+ * started after every {@link #SNAPSHOT_INTERVAL} records (or once the segment
+ * is nearly full), so recovering a game reads one snapshot and replays at most
+ * SNAPSHOT_INTERVAL records. The older segments are not deleted, they are the
+ * recording of the game from its first snapshot on (see {@link GameReplay}).
+ * A segment which is not written anymore is replaced by a copy holding only
+ * its records, a mapped file is never cut. The flushes and the copies run on
+ * an executor of their own, not on the thread appending the records. The
+ * journal of a finished game is moved to the directory "recordings" next to
+ * the journals of the rooms.
+ *
+ * The sessions of the players (see {@link PlayerSession}) are recorded as well
+ * and repeated after every snapshot, so the players can resume their seats in
+ * a recovered game.
+ *
+ * A record is the length of its body (int, 0 ends the segment), the CRC32 of
+ * its body (int) and the body: its type (byte) and data. A record torn by a
+ * crash fails its checksum and ends the journal.
+ */
+public class GameJournal {
+	/**
+	 * Delay (ms) between a record and forcing its segment to disk
+	 */
+	public static final long FLUSH_DELAY = 20;
+	/**
+	 * Records after which a new segment with a snapshot is started
+	 */
+	public static final int SNAPSHOT_INTERVAL = 200;
+	/**
+	 * Name of the directory of the recordings of finished games
+	 */
+	public static final String RECORDINGS = "recordings";
+	/**
+	 * Minimal size of a segment in bytes (the files are sparse until written)
+	 */
+	private static final int SEGMENT_SIZE = 1024 * 1024;
+	/**
+	 * Upper bound of the size of a record apart from snapshots (the color and
+	 * the name of a player have at most 64 KiB each), a new segment is started
+	 * once less is left
+	 */
+	private static final int MAX_RECORD_SIZE = 256 * 1024;
+	private static final int HEADER_SIZE = 8;
+
+	// Types of records
+	private static final byte SNAPSHOT = 1;
+	private static final byte PLAYER = 2;
+	private static final byte START = 3;
+	private static final byte ACTION = 4;
+	private static final byte GIVE = 5;
+	private static final byte DROP = 6;
+	private static final byte SESSION = 7;
+
+	private final File directory;
+	private final GameEngine engine;
+	private final ScheduledExecutorService scheduler;
+	private final CRC32 crc = new CRC32();
+	/**
+	 * Serializes forcing a segment to the disk with retiring it, the batched
+	 * flushes do not hold the lock of the journal meanwhile
+	 */
+	private final Object forceLock = new Object();
+	/**
+	 * Tokens of the sessions mapped by the ids of their players
+	 */
+	private final Map<Integer, String> sessions = new LinkedHashMap<>();
+	private MappedByteBuffer segment;
+	private int segmentNumber;
+	private int recordsSinceSnapshot;
+	/**
+	 * Completes once the segments started before have been retired, the
+	 * retirements of a journal run in their order
+	 */
+	private CompletableFuture<Void> retirements = CompletableFuture.completedFuture(null);
+	private boolean flushPending;
+	private boolean closed;
+
+	private GameJournal(File directory, GameEngine engine, ScheduledExecutorService scheduler) {
+		this.directory = directory;
+		this.engine = engine;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Starts the journal of a new game, an old journal in the directory is
+	 * deleted.
+	 *
+	 * @param directory
+	 *            the directory of the journal (one per room)
+	 * @param engine
+	 *            the game, its changes are appended from now on
+	 * @param scheduler
+	 *            runs the batched flushes and retires the segments (disk I/O)
+	 * @return the journal
+	 */
+	public static GameJournal create(File directory, GameEngine engine, ScheduledExecutorService scheduler)
+			throws IOException {
+		delete(directory);
+		if (!directory.mkdirs())
+			throw new IOException("Cannot create " + directory);
+		GameJournal journal = new GameJournal(directory, engine, scheduler);
+		journal.writeSnapshot();
+		engine.setJournal(journal);
+		return journal;
+	}
+
+	/**
+	 * Rebuilds a game from its journal: the newest snapshot is read and the
+	 * records after it are replayed. The journal then continues with a new
+	 * snapshot, a torn tail is dropped.
+	 *
+	 * @param directory
+	 *            the directory of the journal
+	 * @param scheduler
+	 *            runs the batched flushes and retires the segments (disk I/O)
+	 * @return the journal, its engine holds the rebuilt game. null if there is
+	 *         no valid snapshot
+	 */
+	public static GameJournal recover(File directory, ScheduledExecutorService scheduler) {
+		int[] numbers = getSegmentNumbers(directory);
+		// Only the newest valid snapshot is read
+		for (int i = numbers.length - 1; i >= 0; i--) {
+			try {
+				ByteBuffer buffer = readSegment(getSegmentFile(directory, numbers[i]));
+				byte[] body = readRecord(buffer);
+				if (body == null || body[0] != SNAPSHOT)
+					continue;
+				GameEngine engine = GameEngine.readSnapshot(getData(body));
+				Map<Integer, String> sessions = new LinkedHashMap<>();
+				for (body = readRecord(buffer); body != null; body = readRecord(buffer)) {
+					try {
+						if (body[0] == SESSION) {
+							DataInputStream in = getData(body);
+							sessions.put(in.readInt(), in.readUTF());
+							continue;
+						}
+						replay(engine, body, GameEventListener.NONE);
+					} catch (IOException | RuntimeException e) {
+						// The game continues from the last record replayed
+						e.printStackTrace();
+						break;
+					}
+				}
+				GameJournal journal = new GameJournal(directory, engine, scheduler);
+				journal.sessions.putAll(sessions);
+				journal.segmentNumber = numbers[numbers.length - 1];
+				journal.writeSnapshot();
+				engine.setJournal(journal);
+				return journal;
+			} catch (IOException | RuntimeException e) {
+				// Try the snapshot before
+				e.printStackTrace();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Applies a record (not a snapshot) to a game.
+	 *
+	 * @param listener
+	 *            is told about everything that happens, like the clients of
+	 *            the recorded game
+	 * @throws IOException
+	 *             if the record is unknown or its action is refused by the
+	 *             rules
+	 */
+	static void replay(GameEngine engine, byte[] body, GameEventListener listener) throws IOException {
+		DataInputStream in = getData(body);
+		switch (body[0]) {
+		case PLAYER:
+			PlayerForProtocol player = engine.addPlayer(in.readInt(), GameAction.readString(in),
+					GameAction.readString(in));
+			if (player != null)
+				listener.statusChanged(player);
+			break;
+		case START:
+			engine.startGame(listener);
+			break;
+		case ACTION:
+			GameAction action = GameAction.readFrom(in);
+			if (!engine.apply(action, listener))
+				throw new IOException("Action " + action + " cannot be replayed");
+			break;
+		case GIVE:
+			engine.giveResources(in.readInt(), GameAction.readResources(in), listener);
+			break;
+		case DROP:
+			engine.dropResources(in.readInt(), listener);
+			break;
+		case SESSION:
+			// Does not change the game
+			break;
+		default:
+			throw new IOException("Unknown record " + body[0]);
+		}
+	}
+
+	/**
+	 * Reads the recording of a game: the records of all segments of a
+	 * journal, the snapshots included, in their order. Every segment ends at
+	 * its first torn record.
+	 *
+	 * @param directory
+	 *            the directory of the journal
+	 * @return the bodies of the records
+	 */
+	static List<byte[]> readRecording(File directory) throws IOException {
+		List<byte[]> records = new ArrayList<>();
+		for (int number : getSegmentNumbers(directory)) {
+			ByteBuffer buffer = readSegment(getSegmentFile(directory, number));
+			for (byte[] body = readRecord(buffer); body != null; body = readRecord(buffer))
+				records.add(body);
+		}
+		return records;
+	}
+
+	static boolean isSnapshot(byte[] body) {
+		return body[0] == SNAPSHOT;
+	}
+
+	static boolean isSession(byte[] body) {
+		return body[0] == SESSION;
+	}
+
+	/**
+	 * @return the game of a snapshot record
+	 */
+	static GameEngine readSnapshot(byte[] body) throws IOException {
+		return GameEngine.readSnapshot(getData(body));
+	}
+
+	/**
+	 * @return the action of an action record, null for other records
+	 */
+	static GameAction getAction(byte[] body) throws IOException {
+		return body[0] == ACTION ? GameAction.readFrom(getData(body)) : null;
+	}
+
+	/**
+	 * @return the id of the player joining with a player record, null for
+	 *         other records
+	 */
+	static Integer getJoiningPlayer(byte[] body) throws IOException {
+		return body[0] == PLAYER ? getData(body).readInt() : null;
+	}
+
+	// Records
+
+	/**
+	 * A player has joined the game
+	 */
+	public void playerAdded(int id, String color, String name) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(id);
+			GameAction.writeString(out, color);
+			GameAction.writeString(out, name);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		append(PLAYER, bytes.toByteArray());
+	}
+
+	/**
+	 * The board has been created
+	 */
+	public void gameStarted() {
+		append(START, new byte[0]);
+	}
+
+	/**
+	 * An action has been accepted
+	 */
+	public void actionApplied(GameAction action) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			action.writeTo(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		append(ACTION, bytes.toByteArray());
+	}
+
+	/**
+	 * A player has cheated resources
+	 */
+	public void resourcesGiven(int playerId, Resources resources) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(playerId);
+			GameAction.writeResources(out, resources);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		append(GIVE, bytes.toByteArray());
+	}
+
+	/**
+	 * A player has dropped his resources (cheat)
+	 */
+	public void resourcesDropped(int playerId) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(playerId);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		append(DROP, bytes.toByteArray());
+	}
+
+	/**
+	 * A player has been welcomed with the token of his session
+	 */
+	public synchronized void sessionOpened(int playerId, String token) {
+		sessions.put(playerId, token);
+		append(SESSION, getSessionData(playerId, token));
+	}
+
+	private static byte[] getSessionData(int playerId, String token) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(playerId);
+			out.writeUTF(token);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @return the tokens of the sessions mapped by the ids of their players
+	 */
+	public synchronized Map<Integer, String> getSessions() {
+		return new LinkedHashMap<>(sessions);
+	}
+
+	/**
+	 * Appends a record. Called after the change has been applied to the
+	 * engine, so a snapshot taken after the record contains it.
+	 */
+	private synchronized void append(byte type, byte[] data) {
+		if (closed)
+			return;
+		try {
+			if (segment.remaining() < HEADER_SIZE + 1 + data.length) {
+				// Only if a record breaks MAX_RECORD_SIZE, the recording
+				// misses it then
+				writeSnapshot();
+				return;
+			}
+			write(type, data);
+			if (++recordsSinceSnapshot >= SNAPSHOT_INTERVAL || segment.remaining() < MAX_RECORD_SIZE)
+				writeSnapshot();
+			else
+				scheduleFlush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts a new segment with a snapshot of the game, the current segment is
+	 * retired in the background.
+	 */
+	private void writeSnapshot() throws IOException {
+		if (segment != null)
+			retireSegment(null);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			engine.writeSnapshot(out);
+		}
+		byte[] data = bytes.toByteArray();
+		segmentNumber++;
+		segment = map(getSegmentFile(directory, segmentNumber),
+				Math.max(SEGMENT_SIZE, HEADER_SIZE + 1 + data.length + 2 * MAX_RECORD_SIZE));
+		write(SNAPSHOT, data);
+		// The sessions recorded before are not read anymore
+		for (Map.Entry<Integer, String> session : sessions.entrySet())
+			write(SESSION, getSessionData(session.getKey(), session.getValue()));
+		force(segment);
+		recordsSinceSnapshot = 0;
+	}
+
+	/**
+	 * Retires the current segment, which must not be written anymore, on the
+	 * scheduler after the segments retired before.
+	 *
+	 * @param then
+	 *            runs after the retirement, may be null
+	 * @return completes after then
+	 */
+	private CompletableFuture<Void> retireSegment(Runnable then) {
+		MappedByteBuffer retired = segment;
+		// The records end at the current position
+		ByteBuffer records = segment.duplicate();
+		records.flip();
+		File file = getSegmentFile(directory, segmentNumber);
+		retirements = retirements.thenRunAsync(() -> {
+			retire(retired, records, file);
+			if (then != null)
+				then.run();
+		}, this::execute);
+		return retirements;
+	}
+
+	private void execute(Runnable task) {
+		try {
+			scheduler.execute(task);
+		} catch (RejectedExecutionException e) {
+			// The server is shutting down
+			task.run();
+		}
+	}
+
+	/**
+	 * Forces a segment and replaces its file by a copy of its records.
+	 * Cutting the mapped file instead fails or crashes the process on some
+	 * systems. Where a mapped file cannot be replaced, the segment keeps its
+	 * empty rest (the records end at the first empty length).
+	 */
+	private void retire(MappedByteBuffer retired, ByteBuffer records, File file) {
+		File copy = new File(directory, file.getName() + ".tmp");
+		synchronized (forceLock) {
+			retired.force();
+			try {
+				try (FileOutputStream out = new FileOutputStream(copy)) {
+					while (records.hasRemaining())
+						out.getChannel().write(records);
+					out.getFD().sync();
+				}
+				Files.move(copy.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				copy.delete();
+			}
+		}
+	}
+
+	private void force(MappedByteBuffer segment) {
+		synchronized (forceLock) {
+			segment.force();
+		}
+	}
+
+	private void write(byte type, byte[] data) {
+		crc.reset();
+		crc.update(type);
+		crc.update(data, 0, data.length);
+		segment.putInt(data.length + 1);
+		segment.putInt((int) crc.getValue());
+		segment.put(type);
+		segment.put(data);
+	}
+
+	// Flushing
+
+	private void scheduleFlush() {
+		if (flushPending)
+			return;
+		flushPending = true;
+		try {
+			scheduler.schedule(this::flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// The server is shutting down
+			flushPending = false;
+			force(segment);
+		}
+	}
+
+	/**
+	 * Forces the records appended since the last flush to the disk. The
+	 * records appended meanwhile wait for the next flush. A segment retired
+	 * meanwhile has already been forced.
+	 */
+	private void flush() {
+		MappedByteBuffer toForce;
+		synchronized (this) {
+			flushPending = false;
+			if (closed)
+				return;
+			toForce = segment;
+		}
+		force(toForce);
+	}
+
+	/**
+	 * Forces the journal to the disk and stops appending, the journal is kept
+	 * for the recovery (server shutdown).
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		force(segment);
+	}
+
+	/**
+	 * Stops appending and moves the journal to the recordings, named after
+	 * the room and the time (the game is over). The journal is moved on the
+	 * scheduler once its last segment has been retired.
+	 *
+	 * @return completes once the journal has been moved
+	 */
+	public synchronized CompletableFuture<Void> archive() {
+		if (closed)
+			return retirements;
+		closed = true;
+		return retireSegment(() -> {
+			File recordings = new File(directory.getParentFile(), RECORDINGS);
+			recordings.mkdirs();
+			if (!directory.renameTo(new File(recordings, directory.getName() + "-" + System.currentTimeMillis())))
+				delete(directory);
+		});
+	}
+
+	/**
+	 * Stops appending and deletes the journal (the game has not started). A
+	 * segment which is still retired is deleted after its retirement.
+	 */
+	public void delete() {
+		CompletableFuture<Void> pending;
+		synchronized (this) {
+			closed = true;
+			pending = retirements;
+		}
+		pending.whenComplete((result, e) -> delete(directory));
+	}
+
+	// Files
+
+	/**
+	 * Deletes the journal in a directory and the directory.
+	 */
+	public static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				file.delete();
+		}
+		directory.delete();
+	}
+
+	private static File getSegmentFile(File directory, int number) {
+		return new File(directory, String.format("segment-%06d.journal", number));
+	}
+
+	/**
+	 * @return the numbers of the segments in the directory, ascending
+	 */
+	private static int[] getSegmentNumbers(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return new int[0];
+		int[] numbers = new int[files.length];
+		int count = 0;
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.startsWith("segment-") || !name.endsWith(".journal"))
+				continue;
+			try {
+				numbers[count++] = Integer.parseInt(name.substring(8, name.length() - 8));
+			} catch (NumberFormatException e) {
+				count--;
+			}
+		}
+		numbers = Arrays.copyOf(numbers, count);
+		Arrays.sort(numbers);
+		return numbers;
+	}
+
+	private static MappedByteBuffer map(File file, int size) throws IOException {
+		// The mapping stays valid after the file is closed
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	private static ByteBuffer readSegment(File file) throws IOException {
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+		}
+	}
+
+	/**
+	 * @return the body of the next record, null at the end of the segment or
+	 *         if the record is torn
+	 */
+	private static byte[] readRecord(ByteBuffer buffer) {
+		if (buffer.remaining() < HEADER_SIZE)
+			return null;
+		int length = buffer.getInt();
+		int checksum = buffer.getInt();
+		if (length <= 0 || length > buffer.remaining())
+			return null;
+		byte[] body = new byte[length];
+		buffer.get(body);
+		CRC32 crc = new CRC32();
+		crc.update(body, 0, length);
+		return (int) crc.getValue() == checksum ? body : null;
+	}
+
+	private static DataInputStream getData(byte[] body) {
+		return new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+	}
+
+	public GameEngine getEngine() {
+		return engine;
+	}
+}
@@ -0,0 +1,279 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import networking.ProtocolCodec;
+import networking.MessageObjects.*;
+
+/**
+ * Replays a game recorded by a {@link GameJournal} through the rules. The game
+ * starts from the first snapshot of the recording, dice and cards come from
+ * its random, so the recorded game plays out again action by action.
+ *
+ * The later snapshots of the recording are compared with the replayed game, a
+ * difference (or an action the rules refuse now) is a divergence: the rules
+ * have changed since the game was recorded or are not deterministic.
+ *
+ * A replay runs at full speed without clients (see {@link #main(String[])}) or
+ * into the view of a client watching its room (see {@link GameRoom}).
+ */
+public class GameReplay {
+	/**
+	 * Fields of the memory kept by the protocol, not by the rules (ids,
+	 * open domestic trades, ready players), they are not recorded
+	 */
+	private static final String[] PROTOCOL_FIELDS = { "uniqueIdIncrementer", "tradesResourceHashMap",
+			"tradesIDHashMap", "numberOfReadyPlayers" };
+
+	private final List<byte[]> records;
+	private final GameEngine engine;
+	/**
+	 * Index of the next record
+	 */
+	private int next = 1;
+	/**
+	 * Number of dice rolls replayed
+	 */
+	private int turn;
+	private int actions;
+	private int divergences;
+	private String firstDivergence;
+
+	private GameReplay(List<byte[]> records) throws IOException {
+		this.records = records;
+		engine = GameJournal.readSnapshot(records.get(0));
+	}
+
+	/**
+	 * Loads a recording.
+	 *
+	 * @param directory
+	 *            the directory of a journal, a running or a finished game (in
+	 *            {@link GameJournal#RECORDINGS})
+	 * @return the replay, at the start of the recording
+	 * @throws IOException
+	 *             if the directory holds no recording
+	 */
+	public static GameReplay load(File directory) throws IOException {
+		List<byte[]> records = GameJournal.readRecording(directory);
+		if (records.isEmpty() || !GameJournal.isSnapshot(records.get(0)))
+			throw new IOException("No recording in " + directory);
+		return new GameReplay(records);
+	}
+
+	/**
+	 * Applies the next record of the recording, a snapshot in between is
+	 * compared with the replayed game.
+	 *
+	 * @param listener
+	 *            is told about everything that happens, like the clients of
+	 *            the recorded game
+	 * @return False, at the end of the recording
+	 */
+	public boolean step(GameEventListener listener) {
+		while (next < records.size()) {
+			byte[] body = records.get(next++);
+			try {
+				if (GameJournal.isSnapshot(body)) {
+					if (!isSameGame(engine, GameJournal.readSnapshot(body)))
+						diverge("Snapshot at record " + (next - 1) + " differs");
+					continue;
+				}
+				if (GameJournal.isSession(body))
+					continue;
+				GameAction action = GameJournal.getAction(body);
+				GameJournal.replay(engine, body, listener);
+				if (action != null) {
+					actions++;
+					if (action.getType() == GameAction.Type.ROLL_DICE)
+						turn++;
+				}
+			} catch (IOException | RuntimeException e) {
+				diverge("Record " + (next - 1) + ": " + e.getMessage());
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Fast-forwards to the dice roll of a turn without telling the listener
+	 * about the skipped records, then tells it about the state reached: the
+	 * new buildings (a city after its village), the thief, the longest road,
+	 * the largest army and every player.
+	 *
+	 * @param turn
+	 *            the turn (1 for the first dice roll)
+	 * @param listener
+	 *            the listener to tell about the state
+	 */
+	public void seek(int turn, GameEventListener listener) {
+		ServerMemoryLogic memory = engine.getMemory();
+		HashSet<String> shown = new HashSet<>();
+		String thief = null;
+		if (memory.serverMap != null) {
+			for (Building building : memory.serverMap.getBuildings())
+				shown.add(building.getType() + building.getLocation());
+			thief = memory.serverMap.getThief();
+		}
+		PlayerForProtocol longestRoad = memory.currentPlayerWithLongestRoad;
+		PlayerForProtocol largestArmy = memory.currentPlayerWithLargestArmy;
+		while (this.turn < turn - 1 || (this.turn == turn - 1 && !isNextRoll())) {
+			if (!step(GameEventListener.NONE))
+				break;
+		}
+		if (memory.serverMap == null)
+			return;
+
+		for (Building building : memory.serverMap.getBuildings()) {
+			if (!shown.add(building.getType() + building.getLocation()))
+				continue;
+			if (building.getType().equals("Stadt") && shown.add("Dorf" + building.getLocation()))
+				listener.buildingBuilt(new Building(building.getOwner(), "Dorf", building.getLocation()));
+			listener.buildingBuilt(building);
+		}
+		if (!memory.serverMap.getThief().equals(thief)) {
+			PlayerForProtocol currentPlayer = memory.getCurrentPlayer();
+			listener.thiefMoved(new ThiefMoved(currentPlayer == null ? null : currentPlayer.getId(),
+					memory.serverMap.getThief(), null));
+		}
+		if (memory.currentPlayerWithLongestRoad != longestRoad)
+			listener.longestRoadChanged(memory.currentPlayerWithLongestRoad);
+		if (memory.currentPlayerWithLargestArmy != largestArmy && memory.currentPlayerWithLargestArmy != null)
+			listener.largestArmyChanged(memory.currentPlayerWithLargestArmy);
+		for (PlayerForProtocol player : memory.playerList)
+			listener.statusChanged(player);
+	}
+
+	private boolean isNextRoll() {
+		for (int i = next; i < records.size(); i++) {
+			byte[] body = records.get(i);
+			if (GameJournal.isSnapshot(body) || GameJournal.isSession(body))
+				continue;
+			try {
+				GameAction action = GameJournal.getAction(body);
+				return action != null && action.getType() == GameAction.Type.ROLL_DICE;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void diverge(String message) {
+		divergences++;
+		if (firstDivergence == null)
+			firstDivergence = message;
+	}
+
+	/**
+	 * Compares the state the rules depend on, the random included.
+	 */
+	private static boolean isSameGame(GameEngine replayed, GameEngine recorded) throws IOException {
+		if (replayed.getNumberOfActions() != recorded.getNumberOfActions())
+			return false;
+		Gson gson = ProtocolCodec.getGson();
+		JsonObject replayedMemory = gson.toJsonTree(replayed.getMemory()).getAsJsonObject();
+		JsonObject recordedMemory = gson.toJsonTree(recorded.getMemory()).getAsJsonObject();
+		for (String field : PROTOCOL_FIELDS) {
+			replayedMemory.remove(field);
+			recordedMemory.remove(field);
+		}
+		return replayedMemory.equals(recordedMemory)
+				&& Arrays.equals(getState(replayed.getMemory().random), getState(recorded.getMemory().random));
+	}
+
+	private static byte[] getState(Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(random);
+		}
+		return bytes.toByteArray();
+	}
+
+	// Getters
+
+	/**
+	 * @return the replayed game
+	 */
+	public GameEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * @return the id of the first player who joined the recorded game, null
+	 *         if nobody joined
+	 */
+	public Integer getFirstPlayer() {
+		for (byte[] body : records) {
+			try {
+				Integer player = GameJournal.getJoiningPlayer(body);
+				if (player != null)
+					return player;
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	public int getTurn() {
+		return turn;
+	}
+
+	public int getActions() {
+		return actions;
+	}
+
+	public int getDivergences() {
+		return divergences;
+	}
+
+	/**
+	 * @return the first divergence, null if there is none
+	 */
+	public String getFirstDivergence() {
+		return firstDivergence;
+	}
+
+	/**
+	 * Replays a recording at full speed without clients and prints the result
+	 * and the time it took, e.g. to reproduce a bug or to measure the rules on
+	 * a real game.
+	 *
+	 * Usage: GameReplay directory [runs], the directory of a journal and how
+	 * often it is replayed (1 by default, the time is averaged)
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: GameReplay directory [runs]");
+			return;
+		}
+		File directory = new File(args[0]);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		GameReplay replay = null;
+		long nanos = 0;
+		for (int run = 0; run < runs; run++) {
+			replay = load(directory);
+			long start = System.nanoTime();
+			while (replay.step(GameEventListener.NONE))
+				;
+			nanos += System.nanoTime() - start;
+		}
+		PlayerForProtocol winner = replay.getEngine().getWinner();
+		System.out.println(replay.getActions() + " actions, " + replay.getTurn() + " turns, winner: "
+				+ (winner == null ? "none" : winner.getName() + " (" + winner.getId() + ")"));
+		System.out.println(replay.getDivergences() + " divergences"
+				+ (replay.getFirstDivergence() == null ? "" : ", first: " + replay.getFirstDivergence()));
+		System.out.printf("%.3f ms per replay, %.2f us per action%n", nanos / 1e6 / runs,
+				nanos / 1e3 / runs / Math.max(1, replay.getActions()));
+	}
+}
@@ -0,0 +1,612 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import networking.MessageObjects.PlayerForProtocol;
+import networking.MessageObjects.PlayerStatusUpdate;
+import networking.MessageObjects.ReceiveChat;
+import networking.MessageObjects.WelcomeMessage;
+
+/**
+ * A single game hosted by the server. Every room has its own memory (players,
+ * map, bank, trades,...), its own turn order and its own lock, so one server
+ * process can host many games at the same time.
+ */
+public class GameRoom {
+	/**
+	 * Maximum number of clients in one room (one per color)
+	 */
+	public static final int MAX_PLAYERS = 4;
+	/**
+	 * Time (ms) the seat of a player whose connection dropped during the game
+	 * is held for a resume, the game is aborted afterwards
+	 */
+	public static final long SEAT_GRACE_PERIOD = 60000;
+	/**
+	 * Delay (ms) between the actions a bot takes for a player who does not
+	 * respond
+	 */
+	private static final long STAND_IN_DELAY = 1000;
+
+	private final int roomId;
+	private final Server server;
+	/**
+	 * The rules and the state of the game played in this room
+	 */
+	private final GameEngine engine;
+	private final ServerMemoryLogic memory;
+	/**
+	 * Journal of the game, null if the server keeps none
+	 */
+	private final GameJournal journal;
+	/**
+	 * Replay shown to the client of the room instead of a game, null for a
+	 * game
+	 */
+	private final GameReplay replay;
+	/**
+	 * All the connection handlers of the clients playing in this room. Joining
+	 * and leaving is rare compared to sending, so broadcasts iterate over a
+	 * snapshot without copying or locking.
+	 */
+	private final CopyOnWriteArrayList<ClientConnectionHandler> connectionHandlers = new CopyOnWriteArrayList<>();
+	/**
+	 * The sessions of the players welcomed in this room, mapped by their ids
+	 */
+	private final ConcurrentHashMap<Integer, PlayerSession> sessions = new ConcurrentHashMap<>();
+	/**
+	 * Incoming messages of a room are processed one after another while holding
+	 * this lock
+	 */
+	private final Object lock = new Object();
+	private boolean gameActive = false;
+	private boolean informedConnectionLost = false;
+	private boolean closed = false;
+
+	/**
+	 * Constructor
+	 *
+	 * @param roomId
+	 *            The (unique) id of the room
+	 * @param server
+	 *            The server hosting the room
+	 */
+	public GameRoom(int roomId, Server server) {
+		this.roomId = roomId;
+		this.server = server;
+		engine = new GameEngine();
+		memory = engine.getMemory();
+		journal = createJournal();
+		replay = null;
+	}
+
+	/**
+	 * Constructor of a room whose game has been recovered from its journal
+	 * after a restart of the server. No client can join it.
+	 *
+	 * @param roomId
+	 *            The id the room had before
+	 * @param server
+	 *            The server hosting the room
+	 * @param journal
+	 *            The recovered journal
+	 */
+	public GameRoom(int roomId, Server server, GameJournal journal) {
+		this.roomId = roomId;
+		this.server = server;
+		this.journal = journal;
+		engine = journal.getEngine();
+		memory = engine.getMemory();
+		replay = null;
+		gameActive = true;
+	}
+
+	/**
+	 * Constructor of a room showing a recorded game to one client. The
+	 * requests of the client are ignored.
+	 *
+	 * @param roomId
+	 *            The (unique) id of the room
+	 * @param server
+	 *            The server hosting the room
+	 * @param replay
+	 *            The recorded game, at its start
+	 */
+	public GameRoom(int roomId, Server server, GameReplay replay) {
+		this.roomId = roomId;
+		this.server = server;
+		this.replay = replay;
+		engine = replay.getEngine();
+		memory = engine.getMemory();
+		journal = null;
+	}
+
+	private GameJournal createJournal() {
+		File journalDirectory = server.getJournalDirectory();
+		if (journalDirectory == null)
+			return null;
+		try {
+			return GameJournal.create(getJournalDirectory(journalDirectory, roomId), engine, server.getJournalExecutor());
+		} catch (IOException e) {
+			e.printStackTrace();
+			server.printServerStatusUpdate("Room " + roomId + ": no journal");
+			return null;
+		}
+	}
+
+	/**
+	 * @return the directory of the journal of a room
+	 */
+	public static File getJournalDirectory(File journalDirectory, int roomId) {
+		return new File(journalDirectory, "room-" + roomId);
+	}
+
+	/**
+	 * Checks if another client may still join this room.
+	 *
+	 * @return True, if the game has not started yet and there is a free seat
+	 */
+	public synchronized boolean isOpen() {
+		return !closed && !gameActive && replay == null && connectionHandlers.size() < MAX_PLAYERS;
+	}
+
+	/**
+	 * Binds a connection handler to this room.
+	 *
+	 * @param clientConnectionHandler
+	 */
+	public synchronized void addConnectionHandler(ClientConnectionHandler clientConnectionHandler) {
+		connectionHandlers.add(clientConnectionHandler);
+	}
+
+	/**
+	 * Removes a connection handler from this room. During the game the seat of
+	 * the player is held for {@link #SEAT_GRACE_PERIOD} ms, otherwise the game
+	 * is disrupted.
+	 *
+	 * @param clientConnectionHandler
+	 *            clientConnectionHandler of the client who disconnected
+	 */
+	public void removeConnectionHandler(ClientConnectionHandler clientConnectionHandler) {
+		boolean removed;
+		synchronized (this) {
+			removed = connectionHandlers.remove(clientConnectionHandler);
+		}
+		// Inform clients that a client disconnected => terminate game
+		if (removed && !holdSeat(clientConnectionHandler))
+			informConnectionLost(clientConnectionHandler.getPlayerId());
+	}
+
+	/**
+	 * Removes a connection handler which moves to an other room, nobody is
+	 * informed.
+	 *
+	 * @param clientConnectionHandler
+	 */
+	public synchronized void releaseConnectionHandler(ClientConnectionHandler clientConnectionHandler) {
+		connectionHandlers.remove(clientConnectionHandler);
+	}
+
+	/**
+	 * Opens the session of a client being welcomed, its token is sent with the
+	 * welcome message. The messages are kept for a resume once the session is
+	 * set to the connection handler, after the welcome message. Called while
+	 * holding the lock.
+	 *
+	 * @param clientConnectionHandler
+	 *            the connection of the client, its id is set
+	 * @return the session
+	 */
+	public PlayerSession openSession(ClientConnectionHandler clientConnectionHandler) {
+		PlayerSession session = new PlayerSession(clientConnectionHandler.getPlayerId(), this, clientConnectionHandler);
+		sessions.put(session.getPlayerId(), session);
+		server.registerSession(session);
+		if (journal != null)
+			journal.sessionOpened(session.getPlayerId(), session.getToken());
+		return session;
+	}
+
+	private void closeSession(PlayerSession session) {
+		sessions.remove(session.getPlayerId(), session);
+		server.unregisterSession(session);
+	}
+
+	/**
+	 * Holds the seat of a player whose connection dropped while the game is
+	 * running.
+	 *
+	 * @return False, if there is no seat to hold
+	 */
+	private boolean holdSeat(ClientConnectionHandler clientConnectionHandler) {
+		PlayerSession session = clientConnectionHandler.getSession();
+		if (session == null)
+			return false;
+		synchronized (lock) {
+			PlayerForProtocol player = memory.findPlayerByID(session.getPlayerId());
+			if (!isGameActive() || isClosed() || replay != null || player == null) {
+				closeSession(session);
+				return false;
+			}
+			int disconnection = session.detach(clientConnectionHandler);
+			// Otherwise the seat has already been resumed by a new connection
+			if (disconnection >= 0) {
+				server.printServerStatusUpdate("Room " + roomId + ": player " + session.getPlayerId()
+						+ " disconnected, seat held");
+				broadcast(new ReceiveChat(null, "Verbindung zu " + player.getName() + " unterbrochen, das Spiel wartet "
+						+ SEAT_GRACE_PERIOD / 1000 + " Sekunden"));
+				endSeatAfterGracePeriod(session, disconnection);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Aborts the game if the seat has not been resumed in time.
+	 */
+	private void endSeatAfterGracePeriod(PlayerSession session, int disconnection) {
+		schedule(() -> {
+			if (!session.isHeldSince(disconnection))
+				return;
+			closeSession(session);
+			informConnectionLost(session.getPlayerId());
+		}, SEAT_GRACE_PERIOD);
+	}
+
+	/**
+	 * Handles a client which has not sent anything for the idle timeout of the
+	 * server (see {@link ConnectionHeartbeat}). Depending on the
+	 * {@link IdleAction} of the server the connection is closed (the seat is
+	 * held as if it had dropped) or a bot acts for the player until the client
+	 * sends again.
+	 *
+	 * @param clientConnectionHandler
+	 *            the connection of the client
+	 */
+	public void idleTimeout(ClientConnectionHandler clientConnectionHandler) {
+		IdleAction action = replay == null ? server.getIdleAction() : IdleAction.EVICT;
+		server.printServerStatusUpdate("Room " + roomId + ": player " + clientConnectionHandler.getPlayerId()
+				+ " not responding (" + action + ")");
+		if (action == IdleAction.EVICT)
+			clientConnectionHandler.close();
+		else
+			standIn(clientConnectionHandler, action, server.getStandInBot(), new Random());
+	}
+
+	/**
+	 * Takes the next action of a player who does not respond, then waits for
+	 * the next one. The bot has its own random, the random of the game would
+	 * no longer match its journal.
+	 */
+	private void standIn(ClientConnectionHandler clientConnectionHandler, IdleAction action, GameBot bot,
+			Random random) {
+		schedule(() -> {
+			if (!clientConnectionHandler.isIdle() || !connectionHandlers.contains(clientConnectionHandler))
+				return;
+			GameAction standInAction = chooseStandInAction(clientConnectionHandler.getPlayerId(), action, bot, random);
+			if (standInAction != null)
+				clientConnectionHandler.getProtocol().applyStandInAction(standInAction);
+			standIn(clientConnectionHandler, action, bot, random);
+		}, STAND_IN_DELAY);
+	}
+
+	/**
+	 * @return the action to take for the player, null if the player has
+	 *         nothing to do
+	 */
+	private GameAction chooseStandInAction(int playerId, IdleAction action, GameBot bot, Random random) {
+		PlayerForProtocol player = memory.findPlayerByID(playerId);
+		if (player == null || !engine.getPlayersToAct().contains(player))
+			return null;
+		ArrayList<GameAction> actions = engine.getLegalActions(playerId);
+		if (actions.isEmpty())
+			return null;
+		if (action == IdleAction.SKIP_TURN) {
+			// Only what the game cannot go on without is left to the bot
+			for (GameAction legalAction : actions) {
+				if (legalAction.getType() == GameAction.Type.END_TURN
+						|| legalAction.getType() == GameAction.Type.ROLL_DICE)
+					return legalAction;
+			}
+		}
+		return bot.chooseAction(engine, actions, random);
+	}
+
+	/**
+	 * Holds the seats of a game recovered from its journal until the players
+	 * resume them with their tokens.
+	 */
+	public void holdRecoveredSeats() {
+		if (journal == null)
+			return;
+		synchronized (lock) {
+			for (Map.Entry<Integer, String> entry : journal.getSessions().entrySet()) {
+				if (memory.findPlayerByID(entry.getKey()) == null)
+					continue;
+				PlayerSession session = new PlayerSession(entry.getValue(), entry.getKey(), this);
+				sessions.put(session.getPlayerId(), session);
+				server.registerSession(session);
+				endSeatAfterGracePeriod(session, 0);
+			}
+		}
+	}
+
+	/**
+	 * Resumes a held seat on a new connection: the client is welcomed again
+	 * and gets the messages it has missed, then it moves to this room. A seat
+	 * still bound to a connection which has not dropped yet is taken over.
+	 * The lock of this room must be held, after the lock of the room of the
+	 * client.
+	 *
+	 * @param clientConnectionHandler
+	 *            the new connection
+	 * @param session
+	 *            the session of the seat
+	 * @param received
+	 *            the number of messages the client has received since it has
+	 *            been welcomed
+	 * @return False, if the session has ended or the messages missed are not
+	 *         kept anymore
+	 */
+	public boolean resume(ClientConnectionHandler clientConnectionHandler, PlayerSession session, long received) {
+		if (isClosed() || sessions.get(session.getPlayerId()) != session)
+			return false;
+		List<EncodedFrame> missed = session.getMissedFrames(received);
+		if (missed == null)
+			return false;
+		clientConnectionHandler.getRoom().releaseConnectionHandler(clientConnectionHandler);
+		clientConnectionHandler.setRoom(this);
+		clientConnectionHandler.setPlayerId(session.getPlayerId());
+		clientConnectionHandler.setSession(session);
+		// Neither the welcome message nor the missed messages are counted
+		clientConnectionHandler.sendObject(new WelcomeMessage(session.getPlayerId(), session.getToken()));
+		for (EncodedFrame frame : missed)
+			clientConnectionHandler.sendFrame(frame);
+		ClientConnectionHandler previous = session.attach(clientConnectionHandler);
+		synchronized (this) {
+			if (previous != null)
+				connectionHandlers.remove(previous);
+			connectionHandlers.add(clientConnectionHandler);
+		}
+		if (previous != null)
+			previous.close();
+		server.printServerStatusUpdate("Room " + roomId + ": player " + session.getPlayerId() + " resumed ("
+				+ missed.size() + " messages missed)");
+		PlayerForProtocol player = memory.findPlayerByID(session.getPlayerId());
+		if (player != null)
+			broadcastToAllOthers(session.getPlayerId(),
+					new ReceiveChat(null, "Verbindung zu " + player.getName() + " wiederhergestellt"));
+		return true;
+	}
+
+	/**
+	 * Informs the clients of this room that a client has disconnected =>
+	 * terminate game
+	 *
+	 * @param playerId
+	 */
+	public final void informConnectionLost(int playerId) {
+		synchronized (lock) {
+			if (informedConnectionLost || memory.findPlayerByID(playerId) == null)
+				return;
+			informedConnectionLost = true;
+			server.printServerStatusUpdate("Room " + roomId + ": client disconnected");
+			// Inform all other clients that a client disconnected (potentially
+			// abort game)
+			PlayerForProtocol playerForProtocol = new PlayerForProtocol(playerId, null, null, "Verbindung verloren",
+					null, null, null, null);
+			PlayerStatusUpdate playerStatusUpdate = new PlayerStatusUpdate(playerForProtocol);
+			broadcast(playerStatusUpdate);
+			clearMemory();
+		}
+	}
+
+	/**
+	 * Ends the game of this room (Useful if a game ends or terminates). The
+	 * room is removed from the server, other rooms are not affected.
+	 */
+	public final void clearMemory() {
+		synchronized (this) {
+			gameActive = false;
+			closed = true;
+			connectionHandlers.clear();
+		}
+		for (PlayerSession session : sessions.values())
+			closeSession(session);
+		if (journal != null) {
+			// The recording of a game which has started is kept
+			if (memory.serverMap != null)
+				journal.archive();
+			else
+				journal.delete();
+		}
+		server.removeRoom(this);
+		server.printServerStatusUpdate("Room " + roomId + ": memory cleared");
+		server.printServerStatusUpdate(EncodedFrame.getStatistics());
+	}
+
+	/**
+	 * Forces the journal of the game to the disk and stops it, the game is
+	 * recovered when the server is started again.
+	 */
+	public void closeJournal() {
+		if (journal != null)
+			journal.close();
+	}
+
+	/**
+	 * Starts the replay of this room: the lobby and the start of the recorded
+	 * game are shown like they happened, then it fast-forwards to the turn
+	 * given to the server and continues at its speed. Called while holding
+	 * the lock.
+	 *
+	 * @param listener
+	 *            the protocol of the watching client
+	 */
+	public void startReplay(GameEventListener listener) {
+		setGameActive(true);
+		while (memory.serverMap == null && replay.step(listener))
+			;
+		if (server.getReplayTurn() > 0)
+			replay.seek(server.getReplayTurn(), listener);
+		scheduleReplayStep(listener);
+	}
+
+	private void scheduleReplayStep(GameEventListener listener) {
+		schedule(() -> {
+			if (replay.step(listener)) {
+				scheduleReplayStep(listener);
+				return;
+			}
+			server.printServerStatusUpdate("Room " + roomId + ": replay finished, " + replay.getDivergences()
+					+ " divergences" + (replay.getFirstDivergence() == null ? "" : " (" + replay.getFirstDivergence() + ")"));
+		}, server.getReplayDelay());
+	}
+
+	/**
+	 * Runs a step of the protocol after a delay without blocking a thread in
+	 * the meantime. The step holds the lock of the room like every incoming
+	 * message and is dropped if the room has been closed in the meantime (or
+	 * the server has been deactivated).
+	 *
+	 * @param task
+	 *            the step to run
+	 * @param delayMillis
+	 *            the delay in milliseconds
+	 */
+	public void schedule(Runnable task, long delayMillis) {
+		try {
+			server.getScheduler().schedule(() -> server.getProtocolExecutor().execute(() -> {
+				synchronized (lock) {
+					if (isClosed())
+						return;
+					try {
+						task.run();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}), delayMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// The server is shutting down
+		}
+	}
+
+	/**
+	 * Broadcast and object to all clients of this room. The object is
+	 * serialized only once.
+	 *
+	 * @param object
+	 *            The object to send to all clients.
+	 */
+	public void broadcast(Object object) {
+		EncodedFrame frame = EncodedFrame.encode(object);
+		if (frame == null)
+			return;
+		int recipients = 0;
+		for (ClientConnectionHandler h : connectionHandlers) {
+			h.sendFrame(frame);
+			recipients++;
+		}
+		for (PlayerSession session : sessions.values())
+			session.record(frame, null);
+		frame.recordFanOut(recipients);
+	}
+
+	/**
+	 * Broadcasts and object to all clients of this room except playerID. The
+	 * object is serialized only once.
+	 *
+	 * @param playerID
+	 *            The player, who should not receive this object.
+	 * @param object
+	 *            The object to send to all clients.
+	 */
+	public void broadcastToAllOthers(int playerID, Object object) {
+		EncodedFrame frame = EncodedFrame.encode(object);
+		if (frame == null)
+			return;
+		int recipients = 0;
+		for (ClientConnectionHandler h : connectionHandlers) {
+			if (h.getPlayerId() != playerID) {
+				h.sendFrame(frame);
+				recipients++;
+			}
+		}
+		for (PlayerSession session : sessions.values()) {
+			if (session.getPlayerId() != playerID)
+				session.record(frame, null);
+		}
+		frame.recordFanOut(recipients);
+	}
+
+	/**
+	 * Sends an object to one client of this room.
+	 *
+	 * @param playerID
+	 *            The ID of the client you want to send the object to.
+	 * @param object
+	 *            The object to send one client.
+	 */
+	public void sendObjectTo(int playerID, Object object) {
+		for (ClientConnectionHandler h : connectionHandlers) {
+			if (h.getPlayerId() == playerID) {
+				h.sendObject(object);
+				return;
+			}
+		}
+		// Kept for a resume if the seat is held
+		PlayerSession session = sessions.get(playerID);
+		if (session != null) {
+			EncodedFrame frame = EncodedFrame.encode(object);
+			if (frame != null)
+				session.record(frame, null);
+		}
+	}
+
+	// Getters and Setters
+	public int getRoomId() {
+		return roomId;
+	}
+
+	public Server getServer() {
+		return server;
+	}
+
+	public ServerMemoryLogic getMemory() {
+		return memory;
+	}
+
+	public GameEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * @return the replay shown in this room, null if a game is played
+	 */
+	public GameReplay getReplay() {
+		return replay;
+	}
+
+	public Object getLock() {
+		return lock;
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	public synchronized boolean isGameActive() {
+		return gameActive;
+	}
+
+	public synchronized void setGameActive(boolean gameActive) {
+		this.gameActive = gameActive;
+	}
+}
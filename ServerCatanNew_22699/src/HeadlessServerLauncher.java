@@ -0,0 +1,123 @@
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Launches the server without JavaFX, for machines without a display (containers). The status updates go to a
+ * {@link ServerStatusSink} instead of the server window, the server stops with the process.
+ */
+public class HeadlessServerLauncher {
+
+	/**
+	 * @param args
+	 *            optional "--mode=nio" or "--mode=executor" (see {@link ConnectionMode}), "--status=log" or
+	 *            "--status=none" instead of the console (see {@link ServerStatusSink}), "--port=..." to listen on
+	 *            another port than 8080, so several servers can run on one host, "--journal=..." to keep the
+	 *            journals of the games in a directory (see {@link GameJournal}), the running games are recovered
+	 *            from it on the next start, "--replay=..." to show a recorded game to every client instead (see
+	 *            {@link GameReplay}) with "--speed=..." (2 for twice as fast) from "--turn=...",
+	 *            "--idle=skip", "--idle=ai" or "--idle=evict" to ping the clients and end the turns of a client
+	 *            which does not respond, let a bot play for it or close its connection (see {@link IdleAction})
+	 *            after "--idle-timeout=..." seconds (45 by default), the clients are not pinged without,
+	 *            "--bot=..." to choose that bot like in the {@link Tournament}, e.g. "--bot=mcts:200"
+	 */
+	public static void main(String[] args) {
+		Map<String, String> named = getNamedArguments(args);
+		ServerStatusSink statusSink = ServerStatusSink.fromArgument(named.get("status"));
+		int port = Server.DEFAULT_PORT;
+		if (named.containsKey("port")) {
+			try {
+				port = Integer.parseInt(named.get("port").trim());
+			} catch (NumberFormatException e) {
+				statusSink.printServerStatusUpdate("Invalid port: " + named.get("port"));
+				System.exit(2);
+			}
+		}
+		Server server = new Server(ConnectionMode.fromArgument(named.get("mode")), port);
+		server.setStatusSink(statusSink);
+		if (named.containsKey("journal"))
+			server.setJournalDirectory(new File(named.get("journal")));
+		try {
+			setReplay(server, named);
+		} catch (NumberFormatException e) {
+			statusSink.printServerStatusUpdate("Invalid replay speed or turn: " + e.getMessage());
+			System.exit(2);
+		}
+		try {
+			setIdleTimeout(server, named);
+		} catch (NumberFormatException e) {
+			statusSink.printServerStatusUpdate("Invalid idle timeout: " + named.get("idle-timeout"));
+			System.exit(2);
+		}
+		try {
+			setStandInBot(server, named);
+		} catch (IllegalArgumentException e) {
+			statusSink.printServerStatusUpdate("Invalid bot: " + named.get("bot"));
+			System.exit(2);
+		}
+		if (!server.isServerActive()) {
+			statusSink.serverAlreadyCreated();
+			System.exit(1);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(server::deactivateServer, "server-shutdown"));
+		server.start();
+		statusSink.printServerStatusUpdate("Server launched on port " + port + "!");
+	}
+
+	/**
+	 * Passes "--replay", "--speed" and "--turn" to the server, if a replay is given.
+	 *
+	 * @throws NumberFormatException
+	 *             if the speed or the turn is not a number
+	 */
+	static void setReplay(Server server, Map<String, String> named) {
+		String replay = named.get("replay");
+		if (replay == null)
+			return;
+		double speed = named.containsKey("speed") ? Double.parseDouble(named.get("speed").trim()) : 1;
+		int turn = named.containsKey("turn") ? Integer.parseInt(named.get("turn").trim()) : 0;
+		server.setReplay(new File(replay), speed, turn);
+	}
+
+	/**
+	 * Passes "--idle" and "--idle-timeout" (seconds) to the server, if one of
+	 * them is given.
+	 *
+	 * @throws NumberFormatException
+	 *             if the timeout is not a number
+	 */
+	static void setIdleTimeout(Server server, Map<String, String> named) {
+		if (!named.containsKey("idle") && !named.containsKey("idle-timeout"))
+			return;
+		long idleTimeout = Server.DEFAULT_IDLE_TIMEOUT;
+		if (named.containsKey("idle-timeout"))
+			idleTimeout = Math.round(Double.parseDouble(named.get("idle-timeout").trim()) * 1000);
+		server.setIdleTimeout(IdleAction.fromArgument(named.get("idle")), idleTimeout);
+	}
+
+	/**
+	 * Passes "--bot" to the server, if it is given.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the bot is unknown
+	 */
+	static void setStandInBot(Server server, Map<String, String> named) {
+		if (named.containsKey("bot"))
+			server.setStandInBot(Tournament.getBot(named.get("bot").trim()));
+	}
+
+	/**
+	 * Reads the arguments of the form "--name=value", like the named parameters of a JavaFX application.
+	 *
+	 * @return the values mapped by their names
+	 */
+	static Map<String, String> getNamedArguments(String[] args) {
+		Map<String, String> named = new HashMap<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (arg.startsWith("--") && separator > 2)
+				named.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+		return named;
+	}
+}
@@ -0,0 +1,407 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import networking.MessageObjects.*;
+import tools.BoardIndex;
+import tools.BoardTopology;
+import tools.BuildingType;
+
+/**
+ * Bot following the priorities of the client AI (ai.AiLogic): settlements on
+ * the best numbers, a city before a settlement before a street before a
+ * development card, maritime trades towards the next building and the thief on
+ * the field of the most opponents.
+ */
+public class HeuristicBot implements GameBot {
+	/**
+	 * Dice probability of every number, 7 (desert) has explicitly a probability
+	 * of 0
+	 */
+	private static final double[] NUMBER_TO_DICE_PROBABILITY = { 0, 0, 1.0 / 36, 2.0 / 36, 3.0 / 36, 4.0 / 36,
+			5.0 / 36, 0, 5.0 / 36, 4.0 / 36, 3.0 / 36, 2.0 / 36, 1.0 / 36 };
+	private static final String[] RESOURCES = { "Holz", "Lehm", "Wolle", "Getreide", "Erz" };
+	private static final int[] STREET_COSTS = { 1, 1, 0, 0, 0 };
+	private static final int[] SETTLEMENT_COSTS = { 1, 1, 1, 1, 0 };
+	private static final int[] CITY_COSTS = { 0, 0, 0, 2, 3 };
+	/**
+	 * Order in which resources are returned to the bank after a 7 (wool, stone,
+	 * grain, wood, loam)
+	 */
+	private static final int[] RETURN_ORDER = { 2, 4, 3, 0, 1 };
+
+	@Override
+	public GameAction chooseAction(GameEngine engine, ArrayList<GameAction> actions, Random random) {
+		ServerMemoryLogic memory = engine.getMemory();
+		PlayerForProtocol player = memory.findPlayerByID(actions.get(0).getPlayer());
+		double[] probabilities = getFieldProbabilities(memory.serverMap);
+		GameAction action;
+		switch (player.getStatus()) {
+		case "Dorf bauen":
+			return getBestBuilding(actions, "Dorf", probabilities, true);
+		case "Strasse bauen":
+			return getBestStreet(actions, memory.serverMap.getIndex(), probabilities);
+		case "Wuerfeln":
+			action = chooseDevelopmentCard(actions, memory, player, probabilities);
+			return action == null ? GameAction.rollDice(player.getId()) : action;
+		case "Karten wegen Raeuber abgeben":
+			return GameAction.returnResources(player.getId(), dropHalfCards(player));
+		case "Raeuber versetzen":
+			return getBestThiefMove(actions, GameAction.Type.MOVE_THIEF, memory, player.getId(), probabilities);
+		default:
+			action = chooseBuildOrTrade(actions, memory, player, probabilities);
+			return action == null ? actions.get(0) : action;
+		}
+	}
+
+	/**
+	 * Tries a city, a settlement, a street and a development card in this
+	 * order, trading with the bank for the first building that is possible.
+	 *
+	 * @return the action, null to end the turn
+	 */
+	private GameAction chooseBuildOrTrade(ArrayList<GameAction> actions, ServerMemoryLogic memory,
+			PlayerForProtocol player, double[] probabilities) {
+		BoardIndex index = memory.serverMap.getIndex();
+		int[] availableBuildings = memory.playerIdToAvailableBuildings.get(player.getId());
+		int[] resources = toArray(player.getResources());
+		int[] rates = getTradeRates(actions);
+
+		GameAction action = getBestBuilding(actions, "Stadt", probabilities, false);
+		if (action == null && availableBuildings[2] > 0 && hasVillage(index, player.getId()))
+			action = getTradeFor(actions, resources, rates, CITY_COSTS);
+		if (action == null)
+			action = getBestBuilding(actions, "Dorf", probabilities, false);
+		if (action == null && availableBuildings[1] > 0 && canPlaceSettlement(index, player.getId()))
+			action = getTradeFor(actions, resources, rates, SETTLEMENT_COSTS);
+		if (action == null)
+			action = getBestStreet(actions, index, probabilities);
+		if (action == null && availableBuildings[0] > 0)
+			action = getTradeFor(actions, resources, rates, STREET_COSTS);
+		if (action == null)
+			action = getFirst(actions, GameAction.Type.BUY_DEVELOPMENT_CARD);
+		if (action == null)
+			action = chooseDevelopmentCard(actions, memory, player, probabilities);
+		return action;
+	}
+
+	/**
+	 * Plays a road building card, a knight card if the thief is on an own field,
+	 * a monopoly card or a year of plenty card, the first one that is possible.
+	 *
+	 * @return the action, null if no card should be played
+	 */
+	private GameAction chooseDevelopmentCard(ArrayList<GameAction> actions, ServerMemoryLogic memory,
+			PlayerForProtocol player, double[] probabilities) {
+		BoardIndex index = memory.serverMap.getIndex();
+		GameAction best = null;
+		double bestScore = -1;
+		for (GameAction action : actions) {
+			if (action.getType() != GameAction.Type.PLAY_ROAD_BUILDING_CARD)
+				continue;
+			double score = getStreetScore(index, BoardTopology.getEdge(action.getLocation()), probabilities);
+			if (action.getSecondLocation() != null)
+				score += getStreetScore(index, BoardTopology.getEdge(action.getSecondLocation()), probabilities);
+			if (score > bestScore) {
+				best = action;
+				bestScore = score;
+			}
+		}
+		if (best != null)
+			return best;
+		if (isThiefAtOwnField(memory, player.getId())) {
+			best = getBestThiefMove(actions, GameAction.Type.PLAY_KNIGHT_CARD, memory, player.getId(),
+					probabilities);
+			if (best != null)
+				return best;
+		}
+		int[] resources = toArray(player.getResources());
+		int lowest = getLowestResource(resources, -1);
+		for (GameAction action : actions) {
+			if (action.getType() == GameAction.Type.PLAY_MONOPOLY_CARD
+					&& action.getResource().equals(RESOURCES[lowest]))
+				return action;
+		}
+		int[] yearOfPlenty = new int[RESOURCES.length];
+		yearOfPlenty[lowest]++;
+		yearOfPlenty[getLowestResource(resources, lowest)]++;
+		for (GameAction action : actions) {
+			if (action.getType() == GameAction.Type.PLAY_YEAR_OF_PLENTY_CARD
+					&& Arrays.equals(toArray(action.getSupply()), yearOfPlenty))
+				return action;
+		}
+		return null;
+	}
+
+	// Board
+
+	/**
+	 * @return the dice probability of every field, 0 for water and the desert
+	 */
+	static double[] getFieldProbabilities(Map map) {
+		double[] probabilities = new double[BoardTopology.NUMBER_OF_FIELDS];
+		for (Field field : map.getFields()) {
+			int number = field.getNumber();
+			if (number > 0 && number < NUMBER_TO_DICE_PROBABILITY.length)
+				probabilities[BoardTopology.getField(field.getLocation().charAt(0))] =
+						NUMBER_TO_DICE_PROBABILITY[number];
+		}
+		return probabilities;
+	}
+
+	/**
+	 * @param avoidDesert
+	 *            True to add up the probabilities only if the vertex is not next
+	 *            to the desert
+	 */
+	private static double getVertexScore(int vertex, double[] probabilities, boolean avoidDesert) {
+		double score = 0;
+		for (int field : BoardTopology.getFieldsOfVertex(vertex)) {
+			if (avoidDesert && BoardTopology.isLand(field) && probabilities[field] == 0)
+				return 0;
+			score += probabilities[field];
+		}
+		return score;
+	}
+
+	/**
+	 * Rates a street by the best free end, ends next to settlements count half.
+	 */
+	private static double getStreetScore(BoardIndex index, int edge, double[] probabilities) {
+		double score = 0;
+		for (int vertex : BoardTopology.getVerticesOfEdge(edge)) {
+			if (index.getTypeOfVertex(vertex) != BuildingType.NONE)
+				continue;
+			double vertexScore = getVertexScore(vertex, probabilities, false);
+			score = Math.max(score, isFreeForSettlement(index, vertex) ? vertexScore : vertexScore / 2);
+		}
+		return score;
+	}
+
+	private static boolean isFreeForSettlement(BoardIndex index, int vertex) {
+		if (index.getTypeOfVertex(vertex) != BuildingType.NONE)
+			return false;
+		for (int neighbour : BoardTopology.getNeighboursOfVertex(vertex)) {
+			if (index.getTypeOfVertex(neighbour) != BuildingType.NONE)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return True, if a settlement may be built next to a street of the player
+	 */
+	private static boolean canPlaceSettlement(BoardIndex index, int playerId) {
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			if (!isFreeForSettlement(index, vertex))
+				continue;
+			for (int edge : BoardTopology.getEdgesOfVertex(vertex)) {
+				if (index.getOwnerOfEdge(edge) == playerId)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasVillage(BoardIndex index, int playerId) {
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			if (index.getTypeOfVertex(vertex) == BuildingType.VILLAGE && index.getOwnerOfVertex(vertex) == playerId)
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isThiefAtOwnField(ServerMemoryLogic memory, int playerId) {
+		BoardIndex index = memory.serverMap.getIndex();
+		int thief = BoardTopology.getField(memory.serverMap.getThief().charAt(0));
+		for (int vertex : BoardTopology.getVerticesOfField(thief)) {
+			if (index.getOwnerOfVertex(vertex) == playerId)
+				return true;
+		}
+		return false;
+	}
+
+	// Choosing from the legal actions
+
+	/**
+	 * @param type
+	 *            "Dorf" or "Stadt"
+	 * @return the build action of the type on the best numbers, null if there
+	 *         is none
+	 */
+	private static GameAction getBestBuilding(ArrayList<GameAction> actions, String type, double[] probabilities,
+			boolean avoidDesert) {
+		GameAction best = null;
+		double bestScore = -1;
+		for (GameAction action : actions) {
+			if (action.getType() != GameAction.Type.BUILD || !action.getBuilding().getType().equals(type))
+				continue;
+			double score = getVertexScore(BoardTopology.getVertex(action.getBuilding().getLocation()), probabilities,
+					avoidDesert);
+			if (score > bestScore) {
+				best = action;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the street leading to the best free vertex, null if no street may
+	 *         be built
+	 */
+	private static GameAction getBestStreet(ArrayList<GameAction> actions, BoardIndex index,
+			double[] probabilities) {
+		GameAction best = null;
+		double bestScore = -1;
+		for (GameAction action : actions) {
+			if (action.getType() != GameAction.Type.BUILD || !action.getBuilding().getType().equals("Strasse"))
+				continue;
+			double score = getStreetScore(index, BoardTopology.getEdge(action.getBuilding().getLocation()),
+					probabilities);
+			if (score > bestScore) {
+				best = action;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Moves the thief to the field with the most buildings of opponents (cities
+	 * count twice) and steals from the richest player there. Own fields are
+	 * avoided, ties are broken by the number of the field.
+	 *
+	 * @param type
+	 *            MOVE_THIEF or PLAY_KNIGHT_CARD
+	 * @return the action, null if there is none of the type
+	 */
+	private static GameAction getBestThiefMove(ArrayList<GameAction> actions, GameAction.Type type,
+			ServerMemoryLogic memory, int playerId, double[] probabilities) {
+		BoardIndex index = memory.serverMap.getIndex();
+		GameAction best = null;
+		double bestScore = -Double.MAX_VALUE;
+		int bestResources = -1;
+		for (GameAction action : actions) {
+			if (action.getType() != type)
+				continue;
+			int field = BoardTopology.getField(action.getLocation().charAt(0));
+			double score = probabilities[field];
+			for (int vertex : BoardTopology.getVerticesOfField(field)) {
+				int owner = index.getOwnerOfVertex(vertex);
+				if (owner == BoardIndex.NO_OWNER)
+					continue;
+				int buildings = index.getTypeOfVertex(vertex) == BuildingType.CASTLE ? 2 : 1;
+				score += owner == playerId ? -10 * buildings : buildings;
+			}
+			int resources = action.getTarget() == null ? 0
+					: memory.findPlayerByID(action.getTarget()).getResources().getTotalResources();
+			if (score > bestScore || (score == bestScore && resources > bestResources)) {
+				best = action;
+				bestScore = score;
+				bestResources = resources;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Trades with the bank towards a building, if the surplus resources are
+	 * enough to get all missing ones.
+	 *
+	 * @param rates
+	 *            resources to give for one of every type, 0 if not possible
+	 * @return the trade, null if the building is not reachable by trading
+	 */
+	private static GameAction getTradeFor(ArrayList<GameAction> actions, int[] resources, int[] rates, int[] costs) {
+		int missing = 0;
+		int tradesPossible = 0;
+		for (int type = 0; type < RESOURCES.length; type++) {
+			missing += Math.max(0, costs[type] - resources[type]);
+			if (rates[type] > 0 && resources[type] > costs[type])
+				tradesPossible += (resources[type] - costs[type]) / rates[type];
+		}
+		if (missing == 0 || tradesPossible < missing)
+			return null;
+		for (GameAction action : actions) {
+			if (action.getType() != GameAction.Type.MARITIME_TRADE)
+				continue;
+			int[] supply = toArray(action.getSupply());
+			int[] demand = toArray(action.getDemand());
+			boolean useful = true;
+			for (int type = 0; type < RESOURCES.length; type++) {
+				if ((demand[type] > 0 && resources[type] >= costs[type])
+						|| (supply[type] > 0 && resources[type] - supply[type] < costs[type]))
+					useful = false;
+			}
+			if (useful)
+				return action;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the rate of the maritime trades of every resource, 0 if the
+	 *         player can't trade it
+	 */
+	private static int[] getTradeRates(ArrayList<GameAction> actions) {
+		int[] rates = new int[RESOURCES.length];
+		for (GameAction action : actions) {
+			if (action.getType() != GameAction.Type.MARITIME_TRADE)
+				continue;
+			int[] supply = toArray(action.getSupply());
+			for (int type = 0; type < RESOURCES.length; type++) {
+				if (supply[type] > 0)
+					rates[type] = supply[type];
+			}
+		}
+		return rates;
+	}
+
+	private static GameAction getFirst(ArrayList<GameAction> actions, GameAction.Type type) {
+		for (GameAction action : actions) {
+			if (action.getType() == type)
+				return action;
+		}
+		return null;
+	}
+
+	// Resources
+
+	/**
+	 * Drops half of the cards, one of every resource after the other.
+	 */
+	private static Resources dropHalfCards(PlayerForProtocol player) {
+		int[] resources = toArray(player.getResources());
+		int cardsToDrop = player.getResources().getTotalResources() / 2;
+		int[] dropped = new int[RESOURCES.length];
+		while (cardsToDrop > 0) {
+			for (int type : RETURN_ORDER) {
+				if (resources[type] - dropped[type] > 0 && cardsToDrop > 0) {
+					dropped[type]++;
+					cardsToDrop--;
+				}
+			}
+		}
+		return new Resources(dropped[0], dropped[1], dropped[2], dropped[3], dropped[4], 0);
+	}
+
+	/**
+	 * @param notIncluding
+	 *            resource to skip, -1 for none
+	 * @return the resource the player has the least of
+	 */
+	private static int getLowestResource(int[] resources, int notIncluding) {
+		int lowest = -1;
+		for (int type = 0; type < RESOURCES.length; type++) {
+			if (type != notIncluding && (lowest == -1 || resources[type] < resources[lowest]))
+				lowest = type;
+		}
+		return lowest;
+	}
+
+	private static int[] toArray(Resources resources) {
+		return new int[] { resources.getWood(), resources.getLoam(), resources.getWool(), resources.getGrain(),
+				resources.getStone() };
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * What the server does once a client has not sent anything (not even an
+ * answer to a ping) for the idle timeout. Selected at startup with
+ * "--idle=..." (see {@link HeadlessServerLauncher}).
+ */
+public enum IdleAction {
+	/**
+	 * Closes the connection, the seat is held for a resume (see
+	 * {@link PlayerSession})
+	 */
+	EVICT,
+	/**
+	 * Keeps the connection and ends the turns of the player, the steps the
+	 * game cannot go on without (e.g. placing the first settlements, rolling
+	 * the dice) are taken by a bot (default)
+	 */
+	SKIP_TURN,
+	/**
+	 * Keeps the connection and lets a bot play for the player until the
+	 * client sends again
+	 */
+	AI_TAKEOVER;
+
+	/**
+	 * Translates a startup argument into an action.
+	 *
+	 * @param argument
+	 *            the value of "--idle" (may be null): "evict", "skip" or "ai"
+	 * @return the matching action, SKIP_TURN if unknown
+	 */
+	public static IdleAction fromArgument(String argument) {
+		if (argument != null) {
+			switch (argument.trim().toLowerCase()) {
+			case "evict":
+				return EVICT;
+			case "ai":
+				return AI_TAKEOVER;
+			default:
+				break;
+			}
+		}
+		return SKIP_TURN;
+	}
+}
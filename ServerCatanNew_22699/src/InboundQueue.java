@@ -0,0 +1,72 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands the received lines of one client over to a shared executor. The lines
+ * of one client are handled one after another and in the order they arrived,
+ * although no thread is dedicated to the client.
+ */
+public class InboundQueue {
+	private final ClientConnectionHandler handler;
+	private final Executor executor;
+	private final ConcurrentLinkedQueue<String> lines = new ConcurrentLinkedQueue<>();
+	/**
+	 * True while a task of the executor handles the queued lines
+	 */
+	private final AtomicBoolean handling = new AtomicBoolean(false);
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor
+	 *
+	 * @param handler
+	 *            the handler the lines are passed to
+	 * @param executor
+	 *            the executor running the protocol
+	 */
+	public InboundQueue(ClientConnectionHandler handler, Executor executor) {
+		this.handler = handler;
+		this.executor = executor;
+	}
+
+	/**
+	 * Queues a received line. May be called from any thread.
+	 *
+	 * @param line
+	 */
+	public void add(String line) {
+		if (closed)
+			return;
+		lines.add(line);
+		scheduleHandling();
+	}
+
+	private void scheduleHandling() {
+		if (handling.compareAndSet(false, true))
+			executor.execute(this::handleLines);
+	}
+
+	private void handleLines() {
+		String line;
+		while (!closed && (line = lines.poll()) != null) {
+			try {
+				handler.receiveLine(line);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		handling.set(false);
+		// A line may have arrived after the last poll
+		if (!closed && !lines.isEmpty())
+			scheduleHandling();
+	}
+
+	/**
+	 * Drops all lines which have not been handled yet.
+	 */
+	public void close() {
+		closed = true;
+		lines.clear();
+	}
+}
@@ -0,0 +1,525 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import ai.GameState;
+import ai.TranspositionTable;
+import networking.MessageObjects.Building;
+import networking.MessageObjects.DevelopmentCards;
+import networking.MessageObjects.PlayerForProtocol;
+import networking.MessageObjects.Resources;
+import tools.BoardIndex;
+import tools.BoardTopology;
+import tools.BuildingType;
+
+/**
+ * Bot choosing its actions by Monte Carlo tree search. It takes every decision
+ * of the game (settlements and streets, thief, development cards, trades with
+ * the bank) from the legal actions of the engine.
+ *
+ * Every search thread builds its own tree (root parallelization), the visits
+ * of the moves at the roots are added up when the time is over. A simulation
+ * plays a copy of the game with new dice and development cards, the cards of
+ * the other players are dealt again. The tree stores sequences of actions, so
+ * the same tree holds all dice results (open loop). After a few turns played
+ * by the {@link HeuristicBot} the victory points and the production of every
+ * player are rated. The trees of a game are kept for its next move.
+ *
+ * The ratings are stored in a {@link TranspositionTable} shared by all
+ * threads and games of the bot. A state found there with enough ratings is
+ * not played again, so states reached by different orders of actions (or by
+ * an other thread) are rated once. Every thread converts the game into one
+ * {@link GameState} per move, which follows each simulation down its tree by
+ * make and unmake, so the key of a state is not computed from scratch.
+ */
+public class MctsBot implements GameBot {
+	/**
+	 * Time of a move in milliseconds if not given
+	 */
+	public static final long DEFAULT_BUDGET = 200;
+	/**
+	 * Weight of the exploration in UCT, small as the rewards are shares of
+	 * about 1 / number of players
+	 */
+	private static final double EXPLORATION = 0.1;
+	/**
+	 * A node with n visits has up to WIDENING * sqrt(n) children
+	 */
+	private static final double WIDENING = 0.5;
+	/**
+	 * Turns played after leaving the tree before the game is rated
+	 */
+	private static final int ROLLOUT_TURNS = 8;
+	private static final int MAX_ROLLOUT_ACTIONS = 300;
+	/**
+	 * Victory points a production of one resource per roll is worth
+	 */
+	private static final double PRODUCTION_WEIGHT = 3;
+	/**
+	 * Entries of the transposition table if not given
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 1 << 16;
+	/**
+	 * Ratings of a state in the table after which it is not played anymore
+	 */
+	private static final int MIN_TABLE_VISITS = 4;
+	private static final GameBot ROLLOUT_BOT = new HeuristicBot();
+
+	private final long budget;
+	/**
+	 * Simulations of every tree per move, 0 to search until the time of the
+	 * move is over
+	 */
+	private final int simulations;
+	private final int threads;
+	private final ForkJoinPool pool;
+	private final TranspositionTable table;
+	/**
+	 * Trees of the games, kept until the engine is not used anymore
+	 */
+	private final java.util.Map<GameEngine, Search> searches = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Trees of one game after a move
+	 */
+	private static final class Search {
+		private final Node[] roots;
+		/**
+		 * Number of actions of the game at the roots
+		 */
+		private final int historySize;
+
+		private Search(Node[] roots, int historySize) {
+			this.roots = roots;
+			this.historySize = historySize;
+		}
+	}
+
+	/**
+	 * Node of a tree, reached by an action from its parent
+	 */
+	private static final class Node {
+		/**
+		 * Seat (index in the player list) of the player who chose the action,
+		 * -1 at the root
+		 */
+		private final int seat;
+		private final HashMap<String, Node> children = new HashMap<>();
+		private int visits;
+		/**
+		 * Number of times the action was legal when the parent was visited
+		 */
+		private int availability = 1;
+		/**
+		 * Sum of the rewards of the player who chose the action
+		 */
+		private double reward;
+
+		private Node(int seat) {
+			this.seat = seat;
+		}
+
+		/**
+		 * @return the node reached by the actions since the node, null if
+		 *         they have not been searched
+		 */
+		private Node descend(List<GameAction> history, int from) {
+			Node node = this;
+			for (int i = from; i < history.size() && node != null; i++)
+				node = node.children.get(history.get(i).toString());
+			return node;
+		}
+	}
+
+	/**
+	 * @param budget
+	 *            time of a move in milliseconds
+	 * @param threads
+	 *            number of trees searched at once, 1 searches on the calling
+	 *            thread
+	 */
+	public MctsBot(long budget, int threads) {
+		this(budget, threads, DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * @param tableSize
+	 *            number of entries of the transposition table
+	 */
+	public MctsBot(long budget, int threads, int tableSize) {
+		this(budget, 0, threads, tableSize);
+	}
+
+	/**
+	 * @param simulations
+	 *            simulations of every tree per move instead of the time, so
+	 *            the moves of a single thread only depend on the random
+	 *            numbers of the game. 0 to search for the time of the move
+	 */
+	public MctsBot(long budget, int simulations, int threads, int tableSize) {
+		this.budget = budget;
+		this.simulations = simulations;
+		this.threads = threads;
+		this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		this.table = new TranspositionTable(tableSize);
+	}
+
+	/**
+	 * @return the table of the ratings, e.g. for its statistics
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	@Override
+	public GameAction chooseAction(GameEngine engine, ArrayList<GameAction> actions, Random random) {
+		if (actions.size() == 1)
+			return actions.get(0);
+		int playerId = actions.get(0).getPlayer();
+		List<GameAction> history = engine.getHistory();
+		Search previous = searches.get(engine);
+		Node[] roots = new Node[threads];
+		for (int i = 0; i < threads; i++) {
+			if (previous != null)
+				roots[i] = previous.roots[i].descend(history, previous.historySize);
+			if (roots[i] == null)
+				roots[i] = new Node(-1);
+		}
+
+		table.nextGeneration();
+		long deadline = System.nanoTime() + budget * 1000000;
+		if (pool == null) {
+			search(roots[0], engine, playerId, new Random(random.nextLong()), deadline);
+		} else {
+			List<Callable<Void>> tasks = new ArrayList<>(threads);
+			for (Node root : roots) {
+				long seed = random.nextLong();
+				tasks.add(() -> {
+					search(root, engine, playerId, new Random(seed), deadline);
+					return null;
+				});
+			}
+			try {
+				for (Future<Void> future : pool.invokeAll(tasks))
+					future.get();
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+		searches.put(engine, new Search(roots, history.size()));
+
+		// The most visited action of all trees, the better one on a tie
+		HashMap<String, Integer> visits = new HashMap<>();
+		HashMap<String, Double> rewards = new HashMap<>();
+		for (Node root : roots) {
+			for (java.util.Map.Entry<String, Node> child : root.children.entrySet()) {
+				visits.merge(child.getKey(), child.getValue().visits, Integer::sum);
+				rewards.merge(child.getKey(), child.getValue().reward, Double::sum);
+			}
+		}
+		GameAction best = null;
+		int bestVisits = 0;
+		double bestReward = 0;
+		for (GameAction action : actions) {
+			String key = action.toString();
+			Integer actionVisits = visits.get(key);
+			if (actionVisits == null || actionVisits < bestVisits)
+				continue;
+			double reward = rewards.get(key) / actionVisits;
+			if (actionVisits > bestVisits || reward > bestReward) {
+				best = action;
+				bestVisits = actionVisits;
+				bestReward = reward;
+			}
+		}
+		return best == null ? ROLLOUT_BOT.chooseAction(engine, actions, random) : best;
+	}
+
+	/**
+	 * Runs the simulations of a move or simulations until the deadline, at
+	 * least one.
+	 */
+	private void search(Node root, GameEngine engine, int playerId, Random random, long deadline) {
+		ServerMemoryLogic memory = engine.getMemory();
+		GameState state = GameState.of(memory.serverMap, memory.playerList, memory.getCurrentPlayer().getId());
+		int simulated = 0;
+		do {
+			simulate(root, engine, state, playerId, random);
+			simulated++;
+		} while (simulations > 0 ? simulated < simulations : System.nanoTime() < deadline);
+	}
+
+	/**
+	 * Plays one simulation: selects a path in the tree, adds one node, plays
+	 * on and adds the rating of the game to the nodes of the path.
+	 *
+	 * @param state
+	 *            the state of the game at the root, follows the simulation
+	 *            down the tree for its key and is taken back afterwards
+	 */
+	private void simulate(Node root, GameEngine engine, GameState state, int playerId, Random random) {
+		GameEngine game = engine.copy(random.nextLong());
+		game.redealDevelopmentCards(playerId);
+		int moves = makeChanges(state, game);
+		ArrayList<Node> path = new ArrayList<>();
+		path.add(root);
+		Node node = root;
+		boolean expanded = false;
+		while (!expanded && !game.isGameOver()) {
+			ArrayList<PlayerForProtocol> players = game.getPlayersToAct();
+			if (players.isEmpty())
+				break;
+			PlayerForProtocol player = players.get(0);
+			ArrayList<GameAction> actions = game.getLegalActions(player.getId());
+			if (actions.isEmpty())
+				break;
+
+			// Expand an action that has not been tried yet (more the more often
+			// the node has been visited), else select by UCT
+			ArrayList<GameAction> untried = new ArrayList<>();
+			GameAction selected = null;
+			Node next = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (GameAction action : actions) {
+				Node child = node.children.get(action.toString());
+				if (child == null) {
+					untried.add(action);
+					continue;
+				}
+				child.availability++;
+				double value = child.reward / child.visits
+						+ EXPLORATION * Math.sqrt(Math.log(child.availability) / child.visits);
+				if (value > bestValue) {
+					selected = action;
+					next = child;
+					bestValue = value;
+				}
+			}
+			if (!untried.isEmpty() && (next == null || node.children.size() < WIDENING * Math.sqrt(node.visits))) {
+				selected = untried.get(random.nextInt(untried.size()));
+				// The choice of the rollout bot is tried first
+				if (node.children.isEmpty()) {
+					String choice = ROLLOUT_BOT.chooseAction(game, actions, random).toString();
+					for (GameAction action : untried) {
+						if (action.toString().equals(choice))
+							selected = action;
+					}
+				}
+				next = new Node(getSeat(game, player.getId()));
+				expanded = true;
+			}
+			if (!game.apply(selected, GameEventListener.NONE))
+				break;
+			moves += makeMoves(state, selected, game);
+			if (expanded)
+				node.children.put(selected.toString(), next);
+			path.add(next);
+			node = next;
+		}
+
+		long key = getKey(state, game);
+		for (; moves > 0; moves--)
+			state.unmake();
+		double[] rewards = new double[game.getMemory().playerList.size()];
+		if (table.probe(key, rewards) < MIN_TABLE_VISITS) {
+			rewards = rollout(game, random);
+			table.store(key, rewards);
+		}
+		for (Node visited : path) {
+			visited.visits++;
+			if (visited.seat >= 0)
+				visited.reward += rewards[visited.seat];
+		}
+	}
+
+	/**
+	 * Plays a few turns with the rollout bot and rates the game.
+	 *
+	 * @return the reward of every seat
+	 */
+	private static double[] rollout(GameEngine game, Random random) {
+		int turns = 0;
+		for (int i = 0; i < MAX_ROLLOUT_ACTIONS && turns < ROLLOUT_TURNS && !game.isGameOver(); i++) {
+			ArrayList<PlayerForProtocol> players = game.getPlayersToAct();
+			if (players.isEmpty())
+				break;
+			ArrayList<GameAction> actions = game.getLegalActions(players.get(0).getId());
+			if (actions.isEmpty())
+				break;
+			GameAction action = ROLLOUT_BOT.chooseAction(game, actions, random);
+			if (!game.apply(action, GameEventListener.NONE))
+				break;
+			if (action.getType() == GameAction.Type.ROLL_DICE)
+				turns++;
+		}
+		return rate(game);
+	}
+
+	/**
+	 * Rates a game for every player: 1 for the winner, else the share of the
+	 * victory points and the production of all players.
+	 */
+	private static double[] rate(GameEngine game) {
+		ServerMemoryLogic memory = game.getMemory();
+		double[] rewards = new double[memory.playerList.size()];
+		if (game.isGameOver()) {
+			rewards[getSeat(game, game.getWinner().getId())] = 1;
+			return rewards;
+		}
+		double[] probabilities = HeuristicBot.getFieldProbabilities(memory.serverMap);
+		probabilities[BoardTopology.getField(memory.serverMap.getThief().charAt(0))] = 0;
+		BoardIndex index = memory.serverMap.getIndex();
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			int owner = index.getOwnerOfVertex(vertex);
+			if (owner == BoardIndex.NO_OWNER)
+				continue;
+			int amount = index.getTypeOfVertex(vertex) == BuildingType.CASTLE ? 2 : 1;
+			for (int field : BoardTopology.getFieldsOfVertex(vertex))
+				rewards[getSeat(game, owner)] += PRODUCTION_WEIGHT * amount * probabilities[field];
+		}
+		double total = 0;
+		for (int seat = 0; seat < rewards.length; seat++) {
+			PlayerForProtocol player = memory.playerList.get(seat);
+			rewards[seat] += player.getVictoryPoints() + player.getDevelopmentCards().getVictoryPoint();
+			total += rewards[seat];
+		}
+		for (int seat = 0; seat < rewards.length && total > 0; seat++)
+			rewards[seat] /= total;
+		return rewards;
+	}
+
+	/**
+	 * @param state
+	 *            the state of the game
+	 * @return the key of the state of a game in the table: the hash of its
+	 *         {@link GameState} and the players who have to act with their
+	 *         status, which the state does not know
+	 */
+	static long getKey(GameState state, GameEngine game) {
+		long key = state.getHash();
+		for (PlayerForProtocol player : game.getPlayersToAct())
+			key ^= (player.getId() * 31L + player.getStatus().hashCode()) * 0x9E3779B97F4A7C15L;
+		return key;
+	}
+
+	/**
+	 * Makes the moves of the state which an action has made in the game: its
+	 * building, thief or played card, then the changes of the resources, the
+	 * development cards and the turn.
+	 *
+	 * @param state
+	 *            the state of the game before the action
+	 * @param action
+	 *            the action, applied to the game
+	 * @return the number of moves made
+	 */
+	static int makeMoves(GameState state, GameAction action, GameEngine game) {
+		int seat = state.getSeat(action.getPlayer());
+		int moves = 0;
+		switch (action.getType()) {
+		case BUILD:
+			Building building = action.getBuilding();
+			int location = BoardIndex.getLocationId(building);
+			if (building.getType().equals("Strasse"))
+				state.make(GameState.street(seat, location));
+			else if (building.getType().equals("Dorf"))
+				state.make(GameState.settlement(seat, location));
+			else
+				state.make(GameState.city(seat, location));
+			moves++;
+			break;
+		case MOVE_THIEF:
+			state.make(GameState.thief(seat, BoardTopology.getField(action.getLocation().charAt(0))));
+			moves++;
+			break;
+		case PLAY_KNIGHT_CARD:
+			state.make(GameState.knightCard(seat, BoardTopology.getField(action.getLocation().charAt(0))));
+			moves++;
+			break;
+		case PLAY_ROAD_BUILDING_CARD:
+			state.make(GameState.playCard(seat, GameState.ROAD_BUILDING));
+			state.make(GameState.street(seat, BoardTopology.getEdge(action.getLocation())));
+			moves += 2;
+			if (action.getSecondLocation() != null) {
+				state.make(GameState.street(seat, BoardTopology.getEdge(action.getSecondLocation())));
+				moves++;
+			}
+			break;
+		case PLAY_MONOPOLY_CARD:
+			state.make(GameState.playCard(seat, GameState.MONOPOLY));
+			moves++;
+			break;
+		case PLAY_YEAR_OF_PLENTY_CARD:
+			state.make(GameState.playCard(seat, GameState.YEAR_OF_PLENTY));
+			moves++;
+			break;
+		default:
+			break;
+		}
+		return moves + makeChanges(state, game);
+	}
+
+	/**
+	 * Makes the moves bringing the resources, the development cards and the
+	 * turn of the state to the ones of the game.
+	 *
+	 * @return the number of moves made
+	 */
+	static int makeChanges(GameState state, GameEngine game) {
+		ServerMemoryLogic memory = game.getMemory();
+		int moves = 0;
+		for (int seat = 0; seat < memory.playerList.size(); seat++) {
+			PlayerForProtocol player = memory.playerList.get(seat);
+			Resources resources = player.getResources();
+			moves += setResources(state, seat, GameState.WOOD, resources.getWood());
+			moves += setResources(state, seat, GameState.LOAM, resources.getLoam());
+			moves += setResources(state, seat, GameState.WOOL, resources.getWool());
+			moves += setResources(state, seat, GameState.GRAIN, resources.getGrain());
+			moves += setResources(state, seat, GameState.STONE, resources.getStone());
+			DevelopmentCards cards = player.getDevelopmentCards();
+			moves += setDevelopmentCards(state, seat, GameState.KNIGHT, cards.getKnight());
+			moves += setDevelopmentCards(state, seat, GameState.ROAD_BUILDING, cards.getRoadBuilding());
+			moves += setDevelopmentCards(state, seat, GameState.MONOPOLY, cards.getMonopoly());
+			moves += setDevelopmentCards(state, seat, GameState.YEAR_OF_PLENTY, cards.getYearOfPlenty());
+			moves += setDevelopmentCards(state, seat, GameState.VICTORY_POINT, cards.getVictoryPoint());
+		}
+		int current = state.getSeat(memory.getCurrentPlayer().getId());
+		if (current != state.getCurrentSeat()) {
+			state.make(GameState.turn(state.getCurrentSeat(), current));
+			moves++;
+		}
+		return moves;
+	}
+
+	private static int setResources(GameState state, int seat, int type, Integer amount) {
+		int change = (amount == null ? 0 : amount) - state.getResource(seat, type);
+		if (change == 0)
+			return 0;
+		state.make(GameState.resources(seat, type, change));
+		return 1;
+	}
+
+	private static int setDevelopmentCards(GameState state, int seat, int type, Integer amount) {
+		int change = (amount == null ? 0 : amount) - state.getDevelopmentCards(seat, type);
+		if (change == 0)
+			return 0;
+		state.make(GameState.developmentCards(seat, type, change));
+		return 1;
+	}
+
+	private static int getSeat(GameEngine game, int playerId) {
+		ArrayList<PlayerForProtocol> players = game.getMemory().playerList;
+		for (int seat = 0; seat < players.size(); seat++) {
+			if (players.get(seat).getId() == playerId)
+				return seat;
+		}
+		throw new IllegalArgumentException("Unknown player: " + playerId);
+	}
+}
@@ -0,0 +1,182 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A client connection served by the non-blocking transport. Incoming bytes are
+ * split into lines (one JSON message per line, same as the blocking
+ * transport), outgoing lines are queued until the event loop can write them.
+ */
+public class NioConnection {
+	/**
+	 * Lines longer than this are considered corrupt and close the connection
+	 */
+	private static final int MAX_LINE_LENGTH = 1 << 20;
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private final SocketChannel channel;
+	private final NioEventLoop eventLoop;
+	/**
+	 * Runs the protocol, so a slow request never blocks an event loop
+	 */
+	private final ExecutorService protocolExecutor;
+	private SelectionKey key;
+	private ClientConnectionHandler handler;
+
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+	/**
+	 * Bytes of the line which has not been completed yet
+	 */
+	private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+	private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+	/**
+	 * Received lines waiting for the protocol executor
+	 */
+	private InboundQueue inbound;
+	private final AtomicBoolean closed = new AtomicBoolean(false);
+
+	/**
+	 * Constructor
+	 *
+	 * @param channel
+	 *            the accepted (non-blocking) channel
+	 * @param eventLoop
+	 *            the event loop the channel is registered with
+	 * @param protocolExecutor
+	 *            executor handling the received lines
+	 */
+	public NioConnection(SocketChannel channel, NioEventLoop eventLoop, ExecutorService protocolExecutor) {
+		this.channel = channel;
+		this.eventLoop = eventLoop;
+		this.protocolExecutor = protocolExecutor;
+	}
+
+	/**
+	 * Queues a frame for sending. May be called from any thread. The bytes of
+	 * the frame are shared with the other recipients, they are not copied.
+	 *
+	 * @param frame
+	 *            the frame to send
+	 */
+	public void send(EncodedFrame frame) {
+		if (closed.get())
+			return;
+		outbound.add(frame.newBuffer());
+		eventLoop.requestFlush(this);
+	}
+
+	/**
+	 * Reads everything available from the channel (event loop only).
+	 */
+	void read() {
+		try {
+			int read;
+			while ((read = channel.read(readBuffer)) > 0) {
+				readBuffer.flip();
+				while (readBuffer.hasRemaining()) {
+					byte b = readBuffer.get();
+					if (b == '\n') {
+						receiveLine(partialLine.toByteArray());
+						partialLine.reset();
+					} else if (partialLine.size() < MAX_LINE_LENGTH) {
+						partialLine.write(b);
+					} else {
+						close();
+						return;
+					}
+				}
+				readBuffer.clear();
+			}
+			if (read < 0)
+				close();
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Decodes a complete line and hands it over to the protocol executor. Lines
+	 * of one connection are handled in the order they arrived.
+	 */
+	private void receiveLine(byte[] bytes) {
+		int length = bytes.length;
+		if (length > 0 && bytes[length - 1] == '\r')
+			length--;
+		inbound.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes as much of the outbound queue as the channel accepts (event loop
+	 * only). Waits for the channel to become writable if something is left.
+	 */
+	void flush() {
+		if (key == null || !key.isValid())
+			return;
+		try {
+			ByteBuffer buffer;
+			while ((buffer = outbound.peek()) != null) {
+				channel.write(buffer);
+				if (buffer.hasRemaining())
+					break;
+				outbound.poll();
+			}
+			if (outbound.isEmpty())
+				key.interestOps(SelectionKey.OP_READ);
+			else
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the connection and informs the server (only once).
+	 */
+	public void close() {
+		if (!closed.compareAndSet(false, true))
+			return;
+		if (key != null)
+			key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// e.printStackTrace();
+		}
+		outbound.clear();
+		if (inbound != null)
+			inbound.close();
+		// Informing the room may wait for its lock, which must not stall the event loop
+		if (handler != null) {
+			try {
+				protocolExecutor.execute(() -> handler.getServer().removeConnectionHandler(handler));
+			} catch (RejectedExecutionException e) {
+				handler.getServer().removeConnectionHandler(handler);
+			}
+		}
+	}
+
+	// Getters and Setters
+	public SocketChannel getChannel() {
+		return channel;
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	public void setHandler(ClientConnectionHandler handler) {
+		this.handler = handler;
+		this.inbound = new InboundQueue(handler, protocolExecutor);
+	}
+
+	public boolean isClosed() {
+		return closed.get();
+	}
+}
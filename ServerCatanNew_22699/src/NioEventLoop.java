@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One thread of the non-blocking transport. Owns a selector and performs all
+ * reads and writes of the connections registered with it.
+ */
+public class NioEventLoop extends Thread {
+	private final Selector selector;
+	private final ConcurrentLinkedQueue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<NioConnection> pendingFlushes = new ConcurrentLinkedQueue<>();
+	private volatile boolean active = true;
+
+	/**
+	 * Constructor
+	 *
+	 * @param name
+	 *            name of the thread
+	 */
+	public NioEventLoop(String name) throws IOException {
+		super(name);
+		setDaemon(true);
+		selector = Selector.open();
+	}
+
+	/**
+	 * Registers a connection with this event loop. May be called from any
+	 * thread.
+	 *
+	 * @param connection
+	 */
+	public void register(NioConnection connection) {
+		pendingRegistrations.add(connection);
+		selector.wakeup();
+	}
+
+	/**
+	 * Asks the event loop to write the queued lines of a connection. May be
+	 * called from any thread.
+	 *
+	 * @param connection
+	 */
+	public void requestFlush(NioConnection connection) {
+		pendingFlushes.add(connection);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		while (active) {
+			try {
+				selector.select();
+				NioConnection connection;
+				while ((connection = pendingRegistrations.poll()) != null) {
+					if (connection.isClosed())
+						continue;
+					connection.setKey(connection.getChannel().register(selector, SelectionKey.OP_READ, connection));
+					// Send what has been queued before the registration (hello message)
+					connection.flush();
+				}
+				while ((connection = pendingFlushes.poll()) != null)
+					connection.flush();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					connection = (NioConnection) key.attachment();
+					if (key.isValid() && key.isReadable())
+						connection.read();
+					if (key.isValid() && key.isWritable())
+						connection.flush();
+				}
+			} catch (ClosedSelectorException e) {
+				break;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Stops the event loop and closes all of its connections.
+	 */
+	public void close() {
+		active = false;
+		try {
+			for (SelectionKey key : selector.keys())
+				((NioConnection) key.attachment()).close();
+		} catch (Exception e) {
+			// e.printStackTrace();
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			// e.printStackTrace();
+		}
+	}
+}
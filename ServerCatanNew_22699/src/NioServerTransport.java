@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Non-blocking transport of the server. A small, fixed number of event loops
+ * serve all clients instead of one thread per client. The wire format is the
+ * same as with the blocking transport (one JSON message per line).
+ */
+public class NioServerTransport {
+	/**
+	 * Number of event loops (reading/writing threads)
+	 */
+	private static final int NUMBER_OF_EVENT_LOOPS = Math.max(1,
+			Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private final Server server;
+	private final ServerSocketChannel serverChannel;
+	private final NioEventLoop[] eventLoops = new NioEventLoop[NUMBER_OF_EVENT_LOOPS];
+	private int nextEventLoop = 0;
+	private volatile boolean active = true;
+
+	/**
+	 * Opens the server channel and starts the event loops.
+	 *
+	 * @param server
+	 *            our server
+	 * @param port
+	 *            port to listen on
+	 */
+	public NioServerTransport(Server server, int port) throws IOException {
+		this.server = server;
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		for (int i = 0; i < eventLoops.length; i++) {
+			eventLoops[i] = new NioEventLoop("nio-event-loop-" + i);
+			eventLoops[i].start();
+		}
+	}
+
+	/**
+	 * Accepts clients until the transport is closed. Every client is assigned
+	 * to one of the event loops (round robin).
+	 */
+	public void acceptClients() {
+		while (active) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				NioEventLoop eventLoop = eventLoops[nextEventLoop];
+				nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+				NioConnection connection = new NioConnection(channel, eventLoop, server.getProtocolExecutor());
+				server.addClient(connection);
+				eventLoop.register(connection);
+			}
+			// Thrown once the channel gets closed
+			catch (IOException e) {
+				// e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting clients and closes all connections.
+	 */
+	public void close() {
+		active = false;
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+			// e.printStackTrace();
+		}
+		for (NioEventLoop eventLoop : eventLoops)
+			eventLoop.close();
+	}
+}
@@ -0,0 +1,186 @@
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The seat of a player in a {@link GameRoom}, identified by a token sent with
+ * the welcome message. If the connection of the player drops during the game,
+ * the seat is held for a while and the client may resume it with the token on
+ * a new connection (see {@link GameRoom#resume}).
+ *
+ * The last {@link #OUTBOX_SIZE} messages sent to the seat are kept, also while
+ * nobody is connected. The client tells how many messages it has received, the
+ * ones it missed are sent again.
+ */
+public class PlayerSession {
+	/**
+	 * Number of messages kept for a resume
+	 */
+	public static final int OUTBOX_SIZE = 512;
+
+	private static final SecureRandom random = new SecureRandom();
+
+	private final String token;
+	private final int playerId;
+	private final GameRoom room;
+	/**
+	 * Ring of the last messages sent, the message number n is at n %
+	 * OUTBOX_SIZE
+	 */
+	private final EncodedFrame[] outbox = new EncodedFrame[OUTBOX_SIZE];
+	/**
+	 * Number of messages sent to the seat since the welcome message
+	 */
+	private long sent;
+	/**
+	 * False if the seat has been restored from a journal, the messages sent
+	 * before are unknown
+	 */
+	private boolean outboxComplete;
+	/**
+	 * The connection of the player, null while the seat is held
+	 */
+	private ClientConnectionHandler connectionHandler;
+	/**
+	 * Counts the disconnections, a grace period only ends the seat it has
+	 * been started for
+	 */
+	private int disconnections;
+
+	/**
+	 * Opens the session of a new player.
+	 *
+	 * @param playerId
+	 *            the id of the player
+	 * @param room
+	 *            the room of the game
+	 * @param connectionHandler
+	 *            the connection of the player
+	 */
+	public PlayerSession(int playerId, GameRoom room, ClientConnectionHandler connectionHandler) {
+		this(createToken(), playerId, room);
+		this.connectionHandler = connectionHandler;
+		outboxComplete = true;
+	}
+
+	/**
+	 * Restores a held session from a journal.
+	 *
+	 * @param token
+	 *            the token of the session
+	 * @param playerId
+	 *            the id of the player
+	 * @param room
+	 *            the recovered room
+	 */
+	public PlayerSession(String token, int playerId, GameRoom room) {
+		this.token = token;
+		this.playerId = playerId;
+		this.room = room;
+	}
+
+	private static String createToken() {
+		byte[] bytes = new byte[16];
+		random.nextBytes(bytes);
+		StringBuilder token = new StringBuilder(2 * bytes.length);
+		for (byte b : bytes)
+			token.append(String.format("%02x", b));
+		return token.toString();
+	}
+
+	/**
+	 * Keeps a message sent to the seat. A message for a held seat is
+	 * serialized right away, the objects it refers to may still change.
+	 *
+	 * @param frame
+	 *            the message
+	 * @param connectionHandler
+	 *            the connection the message has been sent over, null for a
+	 *            message to the held seat
+	 */
+	public synchronized void record(EncodedFrame frame, ClientConnectionHandler connectionHandler) {
+		if (this.connectionHandler != connectionHandler)
+			return;
+		if (connectionHandler == null)
+			frame.getLine();
+		outbox[(int) (sent % OUTBOX_SIZE)] = frame;
+		sent++;
+	}
+
+	/**
+	 * Holds the seat after the connection has dropped.
+	 *
+	 * @param connectionHandler
+	 *            the dropped connection
+	 * @return the number of the disconnection, -1 if the seat has already
+	 *         been resumed by an other connection
+	 */
+	public synchronized int detach(ClientConnectionHandler connectionHandler) {
+		if (this.connectionHandler != connectionHandler)
+			return -1;
+		this.connectionHandler = null;
+		return ++disconnections;
+	}
+
+	/**
+	 * Finds the messages a resuming client has missed.
+	 *
+	 * @param received
+	 *            number of messages the client has received since its welcome
+	 *            message
+	 * @return the missed messages in their order, null if they are not kept
+	 *         anymore
+	 */
+	public synchronized List<EncodedFrame> getMissedFrames(long received) {
+		List<EncodedFrame> missed = new ArrayList<>();
+		if (!outboxComplete) {
+			// Only the state of the game is known after a restart
+			sent = Math.max(received, 0);
+			outboxComplete = true;
+			return missed;
+		}
+		if (received < 0 || received > sent || sent - received > OUTBOX_SIZE)
+			return null;
+		for (long n = received; n < sent; n++)
+			missed.add(outbox[(int) (n % OUTBOX_SIZE)]);
+		return missed;
+	}
+
+	/**
+	 * Binds the seat to the connection of the resuming client, the messages
+	 * sent from now on are kept again.
+	 *
+	 * @param connectionHandler
+	 *            the new connection
+	 * @return the connection which has held the seat until now (not closed
+	 *         yet), null if the seat has been held
+	 */
+	public synchronized ClientConnectionHandler attach(ClientConnectionHandler connectionHandler) {
+		ClientConnectionHandler previous = this.connectionHandler;
+		this.connectionHandler = connectionHandler;
+		if (previous != null)
+			disconnections++;
+		return previous;
+	}
+
+	// Getters
+
+	public String getToken() {
+		return token;
+	}
+
+	public int getPlayerId() {
+		return playerId;
+	}
+
+	public GameRoom getRoom() {
+		return room;
+	}
+
+	/**
+	 * @return True, if the seat is still held since the given disconnection
+	 */
+	public synchronized boolean isHeldSince(int disconnection) {
+		return connectionHandler == null && disconnections == disconnection;
+	}
+}
@@ -0,0 +1,269 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import networking.MessageObjects.Earnings;
+import networking.MessageObjects.Field;
+import networking.MessageObjects.Resources;
+
+/**
+ * Production of the board by dice number. For every number it holds one entry
+ * per (field, settlement/city) pair: the field, the settlement, its owner and
+ * the amount (1 for a settlement, 2 for a city). The index is created together
+ * with the map and updated whenever a settlement or city is built, so a dice
+ * throw only walks the entries of the thrown number.
+ */
+public class ProductionIndex {
+	/**
+	 * Resource produced by a field (index into the resources of an earning)
+	 */
+	private static final int WOOD = 0, LOAM = 1, WOOL = 2, GRAIN = 3, STONE = 4, NONE = -1;
+	private static final int NUMBER_OF_RESOURCES = 5;
+	private static final int MAX_DICE_NUMBER = 12;
+	private static final int INITIAL_CAPACITY = 8;
+
+	/**
+	 * Field index by location letter, -1 for sea or unknown letters
+	 */
+	private final int[] fieldByLetter = new int[128];
+	private final int[] resourceOfField;
+	private final int[] numberOfField;
+
+	/**
+	 * Settlements/cities by their (sorted) location
+	 */
+	private final HashMap<String, Integer> settlementIds = new HashMap<>();
+
+	// Entries of every dice number
+	private final int[] entryCount = new int[MAX_DICE_NUMBER + 1];
+	private final int[][] entryField = new int[MAX_DICE_NUMBER + 1][];
+	private final int[][] entrySettlement = new int[MAX_DICE_NUMBER + 1][];
+	private final int[][] entryOwner = new int[MAX_DICE_NUMBER + 1][];
+	private final int[][] entryAmount = new int[MAX_DICE_NUMBER + 1][];
+
+	/**
+	 * Resources per player collected while evaluating a dice throw (reused)
+	 */
+	private int[] collected = new int[0];
+	/**
+	 * Players in the order they received their first resource of a throw
+	 */
+	private int[] receivers = new int[0];
+
+	/**
+	 * Creates the index of a new map (without buildings).
+	 *
+	 * @param fields
+	 *            all fields of the map
+	 */
+	public ProductionIndex(Field[] fields) {
+		Arrays.fill(fieldByLetter, -1);
+		resourceOfField = new int[fields.length];
+		numberOfField = new int[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			fieldByLetter[fields[i].getLocation().charAt(0)] = i;
+			resourceOfField[i] = getResourceOfFieldType(fields[i].getType());
+			numberOfField[i] = fields[i].getNumber();
+		}
+		for (int number = 0; number <= MAX_DICE_NUMBER; number++) {
+			entryField[number] = new int[INITIAL_CAPACITY];
+			entrySettlement[number] = new int[INITIAL_CAPACITY];
+			entryOwner[number] = new int[INITIAL_CAPACITY];
+			entryAmount[number] = new int[INITIAL_CAPACITY];
+		}
+	}
+
+	/**
+	 * Copies an index (for a copy of its game).
+	 *
+	 * @param original
+	 */
+	public ProductionIndex(ProductionIndex original) {
+		System.arraycopy(original.fieldByLetter, 0, fieldByLetter, 0, fieldByLetter.length);
+		// The fields never change
+		resourceOfField = original.resourceOfField;
+		numberOfField = original.numberOfField;
+		settlementIds.putAll(original.settlementIds);
+		System.arraycopy(original.entryCount, 0, entryCount, 0, entryCount.length);
+		for (int number = 0; number <= MAX_DICE_NUMBER; number++) {
+			entryField[number] = original.entryField[number].clone();
+			entrySettlement[number] = original.entrySettlement[number].clone();
+			entryOwner[number] = original.entryOwner[number].clone();
+			entryAmount[number] = original.entryAmount[number].clone();
+		}
+		collected = new int[original.collected.length];
+		receivers = new int[original.receivers.length];
+	}
+
+	private static int getResourceOfFieldType(String type) {
+		switch (type) {
+		case "Wald":
+			return WOOD;
+		case "Huegelland":
+			return LOAM;
+		case "Weideland":
+			return WOOL;
+		case "Ackerland":
+			return GRAIN;
+		case "Gebirge":
+			return STONE;
+		default:
+			return NONE;
+		}
+	}
+
+	/**
+	 * Adds a settlement or upgrades it to a city. Streets are ignored.
+	 *
+	 * @param type
+	 *            "Dorf" or "Stadt"
+	 * @param location
+	 *            location of the building (three field letters)
+	 * @param owner
+	 *            id of the player owning the building
+	 */
+	public void addBuilding(String type, String location, int owner) {
+		int amount = type.equals("Stadt") ? 2 : type.equals("Dorf") ? 1 : 0;
+		if (amount == 0)
+			return;
+		int settlement = getSettlementId(location);
+		ensureOwnerCapacity(owner);
+		for (int i = 0; i < location.length(); i++) {
+			int field = getField(location.charAt(i));
+			if (field < 0 || resourceOfField[field] == NONE)
+				continue;
+			int number = numberOfField[field];
+			if (number < 0 || number > MAX_DICE_NUMBER)
+				continue;
+			int entry = findEntry(number, field, settlement);
+			if (entry < 0)
+				entry = appendEntry(number, field, settlement);
+			entryOwner[number][entry] = owner;
+			entryAmount[number][entry] = amount;
+		}
+	}
+
+	/**
+	 * Removes a settlement or city. Streets are ignored.
+	 *
+	 * @param type
+	 *            "Dorf" or "Stadt"
+	 * @param location
+	 *            location of the building (three field letters)
+	 */
+	public void removeBuilding(String type, String location) {
+		if (type.equals("Strasse"))
+			return;
+		Integer settlement = settlementIds.get(getKey(location));
+		if (settlement == null)
+			return;
+		for (int number = 0; number <= MAX_DICE_NUMBER; number++) {
+			for (int entry = entryCount[number] - 1; entry >= 0; entry--) {
+				if (entrySettlement[number][entry] != settlement)
+					continue;
+				// Move the last entry into the gap
+				int last = --entryCount[number];
+				entryField[number][entry] = entryField[number][last];
+				entrySettlement[number][entry] = entrySettlement[number][last];
+				entryOwner[number][entry] = entryOwner[number][last];
+				entryAmount[number][entry] = entryAmount[number][last];
+			}
+		}
+	}
+
+	/**
+	 * Calculates which player gets which resources for a dice throw.
+	 *
+	 * @param diceThrow
+	 *            the sum of the dice
+	 * @param thief
+	 *            location of the thief (this field produces nothing)
+	 * @return only the not empty earnings for each player
+	 */
+	public ArrayList<Earnings> getEarnings(int diceThrow, String thief) {
+		ArrayList<Earnings> result = new ArrayList<>();
+		if (diceThrow < 0 || diceThrow > MAX_DICE_NUMBER)
+			return result;
+		int thiefField = thief == null || thief.isEmpty() ? -1 : getField(thief.charAt(0));
+		int numberOfReceivers = 0;
+		int[] fields = entryField[diceThrow];
+		int[] owners = entryOwner[diceThrow];
+		int[] amounts = entryAmount[diceThrow];
+		for (int entry = 0; entry < entryCount[diceThrow]; entry++) {
+			if (fields[entry] == thiefField)
+				continue;
+			int owner = owners[entry];
+			int offset = owner * NUMBER_OF_RESOURCES;
+			if (isEmpty(offset))
+				receivers[numberOfReceivers++] = owner;
+			collected[offset + resourceOfField[fields[entry]]] += amounts[entry];
+		}
+		for (int i = 0; i < numberOfReceivers; i++) {
+			int offset = receivers[i] * NUMBER_OF_RESOURCES;
+			result.add(new Earnings(receivers[i], new Resources(collected[offset + WOOD], collected[offset + LOAM],
+					collected[offset + WOOL], collected[offset + GRAIN], collected[offset + STONE], 0)));
+			Arrays.fill(collected, offset, offset + NUMBER_OF_RESOURCES, 0);
+		}
+		return result;
+	}
+
+	private boolean isEmpty(int offset) {
+		for (int i = offset; i < offset + NUMBER_OF_RESOURCES; i++) {
+			if (collected[i] != 0)
+				return false;
+		}
+		return true;
+	}
+
+	private int getField(char letter) {
+		return letter < fieldByLetter.length ? fieldByLetter[letter] : -1;
+	}
+
+	private int getSettlementId(String location) {
+		String key = getKey(location);
+		Integer id = settlementIds.get(key);
+		if (id == null) {
+			id = settlementIds.size();
+			settlementIds.put(key, id);
+		}
+		return id;
+	}
+
+	/**
+	 * The letters of a location may come in any order
+	 */
+	private static String getKey(String location) {
+		char[] letters = location.toCharArray();
+		Arrays.sort(letters);
+		return new String(letters);
+	}
+
+	private int findEntry(int number, int field, int settlement) {
+		for (int entry = 0; entry < entryCount[number]; entry++) {
+			if (entryField[number][entry] == field && entrySettlement[number][entry] == settlement)
+				return entry;
+		}
+		return -1;
+	}
+
+	private int appendEntry(int number, int field, int settlement) {
+		int entry = entryCount[number]++;
+		if (entry == entryField[number].length) {
+			int capacity = entry * 2;
+			entryField[number] = Arrays.copyOf(entryField[number], capacity);
+			entrySettlement[number] = Arrays.copyOf(entrySettlement[number], capacity);
+			entryOwner[number] = Arrays.copyOf(entryOwner[number], capacity);
+			entryAmount[number] = Arrays.copyOf(entryAmount[number], capacity);
+		}
+		entryField[number][entry] = field;
+		entrySettlement[number][entry] = settlement;
+		return entry;
+	}
+
+	private void ensureOwnerCapacity(int owner) {
+		if (owner >= receivers.length) {
+			receivers = new int[owner + 1];
+			collected = Arrays.copyOf(collected, (owner + 1) * NUMBER_OF_RESOURCES);
+		}
+	}
+}
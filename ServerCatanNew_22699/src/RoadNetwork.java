@@ -0,0 +1,274 @@
+import java.util.HashMap;
+
+import networking.MessageObjects.Building;
+import tools.BoardIndex;
+import tools.BoardTopology;
+
+/**
+ * Streets and settlements/cities of one game on the edge/vertex graph of
+ * {@link BoardTopology}, used to find the longest road of every player. A road
+ * is a path of own streets which uses every street at most once and does not
+ * pass a crossing occupied by an other player.
+ *
+ * The own streets of a player are split into connected components. Building a
+ * street or a settlement only recomputes the components touching it, the
+ * longest road of every component and player is cached in between.
+ */
+public class RoadNetwork {
+	private static final int NO_COMPONENT = -1;
+
+	private final int[] ownerOfEdge = new int[BoardTopology.NUMBER_OF_EDGES];
+	private final int[] ownerOfVertex = new int[BoardTopology.NUMBER_OF_VERTICES];
+	/**
+	 * Component of every street, identified by its smallest edge, so the
+	 * network only depends on its buildings and not on their order
+	 */
+	private final int[] componentOfEdge = new int[BoardTopology.NUMBER_OF_EDGES];
+	/**
+	 * Longest road of a component (indexed by the identifying edge, 0 for
+	 * the other edges)
+	 */
+	private final int[] lengthOfComponent = new int[BoardTopology.NUMBER_OF_EDGES];
+	/**
+	 * Longest road of every player owning streets
+	 */
+	private final HashMap<Integer, Integer> longestRoadOfPlayer = new HashMap<>();
+
+	/**
+	 * Streets of the component found last (reused)
+	 */
+	private final int[] componentEdges = new int[BoardTopology.NUMBER_OF_EDGES];
+	/**
+	 * The same streets as a bitset (edges 0-63 and 64-)
+	 */
+	private long memberLow, memberHigh;
+
+	/**
+	 * Creates the network of a new map (without buildings).
+	 */
+	public RoadNetwork() {
+		for (int edge = 0; edge < BoardTopology.NUMBER_OF_EDGES; edge++) {
+			ownerOfEdge[edge] = BoardIndex.NO_OWNER;
+			componentOfEdge[edge] = NO_COMPONENT;
+		}
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++)
+			ownerOfVertex[vertex] = BoardIndex.NO_OWNER;
+	}
+
+	/**
+	 * Copies a network (for a copy of its game).
+	 *
+	 * @param original
+	 */
+	public RoadNetwork(RoadNetwork original) {
+		System.arraycopy(original.ownerOfEdge, 0, ownerOfEdge, 0, ownerOfEdge.length);
+		System.arraycopy(original.ownerOfVertex, 0, ownerOfVertex, 0, ownerOfVertex.length);
+		System.arraycopy(original.componentOfEdge, 0, componentOfEdge, 0, componentOfEdge.length);
+		System.arraycopy(original.lengthOfComponent, 0, lengthOfComponent, 0, lengthOfComponent.length);
+		longestRoadOfPlayer.putAll(original.longestRoadOfPlayer);
+	}
+
+	/**
+	 * Adds a street, settlement or city and updates the roads it touches.
+	 *
+	 * @param building
+	 */
+	public void addBuilding(Building building) {
+		int id = BoardIndex.getLocationId(building);
+		if (id < 0)
+			return;
+		if (building.getType().equals("Strasse")) {
+			ownerOfEdge[id] = building.getOwner();
+			// The new street joins all own streets connected to it
+			update(id);
+		} else {
+			if (ownerOfVertex[id] == building.getOwner())
+				return; // Settlement upgraded to a city, nothing changes
+			ownerOfVertex[id] = building.getOwner();
+			// A settlement may cut the roads of the other players passing it
+			updateAround(id, BoardIndex.NO_OWNER);
+		}
+	}
+
+	/**
+	 * Removes a street, settlement or city and updates the roads it touched.
+	 *
+	 * @param building
+	 */
+	public void removeBuilding(Building building) {
+		int id = BoardIndex.getLocationId(building);
+		if (id < 0)
+			return;
+		if (building.getType().equals("Strasse")) {
+			int owner = ownerOfEdge[id];
+			if (owner == BoardIndex.NO_OWNER)
+				return;
+			ownerOfEdge[id] = BoardIndex.NO_OWNER;
+			componentOfEdge[id] = NO_COMPONENT;
+			lengthOfComponent[id] = 0;
+			// The rest of the component may fall apart at both ends
+			for (int vertex : BoardTopology.getVerticesOfEdge(id))
+				updateAround(vertex, owner);
+			updateLongestRoadOfPlayer(owner);
+		} else {
+			ownerOfVertex[id] = BoardIndex.NO_OWNER;
+			updateAround(id, BoardIndex.NO_OWNER);
+		}
+	}
+
+	/**
+	 * @param player
+	 *            id of the player
+	 * @return length of the longest road of the player (0 without streets)
+	 */
+	public int getLongestRoad(int player) {
+		Integer length = longestRoadOfPlayer.get(player);
+		return length == null ? 0 : length;
+	}
+
+	/**
+	 * Recomputes the components of the streets ending at a crossing.
+	 *
+	 * @param vertex
+	 * @param owner
+	 *            only streets of this player, all streets if NO_OWNER
+	 */
+	private void updateAround(int vertex, int owner) {
+		// Mark the components to recompute first, a component recomputed from
+		// one street must not be recomputed again from the next one
+		long updatedLow = 0, updatedHigh = 0;
+		for (int edge : BoardTopology.getEdgesOfVertex(vertex)) {
+			if (ownerOfEdge[edge] == BoardIndex.NO_OWNER || (owner != BoardIndex.NO_OWNER && ownerOfEdge[edge] != owner))
+				continue;
+			if (isSet(edge, updatedLow, updatedHigh))
+				continue;
+			int size = update(edge);
+			for (int i = 0; i < size; i++) {
+				if (componentEdges[i] < 64)
+					updatedLow |= 1L << componentEdges[i];
+				else
+					updatedHigh |= 1L << (componentEdges[i] - 64);
+			}
+		}
+	}
+
+	/**
+	 * Recomputes the component of a street (its members and its longest road)
+	 * and the longest road of the owner.
+	 *
+	 * @param edge
+	 *            a street of the component
+	 * @return the number of streets in the component, they are left in
+	 *         componentEdges
+	 */
+	private int update(int edge) {
+		int owner = ownerOfEdge[edge];
+		// Collect the component: streets of the owner connected by crossings
+		// which are not occupied by an other player
+		memberLow = 0;
+		memberHigh = 0;
+		int size = 0;
+		componentEdges[size++] = edge;
+		if (edge < 64)
+			memberLow |= 1L << edge;
+		else
+			memberHigh |= 1L << (edge - 64);
+		for (int i = 0; i < size; i++) {
+			for (int vertex : BoardTopology.getVerticesOfEdge(componentEdges[i])) {
+				if (isBlocked(vertex, owner))
+					continue;
+				for (int next : BoardTopology.getEdgesOfVertex(vertex)) {
+					if (ownerOfEdge[next] != owner || isSet(next, memberLow, memberHigh))
+						continue;
+					if (next < 64)
+						memberLow |= 1L << next;
+					else
+						memberHigh |= 1L << (next - 64);
+					componentEdges[size++] = next;
+				}
+			}
+		}
+
+		// Longest road of the component, starting at every crossing of it
+		int longest = 0;
+		for (int i = 0; i < size; i++) {
+			for (int vertex : BoardTopology.getVerticesOfEdge(componentEdges[i]))
+				longest = Math.max(longest, getLongestRoadFrom(vertex, owner, 0, 0, true));
+		}
+		int component = componentEdges[0];
+		for (int i = 1; i < size; i++)
+			component = Math.min(component, componentEdges[i]);
+		for (int i = 0; i < size; i++) {
+			componentOfEdge[componentEdges[i]] = component;
+			lengthOfComponent[componentEdges[i]] = 0;
+		}
+		lengthOfComponent[component] = longest;
+		updateLongestRoadOfPlayer(owner);
+		return size;
+	}
+
+	/**
+	 * Depth-first search for the longest road continuing at a crossing.
+	 *
+	 * @param vertex
+	 *            the crossing
+	 * @param owner
+	 *            owner of the road
+	 * @param visitedLow
+	 *            streets already used (edges 0-63)
+	 * @param visitedHigh
+	 *            streets already used (edges 64-)
+	 * @param start
+	 *            true for the first crossing (a road may start at a crossing
+	 *            of an other player, but not pass it)
+	 * @return number of streets of the longest continuation
+	 */
+	private int getLongestRoadFrom(int vertex, int owner, long visitedLow, long visitedHigh, boolean start) {
+		if (!start && isBlocked(vertex, owner))
+			return 0;
+		int longest = 0;
+		for (int edge : BoardTopology.getEdgesOfVertex(vertex)) {
+			if (ownerOfEdge[edge] != owner || isSet(edge, visitedLow, visitedHigh))
+				continue;
+			// At a crossing of an other player the streets of the owner
+			// belong to different components
+			if (start && !isSet(edge, memberLow, memberHigh))
+				continue;
+			int next = getOtherVertex(edge, vertex);
+			int length = 1;
+			if (next >= 0) {
+				if (edge < 64)
+					length += getLongestRoadFrom(next, owner, visitedLow | 1L << edge, visitedHigh, false);
+				else
+					length += getLongestRoadFrom(next, owner, visitedLow, visitedHigh | 1L << (edge - 64), false);
+			}
+			longest = Math.max(longest, length);
+		}
+		return longest;
+	}
+
+	private void updateLongestRoadOfPlayer(int owner) {
+		int longest = 0;
+		for (int edge = 0; edge < BoardTopology.NUMBER_OF_EDGES; edge++) {
+			if (ownerOfEdge[edge] == owner && componentOfEdge[edge] == edge)
+				longest = Math.max(longest, lengthOfComponent[edge]);
+		}
+		longestRoadOfPlayer.put(owner, longest);
+	}
+
+	private boolean isBlocked(int vertex, int owner) {
+		return ownerOfVertex[vertex] != BoardIndex.NO_OWNER && ownerOfVertex[vertex] != owner;
+	}
+
+	private static int getOtherVertex(int edge, int vertex) {
+		for (int other : BoardTopology.getVerticesOfEdge(edge)) {
+			if (other != vertex)
+				return other;
+		}
+		return -1;
+	}
+
+	private static boolean isSet(int edge, long low, long high) {
+		return edge < 64 ? (low & 1L << edge) != 0 : (high & 1L << (edge - 64)) != 0;
+	}
+}
@@ -1,42 +1,165 @@
+import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
-import javafx.application.Platform;
-import networking.MessageObjects.PlayerForProtocol;
-import networking.MessageObjects.PlayerStatusUpdate;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import networking.LoopbackConnection;
+import networking.ProtocolCodec;
 
 /**
- * Central class in the server representation. The server object is implemented as a thread.
+ * Central class in the server representation. The server object is implemented as a thread. It hosts any number
+ * of {@link GameRoom}s, each of them running its own game.
  *
  * @author Marcelina
  */
 public class Server extends Thread {
-    private final int PORT = 8080;
+    /**
+     * Port the clients connect to if not given
+     */
+    public static final int DEFAULT_PORT = 8080;
     private ServerSocket serverSocket;
     /**
      * connectionHandlers contains all the list of created connection handlers - each representing a connected client for the server
      */
     private ArrayList<ClientConnectionHandler> connectionHandlers = new ArrayList<>();
-    private ServerWindow serverWindow;
+    /**
+     * Receives the status updates (the server window if there is one)
+     */
+    private volatile ServerStatusSink statusSink = ServerStatusSink.console();
     private boolean serverActive;
     private static final String version = "...";
     private static final String protocolInfo = "1.0";
-    private boolean informedConnectionLost = false;
-    private boolean gameActive=false;
+    /**
+     * All the rooms (games) hosted by the server mapped by their id
+     */
+    private HashMap<Integer, GameRoom> rooms = new HashMap<>();
+    private int roomIdIncrementer = 0;
+    /**
+     * How the clients are served (blocking threads or non-blocking event loops)
+     */
+    private final ConnectionMode connectionMode;
+    /**
+     * Only used if the connection mode is NIO
+     */
+    private NioServerTransport nioTransport;
+    /**
+     * Number of threads running the protocol of all rooms (NIO and EXECUTOR mode)
+     */
+    private static final int NUMBER_OF_PROTOCOL_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    /**
+     * Handles the received messages of all clients (NIO and EXECUTOR mode)
+     */
+    private final ExecutorService protocolExecutor;
+    /**
+     * Runs the blocking reads of the clients, one thread per client (EXECUTOR mode only)
+     */
+    private ExecutorService readerExecutor;
+    /**
+     * Runs delayed protocol steps of all rooms instead of letting a thread sleep
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("room-scheduler"));
+    /**
+     * Number of threads forcing the journals to the disk
+     */
+    private static final int NUMBER_OF_JOURNAL_THREADS = 2;
+    /**
+     * Flushes and retires the segments of all journals, so a slow disk does not delay the steps of the scheduler
+     */
+    private final ScheduledExecutorService journalExecutor = Executors.newScheduledThreadPool(NUMBER_OF_JOURNAL_THREADS,
+            daemonThreads("journal-io"));
+    /**
+     * Accepts clients running in the same JVM (single player) without a socket
+     */
+    private final Consumer<LoopbackConnection> loopbackAcceptor = this::addClient;
+    /**
+     * Directory of the journals of the rooms, null if the games are not journaled
+     */
+    private volatile File journalDirectory;
+    /**
+     * Delay (ms) between the actions of a replay at speed 1
+     */
+    private static final long REPLAY_DELAY = 500;
+    /**
+     * Recording shown to every client instead of a game, null to play games
+     */
+    private volatile File replayDirectory;
+    private volatile double replaySpeed = 1;
+    private volatile int replayTurn;
+    /**
+     * The sessions of all welcomed players, mapped by their tokens (see {@link PlayerSession})
+     */
+    private final ConcurrentHashMap<String, PlayerSession> sessions = new ConcurrentHashMap<>();
+    /**
+     * Time (ms) without any message from a client until it is taken for not responding, if the heartbeat is
+     * turned on without a timeout
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 45000;
+    /**
+     * Time (ms) without any message from a client until it is taken for not responding, 0 (default) to never ping
+     * the clients: clients older than the pings do not answer them
+     */
+    private volatile long idleTimeout;
+    private volatile IdleAction idleAction = IdleAction.SKIP_TURN;
+    /**
+     * Acts for the clients which do not respond, one bot for all rooms
+     */
+    private volatile GameBot standInBot = new HeuristicBot();
+    /**
+     * Runs the heartbeats of all clients (see {@link ConnectionHeartbeat})
+     */
+    private final TimerWheel idleTimers;
+
     /***
-     * Constructor
+     * Constructor (one thread per client)
      */
     public Server() {
+        this(ConnectionMode.THREAD);
+    }
+
+    /***
+     * Constructor
+     *
+     * @param connectionMode How the clients are served
+     */
+    public Server(ConnectionMode connectionMode) {
+        this(connectionMode, DEFAULT_PORT);
+    }
+
+    /***
+     * Constructor
+     *
+     * @param connectionMode How the clients are served
+     * @param port           The port the clients connect to
+     */
+    public Server(ConnectionMode connectionMode, int port) {
         this.serverActive = true;
+        this.connectionMode = connectionMode;
+        ProtocolCodec.warmUp();
+        this.protocolExecutor = Executors.newFixedThreadPool(NUMBER_OF_PROTOCOL_THREADS, daemonThreads("protocol"));
+        // Ticks of 250 ms, a turn of the wheel takes 64 s
+        this.idleTimers = new TimerWheel(250, 256, scheduler, protocolExecutor);
+        if (connectionMode == ConnectionMode.EXECUTOR)
+            readerExecutor = Executors.newCachedThreadPool(daemonThreads("client-reader"));
         try {
-            serverSocket = new ServerSocket(PORT);
+            if (connectionMode == ConnectionMode.NIO)
+                nioTransport = new NioServerTransport(this, port);
+            else
+                serverSocket = new ServerSocket(port);
         } catch (IOException e) {
           //  e.printStackTrace();
-            // If we have an error, then deactivate the server
+            // If we have an error, then deactivate the server (reported once it is started)
             serverActive = false;
-            Platform.runLater(() -> serverWindow.serverAlreadyCreated());
         }
+        if (serverActive)
+            LoopbackConnection.bind(loopbackAcceptor);
     }
 
     /**
@@ -46,6 +169,17 @@ public class Server extends Thread {
      */
     @Override
     public void run() {
+        if (!serverActive) {
+            statusSink.serverAlreadyCreated();
+            return;
+        }
+        if (journalDirectory != null)
+            recoverRooms();
+        if (connectionMode == ConnectionMode.NIO) {
+            if (serverActive)
+                nioTransport.acceptClients();
+            return;
+        }
         while (serverActive) {
 
             try {
@@ -67,97 +201,296 @@ public class Server extends Thread {
     }
 
     /**
-     * Adds / Creates a client.
+     * Adds / Creates a client. The client is bound to the first room still waiting for players, a new room is
+     * opened if there is none.
      */
     private synchronized void addClient(Socket socket) {
-        ClientConnectionHandler clientConnectionHandler = new ClientConnectionHandler(this, socket);
+        GameRoom room = getOpenRoom();
+        ClientConnectionHandler clientConnectionHandler = new ClientConnectionHandler(this, room, socket);
         connectionHandlers.add(clientConnectionHandler);
-        Platform.runLater(() -> serverWindow.printServerStatusUpdate("New client connected"));
-        clientConnectionHandler.start();
+        room.addConnectionHandler(clientConnectionHandler);
+        printServerStatusUpdate("New client connected (room " + room.getRoomId() + ")");
+        watchConnection(clientConnectionHandler);
+        if (connectionMode == ConnectionMode.EXECUTOR) {
+            clientConnectionHandler.setInboundQueue(new InboundQueue(clientConnectionHandler, protocolExecutor));
+            readerExecutor.execute(clientConnectionHandler);
+        } else {
+            new Thread(clientConnectionHandler).start();
+        }
         ////GameStart.mainLogger.getLOGGER()()().fine("Client connection established (message from server)");
     }
 
     /**
-     * Assigns a window to the server.
+     * Adds / Creates a client served by the non-blocking transport. No thread is started for the client.
      *
-     * @param serverWindow The window for the server.
+     * @param connection The accepted connection
      */
-    public void setWindow(ServerWindow serverWindow) {
-        this.serverWindow = serverWindow;
+    synchronized void addClient(NioConnection connection) {
+        GameRoom room = getOpenRoom();
+        ClientConnectionHandler clientConnectionHandler = new ClientConnectionHandler(this, room, connection);
+        connection.setHandler(clientConnectionHandler);
+        connectionHandlers.add(clientConnectionHandler);
+        room.addConnectionHandler(clientConnectionHandler);
+        printServerStatusUpdate("New client connected (room " + room.getRoomId() + ")");
+        watchConnection(clientConnectionHandler);
     }
 
     /**
-     * returns the server window object belonging to this server
+     * Starts the heartbeat of a client connected over the network, a client in the same JVM cannot drop.
+     */
+    private void watchConnection(ClientConnectionHandler clientConnectionHandler) {
+        if (idleTimeout > 0)
+            clientConnectionHandler.startHeartbeat(idleTimers, idleTimeout);
+    }
+
+    /**
+     * Adds / Creates a client running in the same JVM. No thread is started for the client, its requests are
+     * handled on the thread sending them.
+     *
+     * @param connection The in-memory connection
+     */
+    synchronized void addClient(LoopbackConnection connection) {
+        GameRoom room = getOpenRoom();
+        ClientConnectionHandler clientConnectionHandler = new ClientConnectionHandler(this, room, connection);
+        connectionHandlers.add(clientConnectionHandler);
+        room.addConnectionHandler(clientConnectionHandler);
+        printServerStatusUpdate("New client connected in memory (room " + room.getRoomId() + ")");
+    }
+
+    /**
+     * Finds a room new clients can join or creates a new one.
+     *
+     * @return A room which has not started its game yet and still has free seats
+     */
+    private synchronized GameRoom getOpenRoom() {
+        for (GameRoom room : rooms.values()) {
+            if (room.isOpen())
+                return room;
+        }
+        roomIdIncrementer++;
+        GameRoom room = null;
+        if (replayDirectory != null) {
+            // Every client watches the replay in its own room
+            try {
+                room = new GameRoom(roomIdIncrementer, this, GameReplay.load(replayDirectory));
+            } catch (IOException e) {
+                printServerStatusUpdate("Replay not readable: " + e.getMessage());
+            }
+        }
+        if (room == null)
+            room = new GameRoom(roomIdIncrementer, this);
+        rooms.put(roomIdIncrementer, room);
+        printServerStatusUpdate("Room " + roomIdIncrementer + " opened");
+        return room;
+    }
+
+    /**
+     * Rebuilds the games which were running when the server stopped from the journals of their rooms. Journals of
+     * games which had not started yet are deleted, the ones of finished games are moved to the recordings. The seats
+     * of the players are held until they resume them (see {@link GameRoom#holdRecoveredSeats()}).
+     */
+    private synchronized void recoverRooms() {
+        File[] directories = journalDirectory.listFiles();
+        if (directories == null)
+            return;
+        for (File directory : directories) {
+            if (!directory.isDirectory() || !directory.getName().startsWith("room-"))
+                continue;
+            int roomId;
+            try {
+                roomId = Integer.parseInt(directory.getName().substring(5));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            GameJournal journal = GameJournal.recover(directory, journalExecutor);
+            if (journal == null) {
+                GameJournal.delete(directory);
+                continue;
+            }
+            if (journal.getEngine().getMemory().serverMap == null) {
+                journal.delete();
+                continue;
+            }
+            if (journal.getEngine().isGameOver()) {
+                journal.archive();
+                continue;
+            }
+            GameRoom room = new GameRoom(roomId, this, journal);
+            rooms.put(roomId, room);
+            room.holdRecoveredSeats();
+            roomIdIncrementer = Math.max(roomIdIncrementer, roomId);
+            printServerStatusUpdate("Room " + roomId + " recovered (" + journal.getEngine().getNumberOfActions()
+                    + " actions)");
+        }
+    }
+
+    /**
+     * Removes a room (and all its connection handlers) from the server once its game is over.
+     *
+     * @param room The room to remove
+     */
+    public synchronized void removeRoom(GameRoom room) {
+        rooms.remove(room.getRoomId());
+        connectionHandlers.removeIf(h -> h.getRoom() == room);
+    }
+
+    /**
+     * Assigns the receiver of the status updates to the server (its window or a console, log...).
+     *
+     * @param statusSink The receiver of the status updates
+     */
+    public void setStatusSink(ServerStatusSink statusSink) {
+        this.statusSink = statusSink;
+    }
+
+    /**
+     * returns the receiver of the status updates of this server
      *
      * @return
      */
-    public ServerWindow getWindow() {
-        return this.serverWindow;
+    public ServerStatusSink getStatusSink() {
+        return this.statusSink;
+    }
+
+    /**
+     * Prints a status update in the server window (or the status sink of a server without window).
+     *
+     * @param message message to be printed
+     */
+    public void printServerStatusUpdate(String message) {
+        statusSink.printServerStatusUpdate(message);
+    }
+
+    /**
+     * Keeps a journal of the game of every room in a directory, so the games survive a crash of the server. Call
+     * before the server is started, the games of the journals in the directory are recovered then.
+     *
+     * @param journalDirectory The directory of the journals, null for none
+     */
+    public void setJournalDirectory(File journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public File getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * Shows a recorded game to every client instead of letting them play (see {@link GameReplay}).
+     *
+     * @param replayDirectory The directory of the recording, null to play games
+     * @param speed           Speed of the replay, 1 for an action every 500 ms
+     * @param turn            The replay fast-forwards to the dice roll of this turn, 0 to show the whole game
+     */
+    public void setReplay(File replayDirectory, double speed, int turn) {
+        this.replayDirectory = replayDirectory;
+        this.replaySpeed = speed;
+        this.replayTurn = turn;
+    }
+
+    /**
+     * @return the delay (ms) between the actions of a replay
+     */
+    public long getReplayDelay() {
+        return replaySpeed <= 0 ? 0 : Math.round(REPLAY_DELAY / replaySpeed);
+    }
+
+    public int getReplayTurn() {
+        return replayTurn;
+    }
+
+    /**
+     * Sets how clients which do not respond anymore are handled. Only applies to clients connecting afterwards.
+     *
+     * @param idleAction  what is done once a client does not respond
+     * @param idleTimeout time (ms) without any message from a client until it is taken for not responding, 0 to
+     *                    never ping the clients
+     */
+    public void setIdleTimeout(IdleAction idleAction, long idleTimeout) {
+        this.idleAction = idleAction;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public IdleAction getIdleAction() {
+        return idleAction;
     }
 
     /**
-     * used to remove a given connection handler from the connectionHandler arraylist. Game is disrupted.
+     * Sets the bot acting for the clients which do not respond (see {@link IdleAction}).
+     *
+     * @param standInBot the bot, e.g. a {@link MctsBot}
+     */
+    public void setStandInBot(GameBot standInBot) {
+        this.standInBot = standInBot;
+    }
+
+    public GameBot getStandInBot() {
+        return standInBot;
+    }
+
+    /**
+     * @return False, if the server could not open its port or has been deactivated
+     */
+    public boolean isServerActive() {
+        return serverActive;
+    }
+
+    /**
+     * used to remove a given connection handler from the connectionHandler arraylist. The game of its room is
+     * disrupted.
      *
      * @param clientConnectionHandler clientConnectionHandler of the client who disconnected
      */
     public void removeConnectionHandler(ClientConnectionHandler clientConnectionHandler) {
-        if (connectionHandlers.contains(clientConnectionHandler)) {
-            connectionHandlers.remove(clientConnectionHandler);
-            // Inform clients that a client disconnected => terminate game
-            informConnectionLost(clientConnectionHandler.getPlayerId());
+        synchronized (this) {
+            if (!connectionHandlers.remove(clientConnectionHandler))
+                return;
         }
-        //Platform.runLater(() -> serverWindow.printServerStatusUpdate("Client disconnected"));
+        clientConnectionHandler.stopHeartbeat();
+        // Inform clients of the same room that a client disconnected => terminate game
+        clientConnectionHandler.getRoom().removeConnectionHandler(clientConnectionHandler);
+        //printServerStatusUpdate("Client disconnected");
+    }
+
+    public void registerSession(PlayerSession session) {
+        sessions.put(session.getToken(), session);
+    }
+
+    public void unregisterSession(PlayerSession session) {
+        sessions.remove(session.getToken(), session);
     }
 
     /**
-     * Informs the clients that a client has disconnected => terminate game
-     * @param l
+     * @param token the token sent with the welcome message
+     * @return the session, null if it is unknown or has ended
      */
-    public final void informConnectionLost(int playerId) {
-        if (informedConnectionLost || ServerMemoryLogic.findPlayerByID(playerId) == null)
-            return;
-        informedConnectionLost = true;
-        Platform.runLater(() -> serverWindow.printServerStatusUpdate("Client disconnected"));
-        // Inform all other clients that a client disconnected (potentially abort game)
-        PlayerForProtocol playerForProtocol = new PlayerForProtocol(playerId, null, null, "Verbindung verloren", null,
-                null, null, null);
-        PlayerStatusUpdate playerStatusUpdate = new PlayerStatusUpdate(playerForProtocol);
-        broadcast(playerStatusUpdate);
-        clearMemory();
-    }
-
-    /**
-     * Use with caution! Resets the entire memory (Useful if a game ends or
-     * terminates).
-     */
-    public final void clearMemory() {
-    	setGameActive(false);
-        Platform.runLater(() -> serverWindow.printServerStatusUpdate("Memory cleared"));
-        ServerMemoryLogic.numberOfReadyPlayers = 0;
-        ServerMemoryLogic.playerList.clear();
-        ServerMemoryLogic.playersWhoNeedToGiveBackCards.clear();
-        ServerMemoryLogic.clientToPlayer.clear();
-        ServerMemoryLogic.currentPlayerWithLongestRoad = null;
-        ServerMemoryLogic.longestRoad = 4;
-        ServerMemoryLogic.currentPlayerWithLargestArmy = null;
-        ServerMemoryLogic.largestArmy = 2;
-        ServerMemoryLogic.playerIdToAvailableBuildings.clear();
-        ServerMemoryLogic.availableDevelopmentCards=new int[] { 14, 2, 2, 2, 5 };
-        ServerMemoryLogic.availableResourceCards=new int[]  { 19, 19, 19, 19, 19 };
-        connectionHandlers.clear();
-        informedConnectionLost = false;
-        deactivateServer(); 
-        Platform.runLater(() -> ServerLauncher.initializeServer(serverWindow.getStage()));
+    public PlayerSession findSession(String token) {
+        return token == null ? null : sessions.get(token);
     }
 
     /**
      * Deactivates the server
      */
     public void deactivateServer() {
-        Platform.runLater(() -> serverWindow.printServerStatusUpdate("--------------\nServer deactivated"));
+        printServerStatusUpdate("--------------\nServer deactivated");
         try {
             serverActive = false;
-            serverSocket.close();
+            LoopbackConnection.unbind(loopbackAcceptor);
+            // The running games are recovered on the next start
+            synchronized (this) {
+                for (GameRoom room : rooms.values())
+                    room.closeJournal();
+            }
+            if (nioTransport != null)
+                nioTransport.close();
+            else
+                serverSocket.close();
+            protocolExecutor.shutdown();
+            scheduler.shutdownNow();
+            // The retirements already queued still run
+            journalExecutor.shutdown();
+            if (readerExecutor != null)
+                readerExecutor.shutdownNow();
             this.join();
         } catch (Exception e) {
             // e.printStackTrace();
@@ -166,48 +499,42 @@ public class Server extends Thread {
     }
 
     /**
-     * Broadcast and object to all clients via connection handler.
+     * Returns the number of rooms currently hosted by the server.
      *
-     * @param object The object to send to all clients.
+     * @return number of rooms
      */
-    public synchronized void broadcast(Object object) {
-        ArrayList<ClientConnectionHandler> connectionHandlersCopy = (ArrayList<ClientConnectionHandler>) connectionHandlers.clone();
-        for (ClientConnectionHandler h : connectionHandlersCopy) {
-            h.sendObject(object);
-        }
+    public synchronized int getNumberOfRooms() {
+        return rooms.size();
     }
 
     /**
-     * Broadcasts and object to all clients except playerID  via connection handler.
+     * Creates a factory for named daemon threads, so the pools never keep the process alive.
      *
-     * @param playerID The player, who should not receive this object.
-     * @param object   The object to send to all clients.
+     * @param name prefix of the thread names
+     * @return the thread factory
      */
-    public synchronized void broadcastToAllOthers(int playerID, Object object) {
-        ArrayList<ClientConnectionHandler> connectionHandlersCopy = (ArrayList<ClientConnectionHandler>) connectionHandlers.clone();
-        for (ClientConnectionHandler h : connectionHandlersCopy) {
-            if (h.getPlayerId() != playerID)
-                h.sendObject(object);
-        }
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
-    /**
-     * Sends an object to one client.
-     *
-     * @param playerID The ID of the client you want to send the object to.
-     * @param object   The object to send one client.
-     */
-    public void sendObjectTo(int playerID, Object object) {
-        ArrayList<ClientConnectionHandler> connectionHandlersCopy = (ArrayList<ClientConnectionHandler>) connectionHandlers.clone();
-        for (ClientConnectionHandler h : connectionHandlersCopy) {
-            if (h.getPlayerId() == playerID) {
-                h.sendObject(object);
-                return;
-            }
-        }
+    //getters
+    public ExecutorService getProtocolExecutor() {
+        return protocolExecutor;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public ScheduledExecutorService getJournalExecutor() {
+        return journalExecutor;
     }
 
-    //getters
     public String getVersion() {
         return version;
     }
@@ -215,12 +542,4 @@ public class Server extends Thread {
     public String getProtocolInfo() {
         return protocolInfo;
     }
-
-	public boolean isGameActive() {
-		return gameActive;
-	}
-
-	public void setGameActive(boolean gameActive) {
-		this.gameActive = gameActive;
-	}
-}
\ No newline at end of file
+}
@@ -1,3 +1,8 @@
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import application.GameStart;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
@@ -6,28 +11,76 @@ import javafx.stage.Stage;
  * @author Marcelina
  */
 public class ServerLauncher extends Application{
+    /**
+     * How the server serves its clients ("--mode=thread", "--mode=nio" or "--mode=executor")
+     */
+    private static ConnectionMode connectionMode = ConnectionMode.THREAD;
+    /**
+     * Also opens the game ("--client=true"). Its single player games then connect to this server in memory
+     * instead of using sockets
+     */
+    private static boolean withClient = false;
+    /**
+     * Directory of the journals of the games ("--journal=..."), null for none
+     */
+    private static File journalDirectory;
+    /**
+     * All named parameters, for the replay ("--replay=...", "--speed=...", "--turn=...") and the clients which do
+     * not respond ("--idle=...", "--idle-timeout=...", "--bot=...")
+     */
+    private static Map<String, String> namedParameters = Collections.emptyMap();
+
 	/**
 	 * main class will only call launch for the application
-	 * @param args
+	 * @param args optional "--mode=nio" to serve the clients with non-blocking event loops, "--mode=executor" to
+	 *             handle their messages on a shared thread pool, "--client=true" to open the game as well,
+	 *             "--journal=..." to keep the journals of the games in a directory and recover them on restart,
+	 *             "--replay=..." with "--speed=..." and "--turn=..." to show a recorded game instead,
+	 *             "--idle=..." and "--idle-timeout=..." to ping the clients and handle the ones which do not
+	 *             respond, "--bot=..." (e.g. "mcts:200") to choose the bot acting for them
 	 */
     public static void main(String[] args) {
-        launch();
+        launch(args);
     }
     
     @Override
     public void start(Stage primaryStage) throws Exception {
+        connectionMode = ConnectionMode.fromArgument(getParameters().getNamed().get("mode"));
+        withClient = Boolean.parseBoolean(getParameters().getNamed().get("client"));
+        String journal = getParameters().getNamed().get("journal");
+        journalDirectory = journal == null ? null : new File(journal);
+        namedParameters = getParameters().getNamed();
         ServerLauncher.initializeServer(primaryStage);
+        if (withClient)
+            new GameStart().start(new Stage());
 
     }
     /**
-     * Method used for the initialization (called in start).  Creates a server object, starts it (thread) and creates
-     * a window for the server - used to print status updates of the server
+     * Method used for the initialization (called in start).  Creates a server object, creates a window for the
+     * server - used to print status updates of the server - and starts it (thread). Without a display the server is
+     * started by {@link HeadlessServerLauncher}
      * @param primaryStage
      */
     public static void initializeServer(Stage primaryStage){
-        Server server = new Server();
-        server.start();
+        Server server = new Server(connectionMode);
         ServerWindow serverWindow = new ServerWindow(server, primaryStage);
-        server.setWindow(serverWindow);
+        server.setStatusSink(serverWindow);
+        server.setJournalDirectory(journalDirectory);
+        try {
+            HeadlessServerLauncher.setReplay(server, namedParameters);
+        } catch (NumberFormatException e) {
+            serverWindow.printServerStatusUpdate("Invalid replay speed or turn: " + e.getMessage());
+        }
+        try {
+            HeadlessServerLauncher.setIdleTimeout(server, namedParameters);
+        } catch (NumberFormatException e) {
+            serverWindow.printServerStatusUpdate("Invalid idle timeout: " + namedParameters.get("idle-timeout"));
+        }
+        try {
+            HeadlessServerLauncher.setStandInBot(server, namedParameters);
+        } catch (IllegalArgumentException e) {
+            serverWindow.printServerStatusUpdate("Invalid bot: " + namedParameters.get("bot"));
+        }
+        server.start();
     }
 }
\ No newline at end of file
@@ -1,14 +1,25 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Random;
-import gameplay.Dice;
+
+import networking.ProtocolCodec;
 import networking.MessageObjects.*;
 
 /**
  * This class shall be used to store information the server needs and or perform
- * calculations or any other kind of operation. Should only have static methods
- * and values.
+ * calculations or any other kind of operation. Each {@link GameRoom} owns its
+ * own instance, so the state of one game never leaks into another.
  *
  * @author Felip, Minh
  */
@@ -18,48 +29,44 @@ public final class ServerMemoryLogic {
 	 * The id of the player to move the thief next (Needed once
 	 * "numberOfDropHalfCardsPending" hits 0).
 	 */
-	public static PlayerForProtocol playerToMoveThiefNext;
+	public PlayerForProtocol playerToMoveThiefNext;
 	/**
 	 * The ids of player who need to give back cards.
 	 */
-	public static HashSet<Integer> playersWhoNeedToGiveBackCards = new HashSet<>();
+	public HashSet<Integer> playersWhoNeedToGiveBackCards = new HashSet<>();
 	/**
 	 * Indicates how many turns we have to end until we complete the initial phase
 	 */
-	public static int initialPhaseRemainingTurns;
+	public int initialPhaseRemainingTurns;
 
 	/**
 	 * Stores all the connected players in an array list who play the game.
 	 */
-	public static ArrayList<PlayerForProtocol> playerList = new ArrayList<>();
-	/**
-	 * Our dice
-	 */
-	public static Dice dice = new Dice();
+	public ArrayList<PlayerForProtocol> playerList = new ArrayList<>();
 	/**
 	 * Map each ClientConnectionHandler to the corresponding PlayerForProtocol.
 	 */
-	public static HashMap<ClientConnectionHandler, PlayerForProtocol> clientToPlayer = new HashMap<ClientConnectionHandler, PlayerForProtocol>();
+	public transient HashMap<ClientConnectionHandler, PlayerForProtocol> clientToPlayer = new HashMap<ClientConnectionHandler, PlayerForProtocol>();
 	/**
 	 * Maps each player id to the last settlement built by the player in the initial
 	 * phase
 	 */
-	public static HashMap<Integer, Building> playerIdToSecondInitialPhaseSettlement = new HashMap<Integer, Building>();
+	public HashMap<Integer, Building> playerIdToSecondInitialPhaseSettlement = new HashMap<Integer, Building>();
 	/**
 	 * Defines how many players are ready and willing to start the game (if not
 	 * already started)
 	 */
-	public static int numberOfReadyPlayers = 0;
+	public int numberOfReadyPlayers = 0;
 	/**
 	 * A unique ID-Incrementer to assure unique id assignments for all clients.
 	 * Even after disconnecting
 	 */
-	private static int uniqueIdIncrementer = 0;
+	private int uniqueIdIncrementer = 0;
 
 	/**
 	 * Holds the player object of the player whose turn it is.
 	 */
-	private static PlayerForProtocol currentPlayer;
+	private PlayerForProtocol currentPlayer;
 
 	/**
 	 * List of all the resource fields and dessert
@@ -80,68 +87,78 @@ public final class ServerMemoryLogic {
 	/**
 	 * The number of grain fields is stored here
 	 */
-	private static int numberOfGrainFields;
+	private int numberOfGrainFields;
 
 	/**
 	 * The number of wool fields is stored here
 	 */
-	private static int numberOfWoolFields;
+	private int numberOfWoolFields;
 
 	/**
 	 * The number of wood fields is stored here
 	 */
-	private static int numberOfWoodFields;
+	private int numberOfWoodFields;
 
 	/**
 	 * The number of loam fields is stored here
 	 */
-	private static int numberOfLoamFields;
+	private int numberOfLoamFields;
 
 	/**
 	 * The number of stone fields is stored here
 	 */
-	private static int numberOfStoneFields;
+	private int numberOfStoneFields;
 
 	/**
 	 * The number of desert fields is stored here
 	 */
-	private static int numberOfDesertFields;
+	private int numberOfDesertFields;
 
 	/**
 	 * The number of grain ports is stored here
 	 */
-	private static int numberOfGrainPorts;
+	private int numberOfGrainPorts;
 
 	/**
 	 * The number of wool ports is stored here
 	 */
-	private static int numberOfWoolPorts;
+	private int numberOfWoolPorts;
 
 	/**
 	 * The number of wood ports is stored here
 	 */
-	private static int numberOfWoodPorts;
+	private int numberOfWoodPorts;
 
 	/**
 	 * The number of loam ports is stored here
 	 */
-	private static int numberOfLoamPorts;
+	private int numberOfLoamPorts;
 
 	/**
 	 * The number of stone ports is stored here
 	 */
-	private static int numberOfStonePorts;
+	private int numberOfStonePorts;
 
 	/**
 	 * The number of normal ports is stored here
 	 */
-	private static int numberOfNormalPorts;
+	private int numberOfNormalPorts;
 
 	/**
 	 * Map of the game. Contains an array of all buildings, fields, ports and the
 	 * position of the thief
 	 */
-	public static Map serverMap;
+	public Map serverMap;
+	/**
+	 * Production of the fields of serverMap by dice number, kept up to date by
+	 * addBuilding and removeBuilding
+	 */
+	public ProductionIndex productionIndex;
+	/**
+	 * Streets and settlements of serverMap as a graph, used for the longest
+	 * road. Kept up to date by addBuilding and removeBuilding
+	 */
+	public RoadNetwork roadNetwork;
 
 	/**
 	 * Costs of a development card (1 wool, 1 grain, 1 stone)
@@ -153,7 +170,7 @@ public final class ServerMemoryLogic {
 	 *
 	 * @return uniqueIdIncrementer+1
 	 */
-	public synchronized static Integer getIncrementedUniqueIdIncrementer() {
+	public synchronized Integer getIncrementedUniqueIdIncrementer() {
 		uniqueIdIncrementer++;
 		return uniqueIdIncrementer;
 	}
@@ -162,58 +179,59 @@ public final class ServerMemoryLogic {
 	 * A hashmap mapping tradeID to the corresponding resources. Resources[0] ==
 	 * Demand , Resources[1] == Supply
 	 */
-	public static HashMap<Integer, Resources[]> tradesResourceHashMap = new HashMap<>();
+	public HashMap<Integer, Resources[]> tradesResourceHashMap = new HashMap<>();
 	/**
 	 * A hashmap mapping tradeID to the initial trade requester.
 	 */
-	public static HashMap<Integer, Integer> tradesIDHashMap = new HashMap<>();
+	public HashMap<Integer, Integer> tradesIDHashMap = new HashMap<>();
 	/**
 	 * The player with the longest road >= 5
 	 */
-	public static PlayerForProtocol currentPlayerWithLongestRoad = null;
+	public PlayerForProtocol currentPlayerWithLongestRoad = null;
 	/**
 	 * Stores the longest road from the players (Default is 4).
 	 */
-	public static int longestRoad = 4;
+	public int longestRoad = 4;
 	/**
 	 * The player with the largest army >= 3
 	 */
-	public static PlayerForProtocol currentPlayerWithLargestArmy = null;
+	public PlayerForProtocol currentPlayerWithLargestArmy = null;
 	/**
 	 * Stores the largest army from the players
 	 */
-	public static int largestArmy = 2;
+	public int largestArmy = 2;
 
 	/**
 	 * stores the numbers of still available development cards of each type(we begin
 	 * with 14 knight cards,2 road building,2 monopoly, 2 yearofplenty,5 victory)
 	 */
-	public static int[] availableDevelopmentCards = { 14, 2, 2, 2, 5 };
+	public int[] availableDevelopmentCards = { 14, 2, 2, 2, 5 };
 	/**
-	 * random to choose the next development card
+	 * Source of all random decisions of the game (board, dice, development
+	 * cards, stolen cards), seeded by the {@link GameEngine}
 	 */
-	public static Random developmentCardRandom = new Random();
+	public transient Random random = new Random();
 	/**
 	 * stores the numbers of still available resource cards of each type(we begin
 	 * with 19 each) order: wood, loam, wool, grain, stone
 	 */
-	public static int[] availableResourceCards = { 19, 19, 19, 19, 19 };
+	public int[] availableResourceCards = { 19, 19, 19, 19, 19 };
 	/**
 	 * hashmap from players id to all the buildings they can still build
 	 * (order:street, settlement, castle)
 	 */
-	public static HashMap<Integer, int[]> playerIdToAvailableBuildings = new HashMap<>();
+	public HashMap<Integer, int[]> playerIdToAvailableBuildings = new HashMap<>();
 
 	/**
 	 * hashmap from player id to development cards bought this round
 	 */
-	public static HashMap<Integer, DevelopmentCards> playerIdToDevCardsBoughtThisRound = new HashMap<>();
+	public HashMap<Integer, DevelopmentCards> playerIdToDevCardsBoughtThisRound = new HashMap<>();
 	/**
 	 * Creates a random world (Random resources at random hexagon fields).
 	 *
 	 * @return An array of all the generated hexagon fields.
 	 */
-	public static Field[] generateRandomFields() {
+	public Field[] generateRandomFields() {
 		try {
 			// This represents the whole game board
 			Field[] fields = new Field[37];
@@ -262,8 +280,8 @@ public final class ServerMemoryLogic {
 	 *
 	 * @return List of field locations
 	 */
-	private static String[] getFieldLocationOrder() {
-		int n = (int) (Math.random() * 6);
+	private String[] getFieldLocationOrder() {
+		int n = random.nextInt(6);
 
 		switch (n) {
 		case 0:
@@ -315,10 +333,10 @@ public final class ServerMemoryLogic {
 	 *
 	 * @return fieldtype
 	 */
-	private static String getRandomFieldType() {
+	private String getRandomFieldType() {
 		int total = numberOfGrainFields + numberOfLoamFields + numberOfWoolFields + numberOfWoodFields
 				+ numberOfStoneFields + numberOfDesertFields;
-		int n = (int) (Math.random() * total) + 1;
+		int n = random.nextInt(total) + 1;
 		String fieldtype = "";
 		// Check if grain field
 		if (n <= numberOfGrainFields) {
@@ -355,7 +373,7 @@ public final class ServerMemoryLogic {
 	 *
 	 * @return An array of all the generated port fields.
 	 */
-	public static Port[] generateRandomPorts() {
+	public Port[] generateRandomPorts() {
 		Port[] ports = new Port[9];
 		numberOfGrainPorts = numberOfLoamPorts = numberOfStonePorts = numberOfWoodPorts = numberOfWoolPorts = 1;
 		numberOfNormalPorts = 4;
@@ -370,10 +388,10 @@ public final class ServerMemoryLogic {
 	 *
 	 * @return porttype
 	 */
-	private static String getRandomPortType() {
+	private String getRandomPortType() {
 		int total = numberOfWoodPorts + numberOfLoamPorts + numberOfWoolPorts + numberOfStonePorts + numberOfGrainPorts
 				+ numberOfNormalPorts;
-		int n = (int) (Math.random() * total) + 1;
+		int n = random.nextInt(total) + 1;
 		String porttype = "";
 		if (n <= numberOfWoodPorts) {
 			porttype += portTypes[0];
@@ -409,15 +427,15 @@ public final class ServerMemoryLogic {
 	 *
 	 * @param id  The id of the player we are searching for.
 	 */
-	public static PlayerForProtocol findPlayerByID(Integer id) {
-		for (PlayerForProtocol playerForProtocol : ServerMemoryLogic.playerList) {
+	public PlayerForProtocol findPlayerByID(Integer id) {
+		for (PlayerForProtocol playerForProtocol : playerList) {
 			if (playerForProtocol.getId().intValue() == id.intValue())
 				return playerForProtocol;
 		}
 		return null;
 	}
 
-	public static PlayerForProtocol getPlayerRespondingToHandler(ClientConnectionHandler handler) {
+	public PlayerForProtocol getPlayerRespondingToHandler(ClientConnectionHandler handler) {
 		return clientToPlayer.get(handler);
 	}
 
@@ -428,78 +446,15 @@ public final class ServerMemoryLogic {
 	 * @param diceThrow
 	 * @return only the not empty earnings for each player
 	 */
-	public static ArrayList<Earnings> updatePlayerResoucesAfterDiceThrow(int diceThrow) {
-		ArrayList<Earnings> result = new ArrayList<>();
-		for (int i = 0; i < serverMap.getFields().length; i++) {
-			if (serverMap.getFields()[i].getNumber() == diceThrow) {
-				// check if there is a thief
-				if (serverMap.getFields()[i].getLocation().equals(serverMap.getThief())) continue;
-
-				// check now for every building if it is on/next to the field
-				for (int j = 0; j < serverMap.getBuildings().length; j++) {
-					if (!serverMap.getBuildings()[j].getType().equals("Strasse")) {
-						String buildingposition = serverMap.getBuildings()[j].getLocation();
-						if (buildingposition.contains(serverMap.getFields()[i].getLocation())) {
-							boolean added = false;
-							int playerID = serverMap.getBuildings()[j].getOwner();
-							String type = serverMap.getFields()[i].getType();
-							int amount = serverMap.getBuildings()[j].getType().equals("Stadt") ? 2 : 1;
-
-							//GameStart.mainLogger.getLOGGER()().fine("\n"+playerID + serverMap.getBuildings()[j].getType());
-							//GameStart.mainLogger.getLOGGER()().fine("++++++++++" + buildingposition + " - " + serverMap.getFields()[i].getLocation());
-
-							Earnings earningsToUpdate = null;
-							// check if this player already gets earnings this turn
-							for (Earnings earnings : result) {
-								if (earnings.getPlayer() == playerID) {
-									added = true;
-									earningsToUpdate = earnings;
-								}
-							}
-							// if not we create a new object earnings for this player
-							if (!added) {
-								Resources resources = new Resources(0, 0, 0, 0, 0, 0);
-								Earnings earnings = new Earnings(playerID, resources);
-								result.add(earnings);
-								earningsToUpdate = earnings;
-							}
-							switch (type) {
-							case "Ackerland":
-								earningsToUpdate.getResources()
-										.setGrain(earningsToUpdate.getResources().getGrain() + amount);
-								break;
-							case "Huegelland":
-								earningsToUpdate.getResources()
-										.setLoam(earningsToUpdate.getResources().getLoam() + amount);
-								break;
-							case "Weideland":
-								earningsToUpdate.getResources()
-										.setWool(earningsToUpdate.getResources().getWool() + amount);
-								break;
-							case "Wald":
-								earningsToUpdate.getResources()
-										.setWood(earningsToUpdate.getResources().getWood() + amount);
-								break;
-							case "Gebirge":
-								earningsToUpdate.getResources()
-										.setStone(earningsToUpdate.getResources().getStone() + amount);
-								break;
-							default:
-								break;
-							}
-						}
-					}
-				}
-			}
-		}
-		return result;
+	public ArrayList<Earnings> updatePlayerResoucesAfterDiceThrow(int diceThrow) {
+		return productionIndex.getEarnings(diceThrow, serverMap.getThief());
 	}
 
 	/**
 	 * Reduces the number of resource cards which are still available
 	 * @param resourcesToSubstract type of resources which will be subtracted
 	 */
-	public static void reduceAvailableResourceCardsNumber(Resources resourcesToSubstract) {
+	public void reduceAvailableResourceCardsNumber(Resources resourcesToSubstract) {
 		availableResourceCards[0] -= resourcesToSubstract.getWood();
 		availableResourceCards[1] -= resourcesToSubstract.getLoam();
 		availableResourceCards[2] -= resourcesToSubstract.getWool();
@@ -512,7 +467,7 @@ public final class ServerMemoryLogic {
 	 * Increases the number of resource cards which are still available
 	 * @param resourcesToAdd  type of resources which will be added
 	 */
-	public static void increaseAvailableResourceCardsNumber(Resources resourcesToAdd) {
+	public void increaseAvailableResourceCardsNumber(Resources resourcesToAdd) {
 		availableResourceCards[0] += resourcesToAdd.getWood();
 		availableResourceCards[1] += resourcesToAdd.getLoam();
 		availableResourceCards[2] += resourcesToAdd.getWool();
@@ -526,22 +481,10 @@ public final class ServerMemoryLogic {
 	 *
 	 * @param building
 	 */
-	public static void addBuilding(Building building) {
-		Building[] buildings = serverMap.getBuildings();
-		// Check if already existing
-		for (Building buildingInArray : serverMap.getBuildings()) {
-			if (buildingInArray.equals(building)) {
-				buildingInArray.setType(building.getType());
-				return;
-			}
-		}
-		// If not in list, then add it
-		Building[] buildingsNew = new Building[buildings.length + 1];
-		for (int i = 0; i < buildings.length; i++) {
-			buildingsNew[i] = buildings[i];
-		}
-		buildingsNew[buildings.length] = building;
-		serverMap.setBuildings(buildingsNew);
+	public void addBuilding(Building building) {
+		serverMap.addBuilding(building);
+		productionIndex.addBuilding(building.getType(), building.getLocation(), building.getOwner());
+		roadNetwork.addBuilding(building);
 	}
 
 	/**
@@ -550,27 +493,10 @@ public final class ServerMemoryLogic {
 	 *
 	 * @param building
 	 */
-	public static void removeBuilding(Building building) {
-		Building[] buildings = serverMap.getBuildings();
-		// Replace the building with a null value
-		for (Building buildingInArray : buildings) {
-			if (buildingInArray.equals(building)) {
-				buildingInArray = null;
-			}
-		}
-		// signalizes whether we've already passed the building to remove while
-		// iterating thorough buildings
-		boolean buildingFound = false;
-		Building[] buildingsNew = new Building[buildings.length - 1];
-		for (int i = 0; i < buildings.length; i++) {
-			if (buildings[i].equals(building))
-				buildingFound = true;
-			else if (buildingFound)
-				buildingsNew[i] = buildings[i + 1];
-			else
-				buildingsNew[i] = buildings[i];
-		}
-		serverMap.setBuildings(buildingsNew);
+	public void removeBuilding(Building building) {
+		productionIndex.removeBuilding(building.getType(), building.getLocation());
+		roadNetwork.removeBuilding(building);
+		serverMap.removeBuilding(building);
 	}
 
 	/**
@@ -578,7 +504,7 @@ public final class ServerMemoryLogic {
 	 *
 	 * @param earnings
 	 */
-	public static void addEarnings(Earnings earnings) {
+	public void addEarnings(Earnings earnings) {
 		int playerID = earnings.getPlayer();
 		Resources resourcesToAdd = earnings.getResources();
 
@@ -595,7 +521,7 @@ public final class ServerMemoryLogic {
 	 * @param id trade id
 	 * @return
 	 */
-	public static Resources getRequestedResourcesFromTradeId(Integer id) {
+	public Resources getRequestedResourcesFromTradeId(Integer id) {
 		return tradesResourceHashMap.get(id)[0];
 	}
 
@@ -603,7 +529,7 @@ public final class ServerMemoryLogic {
 	 * Returns a random development card.
 	 * @return development card
 	 */
-	public static DevelopmentCards getRandomDevelopmentCard() {
+	public DevelopmentCards getRandomDevelopmentCard() {
 //		ArrayList<Integer> indexesOfAvailableCardTypes = new ArrayList<Integer>();
 		int numberOfDevelopmentCards = 0;
 		for (int i = 0; i < 5; ++i) {
@@ -613,8 +539,8 @@ public final class ServerMemoryLogic {
 		}
 		if (numberOfDevelopmentCards == 0)
 			return null;
-//		int internArrayListCardIndex = developmentCardRandom.nextInt(indexesOfAvailableCardTypes.size());
-		int random = developmentCardRandom.nextInt(numberOfDevelopmentCards);
+//		int internArrayListCardIndex = this.random.nextInt(indexesOfAvailableCardTypes.size());
+		int random = this.random.nextInt(numberOfDevelopmentCards);
 //		int cardIndex = indexesOfAvailableCardTypes.get(internArrayListCardIndex);
 //		if (availableDevelopmentCards[cardIndex] != 0)
 //			availableDevelopmentCards[cardIndex]--;
@@ -663,7 +589,7 @@ public final class ServerMemoryLogic {
 	 * returns current player
 	 * @return current player
 	 */
-	public static PlayerForProtocol getCurrentPlayer() {
+	public PlayerForProtocol getCurrentPlayer() {
 		return currentPlayer;
 	}
 
@@ -671,26 +597,23 @@ public final class ServerMemoryLogic {
 	 * SEts current player
 	 * @param currentPlayer
 	 */
-	public static void setCurrentPlayer(PlayerForProtocol currentPlayer) {
-		ServerMemoryLogic.currentPlayer = currentPlayer;
+	public void setCurrentPlayer(PlayerForProtocol currentPlayer) {
+		this.currentPlayer = currentPlayer;
 	}
 
 	/**
 	 * returns player with longest route
-	 * @return the player (if existing) with the longest rode >= 5
+	 * @return the player (if existing) with the longest rode >= 5, the current
+	 *         holder keeps it on a tie
 	 */
-	public synchronized static PlayerForProtocol getPlayerWithLongestRoute() {
-		Building[] buildings = serverMap.getBuildings();
+	public synchronized PlayerForProtocol getPlayerWithLongestRoute() {
 		longestRoad = 4;
 		PlayerForProtocol playerWithLongestRoute = null;
-		for (Building building : buildings) {
-			if (!building.getType().equals("Strasse"))
-				continue;
-			int temp = getPlayerWithLongestRodeRekursive(building, new HashSet<>());
-			PlayerForProtocol newPlayer = findPlayerByID(building.getOwner());
-			if (temp > longestRoad) {
-				longestRoad = temp;
-				playerWithLongestRoute = newPlayer;
+		for (PlayerForProtocol player : playerList) {
+			int length = roadNetwork.getLongestRoad(player.getId());
+			if (length > longestRoad || (length == longestRoad && player == currentPlayerWithLongestRoad)) {
+				longestRoad = length;
+				playerWithLongestRoute = player;
 			}
 		}
 		//GameStart.mainLogger.getLOGGER()().fine("<<<<Longest RODE:" + (longestRoad == 4 ? "None" : longestRoad) + ">>>>>>");
@@ -698,36 +621,125 @@ public final class ServerMemoryLogic {
 	}
 
 	/**
-	 * Helper function for getPlayerWithLongestRode
+	 * Copies the state of the running game, used by simulations. Connections,
+	 * ready players and open domestic trades are not copied. The copy shares
+	 * the fields, ports and buildings, which are never changed.
 	 *
-	 * @return
+	 * @param random
+	 *            random of the copy
+	 * @return the copy
+	 */
+	public ServerMemoryLogic copy(Random random) {
+		ServerMemoryLogic copy = new ServerMemoryLogic();
+		copy.random = random;
+		for (PlayerForProtocol player : playerList)
+			copy.playerList.add(copyOf(player));
+		copy.playerToMoveThiefNext = copy.findPlayerOf(playerToMoveThiefNext);
+		copy.currentPlayer = copy.findPlayerOf(currentPlayer);
+		copy.currentPlayerWithLongestRoad = copy.findPlayerOf(currentPlayerWithLongestRoad);
+		copy.currentPlayerWithLargestArmy = copy.findPlayerOf(currentPlayerWithLargestArmy);
+		copy.playersWhoNeedToGiveBackCards.addAll(playersWhoNeedToGiveBackCards);
+		copy.initialPhaseRemainingTurns = initialPhaseRemainingTurns;
+		copy.playerIdToSecondInitialPhaseSettlement.putAll(playerIdToSecondInitialPhaseSettlement);
+		copy.longestRoad = longestRoad;
+		copy.largestArmy = largestArmy;
+		copy.availableDevelopmentCards = availableDevelopmentCards.clone();
+		copy.availableResourceCards = availableResourceCards.clone();
+		for (java.util.Map.Entry<Integer, int[]> entry : playerIdToAvailableBuildings.entrySet())
+			copy.playerIdToAvailableBuildings.put(entry.getKey(), entry.getValue().clone());
+		for (java.util.Map.Entry<Integer, DevelopmentCards> entry : playerIdToDevCardsBoughtThisRound.entrySet())
+			copy.playerIdToDevCardsBoughtThisRound.put(entry.getKey(), copyOf(entry.getValue()));
+		if (serverMap != null) {
+			copy.serverMap = new Map(serverMap.getFields(), serverMap.getBuildings().clone(), serverMap.getPorts(),
+					serverMap.getThief());
+			copy.productionIndex = new ProductionIndex(productionIndex);
+			copy.roadNetwork = new RoadNetwork(roadNetwork);
+		}
+		return copy;
+	}
+
+	/**
+	 * Writes the state of the game for a snapshot of the journal of a room,
+	 * read by {@link #readSnapshot(DataInputStream)}. The connections are not
+	 * written, the state of the random is.
 	 */
-	private static int getPlayerWithLongestRodeRekursive(Building building,
-			HashSet<Building> alreadyVisitedBuildingsSuper) {
-		int max = 1;
-		HashSet<Building> alreadyVisitedBuildings = (HashSet<Building>) alreadyVisitedBuildingsSuper.clone();
-		alreadyVisitedBuildings.add(building);
-		HashSet<Building> buildings = serverMap.streetGetBuildingNearby(building.getLocation(),
-				ServerRequestCheck.getCrossings());
-		HashSet<Building> alreadyVisitedBuildingsClone = (HashSet<Building>) alreadyVisitedBuildings.clone();
-		alreadyVisitedBuildingsClone.addAll(buildings);
-
-		boolean breakLoop = false;
-		for (Building building1 : buildings) {
-			// Check if backtracking
-			if (!building1.getType().equals("Strasse") && building.getOwner() != building1.getOwner())
-				breakLoop = true;
+	public void writeSnapshot(DataOutputStream out) throws IOException {
+		ByteArrayOutputStream randomBytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream objectOut = new ObjectOutputStream(randomBytes)) {
+			objectOut.writeObject(random);
 		}
-		if (!breakLoop) {
-			for (Building building1 : buildings) {
-				// Check if backtracking
-				if (alreadyVisitedBuildings.contains(building1))
-					continue;
-				else if (building1.getType().equals("Strasse") && building.getOwner() == building1.getOwner()) {
-					max = Math.max(getPlayerWithLongestRodeRekursive(building1, alreadyVisitedBuildingsClone) + 1, max);
-				}
+		writeBytes(out, randomBytes.toByteArray());
+		writeBytes(out, ProtocolCodec.getGson().toJson(this).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads a state written by {@link #writeSnapshot(DataOutputStream)}.
+	 *
+	 * @return the state, without connections
+	 */
+	public static ServerMemoryLogic readSnapshot(DataInputStream in) throws IOException {
+		Random random;
+		// Nothing but the random is read with Java serialization
+		try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(readBytes(in))) {
+			@Override
+			protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+				if (!description.getName().equals(Random.class.getName()))
+					throw new InvalidClassException(description.getName(), "Not a random");
+				return super.resolveClass(description);
 			}
+		}) {
+			random = (Random) objectIn.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
 		}
-		return max;
+		ServerMemoryLogic memory = ProtocolCodec.getGson()
+				.fromJson(new String(readBytes(in), StandardCharsets.UTF_8), ServerMemoryLogic.class);
+		memory.random = random;
+		// The players are referenced, not copied
+		memory.playerToMoveThiefNext = memory.findPlayerOf(memory.playerToMoveThiefNext);
+		memory.currentPlayer = memory.findPlayerOf(memory.currentPlayer);
+		memory.currentPlayerWithLongestRoad = memory.findPlayerOf(memory.currentPlayerWithLongestRoad);
+		memory.currentPlayerWithLargestArmy = memory.findPlayerOf(memory.currentPlayerWithLargestArmy);
+		return memory;
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @return the player of this game with the id of the given player, null if
+	 *         the given player is null
+	 */
+	private PlayerForProtocol findPlayerOf(PlayerForProtocol player) {
+		return player == null ? null : findPlayerByID(player.getId());
+	}
+
+	/**
+	 * Copies a player as he is now (resources and development cards included).
+	 *
+	 * @param player
+	 * @return the copy
+	 */
+	public static PlayerForProtocol copyOf(PlayerForProtocol player) {
+		Resources resources = player.getResources();
+		return new PlayerForProtocol(player.getId(), player.getColor(), player.getName(), player.getStatus(),
+				player.getVictoryPoints(),
+				new Resources(resources.getWood(), resources.getLoam(), resources.getWool(), resources.getGrain(),
+						resources.getStone(), resources.getHidden()),
+				player.getKnightPoints(), copyOf(player.getDevelopmentCards()), player.hasLargestArmy(),
+				player.hasLongestRoad());
+	}
+
+	private static DevelopmentCards copyOf(DevelopmentCards cards) {
+		return new DevelopmentCards(cards.getKnight(), cards.getRoadBuilding(), cards.getMonopoly(),
+				cards.getYearOfPlenty(), cards.getVictoryPoint(), cards.getHidden());
 	}
 }
\ No newline at end of file
@@ -1,14 +1,9 @@
-import java.util.ArrayList;
-
-import gameworld.HexagonField;
-import gameworld.WayPoint;
-import gameworld.World;
 import networking.MessageObjects.MaritimeTrade;
 import networking.MessageObjects.PlayerForProtocol;
 import networking.MessageObjects.Resources;
+import tools.BoardIndex;
 import tools.BuildingType;
 import tools.PortTypes;
-import tools.Vector2D;
 import networking.MessageObjects.Building;
 
 /**
@@ -19,50 +14,53 @@ import networking.MessageObjects.Building;
 public final class ServerRequestCheck {
 
 
-    public static ArrayList<String> crossingsList;
     //Main requests
 
 
     /**
      * Checks if a build request is valid
      *
+     * @param memory            The memory of the room the request belongs to
      * @param requestedBuilding The build request
      * @param initialPhase      True if initial phase
      * @return
      */
-    public final static boolean buildingCheck(Building requestedBuilding, boolean initialPhase) {
+    public final static boolean buildingCheck(ServerMemoryLogic memory, Building requestedBuilding, boolean initialPhase) {
         BuildingType requestedBuildingType = tools.WorldTranslation.getServerBuildingTypeToClientBuildingType(requestedBuilding.getType());
         int id = requestedBuilding.getOwner();
         boolean check = false;
         //check if the player has enough buildings available
         switch (requestedBuilding.getType()){
 	    	case("Strasse"):
-	    		if ((ServerMemoryLogic.playerIdToAvailableBuildings.get(requestedBuilding.getOwner())[0]==0)){
+	    		if ((memory.playerIdToAvailableBuildings.get(requestedBuilding.getOwner())[0]==0)){
 	    			//GameStart.mainLogger.getLOGGER()().fine("all streets used");
 	    			return false;
 	    		}
 	    		break;
 	    	case("Dorf"):
-	    		if ((ServerMemoryLogic.playerIdToAvailableBuildings.get(requestedBuilding.getOwner())[1]==0)){
+	    		if ((memory.playerIdToAvailableBuildings.get(requestedBuilding.getOwner())[1]==0)){
 	    			//GameStart.mainLogger.getLOGGER()().fine("all settlements used");
 	    			return false;
 	    		}
 	    		break;
 	        case("Stadt"):
-    			if ((ServerMemoryLogic.playerIdToAvailableBuildings.get(requestedBuilding.getOwner())[2]==0)){
+    			if ((memory.playerIdToAvailableBuildings.get(requestedBuilding.getOwner())[2]==0)){
 	    			//GameStart.mainLogger.getLOGGER()().fine("all castles used");
     				return false;
     			}
 	        	break; 
         }
+        //check if the location is a crossing (settlement/city) or an edge (street) of the board
+        if (BoardIndex.getLocationId(requestedBuilding) < 0)
+            return false;
         //check if already occupied
-        BuildingType currentBuildingType = ServerMemoryLogic.serverMap.isOccupiedBy(requestedBuilding.getLocation());
+        BuildingType currentBuildingType = memory.serverMap.isOccupiedBy(requestedBuilding);
         if ((currentBuildingType == BuildingType.VILLAGE) && (requestedBuildingType == BuildingType.CASTLE))
-            check = checkCityRequest(requestedBuilding);
+            check = checkCityRequest(memory, requestedBuilding);
         else if ((currentBuildingType == BuildingType.NONE) && (requestedBuildingType == BuildingType.STREET))
-            check = checkStreetRequest(requestedBuilding, initialPhase, false);
+            check = checkStreetRequest(memory, requestedBuilding, initialPhase, false);
         else if ((currentBuildingType == BuildingType.NONE) && (requestedBuildingType == BuildingType.VILLAGE))
-            check = checkSettlementRequest(requestedBuilding, initialPhase);
+            check = checkSettlementRequest(memory, requestedBuilding, initialPhase);
         else check = false;
         //GameStart.mainLogger.getLOGGER()().fine("BUILD CHECK: " + check);
         return check;
@@ -71,11 +69,12 @@ public final class ServerRequestCheck {
     /**
      * Checks if a maritime request is valid
      *
+     * @param memory The memory of the room the request belongs to
      * @param maritimeTrade
      * @param player
      * @return
      */
-    public static boolean mariTimeTradeCheck(MaritimeTrade maritimeTrade, PlayerForProtocol player) {
+    public static boolean mariTimeTradeCheck(ServerMemoryLogic memory, MaritimeTrade maritimeTrade, PlayerForProtocol player) {
         //we assume only one type of resource is traded at once
         //check whether it's the player's turn
         if (!player.getStatus().equals("Handeln oder Bauen")) return false;
@@ -86,45 +85,45 @@ public final class ServerRequestCheck {
                     case 4:
                         return checkIfEnoughResources(player, new Resources(4, 0, 0, 0, 0, 0));
                     case 3:
-                        return checkIfEnoughResources(player, new Resources(3, 0, 0, 0, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(3, 0, 0, 0, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
                     case 2:
-                        return checkIfEnoughResources(player, new Resources(2, 0, 0, 0, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_WOOD_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(2, 0, 0, 0, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_WOOD_FOR_ONE);
                 }
             } else if (supply.getLoam() != 0) {
                 switch (supply.getLoam()) {
                     case 4:
                         return checkIfEnoughResources(player, new Resources(0, 4, 0, 0, 0, 0));
                     case 3:
-                        return checkIfEnoughResources(player, new Resources(0, 3, 0, 0, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 3, 0, 0, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
                     case 2:
-                        return checkIfEnoughResources(player, new Resources(0, 2, 0, 0, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_LOAM_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 2, 0, 0, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_LOAM_FOR_ONE);
                 }
             } else if (supply.getWool() != 0) {
                 switch (supply.getWool()) {
                     case 4:
                         return checkIfEnoughResources(player, new Resources(0, 0, 4, 0, 0, 0));
                     case 3:
-                        return checkIfEnoughResources(player, new Resources(0, 0, 3, 0, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 0, 3, 0, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
                     case 2:
-                        return checkIfEnoughResources(player, new Resources(0, 0, 2, 0, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_WOOL_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 0, 2, 0, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_WOOL_FOR_ONE);
                 }
             } else if (supply.getGrain() != 0) {
                 switch (supply.getGrain()) {
                     case 4:
                         return checkIfEnoughResources(player, new Resources(0, 0, 0, 4, 0, 0));
                     case 3:
-                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 3, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 3, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
                     case 2:
-                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 2, 0, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_GRAIN_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 2, 0, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_GRAIN_FOR_ONE);
                 }
             } else if (supply.getStone() != 0) {
                 switch (supply.getStone()) {
                     case 4:
                         return checkIfEnoughResources(player, new Resources(0, 0, 0, 0, 4, 0));
                     case 3:
-                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 0, 3, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 0, 3, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.THREE_FOR_ONE);
                     case 2:
-                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 0, 2, 0)) && ServerMemoryLogic.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_STONE_FOR_ONE);
+                        return checkIfEnoughResources(player, new Resources(0, 0, 0, 0, 2, 0)) && memory.serverMap.checkIfOwnPortNearby(player, PortTypes.TWO_STONE_FOR_ONE);
                 }
             }
             return false;
@@ -133,6 +132,26 @@ public final class ServerRequestCheck {
             return false;
         }
     }
+    /**
+     * Checks if a domestic trade offer is valid (not whether the partner can afford it)
+     *
+     * @param player the player offering the trade
+     * @param supply the offered resources
+     * @param demand the requested resources
+     * @return
+     */
+    public static boolean domesticTradeCheck(PlayerForProtocol player, Resources supply, Resources demand) {
+        if (supply == null || demand == null || supply.getTotalResources() == 0 || demand.getTotalResources() == 0)
+            return false;
+        int[] supplied = { supply.getWood(), supply.getLoam(), supply.getWool(), supply.getGrain(), supply.getStone() };
+        int[] demanded = { demand.getWood(), demand.getLoam(), demand.getWool(), demand.getGrain(), demand.getStone() };
+        for (int i = 0; i < supplied.length; i++) {
+            //no negative amounts and no resource on both sides
+            if (supplied[i] < 0 || demanded[i] < 0 || (supplied[i] > 0 && demanded[i] > 0))
+                return false;
+        }
+        return checkIfEnoughResources(player, supply);
+    }
     //Minor requests
 
     /**
@@ -141,19 +160,21 @@ public final class ServerRequestCheck {
      * @param initialPhase
      * @return
      */
-    protected final static boolean checkStreetRequest(Building building, boolean initialPhase, boolean roadBuildingCardPlayed) {
+    protected final static boolean checkStreetRequest(ServerMemoryLogic memory, Building building, boolean initialPhase, boolean roadBuildingCardPlayed) {
         //return immediately false if status mismatch
-        if (!checkStatusMatch(building.getOwner(), "Strasse bauen") && !checkStatusMatch(building.getOwner(), "Handeln oder Bauen") 
-        		&& !(checkStatusMatch(building.getOwner(), "Wuerfeln") && roadBuildingCardPlayed))
+        if (!checkStatusMatch(memory, building.getOwner(), "Strasse bauen") && !checkStatusMatch(memory, building.getOwner(), "Handeln oder Bauen") 
+        		&& !(checkStatusMatch(memory, building.getOwner(), "Wuerfeln") && roadBuildingCardPlayed))
             return false;
             //We must check if the field is not already occupied and if the street is next to the players settlement
             //Check if field is next to the player's settlement/city/road
-        else if (ServerMemoryLogic.initialPhaseRemainingTurns > 4||roadBuildingCardPlayed) {
-            return ServerMemoryLogic.serverMap.streetCheckForOwnBuildingNearby(building.getOwner(), building.getLocation(), getCrossings());
-        } else if (ServerMemoryLogic.initialPhaseRemainingTurns > 0) {
-            return ServerMemoryLogic.serverMap.streetCheckIfGivenBuildingNearby(ServerMemoryLogic.playerIdToSecondInitialPhaseSettlement.get(building.getOwner()).getLocation(), building.getLocation());
-        } else if (ServerMemoryLogic.serverMap.streetCheckForOwnBuildingNearby(building.getOwner(), building.getLocation(), getCrossings())) {
-            return checkIfEnoughResources(ServerMemoryLogic.findPlayerByID(building.getOwner()), new Resources(1, 1, 0, 0, 0, 0));
+        else if (roadBuildingCardPlayed) {
+            return memory.serverMap.streetCheckForOwnBuildingNearby(building);
+        } else if (memory.initialPhaseRemainingTurns > 0) {
+            //in the initial phase the street belongs to the settlement built last
+            Building settlement = memory.playerIdToSecondInitialPhaseSettlement.get(building.getOwner());
+            return settlement != null && memory.serverMap.streetCheckIfGivenBuildingNearby(settlement, building);
+        } else if (memory.serverMap.streetCheckForOwnBuildingNearby(building)) {
+            return checkIfEnoughResources(memory.findPlayerByID(building.getOwner()), new Resources(1, 1, 0, 0, 0, 0));
         } else return false;
     }
 
@@ -163,21 +184,18 @@ public final class ServerRequestCheck {
      * @param initialPhase
      * @return
      */
-    private final static boolean checkSettlementRequest(Building building, boolean initialPhase) {
-        String location = building.getLocation();
+    private final static boolean checkSettlementRequest(ServerMemoryLogic memory, Building building, boolean initialPhase) {
         //return immediately false if status mismatch
-        if (!checkStatusMatch(building.getOwner(), "Dorf bauen") && !checkStatusMatch(building.getOwner(), "Handeln oder Bauen"))
+        if (!checkStatusMatch(memory, building.getOwner(), "Dorf bauen") && !checkStatusMatch(memory, building.getOwner(), "Handeln oder Bauen"))
             return false;
             //in the initial phase settlements are placed regardless of the own streets
-        else if (ServerMemoryLogic.serverMap.checkIfNoBuildingNearby(location)) {
+        else if (memory.serverMap.checkIfNoBuildingNearby(building)) {
             if (initialPhase) {
-                if (ServerMemoryLogic.initialPhaseRemainingTurns < 5)
-                    ServerMemoryLogic.playerIdToSecondInitialPhaseSettlement.put(building.getOwner(), building);
                 return true;
             } else {
-                return ServerMemoryLogic.serverMap.villageCheckForStreetNearby(building.getOwner(), building.getLocation())
-                		&& checkIfEnoughResources(ServerMemoryLogic.findPlayerByID(building.getOwner()), new Resources(1, 1, 1, 1, 0, 0))
-                		&&ServerMemoryLogic.serverMap.buildingCheckForStreetNearby(location);
+                return memory.serverMap.villageCheckForStreetNearby(building)
+                		&& checkIfEnoughResources(memory.findPlayerByID(building.getOwner()), new Resources(1, 1, 1, 1, 0, 0))
+                		&&memory.serverMap.buildingCheckForStreetNearby(building);
             }
         } else {
         	return false;
@@ -189,9 +207,9 @@ public final class ServerRequestCheck {
      * @param building
      * @return
      */
-    private static boolean checkCityRequest(Building building) {
-        return checkStatusMatch(building.getOwner(), "Handeln oder Bauen")
-        		&& checkIfEnoughResources(ServerMemoryLogic.findPlayerByID(building.getOwner()), new Resources(0, 0, 0, 2, 3, 0));
+    private static boolean checkCityRequest(ServerMemoryLogic memory, Building building) {
+        return checkStatusMatch(memory, building.getOwner(), "Handeln oder Bauen")
+        		&& checkIfEnoughResources(memory.findPlayerByID(building.getOwner()), new Resources(0, 0, 0, 2, 3, 0));
     }
     /**
      * checks if player can buy a develoment card
@@ -212,9 +230,9 @@ public final class ServerRequestCheck {
      * @param player player to be checked
      * @return boolean value indicating whether it's the player's turn
      */
-    public static boolean checkIfPlayersTurn(PlayerForProtocol player) {
-        //GameStart.mainLogger.getLOGGER()().fine("turn: " + ServerMemoryLogic.getCurrentPlayer().getColor());
-        return (ServerMemoryLogic.getCurrentPlayer() == player);
+    public static boolean checkIfPlayersTurn(ServerMemoryLogic memory, PlayerForProtocol player) {
+        //GameStart.mainLogger.getLOGGER()().fine("turn: " + memory.getCurrentPlayer().getColor());
+        return (memory.getCurrentPlayer() == player);
     }
 
     /**
@@ -234,37 +252,14 @@ public final class ServerRequestCheck {
     /**
      * Checks if a player (found by his unique id) matches a given status
      *
+     * @param memory The memory of the room the player belongs to
      * @param id     The player's id
      * @param status The status to match
      * @return True, if status matches.
      */
-    public static final boolean checkStatusMatch(Integer id, String status) {
-        //GameStart.mainLogger.getLOGGER()().fine(ServerMemoryLogic.findPlayerByID(id).getStatus() + "_" + status);
-        return status.equals(ServerMemoryLogic.findPlayerByID(id).getStatus());
-    }
-
-    /**
-     * returns the list of all possible 3 letters combinations(crossings)
-     *
-     * @return the array lists containing all the possible strings
-     */
-    public static ArrayList<String> getCrossings() {
-        if (crossingsList != null) return crossingsList;
-        ArrayList<String> crossings = new ArrayList<String>();
-        World world = new World();
-        ArrayList<WayPoint> allWayPoints = world.getWayPoints();
-        for (WayPoint wayPoint : allWayPoints) {
-            String crossing = "";
-            ArrayList<HexagonField> neighbors = wayPoint.getFieldNeighbours();
-            if (neighbors.size() == 3) {
-                for (HexagonField neighbor : neighbors) {
-                    crossing += tools.WorldTranslation.getPositionToLetter(new Vector2D<Integer>(neighbor.getPosition().x, neighbor.getPosition().y));
-                }
-            }
-            crossings.add(crossing);
-        }
-        crossingsList = crossings;
-        return crossings;
+    public static final boolean checkStatusMatch(ServerMemoryLogic memory, Integer id, String status) {
+        //GameStart.mainLogger.getLOGGER()().fine(memory.findPlayerByID(id).getStatus() + "_" + status);
+        return status.equals(memory.findPlayerByID(id).getStatus());
     }
 
 }
\ No newline at end of file
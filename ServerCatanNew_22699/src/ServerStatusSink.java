@@ -0,0 +1,77 @@
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.logging.Logger;
+
+/**
+ * Receives the status updates of a {@link Server} (server launched, clients connected, rooms opened and cleared).
+ * The window of {@link ServerLauncher} is one, a server without a display uses one selected with "--status=..."
+ * (see {@link HeadlessServerLauncher}). The updates may come from any thread.
+ */
+@FunctionalInterface
+public interface ServerStatusSink {
+	/**
+	 * Ignores all updates
+	 */
+	ServerStatusSink NONE = message -> {
+	};
+
+	/**
+	 * @param message
+	 *            the status update
+	 */
+	void printServerStatusUpdate(String message);
+
+	/**
+	 * Tells that the server could not open its port, because a server has already been created or the connection
+	 * is missing.
+	 */
+	default void serverAlreadyCreated() {
+		printServerStatusUpdate("Server already created or connection missing!");
+	}
+
+	/**
+	 * @return a sink printing the updates with their time to the standard output
+	 */
+	static ServerStatusSink console() {
+		return message -> System.out.println(LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + " " + message);
+	}
+
+	/**
+	 * @return a sink writing the updates to the logger of the server (java.util.logging)
+	 */
+	static ServerStatusSink log() {
+		Logger logger = Logger.getLogger("server");
+		return new ServerStatusSink() {
+			@Override
+			public void printServerStatusUpdate(String message) {
+				logger.info(message);
+			}
+
+			@Override
+			public void serverAlreadyCreated() {
+				logger.severe("Server already created or connection missing!");
+			}
+		};
+	}
+
+	/**
+	 * Translates a startup argument into a sink.
+	 *
+	 * @param argument
+	 *            the value of "--status" (may be null): "console", "log" or "none"
+	 * @return the matching sink, the console if unknown
+	 */
+	static ServerStatusSink fromArgument(String argument) {
+		if (argument != null) {
+			switch (argument.trim().toLowerCase()) {
+			case "log":
+				return log();
+			case "none":
+				return NONE;
+			default:
+				break;
+			}
+		}
+		return console();
+	}
+}
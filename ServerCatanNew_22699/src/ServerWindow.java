@@ -1,4 +1,5 @@
 import javafx.animation.FadeTransition;
+import javafx.application.Platform;
 import javafx.animation.Timeline;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
@@ -17,10 +18,11 @@ import javafx.util.Duration;
 import resources.ResourcePointer;
 
 /**
- * This class represents the window for display of the server program.
+ * This class represents the window for display of the server program. It shows the status updates of the server,
+ * which may come from any thread.
  */
 
-public class ServerWindow {
+public class ServerWindow implements ServerStatusSink {
     Screen screen = Screen.getPrimary();
     Rectangle2D bounds = screen.getVisualBounds();
     private Server server;
@@ -76,11 +78,10 @@ public class ServerWindow {
         root.getChildren().add(serverRunningIndicator);
 
         //Show start message
-        printServerStatusUpdate("Server launched!");
+        showServerStatusUpdate("Server launched!");
 
         //End server when window closes
         stage.setOnCloseRequest(e -> {
-            server.informConnectionLost(0);
             server.deactivateServer();
             System.exit(0);
         });
@@ -93,7 +94,12 @@ public class ServerWindow {
      *
      * @param message message to be printed in the server window
      */
+    @Override
     public void printServerStatusUpdate(String message) {
+        Platform.runLater(() -> showServerStatusUpdate(message));
+    }
+
+    private void showServerStatusUpdate(String message) {
         Label label = new Label(message);
         label.setFont(basicFont);
         label.setTextFill(Color.LIMEGREEN);
@@ -103,7 +109,12 @@ public class ServerWindow {
     /**
      * Tells the user that a server has already been created
      */
+    @Override
     public void serverAlreadyCreated() {
+        Platform.runLater(this::showServerAlreadyCreated);
+    }
+
+    private void showServerAlreadyCreated() {
         root.getChildren().clear();
         Label errorMessage = new Label(" Server already created\n or connection missing!");
         errorMessage.setFont(basicFont);
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel for the many coarse timeouts of the connections (see
+ * {@link ConnectionHeartbeat}). Timeouts are put into the bucket of the tick
+ * they expire in, one periodic task of the server scheduler advances the wheel
+ * by a tick and hands the expired timeouts to an executor. Adding or
+ * cancelling a timeout costs the same however many are waiting, no thread is
+ * needed per connection and a timeout is only exact to a tick.
+ */
+public class TimerWheel {
+	private final long tickMillis;
+	private final List<List<Timeout>> buckets = new ArrayList<>();
+	private final Executor executor;
+	/**
+	 * Number of ticks since the wheel has been started
+	 */
+	private long tick;
+
+	/**
+	 * A task waiting on the wheel
+	 */
+	public static class Timeout {
+		private final Runnable task;
+		/**
+		 * Full turns of the wheel left before the timeout expires
+		 */
+		private long rounds;
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long rounds) {
+			this.task = task;
+			this.rounds = rounds;
+		}
+
+		/**
+		 * Keeps the task from running, it is dropped from the wheel when its
+		 * tick comes.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Creates and starts a wheel.
+	 *
+	 * @param tickMillis
+	 *            duration (ms) of a tick
+	 * @param numberOfBuckets
+	 *            ticks per turn of the wheel, the longer timeouts wait for
+	 *            several turns
+	 * @param scheduler
+	 *            advances the wheel
+	 * @param executor
+	 *            runs the expired timeouts
+	 */
+	public TimerWheel(long tickMillis, int numberOfBuckets, ScheduledExecutorService scheduler, Executor executor) {
+		this.tickMillis = tickMillis;
+		this.executor = executor;
+		for (int i = 0; i < numberOfBuckets; i++)
+			buckets.add(new ArrayList<>());
+		scheduler.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs a task on the executor once a delay has passed (rounded up to
+	 * ticks).
+	 *
+	 * @param task
+	 *            the task
+	 * @param delayMillis
+	 *            the delay in milliseconds
+	 * @return the timeout, to cancel it
+	 */
+	public synchronized Timeout schedule(Runnable task, long delayMillis) {
+		long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+		int bucket = (int) ((tick + ticks) % buckets.size());
+		Timeout timeout = new Timeout(task, (ticks - 1) / buckets.size());
+		buckets.get(bucket).add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * @return the number of timeouts on the wheel, the cancelled ones
+	 *         included until their tick has come
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (List<Timeout> bucket : buckets)
+			size += bucket.size();
+		return size;
+	}
+
+	private void advance() {
+		List<Runnable> expired = new ArrayList<>();
+		synchronized (this) {
+			tick++;
+			Iterator<Timeout> timeouts = buckets.get((int) (tick % buckets.size())).iterator();
+			while (timeouts.hasNext()) {
+				Timeout timeout = timeouts.next();
+				if (timeout.cancelled) {
+					timeouts.remove();
+					continue;
+				}
+				if (timeout.rounds-- > 0)
+					continue;
+				timeouts.remove();
+				expired.add(timeout.task);
+			}
+		}
+		for (Runnable task : expired) {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// The server is shutting down
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import networking.MessageObjects.PlayerForProtocol;
+
+/**
+ * Plays games of bots against each other without server or clients, spread
+ * over all cores. Every game has its own {@link GameEngine}, seeded with the
+ * number of the game, so a tournament can be repeated.
+ *
+ * Usage: Tournament [--threads=games at once] [games] [bot ...], bots are
+ * "ai" ({@link HeuristicBot}), "random" ({@link GameBot#RANDOM}) and "mcts" or
+ * "mcts:budget[:entries of the transposition table[:threads]]"
+ * ({@link MctsBot}, searching on the thread of its game unless more threads
+ * are given), by default two "ai" and two "random". The budget of a move is
+ * given in milliseconds or in simulations per tree, e.g. "mcts:50" or
+ * "mcts:100sims". With simulations, one search thread and one game at once
+ * the results only depend on the number of games. The bots change their
+ * seats from game to game.
+ */
+public class Tournament {
+	private static final int NUMBER_OF_PLAYERS = 4;
+	private static final String[] COLORS = { "Blau", "Orange", "Rot", "Weiss" };
+	/**
+	 * Games taking longer are stopped without a winner
+	 */
+	private static final int MAX_ACTIONS = 20000;
+
+	private final String[] botNames;
+	private final GameBot[] bots;
+
+	/**
+	 * Result of one game
+	 */
+	private static class GameResult {
+		/**
+		 * Name of the winning bot, null if the game was stopped
+		 */
+		private String winner;
+		private int actions;
+		private int turns;
+	}
+
+	/**
+	 * @param botNames
+	 *            names of the bots, the seats of a game are taken in turns
+	 * @throws IllegalArgumentException
+	 *             if a bot is unknown
+	 */
+	public Tournament(String... botNames) {
+		this.botNames = botNames;
+		this.bots = new GameBot[botNames.length];
+		for (int i = 0; i < botNames.length; i++)
+			bots[i] = getBot(botNames[i]);
+	}
+
+	/**
+	 * Creates a bot from its name, see the usage of the tournament. Also
+	 * selects the bot standing in for the clients which do not respond
+	 * ("--bot=...", see {@link HeadlessServerLauncher}).
+	 *
+	 * @param name
+	 *            e.g. "ai", "random", "mcts" or "mcts:200"
+	 * @return the bot
+	 * @throws IllegalArgumentException
+	 *             if the bot is unknown or a number is invalid
+	 */
+	static GameBot getBot(String name) {
+		switch (name) {
+		case "ai":
+			return new HeuristicBot();
+		case "random":
+			return GameBot.RANDOM;
+		case "mcts":
+			return new MctsBot(MctsBot.DEFAULT_BUDGET, 1);
+		default:
+			// The budget of a move, the size of the table and the threads may
+			// be given, e.g. "mcts:50", "mcts:100sims" or "mcts:50:1048576:4"
+			if (name.startsWith("mcts:")) {
+				String[] parts = name.split(":");
+				int tableSize = parts.length > 2 ? Integer.parseInt(parts[2]) : MctsBot.DEFAULT_TABLE_SIZE;
+				int threads = parts.length > 3 ? Integer.parseInt(parts[3]) : 1;
+				if (parts[1].endsWith("sims"))
+					return new MctsBot(0, Integer.parseInt(parts[1].substring(0, parts[1].length() - 4)), threads,
+							tableSize);
+				return new MctsBot(Long.parseLong(parts[1]), threads, tableSize);
+			}
+			throw new IllegalArgumentException("Unknown bot: " + name);
+		}
+	}
+
+	/**
+	 * Plays one game.
+	 *
+	 * @param game
+	 *            number of the game, seed of the engine and the bots
+	 */
+	private GameResult play(int game) {
+		GameEngine engine = new GameEngine(game);
+		Random random = new Random(game);
+		// Player i + 1 is played by seatBots[i]
+		int[] seatBots = new int[NUMBER_OF_PLAYERS];
+		for (int i = 0; i < NUMBER_OF_PLAYERS; i++) {
+			seatBots[i] = (game + i) % bots.length;
+			engine.addPlayer(i + 1, COLORS[i], botNames[seatBots[i]]);
+		}
+		engine.startGame(GameEventListener.NONE);
+
+		GameResult result = new GameResult();
+		while (!engine.isGameOver() && result.actions < MAX_ACTIONS) {
+			ArrayList<PlayerForProtocol> players = engine.getPlayersToAct();
+			if (players.isEmpty())
+				break;
+			PlayerForProtocol player = players.get(0);
+			ArrayList<GameAction> actions = engine.getLegalActions(player.getId());
+			if (actions.isEmpty())
+				break;
+			GameAction action = bots[seatBots[player.getId() - 1]].chooseAction(engine, actions, random);
+			if (!engine.apply(action, GameEventListener.NONE))
+				throw new IllegalStateException("Game " + game + ": illegal action " + action);
+			if (action.getType() == GameAction.Type.ROLL_DICE)
+				result.turns++;
+			result.actions++;
+		}
+		if (engine.isGameOver())
+			result.winner = botNames[seatBots[engine.getWinner().getId() - 1]];
+		return result;
+	}
+
+	/**
+	 * Plays the games on a fork join pool and prints the results.
+	 *
+	 * @param games
+	 *            number of games
+	 * @param threads
+	 *            number of games played at once
+	 */
+	public void run(int games, int threads) throws InterruptedException, ExecutionException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<Callable<GameResult>> tasks = new ArrayList<>(games);
+		for (int game = 0; game < games; game++) {
+			int seed = game;
+			tasks.add(() -> play(seed));
+		}
+		long start = System.nanoTime();
+		List<Future<GameResult>> futures;
+		try {
+			futures = pool.invokeAll(tasks);
+		} finally {
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		// Seats and wins of every bot
+		LinkedHashMap<String, int[]> statistics = new LinkedHashMap<>();
+		for (String name : botNames)
+			statistics.put(name, new int[2]);
+		for (int game = 0; game < games; game++) {
+			for (int i = 0; i < NUMBER_OF_PLAYERS; i++)
+				statistics.get(botNames[(game + i) % bots.length])[0]++;
+		}
+		long actions = 0;
+		long turns = 0;
+		int stopped = 0;
+		for (Future<GameResult> future : futures) {
+			GameResult result = future.get();
+			actions += result.actions;
+			turns += result.turns;
+			if (result.winner == null)
+				stopped++;
+			else
+				statistics.get(result.winner)[1]++;
+		}
+
+		System.out.println(games + " games on " + threads + " threads, " + stopped + " stopped after "
+				+ MAX_ACTIONS + " actions");
+		for (Map.Entry<String, int[]> entry : statistics.entrySet()) {
+			int[] seatsAndWins = entry.getValue();
+			System.out.printf("%-8s seats %6d  wins %6d  win rate %5.1f%%%n", entry.getKey(), seatsAndWins[0],
+					seatsAndWins[1], 100.0 * seatsAndWins[1] / seatsAndWins[0]);
+		}
+		System.out.printf("Average game: %.1f turns, %.1f actions%n", (double) turns / games,
+				(double) actions / games);
+		System.out.printf("%.2f s, %.1f games/s, %.1f games/s per core%n", seconds, games / seconds,
+				games / seconds / threads);
+		for (int i = 0; i < bots.length; i++) {
+			if (bots[i] instanceof MctsBot)
+				System.out.println(botNames[i] + " table: " + ((MctsBot) bots[i]).getTable());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 0 && args[0].startsWith("--threads=")) {
+			threads = Integer.parseInt(args[0].substring("--threads=".length()));
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		String[] botNames = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length)
+				: new String[] { "ai", "random", "ai", "random" };
+		new Tournament(botNames).run(games, threads);
+	}
+}
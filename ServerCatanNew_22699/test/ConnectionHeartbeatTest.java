@@ -0,0 +1,106 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ConnectionHeartbeat} with an idle timeout of 300 ms (a ping
+ * every 100 ms) on a wheel with ticks of 10 ms.
+ */
+public class ConnectionHeartbeatTest {
+	private static final long IDLE_TIMEOUT = 300;
+
+	private ScheduledExecutorService scheduler;
+	private TimerWheel wheel;
+	private final AtomicInteger pings = new AtomicInteger();
+	private final AtomicInteger idleTimeouts = new AtomicInteger();
+	/**
+	 * True if the client answers the pings
+	 */
+	private volatile boolean answering;
+	private ConnectionHeartbeat heartbeat;
+
+	@Before
+	public void setUp() {
+		scheduler = Executors.newScheduledThreadPool(2);
+		wheel = new TimerWheel(10, 64, scheduler, Runnable::run);
+		heartbeat = new ConnectionHeartbeat(wheel, IDLE_TIMEOUT, () -> {
+			pings.incrementAndGet();
+			if (answering)
+				heartbeat.read();
+		}, idleTimeouts::incrementAndGet);
+		heartbeat.start();
+	}
+
+	@After
+	public void tearDown() {
+		heartbeat.stop();
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * Sends a message to the client every 20 ms, like the broadcasts of a
+	 * running game.
+	 */
+	private void broadcast(long millis) {
+		scheduler.scheduleAtFixedRate(heartbeat::written, 0, 20, TimeUnit.MILLISECONDS);
+		sleep(millis);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Test
+	public void passiveClientReceivingBroadcastsIsNotIdle() {
+		answering = true;
+		broadcast(4 * IDLE_TIMEOUT);
+		assertTrue("the client has been pinged", pings.get() > 0);
+		assertEquals(0, idleTimeouts.get());
+		assertFalse(heartbeat.isIdle());
+	}
+
+	@Test
+	public void silentClientReceivingBroadcastsIsIdle() {
+		broadcast(2 * IDLE_TIMEOUT);
+		assertEquals(1, idleTimeouts.get());
+		assertTrue(heartbeat.isIdle());
+		assertTrue("responding again", heartbeat.read());
+		assertFalse(heartbeat.isIdle());
+		assertFalse(heartbeat.read());
+	}
+
+	@Test
+	public void idleClientIsReportedOnce() {
+		sleep(4 * IDLE_TIMEOUT);
+		assertEquals(1, idleTimeouts.get());
+	}
+
+	@Test
+	public void sendingClientIsKeptAlive() {
+		// The client sends every 20 ms, nothing is sent to it
+		scheduler.scheduleAtFixedRate(heartbeat::read, 0, 20, TimeUnit.MILLISECONDS);
+		sleep(3 * IDLE_TIMEOUT);
+		assertTrue("keep-alive pings", pings.get() > 0);
+		assertEquals(0, idleTimeouts.get());
+	}
+
+	@Test
+	public void stoppedHeartbeatDoesNothing() {
+		heartbeat.stop();
+		sleep(2 * IDLE_TIMEOUT);
+		assertEquals(0, pings.get());
+		assertEquals(0, idleTimeouts.get());
+		assertEquals(0, wheel.size());
+	}
+}
@@ -0,0 +1,204 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import networking.ProtocolCodec;
+
+/**
+ * Tests of writing a {@link GameJournal}, recovering the game from it after a
+ * crash (the journal is not closed) and of a torn record at its end. The games
+ * are played by a {@link HeuristicBot} with a fixed seed.
+ */
+public class GameJournalTest {
+	private static final String[] COLORS = { "Blau", "Orange", "Rot", "Weiss" };
+
+	private ScheduledExecutorService scheduler;
+	private File root;
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		root = Files.createTempDirectory("journal").toFile();
+		directory = new File(root, "room-1");
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdownNow();
+		File recordings = new File(root, GameJournal.RECORDINGS);
+		File[] archived = recordings.listFiles();
+		if (archived != null) {
+			for (File recording : archived)
+				GameJournal.delete(recording);
+		}
+		GameJournal.delete(recordings);
+		GameJournal.delete(directory);
+		root.delete();
+	}
+
+	private GameEngine startGame() throws IOException {
+		GameEngine engine = new GameEngine(42);
+		GameJournal.create(directory, engine, scheduler);
+		for (int i = 0; i < COLORS.length; i++)
+			engine.addPlayer(i + 1, COLORS[i], "Player " + i);
+		engine.startGame(GameEventListener.NONE);
+		return engine;
+	}
+
+	private static void play(GameEngine engine, Random random, int actions) {
+		GameBot bot = new HeuristicBot();
+		for (int n = 0; n < actions && !engine.isGameOver(); n++) {
+			int id = engine.getPlayersToAct().get(0).getId();
+			ArrayList<GameAction> legalActions = engine.getLegalActions(id);
+			assertTrue(engine.apply(bot.chooseAction(engine, legalActions, random), GameEventListener.NONE));
+		}
+	}
+
+	private static String state(GameEngine engine) {
+		return ProtocolCodec.getGson().toJson(engine.getMemory()) + " after " + engine.getNumberOfActions();
+	}
+
+	/**
+	 * @return the segment files of the journal, oldest first
+	 */
+	private File[] getSegments() {
+		File[] segments = directory.listFiles((dir, name) -> name.endsWith(".journal"));
+		Arrays.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * @return the offset of the last record in a segment
+	 */
+	private static long getLastRecord(File segment) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+			long last = -1;
+			long offset = 0;
+			while (offset + 8 <= file.length()) {
+				file.seek(offset);
+				int length = file.readInt();
+				if (length <= 0)
+					break;
+				last = offset;
+				offset += 8 + length;
+			}
+			return last;
+		}
+	}
+
+	@Test
+	public void crashedGameIsRecovered() throws IOException {
+		GameEngine engine = startGame();
+		play(engine, new Random(1), GameJournal.SNAPSHOT_INTERVAL * 2 + 50);
+		assertTrue(getSegments().length >= 3);
+
+		// Crash: the journal is not closed, the records are read as written
+		GameJournal recovered = GameJournal.recover(directory, scheduler);
+		assertNotNull(recovered);
+		assertEquals(state(engine), state(recovered.getEngine()));
+		assertEquals(engine.getMemory().random.nextLong(), recovered.getEngine().getMemory().random.nextLong());
+		recovered.close();
+	}
+
+	@Test
+	public void recoveredGameContinuesTheJournal() throws IOException {
+		GameEngine engine = startGame();
+		play(engine, new Random(2), 120);
+		engine.getJournal().close();
+		GameEngine recovered = GameJournal.recover(directory, scheduler).getEngine();
+
+		play(recovered, new Random(3), 60);
+		String expected = state(recovered);
+		recovered.getJournal().close();
+		assertEquals(expected, state(GameJournal.recover(directory, scheduler).getEngine()));
+	}
+
+	@Test
+	public void tornRecordEndsTheJournal() throws IOException {
+		GameEngine engine = startGame();
+		Random random = new Random(4);
+		play(engine, random, 80);
+		String beforeLastAction = state(engine);
+		play(engine, random, 1);
+		engine.getJournal().close();
+
+		// The crash came while the last record was written
+		File[] segments = getSegments();
+		File segment = segments[segments.length - 1];
+		long last = getLastRecord(segment);
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(last + 9);
+			file.write(new byte[4]);
+		}
+
+		GameJournal recovered = GameJournal.recover(directory, scheduler);
+		assertEquals(beforeLastAction, state(recovered.getEngine()));
+		recovered.close();
+	}
+
+	@Test
+	public void snapshotsHoldTheStateOnly() throws IOException {
+		GameEngine engine = startGame();
+		play(engine, new Random(5), GameJournal.SNAPSHOT_INTERVAL * 3);
+		engine.getJournal().close();
+
+		File[] segments = getSegments();
+		long first = getFirstRecordLength(segments[1]);
+		long last = getFirstRecordLength(segments[segments.length - 1]);
+		// The actions since the start are not repeated in a snapshot
+		assertTrue(last + " of " + first, last < first * 2);
+		GameEngine recovered = GameJournal.recover(directory, scheduler).getEngine();
+		// Only the actions after the newest snapshot are replayed
+		assertTrue(recovered.getHistory().size() <= GameJournal.SNAPSHOT_INTERVAL);
+		assertEquals(engine.getNumberOfActions(), recovered.getNumberOfActions());
+	}
+
+	private static long getFirstRecordLength(File segment) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+			return file.readInt();
+		}
+	}
+
+	@Test
+	public void archivedJournalIsCutAndReplayed() throws IOException {
+		GameEngine engine = startGame();
+		play(engine, new Random(6), GameJournal.SNAPSHOT_INTERVAL + 30);
+		File[] segments = getSegments();
+		engine.getJournal().archive().join();
+		assertFalse(directory.exists());
+
+		File[] recordings = new File(root, GameJournal.RECORDINGS).listFiles();
+		assertEquals(1, recordings.length);
+		// Every segment has been cut to its records
+		for (File segment : segments) {
+			File archived = new File(recordings[0], segment.getName());
+			assertEquals(getLastRecord(archived) + 8 + getLastRecordLength(archived), archived.length());
+		}
+
+		GameReplay replay = GameReplay.load(recordings[0]);
+		while (replay.step(GameEventListener.NONE))
+			;
+		assertEquals(replay.getFirstDivergence(), 0, replay.getDivergences());
+		assertEquals(state(engine), state(replay.getEngine()));
+	}
+
+	private static int getLastRecordLength(File segment) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+			file.seek(getLastRecord(segment));
+			return file.readInt();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ai.GameState;
+
+/**
+ * Tests of {@link MctsBot}. The {@link GameState} following a game has the
+ * hash of the game converted from scratch after every action, and taking back
+ * its moves restores the state it started from. The searches are given a
+ * number of simulations, so they do not depend on the time.
+ */
+public class MctsBotTest {
+	private static final String[] COLORS = { "Blau", "Orange", "Rot", "Weiss" };
+
+	private static GameEngine startGame(long seed) {
+		GameEngine engine = new GameEngine(seed);
+		for (int i = 0; i < COLORS.length; i++)
+			engine.addPlayer(i + 1, COLORS[i], "Player " + i);
+		engine.startGame(GameEventListener.NONE);
+		return engine;
+	}
+
+	private static GameState convert(GameEngine engine) {
+		ServerMemoryLogic memory = engine.getMemory();
+		return GameState.of(memory.serverMap, memory.playerList, memory.getCurrentPlayer().getId());
+	}
+
+	private static GameAction chooseAction(GameEngine engine, Random random) {
+		int id = engine.getPlayersToAct().get(0).getId();
+		ArrayList<GameAction> actions = engine.getLegalActions(id);
+		return new HeuristicBot().chooseAction(engine, actions, random);
+	}
+
+	@Test
+	public void stateFollowsTheGame() {
+		for (long seed = 0; seed < 5; seed++) {
+			GameEngine engine = startGame(seed);
+			Random random = new Random(seed);
+			GameState state = convert(engine);
+			long start = state.getHash();
+			int moves = 0;
+			for (int n = 0; n < 2000 && !engine.isGameOver(); n++) {
+				GameAction action = chooseAction(engine, random);
+				assertTrue(engine.apply(action, GameEventListener.NONE));
+				moves += MctsBot.makeMoves(state, action, engine);
+				assertEquals("Game " + seed + ", " + action, convert(engine).getHash(), state.getHash());
+			}
+			for (; moves > 0; moves--)
+				state.unmake();
+			assertEquals(start, state.getHash());
+		}
+	}
+
+	@Test
+	public void stateFollowsRedealtCards() {
+		GameEngine engine = startGame(7);
+		Random random = new Random(7);
+		for (int n = 0; n < 600 && !engine.isGameOver(); n++)
+			assertTrue(engine.apply(chooseAction(engine, random), GameEventListener.NONE));
+		GameState state = convert(engine);
+		long start = state.getHash();
+
+		GameEngine game = engine.copy(1);
+		game.redealDevelopmentCards(1);
+		int moves = MctsBot.makeChanges(state, game);
+		assertEquals(convert(game).getHash(), state.getHash());
+		for (; moves > 0; moves--)
+			state.unmake();
+		assertEquals(start, state.getHash());
+	}
+
+	@Test
+	public void everyThreadSearchesItsTree() {
+		GameEngine engine = startGame(3);
+		MctsBot bot = new MctsBot(0, 20, 2, 1 << 12);
+		Random random = new Random(3);
+		int decisions = 0;
+		for (int n = 0; n < 40 && !engine.isGameOver(); n++) {
+			int id = engine.getPlayersToAct().get(0).getId();
+			ArrayList<GameAction> actions = engine.getLegalActions(id);
+			GameAction action = bot.chooseAction(engine, actions, random);
+			assertTrue(actions.contains(action));
+			assertTrue(engine.apply(action, GameEventListener.NONE));
+			if (actions.size() > 1)
+				decisions++;
+		}
+		assertTrue(decisions > 0);
+		// One probe of the table per simulation
+		assertEquals(decisions * 2 * 20, bot.getTable().getProbes());
+	}
+
+	@Test
+	public void singleThreadSearchIsRepeatable() {
+		GameEngine first = startGame(4);
+		GameEngine second = startGame(4);
+		MctsBot firstBot = new MctsBot(0, 30, 1, 1 << 12);
+		MctsBot secondBot = new MctsBot(0, 30, 1, 1 << 12);
+		Random firstRandom = new Random(4);
+		Random secondRandom = new Random(4);
+		for (int n = 0; n < 40 && !first.isGameOver(); n++) {
+			int id = first.getPlayersToAct().get(0).getId();
+			GameAction action = firstBot.chooseAction(first, first.getLegalActions(id), firstRandom);
+			assertEquals(action.toString(),
+					secondBot.chooseAction(second, second.getLegalActions(id), secondRandom).toString());
+			assertTrue(first.apply(action, GameEventListener.NONE));
+			assertTrue(second.apply(action, GameEventListener.NONE));
+		}
+	}
+}
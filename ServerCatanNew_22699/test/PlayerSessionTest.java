@@ -0,0 +1,85 @@
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the outbox of a {@link PlayerSession} and of the messages sent
+ * again on a resume. The seats are held (no connection), the messages are
+ * kept like the ones sent to a held seat.
+ */
+public class PlayerSessionTest {
+
+	private static PlayerSession send(PlayerSession session, int from, int to) {
+		for (int n = from; n < to; n++)
+			session.record(EncodedFrame.encodeMessage("message " + n), null);
+		return session;
+	}
+
+	private static void assertMessages(List<EncodedFrame> frames, int from, int to) {
+		assertNotNull(frames);
+		assertEquals(to - from, frames.size());
+		for (int n = from; n < to; n++)
+			assertEquals("\"message " + n + "\"", frames.get(n - from).getLine());
+	}
+
+	@Test
+	public void tokensAreUnique() {
+		PlayerSession first = new PlayerSession(1, null, null);
+		PlayerSession second = new PlayerSession(1, null, null);
+		assertEquals(32, first.getToken().length());
+		assertFalse(first.getToken().equals(second.getToken()));
+	}
+
+	@Test
+	public void resumeGetsTheMissedMessagesInOrder() {
+		PlayerSession session = send(new PlayerSession(1, null, null), 0, 10);
+		assertMessages(session.getMissedFrames(7), 7, 10);
+		assertMessages(session.getMissedFrames(10), 10, 10);
+		assertMessages(session.getMissedFrames(0), 0, 10);
+	}
+
+	@Test
+	public void outboxKeepsTheLastMessages() {
+		int sent = PlayerSession.OUTBOX_SIZE + 100;
+		PlayerSession session = send(new PlayerSession(1, null, null), 0, sent);
+		assertMessages(session.getMissedFrames(100), 100, sent);
+		assertMessages(session.getMissedFrames(sent - 1), sent - 1, sent);
+	}
+
+	@Test
+	public void overwrittenMessagesCannotBeResumed() {
+		int sent = PlayerSession.OUTBOX_SIZE + 100;
+		PlayerSession session = send(new PlayerSession(1, null, null), 0, sent);
+		assertNull(session.getMissedFrames(99));
+		assertNull(session.getMissedFrames(0));
+	}
+
+	@Test
+	public void impossibleCountsAreRefused() {
+		PlayerSession session = send(new PlayerSession(1, null, null), 0, 10);
+		assertNull(session.getMissedFrames(11));
+		assertNull(session.getMissedFrames(-1));
+	}
+
+	@Test
+	public void recoveredSessionContinuesFromTheCountOfTheClient() {
+		PlayerSession session = new PlayerSession("token", 2, null);
+		// The messages sent before the restart are unknown
+		assertMessages(session.getMissedFrames(42), 0, 0);
+		send(session, 42, 45);
+		assertMessages(session.getMissedFrames(43), 43, 45);
+		assertNull(session.getMissedFrames(46));
+	}
+
+	@Test
+	public void gracePeriodOnlyEndsItsOwnDisconnection() {
+		PlayerSession session = new PlayerSession(1, null, null);
+		int first = session.detach(null);
+		int second = session.detach(null);
+		assertTrue(second > first);
+		assertFalse(session.isHeldSince(first));
+		assertTrue(session.isHeldSince(second));
+	}
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link TimerWheel}, with ticks of 10 ms and 8 buckets (a turn of
+ * the wheel takes 80 ms).
+ */
+public class TimerWheelTest {
+	private ScheduledExecutorService scheduler;
+	private TimerWheel wheel;
+
+	@Before
+	public void setUp() {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		wheel = new TimerWheel(10, 8, scheduler, Runnable::run);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void runsTaskAfterItsDelay() throws InterruptedException {
+		CountDownLatch run = new CountDownLatch(1);
+		long start = System.nanoTime();
+		wheel.schedule(run::countDown, 50);
+		assertTrue(run.await(2, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void longDelayWaitsForSeveralTurns() throws InterruptedException {
+		CountDownLatch run = new CountDownLatch(1);
+		long start = System.nanoTime();
+		wheel.schedule(run::countDown, 250);
+		assertFalse(run.await(150, TimeUnit.MILLISECONDS));
+		assertTrue(run.await(2, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 240);
+	}
+
+	@Test
+	public void runsEveryTaskOnce() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(100);
+		for (int i = 0; i < 100; i++) {
+			wheel.schedule(() -> {
+				runs.incrementAndGet();
+				done.countDown();
+			}, i * 3);
+		}
+		assertTrue(done.await(2, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(100, runs.get());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void cancelledTimeoutDoesNotRun() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		TimerWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 30);
+		CountDownLatch other = new CountDownLatch(1);
+		wheel.schedule(other::countDown, 30);
+		timeout.cancel();
+		assertTrue(timeout.isCancelled());
+		assertTrue(other.await(2, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(0, runs.get());
+		assertEquals(0, wheel.size());
+	}
+}
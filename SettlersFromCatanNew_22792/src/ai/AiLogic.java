@@ -4,22 +4,25 @@ import application.GameStart;
 import gameobjects.Elements.Street;
 import gameworld.HexagonField;
 import gameworld.WayPoint;
+import gameworld.World;
 import networking.ClientProtocol;
 import networking.MessageObjects.MaritimeTrade;
 import networking.MessageObjects.Resources;
 import player.Player;
 import resources.ResourcePointer;
+import tools.BoardTopology;
 import tools.BuildingType;
 import tools.EvolutionType;
 import tools.FieldType;
 import tools.PortTypes;
 import tools.ResourceType;
+import tools.WorldTranslation;
 
 import java.io.FileNotFoundException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
 
@@ -43,6 +46,10 @@ public class AiLogic {
      * A list of all the settlementWayPoints the AI has (used to speed up the performance)
      */
     private ArrayList<WayPoint> settlementWayPoints = new ArrayList<>();
+    /**
+     * The ports at our settlements, see {@link MaritimeTradePlanner#getPortBit(PortTypes)}
+     */
+    private int portMask;
     /**
      * A list of all the streets the AI has (used to speed up the performance)
      */
@@ -53,25 +60,19 @@ public class AiLogic {
      */
     private ArrayList<HexagonField> triedFieldsThief = new ArrayList<>();
     /**
-     * Maps every number to their dice probability. NOTE that 7 has here explicitly
-     * a probability of 0
+     * Expected income of the crossings of the current world, built when first
+     * needed
      */
-    private final HashMap<Integer, Double> numberToDiceProbability = new HashMap<>();
-
-    {
-        numberToDiceProbability.put(2, (1.0 / 36));
-        numberToDiceProbability.put(3, (2.0 / 36));
-        numberToDiceProbability.put(4, (3.0 / 36));
-        numberToDiceProbability.put(5, (4.0 / 36));
-        numberToDiceProbability.put(6, (5.0 / 36));
-        numberToDiceProbability.put(8, (5.0 / 36));
-        numberToDiceProbability.put(9, (4.0 / 36));
-        numberToDiceProbability.put(10, (3.0 / 36));
-        numberToDiceProbability.put(11, (2.0 / 36));
-        numberToDiceProbability.put(12, (1.0 / 36));
-        numberToDiceProbability.put(7, 0.0);
-
-    }
+    private BoardEvaluator evaluator;
+    /**
+     * Time to answer a domestic trade offer in milliseconds
+     */
+    private volatile long tradeBudget = TradeEvaluator.DEFAULT_BUDGET;
+    /**
+     * Victory points from which the AI does not trade with a player anymore
+     * (10 win)
+     */
+    private static final int NO_TRADE_POINTS = 8;
 
     /**
      * Constructor
@@ -145,6 +146,52 @@ public class AiLogic {
     	}
     }
 
+    /**
+     * Decides whether to accept a domestic trade offer, by how much closer it
+     * brings the AI to its next buildings.
+     *
+     * @param playerId The player offering the trade
+     * @param supply   The resources the player offers
+     * @param demand   The resources the player demands
+     * @return True, if the AI accepts the trade
+     */
+    public boolean acceptTradeOffer(int playerId, Resources supply, Resources demand) {
+        Player offeringPlayer = GameStart.siedlerVonCatan.findPlayerByID(playerId);
+        if (offeringPlayer == null || offeringPlayer.getVictoryPoints() >= NO_TRADE_POINTS)
+            return false;
+        int[] hand = {player.getNumberOfResource(ResourceType.WOOD), player.getNumberOfResource(ResourceType.LOAM),
+                player.getNumberOfResource(ResourceType.WOOL), player.getNumberOfResource(ResourceType.GRAIN),
+                player.getNumberOfResource(ResourceType.STONE)};
+        boolean accepted = new TradeEvaluator(getEvaluator()).accepts(hand, toHand(supply), toHand(demand));
+        GameStart.mainLogger.getLOGGER().fine("AI " + (accepted ? "accepts" : "declines") + " trade: " + supply + " for " + demand);
+        return accepted;
+    }
+
+    /**
+     * @return The resources indexed like a hand of the {@link TradeEvaluator}
+     */
+    private static int[] toHand(Resources resources) {
+        if (resources == null)
+            return new int[GameState.NUMBER_OF_RESOURCES];
+        return new int[]{valueOf(resources.getWood()), valueOf(resources.getLoam()), valueOf(resources.getWool()),
+                valueOf(resources.getGrain()), valueOf(resources.getStone())};
+    }
+
+    private static int valueOf(Integer amount) {
+        return amount == null ? 0 : amount;
+    }
+
+    public long getTradeBudget() {
+        return tradeBudget;
+    }
+
+    /**
+     * @param tradeBudget Time to answer a domestic trade offer in milliseconds
+     */
+    public void setTradeBudget(long tradeBudget) {
+        this.tradeBudget = tradeBudget;
+    }
+
     /**
      * Returns players from field with highest player count
      *
@@ -157,24 +204,32 @@ public class AiLogic {
 
         HexagonField field = null;
         int playerCount = -1;
+        // Prefer the field taking the most income from the others
+        double thiefScore = 0;
+        BoardEvaluator evaluator = getEvaluator();
         ArrayList<HexagonField> fields = GameStart.siedlerVonCatan.getGameWorld().getFields();
         for (HexagonField hexagonField : fields) {
             if (hexagonField.getFieldType() == FieldType.WATER || GameStart.siedlerVonCatan.getThief().getThiefPosition().isEqualTo(hexagonField.getPosition()))
                 continue;
-            if (hexagonField.getNeighbourWayPointsWithSettlements(player.getPlayerID()).size() > playerCount) {
-                playerCount = hexagonField.getNeighbourWayPointsWithSettlements(player.getPlayerID()).size();
+            double score = evaluator.getThiefScore(BoardEvaluator.getField(hexagonField));
+            int count = hexagonField.getNeighbourWayPointsWithSettlements(player.getPlayerID()).size();
+            if (score > thiefScore || (thiefScore == 0 && count > playerCount)) {
+                thiefScore = Math.max(score, 0);
+                playerCount = count;
                 field = hexagonField;
             }
         }
         int resourceCountMax = -1;
         double probability = -1;
         int resourceCountMin = 1000000;
+        double fieldProbability = field.getChipNumber() == null ? 0
+                : BoardEvaluator.getProbability(field.getChipNumber());
         for (WayPoint wp : field.getNeighbourWayPointsWithSettlements(player.getPlayerID())) {
             Player playerInField = GameStart.siedlerVonCatan.findPlayerByID(wp.getSettlement().getOwnerID());
             if (playerInField.getNumberOfResource(ResourceType.HIDDEN) >= resourceCountMax
-                    && numberToDiceProbability.get(field.getChipNumber()) > probability) {
+                    && fieldProbability > probability) {
                 playerWithHighestResources = playerInField;
-                probability = numberToDiceProbability.get(field.getChipNumber());
+                probability = fieldProbability;
             }
             if (playerInField.getNumberOfResource(ResourceType.HIDDEN) < resourceCountMin
                     && playerInField.getNumberOfResource(ResourceType.HIDDEN) != 0) {
@@ -276,26 +331,17 @@ public class AiLogic {
      * @return
      */
     private WayPoint getBestWaypointConsideringPorbabilities(ArrayList<WayPoint> wayPoints) {
-        GameStart.mainLogger.getLOGGER().fine(numberToDiceProbability.toString());
+        BoardEvaluator evaluator = getEvaluator();
         WayPoint currentBestWayPoint = null;
         double currentMaxScore = -1;
         for (WayPoint wp : wayPoints) {
-            // Calculate score.
-            double tempScore = 0;
-            // Each weaypoint has a max. of 3 neighbours (coast for instance has less)
-            for (HexagonField hexagon : wp.getFieldNeighbours()) {
-                GameStart.mainLogger.getLOGGER().fine(hexagon.getChipNumber().toString());
-                // Check if not water (water has no number)
-                if (hexagon.getChipNumber() != null && hexagon.getChipNumber() != 0)
-                    tempScore += numberToDiceProbability.get(hexagon.getChipNumber());
-            }
+            double tempScore = evaluator.getSettlementScore(wp.getVertex());
             if (currentMaxScore < tempScore) {
                 currentBestWayPoint = wp;
                 currentMaxScore = tempScore;
             }
-
-            GameStart.mainLogger.getLOGGER().fine(wp.toString() + " Score: " + currentMaxScore);
         }
+        GameStart.mainLogger.getLOGGER().fine(currentBestWayPoint + " Score: " + currentMaxScore);
         return currentBestWayPoint;
 
     }
@@ -381,11 +427,6 @@ public class AiLogic {
      * Tries to build a settlement in a good location
      */
     public WayPoint getWayPointToBuildSettlement() {
-        // No need to calculate anything if we surely do not have the resources to build
-        // a village
-        if (!hasResourcesToBuildVillage())
-            return null;
-        // Here we have resources to buy a village
         ArrayList<WayPoint> possibleWayPointsForVillage = getPossibleWayPointsForVillage();
         // Return if empty
         if (possibleWayPointsForVillage.size() == 0)
@@ -415,43 +456,14 @@ public class AiLogic {
 
     }
 
-    /**
-     * @return True, if we have enough resources to build a village.
-     */
-    private boolean hasResourcesToBuildVillage() {
-        GameStart.mainLogger.getLOGGER().fine(player.getResources().toString());
-        return player.getResources().get(ResourceType.WOOD) > 0 && player.getResources().get(ResourceType.LOAM) > 0
-                && player.getResources().get(ResourceType.GRAIN) > 0
-                && player.getResources().get(ResourceType.WOOL) > 0;
-    }
-
-    /**
-     * @return True, if we have enough resources to build a castle.
-     */
-    private boolean hasResourcesToBuildCastle() {
-        GameStart.mainLogger.getLOGGER().fine(player.getResources().toString());
-        return player.getResources().get(ResourceType.STONE) >= 3 && player.getResources().get(ResourceType.GRAIN) >= 2;
-    }
-
-    /**
-     * @return True, if we have enough resources to build a street.
-     */
-    private boolean hasResourcesToBuildStreet() {
-        GameStart.mainLogger.getLOGGER().fine("TRYING STREET: " + player.getResources().toString());
-        GameStart.mainLogger.getLOGGER().fine("TRYING STREET: " + (player.getResources().get(ResourceType.WOOD) > 0 && player.getResources().get(ResourceType.LOAM) > 0));
-
-        return player.getResources().get(ResourceType.WOOD) > 0 && player.getResources().get(ResourceType.LOAM) > 0;
-    }
-
     /**
      * Tries to find a good street to build
      *
      * @return
      */
     public WayPoint[] getStreetToBuild() {
-        // No need to calculate anything if we surely do not have the resources to build
-        // a village
-        if (!hasResourcesToBuildStreet())
+        // All streets have been built
+        if (player.getStreets().size() >= 15)
             return null;
         WayPoint[] bestWayPoints = null;
         HashSet<WayPoint> streetStartingPoints = new HashSet<>();
@@ -505,311 +517,6 @@ public class AiLogic {
         return bestWayPoints;
     }
 
-    /**
-     * Tries to trade if Ai doesn't have enough resources to build a street
-     *
-     * @return
-     */
-    public MaritimeTrade tradeCardsWithBankForStreet() {
-        // Ai does not trade if it has enough resources to build a street or has built all of its streets
-        if (hasResourcesToBuildStreet() && player.getStreets().size() >= 15)
-            return null;
-        Resources offerResource;
-        Resources requestResource;
-        // check if ai has to give only 3 of the same resources to the bank for a trade
-        int xToOne = 4;
-        if (hasAPort(PortTypes.THREE_FOR_ONE))
-            xToOne = 3;
-        // Ai tries to request loam if it does not have enough loam
-        if (player.getResources().get(ResourceType.LOAM) == 0) {
-            requestResource = new Resources(0, 1, 0, 0, 0, 0);
-            offerResource = swapXResourcesToBuildStreet(xToOne);
-        }
-        // Ai tries to request wood if it does not have enough wood
-        else {
-            requestResource = new Resources(1, 0, 0, 0, 0, 0);
-            offerResource = swapXResourcesToBuildStreet(xToOne);
-        }
-        // return null if ai does not have the resources to trade with the bank
-		if(offerResource == null) return null;
-		// otherwise return actual trade request
-		GameStart.mainLogger.getLOGGER().fine("AI: "+player.getName()+" trades resources for STREET");
-        GameStart.mainLogger.getLOGGER().fine(player.toString());
-		GameStart.mainLogger.getLOGGER().fine("offerResource: " +offerResource.toString());
-		GameStart.mainLogger.getLOGGER().fine("requestResource: " +requestResource.toString());
-		return new MaritimeTrade(offerResource, requestResource);
-	}
-
-    /**
-     * Checks if AI has a settlement in a port.
-     *
-     * @param portType The port type the AI is searching for.
-     * @return True if there is such a port.
-     */
-    private boolean hasAPort(PortTypes portType) {
-        for (WayPoint wp : settlementWayPoints) {
-            if (wp.getPortType().equals(portType)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Finds out which resource type the ai can trade away to build a street.
-     *
-     * @param x Simulates X:1 trade with bank. X stands for the number of cards
-     *          the ai has to give to the bank. 4 is the default number of cards
-     *          the ai gives away. 3 is the number of cards the ai can give away
-     *          if it has a settlement in a 3:1 port.
-     * @return
-     */
-    private Resources swapXResourcesToBuildStreet(int x) {
-        // try to do a two for one trade if there is such a port and if there is enough
-        // resources
-        if (tryATwoForOneTrade(PortTypes.TWO_STONE_FOR_ONE) != null)
-            return tryATwoForOneTrade(PortTypes.TWO_STONE_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_GRAIN_FOR_ONE) != null)
-            return tryATwoForOneTrade(PortTypes.TWO_GRAIN_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_WOOL_FOR_ONE) != null)
-            return tryATwoForOneTrade(PortTypes.TWO_WOOL_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_LOAM_FOR_ONE) != null
-                && player.getResources().get(ResourceType.LOAM) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_LOAM_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_WOOD_FOR_ONE) != null
-                && player.getResources().get(ResourceType.WOOD) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_WOOD_FOR_ONE);
-        else if (player.getResources().get(ResourceType.STONE) >= x) {
-            // AI trades STONE for LOAM if it has enough stone
-            return new Resources(0, 0, 0, 0, x, 0);
-        } else if (player.getResources().get(ResourceType.GRAIN) >= x) {
-            // AI trades GRAIN for LOAM if it has enough grain
-            return new Resources(0, 0, 0, x, 0, 0);
-        } else if (player.getResources().get(ResourceType.WOOL) >= x) {
-            // AI trades WOOL for LOAM if it has enough wool
-            return new Resources(0, 0, x, 0, 0, 0);
-        } else if (player.getResources().get(ResourceType.LOAM) > x) {
-            // AI trades LOAM for WOOD if it has enough loam
-            return new Resources(0, x, 0, 0, 0, 0);
-        } else if (player.getResources().get(ResourceType.WOOD) > x) {
-            // AI trades WOOD for LOAM if it has enough wood
-            return new Resources(x, 0, 0, 0, 0, 0);
-        } else
-            // return null if AI doesnt have enough resources to trade
-            return null;
-    }
-
-    /**
-     * AI tries a two for one trade if it has enough resources and the specified
-     * port.
-     *
-     * @param port Port AI wants to trade with.
-     * @return Resources AI wants to give to the bank.
-     */
-    private Resources tryATwoForOneTrade(PortTypes port) {
-        switch (port) {
-            case TWO_WOOD_FOR_ONE:
-                if (hasAPort(PortTypes.TWO_WOOD_FOR_ONE) && player.getResources().get(ResourceType.WOOD) >= 2)
-                    return new Resources(2, 0, 0, 0, 0, 0);
-                else
-                    return null;
-            case TWO_LOAM_FOR_ONE:
-                if (hasAPort(PortTypes.TWO_LOAM_FOR_ONE) && player.getResources().get(ResourceType.LOAM) >= 2)
-                    return new Resources(0, 2, 0, 0, 0, 0);
-                else
-                    return null;
-            case TWO_WOOL_FOR_ONE:
-                if (hasAPort(PortTypes.TWO_WOOL_FOR_ONE) && player.getResources().get(ResourceType.WOOL) >= 2)
-                    return new Resources(0, 0, 2, 0, 0, 0);
-                else
-                    return null;
-            case TWO_GRAIN_FOR_ONE:
-                if (hasAPort(PortTypes.TWO_GRAIN_FOR_ONE) && player.getResources().get(ResourceType.GRAIN) >= 2)
-                    return new Resources(0, 0, 0, 2, 0, 0);
-                else
-                    return null;
-            case TWO_STONE_FOR_ONE:
-                if (hasAPort(PortTypes.TWO_STONE_FOR_ONE) && player.getResources().get(ResourceType.STONE) >= 2)
-                    return new Resources(0, 0, 0, 0, 2, 0);
-                else
-                    return null;
-            default:
-                return null;
-        }
-    }
-
-    /**
-     * Tries to trade if AI doesn't have enough resources to build a village.
-     *
-     * @return
-     */
-    public MaritimeTrade tradeCardsWithBankForVillage() {
-        // Ai does not trade if it has enough resources to build a village
-        if (hasResourcesToBuildVillage())
-            return null;
-        Resources offerResource;
-        Resources requestResource;
-        // check if ai has to give only 3 of the same resources to the bank for a trade
-        int xToOne = 4;
-        if (hasAPort(PortTypes.THREE_FOR_ONE))
-            xToOne = 3;
-        // Ai tries to request loam if it does not have enough loam
-        if (player.getResources().get(ResourceType.LOAM) == 0) {
-            requestResource = new Resources(0, 1, 0, 0, 0, 0);
-            offerResource = swapXResourcesToBuildVillage(xToOne);
-        }
-        // Ai tries to request wood if it does not have enough wood
-        else if (player.getResources().get(ResourceType.WOOD) == 0) {
-            requestResource = new Resources(1, 0, 0, 0, 0, 0);
-            offerResource = swapXResourcesToBuildVillage(xToOne);
-        }
-        // Ai tries to request wool if it does not have enough wool
-        else if (player.getResources().get(ResourceType.WOOL) == 0) {
-            requestResource = new Resources(0, 0, 1, 0, 0, 0);
-            offerResource = swapXResourcesToBuildVillage(xToOne);
-        }
-        // Ai tries to request grain if it does not have enough grain
-        else {
-            requestResource = new Resources(0, 0, 0, 1, 0, 0);
-            offerResource = swapXResourcesToBuildVillage(xToOne);
-        }
-        // return null if ai does not have the resources to trade with the bank
-        if (offerResource == null) return null;
-        // otherwise return actual trade request
-        GameStart.mainLogger.getLOGGER().fine("AI: "+player.getName()+" trades resources for VILLAGE");
-        GameStart.mainLogger.getLOGGER().fine(player.toString());
-		GameStart.mainLogger.getLOGGER().fine("offerResource: " +offerResource.toString());
-		GameStart.mainLogger.getLOGGER().fine("requestResource: " +requestResource.toString());
-		return new MaritimeTrade(offerResource, requestResource);
-	}
-
-    /**
-     * Finds out which resource type the AI can trade away to build a village.
-     *
-     * @param x Simulates X:1 trade with bank. X stands for the number of cards
-     *          the AI has to give to the bank. 4 is the default number of cards
-     *          the AI gives away. 3 is the number of cards the AI can give away
-     *          if it has a settlement in a 3:1 port.
-     * @return
-     */
-    private Resources swapXResourcesToBuildVillage(int x) {
-        // try to do a two for one trade if there is such a port and if there is enough
-        // resources
-        if (tryATwoForOneTrade(PortTypes.TWO_STONE_FOR_ONE) != null)
-            return tryATwoForOneTrade(PortTypes.TWO_STONE_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_GRAIN_FOR_ONE) != null
-                && player.getResources().get(ResourceType.GRAIN) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_GRAIN_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_WOOL_FOR_ONE) != null
-                && player.getResources().get(ResourceType.WOOL) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_WOOL_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_LOAM_FOR_ONE) != null
-                && player.getResources().get(ResourceType.LOAM) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_LOAM_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_WOOD_FOR_ONE) != null
-                && player.getResources().get(ResourceType.WOOD) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_WOOD_FOR_ONE);
-        else if (player.getResources().get(ResourceType.STONE) >= x) {
-            // AI trades STONE for LOAM if it has enough stone
-            return new Resources(0, 0, 0, 0, x, 0);
-        } else if (player.getResources().get(ResourceType.GRAIN) > x) {
-            // AI trades GRAIN for LOAM if it has enough grain
-            return new Resources(0, 0, 0, x, 0, 0);
-        } else if (player.getResources().get(ResourceType.WOOL) > x) {
-            // AI trades WOOL for LOAM if it has enough wool
-            return new Resources(0, 0, x, 0, 0, 0);
-        } else if (player.getResources().get(ResourceType.LOAM) > x) {
-            // AI trades LOAM for WOOD if it has enough loam
-            return new Resources(0, x, 0, 0, 0, 0);
-        } else if (player.getResources().get(ResourceType.WOOD) > x) {
-            // AI trades WOOD for LOAM if it has enough wood
-            return new Resources(x, 0, 0, 0, 0, 0);
-        } // return null if ai does not have enough resources
-        else
-            return null;
-    }
-
-    /**
-     * Tries to trade if AI doesn't have enough resources to build a castle
-     *
-     * @return
-     */
-    public MaritimeTrade tradeCardsWithBankForCastle() {
-        if (hasResourcesToBuildCastle())
-            return null;
-        Resources offerResource;
-        Resources requestResource;
-        // check if ai has to give only 3 of the same resources to the bank for a trade
-        int xToOne = 4;
-        if (hasAPort(PortTypes.THREE_FOR_ONE))
-            xToOne = 3;
-        // Ai tries to request stone if it only needs one stone to build a castle
-        if (player.getResources().get(ResourceType.STONE) < 3) {
-            requestResource = new Resources(0, 0, 0, 0, 1, 0);
-            offerResource = swapXResourcesToBuildCastle(xToOne);
-        }
-        // Ai tries to request grain if it only needs one grain to build a castle
-        else {
-            requestResource = new Resources(0, 0, 0, 1, 0, 0);
-            offerResource = swapXResourcesToBuildCastle(xToOne);
-        }
-        // return null if ai does not have the resources to trade with the bank
-        if (offerResource == null) return null;
-        // otherwise return actual trade request
-        GameStart.mainLogger.getLOGGER().fine("AI: "+player.getName()+" trades resources for a castle");
-        GameStart.mainLogger.getLOGGER().fine(player.toString());
-		GameStart.mainLogger.getLOGGER().fine("offerResource: " +offerResource.toString());
-		GameStart.mainLogger.getLOGGER().fine("requestResource: " +requestResource.toString());
-		return new MaritimeTrade(offerResource, requestResource);
-	}
-
-    /**
-     * Finds out which resource type the AI can trade away to build a castle.
-     *
-     * @param x Simulates X:1 trade with bank. X stands for the number of cards
-     *          the AI has to give to the bank. 4 is the default number of cards
-     *          the AI gives away. 3 is the number of cards the AI can give away
-     *          if it has a settlement in a 3:1 port.
-     * @return
-     */
-    private Resources swapXResourcesToBuildCastle(int x) {
-        // try to do a two for one trade if there is such a port and if there is enough
-        // resources
-        if (tryATwoForOneTrade(PortTypes.TWO_STONE_FOR_ONE) != null
-                && player.getResources().get(ResourceType.STONE) > 2 + 3)
-            return tryATwoForOneTrade(PortTypes.TWO_STONE_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_GRAIN_FOR_ONE) != null
-                && player.getResources().get(ResourceType.GRAIN) > 2 + 2)
-            return tryATwoForOneTrade(PortTypes.TWO_GRAIN_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_WOOL_FOR_ONE) != null
-                && player.getResources().get(ResourceType.WOOL) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_WOOL_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_LOAM_FOR_ONE) != null
-                && player.getResources().get(ResourceType.LOAM) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_LOAM_FOR_ONE);
-        else if (tryATwoForOneTrade(PortTypes.TWO_WOOD_FOR_ONE) != null
-                && player.getResources().get(ResourceType.WOOD) > 2)
-            return tryATwoForOneTrade(PortTypes.TWO_WOOD_FOR_ONE);
-        if (player.getResources().get(ResourceType.STONE) > x + 3) {
-            // AI trades STONE if it has enough stone
-            return new Resources(0, 0, 0, 0, x, 0);
-        } else if (player.getResources().get(ResourceType.GRAIN) > x + 2) {
-            // AI trades GRAIN if it has enough grain
-            return new Resources(0, 0, 0, x, 0, 0);
-        } else if (player.getResources().get(ResourceType.WOOL) > x) {
-            // AI trades WOOL if it has enough wool
-            return new Resources(0, 0, x, 0, 0, 0);
-        } else if (player.getResources().get(ResourceType.LOAM) > x) {
-            // AI trades LOAM if it has enough loam
-            return new Resources(0, x, 0, 0, 0, 0);
-        } else if (player.getResources().get(ResourceType.WOOD) > x) {
-            // AI trades WOOD if it has enough wood
-            return new Resources(x, 0, 0, 0, 0, 0);
-        } // return null if ai does not have enough resources
-        else
-            return null;
-    }
-
     /**
      * Tries to play a development card
      */
@@ -940,23 +647,18 @@ public class AiLogic {
     }
 
     /**
-     * Tries to buy a development card
-     *
-     * @return True if we can buy a card
-     */
-    public boolean tryBuyingDevelopmentCard() {
-        return hasResourcesToBuyDevelopmentCard();
-    }
-
-    /**
-     * Returns if AI has enough resources to buy development card.
+     * Plans the trades with the bank and our ports needed to pay the costs of
+     * a building.
      *
-     * @return True, if we have enough resources to a development card.
+     * @param costs The costs, see {@link MaritimeTradePlanner}
+     * @return The trades to send before the building, empty if we have the
+     * resources, null if we cannot get them
      */
-    private boolean hasResourcesToBuyDevelopmentCard() {
-        GameStart.mainLogger.getLOGGER().fine(player.getResources().toString());
-        return player.getResources().get(ResourceType.WOOL) > 0 && player.getResources().get(ResourceType.GRAIN) > 0
-                && player.getResources().get(ResourceType.STONE) > 0;
+    public List<MaritimeTrade> planMaritimeTrades(int[] costs) {
+        int[] hand = {player.getNumberOfResource(ResourceType.WOOD), player.getNumberOfResource(ResourceType.LOAM),
+                player.getNumberOfResource(ResourceType.WOOL), player.getNumberOfResource(ResourceType.GRAIN),
+                player.getNumberOfResource(ResourceType.STONE)};
+        return MaritimeTradePlanner.plan(hand, costs, portMask);
     }
 
     /**
@@ -965,15 +667,17 @@ public class AiLogic {
      * @return A way point to upgrade to a castle
      */
     public WayPoint getWayPointToBuildCastle() {
-        GameStart.mainLogger.getLOGGER().fine("CONSTRUCTION: " + player.getResources());
-        if (!hasResourcesToBuildCastle())
-            return null;
-        ArrayList<WayPoint> wpToUpgrate = new ArrayList<>();
+        BoardEvaluator evaluator = getEvaluator();
+        WayPoint wpToUpgrate = null;
+        double maxScore = -1;
         for (WayPoint wp : settlementWayPoints) {
-            if (wp.getSettlement().getBuildingType() == BuildingType.VILLAGE)
-                wpToUpgrate.add(wp);
+            if (wp.getSettlement().getBuildingType() == BuildingType.VILLAGE
+                    && evaluator.getCityScore(wp.getVertex()) > maxScore) {
+                wpToUpgrate = wp;
+                maxScore = evaluator.getCityScore(wp.getVertex());
+            }
         }
-        return getBestWaypointConsideringPorbabilities(wpToUpgrate);
+        return wpToUpgrate;
     }
 
     /**
@@ -1010,6 +714,16 @@ public class AiLogic {
         return settlementWayPoints;
     }
 
+    /**
+     * Adds a wayPoint we have built a village on.
+     *
+     * @param wayPoint The wayPoint of the village
+     */
+    public void addSettlementWayPoint(WayPoint wayPoint) {
+        settlementWayPoints.add(wayPoint);
+        portMask |= MaritimeTradePlanner.getPortBit(wayPoint.getPortType());
+    }
+
     /**
      * gets array of streets
      *
@@ -1018,4 +732,21 @@ public class AiLogic {
     public ArrayList<Street> getStreets() {
         return streets;
     }
+
+    /**
+     * Returns the evaluator of the board, built from the current world when
+     * first needed or when a new world has been created.
+     *
+     * @return the evaluator of the board
+     */
+    public synchronized BoardEvaluator getEvaluator() {
+        World world = GameStart.siedlerVonCatan.getGameWorld();
+        if (evaluator == null || evaluator.getWorld() != world) {
+            String thief = WorldTranslation
+                    .getPositionToLetter(GameStart.siedlerVonCatan.getThief().getThiefPosition());
+            evaluator = new BoardEvaluator(world, player.getPlayerID(),
+                    thief.isEmpty() ? -1 : BoardTopology.getField(thief.charAt(0)));
+        }
+        return evaluator;
+    }
 }
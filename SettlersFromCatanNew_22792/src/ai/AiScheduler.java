@@ -0,0 +1,262 @@
+package ai;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs the decisions of an AI on a thread of its own, so the thread reading
+ * the messages of the server is never blocked by the AI. The messages of its
+ * connection change the game on the same thread (see {@link #execute(Runnable)}),
+ * so they never change it during a decision. In single player the clients in
+ * the same JVM share one game, which the other AIs and the player still change
+ * on their own threads.
+ *
+ * Every decision has a deadline. If it has a fallback (a quick answer) and is
+ * not ready in time, it is interrupted and the fallback is sent instead. The
+ * fallback is given when the decision is submitted and its answer is sent
+ * from the thread of the deadlines, so it must only send. A decision without
+ * a fallback is always answered, a late answer is counted. Once the server
+ * changes the state of the player, the pending decisions are cancelled (see
+ * {@link #cancelPending()}), their answers are not sent.
+ *
+ * The time of every decision until it is answered is recorded in a
+ * {@link LatencyHistogram} of its kind.
+ */
+public class AiScheduler {
+	/**
+	 * Time of a decision in milliseconds if not given
+	 */
+	public static final long DEFAULT_BUDGET = 1000;
+	/**
+	 * Fires the deadlines of all AIs of the JVM, the actions of the fallbacks
+	 * run on it and must be quick
+	 */
+	private static final ScheduledExecutorService DEADLINES = Executors
+			.newSingleThreadScheduledExecutor(daemon("AI deadlines"));
+
+	private final ExecutorService executor;
+	/**
+	 * Incremented whenever the pending decisions are cancelled
+	 */
+	private final AtomicInteger state = new AtomicInteger();
+	private final Set<Decision> pending = ConcurrentHashMap.newKeySet();
+	private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder lateAnswers = new LongAdder();
+	private final LongAdder cancellations = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+
+	/**
+	 * A decision submitted and not answered yet
+	 */
+	private static final class Decision {
+		private final String kind;
+		private final int state;
+		private final long start = System.nanoTime();
+		/**
+		 * Set by the first of the decision, its deadline or a cancellation
+		 */
+		private final AtomicBoolean answered = new AtomicBoolean();
+		private volatile Future<?> task;
+		private volatile Future<?> deadline;
+
+		private Decision(String kind, int state) {
+			this.kind = kind;
+			this.state = state;
+		}
+
+		private boolean claim() {
+			return answered.compareAndSet(false, true);
+		}
+	}
+
+	/**
+	 * @param name
+	 *            name of the thread of the AI
+	 */
+	public AiScheduler(String name) {
+		this.executor = Executors.newSingleThreadExecutor(daemon(name));
+	}
+
+	private static ThreadFactory daemon(String name) {
+		return runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Changes the game on the thread of the AI, after the decisions submitted
+	 * before. Returns at once.
+	 *
+	 * @param update
+	 *            handles a message of the server
+	 */
+	public void execute(Runnable update) {
+		try {
+			executor.execute(() -> {
+				try {
+					update.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+					failures.increment();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// The connection is closed
+		}
+	}
+
+	/**
+	 * Makes a decision on the thread of the AI and hands its answer to the
+	 * action, on the thread of the AI too. Returns at once.
+	 *
+	 * @param kind
+	 *            kind of the decision, the latencies are recorded per kind
+	 * @param budget
+	 *            time of the decision in milliseconds
+	 * @param decision
+	 *            computes the answer, null for nothing to do
+	 * @param fallback
+	 *            quick answer if the decision fails or misses its deadline,
+	 *            null to wait for the decision. The action of the fallback
+	 *            after the deadline runs on the thread of the deadlines
+	 * @param action
+	 *            sends the answer, not called if the decision is cancelled
+	 */
+	public <T> void decide(String kind, long budget, Callable<T> decision, T fallback, Consumer<T> action) {
+		Decision submitted = new Decision(kind, state.get());
+		pending.add(submitted);
+		submitted.task = executor.submit(() -> {
+			T answer;
+			try {
+				answer = decision.call();
+			} catch (Exception e) {
+				// Interrupted after its deadline or a cancellation
+				if (submitted.answered.get())
+					return;
+				e.printStackTrace();
+				failures.increment();
+				answer = fallback;
+			}
+			if (submitted.claim()) {
+				Future<?> deadline = submitted.deadline;
+				if (deadline != null)
+					deadline.cancel(false);
+				if (System.nanoTime() - submitted.start > TimeUnit.MILLISECONDS.toNanos(budget))
+					lateAnswers.increment();
+				answer(submitted, answer, action);
+			}
+		});
+		if (fallback != null) {
+			submitted.deadline = DEADLINES.schedule(() -> {
+				if (!submitted.claim())
+					return;
+				timeouts.increment();
+				submitted.task.cancel(true);
+				answer(submitted, fallback, action);
+			}, budget, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private <T> void answer(Decision decision, T answer, Consumer<T> action) {
+		pending.remove(decision);
+		if (decision.state != state.get()) {
+			cancellations.increment();
+			return;
+		}
+		latencies.computeIfAbsent(decision.kind, kind -> new LatencyHistogram())
+				.record(System.nanoTime() - decision.start);
+		if (answer == null)
+			return;
+		try {
+			action.accept(answer);
+		} catch (Exception e) {
+			e.printStackTrace();
+			failures.increment();
+		}
+	}
+
+	/**
+	 * Cancels the decisions not answered yet, called when the server has
+	 * changed the state of the player. Running decisions are interrupted,
+	 * the ones waiting for the thread are dropped.
+	 */
+	public void cancelPending() {
+		state.incrementAndGet();
+		for (Decision decision : pending) {
+			if (!decision.claim())
+				continue;
+			pending.remove(decision);
+			cancellations.increment();
+			Future<?> deadline = decision.deadline;
+			if (deadline != null)
+				deadline.cancel(false);
+			Future<?> task = decision.task;
+			if (task != null)
+				task.cancel(true);
+		}
+	}
+
+	/**
+	 * Cancels the pending decisions and stops the thread of the AI.
+	 */
+	public void shutdown() {
+		cancelPending();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the latencies of every kind of decision
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * @return the number of decisions answered by their fallback in time
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * @return the number of decisions without a fallback answered late
+	 */
+	public long getLateAnswers() {
+		return lateAnswers.sum();
+	}
+
+	public long getCancellations() {
+		return cancellations.sum();
+	}
+
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("AI decisions: ").append(getTimeouts()).append(" timeouts, ").append(getLateAnswers())
+				.append(" late, ").append(getCancellations()).append(" cancelled, ").append(getFailures())
+				.append(" failed");
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet())
+			builder.append("\n").append(entry.getKey()).append(": ").append(entry.getValue());
+		return builder.toString();
+	}
+}
@@ -0,0 +1,277 @@
+package ai;
+
+import gameobjects.Elements.Settlement;
+import gameworld.HexagonField;
+import gameworld.WayPoint;
+import gameworld.World;
+import tools.BoardTopology;
+import tools.BuildingType;
+import tools.FieldType;
+import tools.WorldTranslation;
+
+/**
+ * Rates the board for an AI by the expected income of its crossings. The
+ * income of a field is the probability of its dice number (see
+ * {@link #getProbability(int)}), a field with the thief yields nothing.
+ *
+ * The income of every crossing per resource is computed once from the world
+ * and updated when the thief moves or a building is built, so every score is
+ * a lookup. It is updated and read on the thread of the AI (see
+ * {@link AiScheduler}), so it needs no synchronization.
+ */
+public final class BoardEvaluator {
+	/**
+	 * Number of the 36 rolls of two dice giving a number, 7 yields nothing
+	 */
+	private static final int[] PIPS = { 0, 0, 1, 2, 3, 4, 5, 0, 5, 4, 3, 2, 1 };
+	private static final int NUMBER_OF_RESOURCES = GameState.NUMBER_OF_RESOURCES;
+
+	private final int playerId;
+	private final World world;
+
+	private final int[] resourceOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+	private final double[] probabilityOfField = new double[BoardTopology.NUMBER_OF_FIELDS];
+	private int thief = -1;
+
+	// Expected income per roll of every resource of every crossing, without
+	// the field of the thief
+	private final double[] incomeOfVertex = new double[BoardTopology.NUMBER_OF_VERTICES * NUMBER_OF_RESOURCES];
+	private final double[] totalIncomeOfVertex = new double[BoardTopology.NUMBER_OF_VERTICES];
+
+	private final Integer[] ownerOfVertex = new Integer[BoardTopology.NUMBER_OF_VERTICES];
+	private final BuildingType[] buildingOfVertex = new BuildingType[BoardTopology.NUMBER_OF_VERTICES];
+	// Resources per roll of the buildings (castles count twice) of the AI and
+	// of the others on every field
+	private final int[] ownAmountOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+	private final int[] otherAmountOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+	private final double[] production = new double[NUMBER_OF_RESOURCES];
+
+	/**
+	 * Reads the fields and buildings of the world.
+	 *
+	 * @param world
+	 *            the world of the game, its fields must have been defined
+	 * @param playerId
+	 *            the player of the AI
+	 * @param thief
+	 *            the field of the thief, -1 if it is not on the board
+	 */
+	public BoardEvaluator(World world, int playerId, int thief) {
+		this.world = world;
+		this.playerId = playerId;
+		this.thief = thief;
+		for (int field = 0; field < BoardTopology.NUMBER_OF_FIELDS; field++)
+			resourceOfField[field] = GameState.NO_RESOURCE;
+		for (HexagonField hexagonField : world.getFields()) {
+			int field = getField(hexagonField);
+			if (field < 0)
+				continue;
+			resourceOfField[field] = getResource(hexagonField.getFieldType());
+			Integer number = hexagonField.getChipNumber();
+			if (resourceOfField[field] != GameState.NO_RESOURCE && number != null)
+				probabilityOfField[field] = getProbability(number);
+		}
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			buildingOfVertex[vertex] = BuildingType.NONE;
+			computeIncome(vertex);
+			WayPoint wayPoint = world.getWayPoint(vertex);
+			Settlement settlement = wayPoint == null ? null : wayPoint.getSettlement();
+			if (settlement != null && settlement.getOwnerID() != null)
+				onBuilding(vertex, settlement.getOwnerID(), settlement.getBuildingType());
+		}
+	}
+
+	/**
+	 * @return the probability of a dice number to be rolled with two dice, 0
+	 *         for 7 and numbers outside 2 to 12
+	 */
+	public static double getProbability(int number) {
+		return number < 0 || number >= PIPS.length ? 0 : PIPS[number] / 36.0;
+	}
+
+	/**
+	 * @return the id of a field in {@link BoardTopology}, -1 if it is none
+	 */
+	public static int getField(HexagonField hexagonField) {
+		String letter = WorldTranslation.getPositionToLetter(hexagonField.getPosition().castTo2D());
+		return letter.isEmpty() ? -1 : BoardTopology.getField(letter.charAt(0));
+	}
+
+	private static int getResource(FieldType type) {
+		if (type == null)
+			return GameState.NO_RESOURCE;
+		switch (type) {
+		case WOOD:
+			return GameState.WOOD;
+		case LOAM:
+			return GameState.LOAM;
+		case WOOL:
+			return GameState.WOOL;
+		case GRAIN:
+			return GameState.GRAIN;
+		case STONE:
+			return GameState.STONE;
+		default:
+			return GameState.NO_RESOURCE;
+		}
+	}
+
+	private void computeIncome(int vertex) {
+		int offset = vertex * NUMBER_OF_RESOURCES;
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+			incomeOfVertex[offset + type] = 0;
+		double total = 0;
+		for (int field : BoardTopology.getFieldsOfVertex(vertex)) {
+			if (field == thief || resourceOfField[field] == GameState.NO_RESOURCE)
+				continue;
+			incomeOfVertex[offset + resourceOfField[field]] += probabilityOfField[field];
+			total += probabilityOfField[field];
+		}
+		totalIncomeOfVertex[vertex] = total;
+	}
+
+	// Updates
+
+	/**
+	 * Moves the thief, the income of the crossings of its old and new field
+	 * changes.
+	 *
+	 * @param field
+	 *            the new field of the thief, -1 if it is not on the board
+	 */
+	public synchronized void onThiefMoved(int field) {
+		if (field == thief)
+			return;
+		int oldThief = thief;
+		thief = field;
+		updateField(oldThief);
+		updateField(field);
+	}
+
+	private void updateField(int field) {
+		if (field < 0)
+			return;
+		int resource = resourceOfField[field];
+		if (resource != GameState.NO_RESOURCE)
+			production[resource] += (field == thief ? -1 : 1) * ownAmountOfField[field] * probabilityOfField[field];
+		for (int vertex : BoardTopology.getVerticesOfField(field))
+			computeIncome(vertex);
+	}
+
+	/**
+	 * Adds a village or castle, a castle replaces the village of the crossing.
+	 * Streets are ignored.
+	 *
+	 * @param vertex
+	 *            the crossing, ignored if -1
+	 */
+	public synchronized void onBuilding(int vertex, int ownerId, BuildingType type) {
+		if (vertex < 0 || (type != BuildingType.VILLAGE && type != BuildingType.CASTLE))
+			return;
+		int amount = getAmount(type) - (ownerOfVertex[vertex] == null ? 0 : getAmount(buildingOfVertex[vertex]));
+		ownerOfVertex[vertex] = ownerId;
+		buildingOfVertex[vertex] = type;
+		boolean own = ownerId == playerId;
+		for (int field : BoardTopology.getFieldsOfVertex(vertex)) {
+			if (own)
+				ownAmountOfField[field] += amount;
+			else
+				otherAmountOfField[field] += amount;
+		}
+		if (own) {
+			int offset = vertex * NUMBER_OF_RESOURCES;
+			for (int resource = 0; resource < NUMBER_OF_RESOURCES; resource++)
+				production[resource] += amount * incomeOfVertex[offset + resource];
+		}
+	}
+
+	private static int getAmount(BuildingType type) {
+		return type == BuildingType.CASTLE ? 2 : type == BuildingType.VILLAGE ? 1 : 0;
+	}
+
+	// Scores
+
+	/**
+	 * @param vertex
+	 *            the crossing, -1 rates 0
+	 * @return the expected resources per roll of a village on the crossing
+	 */
+	public synchronized double getSettlementScore(int vertex) {
+		return vertex < 0 ? 0 : totalIncomeOfVertex[vertex];
+	}
+
+	/**
+	 * @param vertex
+	 *            the crossing of a village, -1 rates 0
+	 * @return the expected resources per roll a castle adds to the village
+	 */
+	public synchronized double getCityScore(int vertex) {
+		return getSettlementScore(vertex);
+	}
+
+	/**
+	 * @param edge
+	 *            the edge of the street, -1 rates 0
+	 * @return the best settlement score of the free ends of the street, a
+	 *         crossing is free if neither it nor a neighbour has a building
+	 */
+	public synchronized double getRoadScore(int edge) {
+		if (edge < 0)
+			return 0;
+		double score = 0;
+		for (int vertex : BoardTopology.getVerticesOfEdge(edge)) {
+			if (isFree(vertex))
+				score = Math.max(score, totalIncomeOfVertex[vertex]);
+		}
+		return score;
+	}
+
+	private boolean isFree(int vertex) {
+		if (ownerOfVertex[vertex] != null)
+			return false;
+		for (int neighbour : BoardTopology.getNeighboursOfVertex(vertex)) {
+			if (ownerOfVertex[neighbour] != null)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param field
+	 *            the field, -1 rates 0
+	 * @return the resources per roll the thief on the field takes from the
+	 *         other players minus the ones it takes from the AI
+	 */
+	public synchronized double getThiefScore(int field) {
+		if (field < 0 || resourceOfField[field] == GameState.NO_RESOURCE)
+			return 0;
+		return probabilityOfField[field] * (otherAmountOfField[field] - ownAmountOfField[field]);
+	}
+
+	/**
+	 * @return the expected amount of a resource per roll of a village on the
+	 *         crossing
+	 */
+	public synchronized double getIncome(int vertex, int resource) {
+		return incomeOfVertex[vertex * NUMBER_OF_RESOURCES + resource];
+	}
+
+	/**
+	 * @return the expected amount of a resource per roll of all buildings of
+	 *         the AI
+	 */
+	public synchronized double getProduction(int resource) {
+		return production[resource];
+	}
+
+	public synchronized int getThief() {
+		return thief;
+	}
+
+	/**
+	 * @return the world the evaluator has been built from
+	 */
+	public World getWorld() {
+		return world;
+	}
+}
@@ -0,0 +1,784 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import gameobjects.Elements.Street;
+import gameplay.SiedlerVonCatan;
+import gameworld.HexagonField;
+import gameworld.WayPoint;
+import networking.MessageObjects.DevelopmentCards;
+import networking.MessageObjects.Field;
+import networking.MessageObjects.Map;
+import networking.MessageObjects.PlayerForProtocol;
+import networking.MessageObjects.Resources;
+import player.Player;
+import tools.BoardIndex;
+import tools.BoardTopology;
+import tools.BuildingType;
+import tools.EvolutionType;
+import tools.FieldType;
+import tools.ResourceType;
+import tools.WorldTranslation;
+
+/**
+ * The state of a game in flat arrays, for searches which copy and change it
+ * many times: resources, development cards and victory points of every
+ * player, the buildings on the crossings and edges of {@link BoardTopology},
+ * the thief, the bank and the stack of development cards. Players are
+ * identified by their seat (index in the player list of the game).
+ *
+ * Moves are encoded in an int (see the static factory methods) and applied
+ * with {@link #make(int)}, {@link #unmake()} takes back the last one. Every
+ * move changes one part of the state, an action of the game is made of
+ * several (e.g. a settlement and the resources paid for it, the resources of
+ * every player after a dice roll). Moves are not checked, the outcome of
+ * random events is part of them. Every move updates the Zobrist hash of
+ * the state (see {@link #getHash()}). Neither copies nor moves allocate,
+ * except when the undo stack has to grow. The longest road and the largest
+ * army are not recomputed, their points stay with the players who had them.
+ */
+public final class GameState {
+	// Columns of the resources of a player, in the order of the protocol
+	public static final int WOOD = 0, LOAM = 1, WOOL = 2, GRAIN = 3, STONE = 4;
+	// Columns of the development cards of a player
+	public static final int KNIGHT = 0, ROAD_BUILDING = 1, MONOPOLY = 2, YEAR_OF_PLENTY = 3, VICTORY_POINT = 4;
+	/**
+	 * Column of the resources or development cards of an unknown type
+	 */
+	public static final int HIDDEN = 5;
+	public static final int NUMBER_OF_RESOURCES = 5;
+	public static final int NUMBER_OF_CARD_TYPES = 5;
+	public static final int NO_PLAYER = -1;
+	public static final int NO_RESOURCE = 0xFF;
+	// Buildings of a crossing
+	public static final byte NONE = 0, VILLAGE = 1, CASTLE = 2;
+
+	// Kinds of moves
+	public static final int STREET = 1, SETTLEMENT = 2, CITY = 3, THIEF = 4, KNIGHT_CARD = 5, RESOURCES = 6,
+			DEVELOPMENT_CARDS = 7, PLAY_CARD = 8, TURN = 9;
+
+	private static final int COLUMNS = 6;
+	private static final int[] STACK = { 14, 2, 2, 2, 5 };
+	private static final int RESOURCES_PER_TYPE = 19;
+
+	private final int numberOfPlayers;
+	/**
+	 * Id of the player of every seat
+	 */
+	private final int[] playerIds;
+	/**
+	 * Resources of every seat (seat * 6 + column)
+	 */
+	private final int[] resources;
+	/**
+	 * Development cards of every seat (seat * 6 + column)
+	 */
+	private final int[] developmentCards;
+	/**
+	 * Victory points without the victory point cards
+	 */
+	private final int[] victoryPoints;
+	private final int[] knights;
+	/**
+	 * Streets, settlements and cities left to build of every seat (seat * 3 +
+	 * index)
+	 */
+	private final int[] buildingsLeft;
+	private final byte[] buildingOfVertex = new byte[BoardTopology.NUMBER_OF_VERTICES];
+	private final byte[] ownerOfVertex = new byte[BoardTopology.NUMBER_OF_VERTICES];
+	private final byte[] ownerOfEdge = new byte[BoardTopology.NUMBER_OF_EDGES];
+	private final int[] bank = new int[NUMBER_OF_RESOURCES];
+	private final int[] stack = new int[NUMBER_OF_CARD_TYPES];
+	/**
+	 * Resource and dice number of every field (shared by all copies, the
+	 * board never changes), NO_RESOURCE and 0 for the desert and water
+	 */
+	private final int[] resourceOfField;
+	private final int[] numberOfField;
+	private int thief;
+	private int currentSeat;
+	/**
+	 * Zobrist hash of the board, the thief, the cards of the players and the
+	 * current seat, kept up to date by the moves
+	 */
+	private long hash;
+
+	/**
+	 * Moves made and the data to take them back, the move on top
+	 */
+	private int[] undo = new int[256];
+	private int undoSize;
+
+	private GameState(int numberOfPlayers, int[] resourceOfField, int[] numberOfField) {
+		this.numberOfPlayers = numberOfPlayers;
+		this.playerIds = new int[numberOfPlayers];
+		this.resources = new int[numberOfPlayers * COLUMNS];
+		this.developmentCards = new int[numberOfPlayers * COLUMNS];
+		this.victoryPoints = new int[numberOfPlayers];
+		this.knights = new int[numberOfPlayers];
+		this.buildingsLeft = new int[numberOfPlayers * 3];
+		this.resourceOfField = resourceOfField;
+		this.numberOfField = numberOfField;
+		Arrays.fill(ownerOfVertex, (byte) NO_PLAYER);
+		Arrays.fill(ownerOfEdge, (byte) NO_PLAYER);
+	}
+
+	/**
+	 * @return a copy with an empty undo stack
+	 */
+	public GameState copy() {
+		GameState copy = new GameState(numberOfPlayers, resourceOfField, numberOfField);
+		copy.copyFrom(this);
+		return copy;
+	}
+
+	/**
+	 * Overwrites this state with an other one of the same game, without
+	 * allocating. The undo stack is cleared.
+	 *
+	 * @param other
+	 */
+	public void copyFrom(GameState other) {
+		System.arraycopy(other.playerIds, 0, playerIds, 0, playerIds.length);
+		System.arraycopy(other.resources, 0, resources, 0, resources.length);
+		System.arraycopy(other.developmentCards, 0, developmentCards, 0, developmentCards.length);
+		System.arraycopy(other.victoryPoints, 0, victoryPoints, 0, victoryPoints.length);
+		System.arraycopy(other.knights, 0, knights, 0, knights.length);
+		System.arraycopy(other.buildingsLeft, 0, buildingsLeft, 0, buildingsLeft.length);
+		System.arraycopy(other.buildingOfVertex, 0, buildingOfVertex, 0, buildingOfVertex.length);
+		System.arraycopy(other.ownerOfVertex, 0, ownerOfVertex, 0, ownerOfVertex.length);
+		System.arraycopy(other.ownerOfEdge, 0, ownerOfEdge, 0, ownerOfEdge.length);
+		System.arraycopy(other.bank, 0, bank, 0, bank.length);
+		System.arraycopy(other.stack, 0, stack, 0, stack.length);
+		thief = other.thief;
+		currentSeat = other.currentSeat;
+		hash = other.hash;
+		undoSize = 0;
+	}
+
+	// Converters
+
+	/**
+	 * Creates the state of the game as the client sees it. The resources and
+	 * development cards of the other players are hidden, their cards are left
+	 * in the stack.
+	 *
+	 * @param game
+	 *            the running game
+	 * @param currentPlayerId
+	 *            id of the player whose turn it is
+	 */
+	public static GameState of(SiedlerVonCatan game, int currentPlayerId) {
+		int[] resourceOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+		int[] numberOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+		Arrays.fill(resourceOfField, NO_RESOURCE);
+		for (HexagonField hexagonField : game.getGameWorld().getFields()) {
+			int field = getField(hexagonField);
+			if (field < 0)
+				continue;
+			resourceOfField[field] = getResource(hexagonField.getFieldType());
+			if (resourceOfField[field] != NO_RESOURCE && hexagonField.getChipNumber() != null)
+				numberOfField[field] = hexagonField.getChipNumber();
+		}
+		List<Player> players = game.getPlayers();
+		GameState state = new GameState(players.size(), resourceOfField, numberOfField);
+		for (int seat = 0; seat < players.size(); seat++) {
+			Player player = players.get(seat);
+			state.playerIds[seat] = player.getPlayerID();
+			if (player.getPlayerID() == currentPlayerId)
+				state.currentSeat = seat;
+			HashMap<ResourceType, Integer> playerResources = player.getResources();
+			state.setResources(seat, playerResources.get(ResourceType.WOOD), playerResources.get(ResourceType.LOAM),
+					playerResources.get(ResourceType.WOOL), playerResources.get(ResourceType.GRAIN),
+					playerResources.get(ResourceType.STONE), playerResources.get(ResourceType.HIDDEN));
+			HashMap<EvolutionType, Integer> cards = player.getEvolutionCards();
+			state.setDevelopmentCards(seat, cards.get(EvolutionType.KNIGHT), cards.get(EvolutionType.ROAD_BUILDING),
+					cards.get(EvolutionType.MONOPOLY), cards.get(EvolutionType.YEAR_OF_PLENTY),
+					cards.get(EvolutionType.VICTORY_POINT), cards.get(EvolutionType.HIDDEN));
+			state.knights[seat] = player.getNumberOfKnights();
+			state.victoryPoints[seat] = player.getVictoryPoints();
+		}
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			WayPoint wayPoint = game.getGameWorld().getWayPoint(vertex);
+			if (wayPoint == null || wayPoint.getSettlement().getBuildingType() == BuildingType.NONE)
+				continue;
+			state.ownerOfVertex[vertex] = (byte) state.getSeat(wayPoint.getSettlement().getOwnerID());
+			state.buildingOfVertex[vertex] = wayPoint.getSettlement().getBuildingType() == BuildingType.CASTLE
+					? CASTLE : VILLAGE;
+		}
+		for (int edge = 0; edge < BoardTopology.NUMBER_OF_EDGES; edge++) {
+			Street street = game.getGameWorld().getStreet(edge);
+			if (street != null && street.getBuildingType() == BuildingType.STREET)
+				state.ownerOfEdge[edge] = (byte) state.getSeat(street.getOwnerID());
+		}
+		String thief = WorldTranslation.getPositionToLetter(game.getThief().getThiefPosition());
+		state.thief = thief.isEmpty() ? -1 : BoardTopology.getField(thief.charAt(0));
+		state.countBankAndStack();
+		state.computeHash();
+		return state;
+	}
+
+	/**
+	 * Creates the state of a game from the protocol objects, as the server
+	 * holds them.
+	 *
+	 * @param map
+	 *            the map with all buildings
+	 * @param players
+	 *            the players, their order gives the seats
+	 * @param currentPlayerId
+	 *            id of the player whose turn it is
+	 */
+	public static GameState of(Map map, List<PlayerForProtocol> players, int currentPlayerId) {
+		int[] resourceOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+		int[] numberOfField = new int[BoardTopology.NUMBER_OF_FIELDS];
+		Arrays.fill(resourceOfField, NO_RESOURCE);
+		for (Field field : map.getFields()) {
+			int id = BoardTopology.getField(field.getLocation().charAt(0));
+			if (id < 0)
+				continue;
+			resourceOfField[id] = getResource(WorldTranslation.getServerFieldTypeToClientFieldType(field.getType()));
+			if (resourceOfField[id] != NO_RESOURCE)
+				numberOfField[id] = field.getNumber();
+		}
+		GameState state = new GameState(players.size(), resourceOfField, numberOfField);
+		for (int seat = 0; seat < players.size(); seat++) {
+			PlayerForProtocol player = players.get(seat);
+			state.playerIds[seat] = player.getId();
+			if (player.getId() == currentPlayerId)
+				state.currentSeat = seat;
+			Resources playerResources = player.getResources();
+			state.setResources(seat, playerResources.getWood(), playerResources.getLoam(), playerResources.getWool(),
+					playerResources.getGrain(), playerResources.getStone(), null);
+			DevelopmentCards cards = player.getDevelopmentCards();
+			state.setDevelopmentCards(seat, cards.getKnight(), cards.getRoadBuilding(), cards.getMonopoly(),
+					cards.getYearOfPlenty(), cards.getVictoryPoint(), null);
+			state.knights[seat] = player.getKnightPoints() == null ? 0 : player.getKnightPoints();
+			state.victoryPoints[seat] = player.getVictoryPoints() == null ? 0 : player.getVictoryPoints();
+		}
+		BoardIndex index = map.getIndex();
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			if (index.getOwnerOfVertex(vertex) == BoardIndex.NO_OWNER)
+				continue;
+			state.ownerOfVertex[vertex] = (byte) state.getSeat(index.getOwnerOfVertex(vertex));
+			state.buildingOfVertex[vertex] = index.getTypeOfVertex(vertex) == BuildingType.CASTLE ? CASTLE : VILLAGE;
+		}
+		for (int edge = 0; edge < BoardTopology.NUMBER_OF_EDGES; edge++) {
+			if (index.getOwnerOfEdge(edge) != BoardIndex.NO_OWNER)
+				state.ownerOfEdge[edge] = (byte) state.getSeat(index.getOwnerOfEdge(edge));
+		}
+		state.thief = BoardTopology.getField(map.getThief().charAt(0));
+		state.countBankAndStack();
+		state.computeHash();
+		return state;
+	}
+
+	private void setResources(int seat, Integer wood, Integer loam, Integer wool, Integer grain, Integer stone,
+			Integer hidden) {
+		int offset = seat * COLUMNS;
+		resources[offset + WOOD] = wood == null ? 0 : wood;
+		resources[offset + LOAM] = loam == null ? 0 : loam;
+		resources[offset + WOOL] = wool == null ? 0 : wool;
+		resources[offset + GRAIN] = grain == null ? 0 : grain;
+		resources[offset + STONE] = stone == null ? 0 : stone;
+		resources[offset + HIDDEN] = hidden == null ? 0 : hidden;
+	}
+
+	private void setDevelopmentCards(int seat, Integer knight, Integer roadBuilding, Integer monopoly,
+			Integer yearOfPlenty, Integer victoryPoint, Integer hidden) {
+		int offset = seat * COLUMNS;
+		developmentCards[offset + KNIGHT] = knight == null ? 0 : knight;
+		developmentCards[offset + ROAD_BUILDING] = roadBuilding == null ? 0 : roadBuilding;
+		developmentCards[offset + MONOPOLY] = monopoly == null ? 0 : monopoly;
+		developmentCards[offset + YEAR_OF_PLENTY] = yearOfPlenty == null ? 0 : yearOfPlenty;
+		developmentCards[offset + VICTORY_POINT] = victoryPoint == null ? 0 : victoryPoint;
+		developmentCards[offset + HIDDEN] = hidden == null ? 0 : hidden;
+	}
+
+	/**
+	 * Derives the bank, the stack and the buildings left from the players and
+	 * the board. Hidden resources are taken from the bank, hidden cards and
+	 * played knights from the stack as knights. Other played cards are not
+	 * known to the players, they are counted as still on the stack.
+	 */
+	private void countBankAndStack() {
+		Arrays.fill(bank, RESOURCES_PER_TYPE);
+		System.arraycopy(STACK, 0, stack, 0, STACK.length);
+		int hidden = 0;
+		for (int seat = 0; seat < numberOfPlayers; seat++) {
+			int offset = seat * COLUMNS;
+			for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+				bank[type] -= resources[offset + type];
+			hidden += resources[offset + HIDDEN];
+			for (int type = 0; type < NUMBER_OF_CARD_TYPES; type++)
+				stack[type] -= developmentCards[offset + type];
+			stack[KNIGHT] -= knights[seat];
+			buildingsLeft[seat * 3] = 15;
+			buildingsLeft[seat * 3 + 1] = 5;
+			buildingsLeft[seat * 3 + 2] = 4;
+		}
+		// Hidden resources are taken evenly from the resources left
+		for (int type = 0; hidden > 0; type = (type + 1) % NUMBER_OF_RESOURCES) {
+			if (bank[type] > 0) {
+				bank[type]--;
+				hidden--;
+			} else if (getTotal(bank, 0, NUMBER_OF_RESOURCES) == 0) {
+				break;
+			}
+		}
+		for (int type = 0; type < NUMBER_OF_CARD_TYPES; type++)
+			stack[type] = Math.max(0, stack[type]);
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			if (ownerOfVertex[vertex] == NO_PLAYER)
+				continue;
+			if (buildingOfVertex[vertex] == CASTLE)
+				buildingsLeft[ownerOfVertex[vertex] * 3 + 2]--;
+			else
+				buildingsLeft[ownerOfVertex[vertex] * 3 + 1]--;
+		}
+		for (int edge = 0; edge < BoardTopology.NUMBER_OF_EDGES; edge++) {
+			if (ownerOfEdge[edge] != NO_PLAYER)
+				buildingsLeft[ownerOfEdge[edge] * 3]--;
+		}
+	}
+
+	private static int getField(HexagonField hexagonField) {
+		String letter = WorldTranslation.getPositionToLetter(hexagonField.getPosition().castTo2D());
+		return letter.isEmpty() ? -1 : BoardTopology.getField(letter.charAt(0));
+	}
+
+	private static int getResource(FieldType type) {
+		if (type == null)
+			return NO_RESOURCE;
+		switch (type) {
+		case WOOD:
+			return WOOD;
+		case LOAM:
+			return LOAM;
+		case WOOL:
+			return WOOL;
+		case GRAIN:
+			return GRAIN;
+		case STONE:
+			return STONE;
+		default:
+			return NO_RESOURCE;
+		}
+	}
+
+	// Moves
+
+	private static int move(int kind, int seat, int a, int b) {
+		return kind << 28 | seat << 24 | (b & 0xFF) << 8 | a;
+	}
+
+	public static int street(int seat, int edge) {
+		return move(STREET, seat, edge, 0);
+	}
+
+	public static int settlement(int seat, int vertex) {
+		return move(SETTLEMENT, seat, vertex, 0);
+	}
+
+	public static int city(int seat, int vertex) {
+		return move(CITY, seat, vertex, 0);
+	}
+
+	public static int thief(int seat, int field) {
+		return move(THIEF, seat, field, 0);
+	}
+
+	/**
+	 * A knight card is played, the thief is moved like with
+	 * {@link #thief(int, int)}
+	 */
+	public static int knightCard(int seat, int field) {
+		return move(KNIGHT_CARD, seat, field, 0);
+	}
+
+	/**
+	 * @param type
+	 *            a resource column (WOOD to STONE)
+	 * @param amount
+	 *            taken from the bank, a negative amount is given to it
+	 */
+	public static int resources(int seat, int type, int amount) {
+		return move(RESOURCES, seat, type, amount);
+	}
+
+	/**
+	 * @param type
+	 *            a card column (KNIGHT to VICTORY_POINT)
+	 * @param amount
+	 *            taken from the stack, a negative amount is put back
+	 */
+	public static int developmentCards(int seat, int type, int amount) {
+		return move(DEVELOPMENT_CARDS, seat, type, amount);
+	}
+
+	/**
+	 * A development card other than a knight is played, it leaves the game.
+	 */
+	public static int playCard(int seat, int type) {
+		return move(PLAY_CARD, seat, type, 0);
+	}
+
+	/**
+	 * @param seat
+	 *            the current seat
+	 * @param next
+	 *            the seat the turn goes to
+	 */
+	public static int turn(int seat, int next) {
+		return move(TURN, seat, next, 0);
+	}
+
+	public static int getKindOf(int move) {
+		return move >>> 28;
+	}
+
+	public static int getSeatOf(int move) {
+		return move >>> 24 & 0xF;
+	}
+
+	private static int getA(int move) {
+		return move & 0xFF;
+	}
+
+	/**
+	 * @return the amount of a move, signed
+	 */
+	private static int getB(int move) {
+		return (byte) (move >>> 8);
+	}
+
+	/**
+	 * Applies a move, it can be taken back with {@link #unmake()}.
+	 *
+	 * @param move
+	 *            created by one of the factory methods
+	 */
+	public void make(int move) {
+		ensureUndoCapacity();
+		int seat = getSeatOf(move);
+		int offset = seat * COLUMNS;
+		switch (getKindOf(move)) {
+		case STREET:
+			setStreet(getA(move), seat);
+			buildingsLeft[seat * 3]--;
+			break;
+		case SETTLEMENT:
+			setBuilding(getA(move), seat, VILLAGE);
+			buildingsLeft[seat * 3 + 1]--;
+			victoryPoints[seat]++;
+			break;
+		case CITY:
+			setBuilding(getA(move), seat, CASTLE);
+			buildingsLeft[seat * 3 + 1]++;
+			buildingsLeft[seat * 3 + 2]--;
+			victoryPoints[seat]++;
+			break;
+		case THIEF:
+			undo[undoSize++] = thief;
+			setThief(getA(move));
+			break;
+		case KNIGHT_CARD:
+			addDevelopmentCards(offset + KNIGHT, -1);
+			addKnights(seat, 1);
+			undo[undoSize++] = thief;
+			setThief(getA(move));
+			break;
+		case RESOURCES:
+			addResources(offset + getA(move), getB(move));
+			bank[getA(move)] -= getB(move);
+			break;
+		case DEVELOPMENT_CARDS:
+			addDevelopmentCards(offset + getA(move), getB(move));
+			stack[getA(move)] -= getB(move);
+			break;
+		case PLAY_CARD:
+			addDevelopmentCards(offset + getA(move), -1);
+			break;
+		case TURN:
+			setCurrentSeat(getA(move));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown move: " + Integer.toHexString(move));
+		}
+		undo[undoSize++] = move;
+	}
+
+	/**
+	 * Takes back the last move made.
+	 *
+	 * @throws IllegalStateException
+	 *             if there is no move to take back
+	 */
+	public void unmake() {
+		if (undoSize == 0)
+			throw new IllegalStateException("No move to take back");
+		int move = undo[--undoSize];
+		int seat = getSeatOf(move);
+		int offset = seat * COLUMNS;
+		switch (getKindOf(move)) {
+		case STREET:
+			setStreet(getA(move), NO_PLAYER);
+			buildingsLeft[seat * 3]++;
+			break;
+		case SETTLEMENT:
+			setBuilding(getA(move), seat, NONE);
+			buildingsLeft[seat * 3 + 1]++;
+			victoryPoints[seat]--;
+			break;
+		case CITY:
+			setBuilding(getA(move), seat, VILLAGE);
+			buildingsLeft[seat * 3 + 1]--;
+			buildingsLeft[seat * 3 + 2]++;
+			victoryPoints[seat]--;
+			break;
+		case THIEF:
+			setThief(undo[--undoSize]);
+			break;
+		case KNIGHT_CARD:
+			setThief(undo[--undoSize]);
+			addDevelopmentCards(offset + KNIGHT, 1);
+			addKnights(seat, -1);
+			break;
+		case RESOURCES:
+			addResources(offset + getA(move), -getB(move));
+			bank[getA(move)] += getB(move);
+			break;
+		case DEVELOPMENT_CARDS:
+			addDevelopmentCards(offset + getA(move), -getB(move));
+			stack[getA(move)] += getB(move);
+			break;
+		case PLAY_CARD:
+			addDevelopmentCards(offset + getA(move), 1);
+			break;
+		case TURN:
+			setCurrentSeat(seat);
+			break;
+		default:
+			break;
+		}
+	}
+
+	// Changes of the parts of the hash
+
+	private void addResources(int index, int amount) {
+		hash ^= Zobrist.resources(index, resources[index]);
+		resources[index] += amount;
+		hash ^= Zobrist.resources(index, resources[index]);
+	}
+
+	private void addDevelopmentCards(int index, int amount) {
+		hash ^= Zobrist.developmentCards(index, developmentCards[index]);
+		developmentCards[index] += amount;
+		hash ^= Zobrist.developmentCards(index, developmentCards[index]);
+	}
+
+	private void addKnights(int seat, int amount) {
+		hash ^= Zobrist.knights(seat, knights[seat]);
+		knights[seat] += amount;
+		hash ^= Zobrist.knights(seat, knights[seat]);
+	}
+
+	/**
+	 * @param building
+	 *            NONE removes the building of the crossing
+	 */
+	private void setBuilding(int vertex, int seat, byte building) {
+		if (buildingOfVertex[vertex] != NONE)
+			hash ^= Zobrist.building(vertex, ownerOfVertex[vertex], buildingOfVertex[vertex]);
+		ownerOfVertex[vertex] = (byte) (building == NONE ? NO_PLAYER : seat);
+		buildingOfVertex[vertex] = building;
+		if (building != NONE)
+			hash ^= Zobrist.building(vertex, seat, building);
+	}
+
+	/**
+	 * @param seat
+	 *            NO_PLAYER removes the street
+	 */
+	private void setStreet(int edge, int seat) {
+		if (ownerOfEdge[edge] != NO_PLAYER)
+			hash ^= Zobrist.street(edge, ownerOfEdge[edge]);
+		ownerOfEdge[edge] = (byte) seat;
+		if (seat != NO_PLAYER)
+			hash ^= Zobrist.street(edge, seat);
+	}
+
+	private void setThief(int field) {
+		hash ^= Zobrist.thief(thief) ^ Zobrist.thief(field);
+		thief = field;
+	}
+
+	private void setCurrentSeat(int seat) {
+		hash ^= Zobrist.currentSeat(currentSeat) ^ Zobrist.currentSeat(seat);
+		currentSeat = seat;
+	}
+
+	/**
+	 * Computes the hash of the whole state, after it has been converted.
+	 */
+	private void computeHash() {
+		hash = Zobrist.thief(thief) ^ Zobrist.currentSeat(currentSeat);
+		for (int field = 0; field < resourceOfField.length; field++)
+			hash ^= Zobrist.field(field, resourceOfField[field], numberOfField[field]);
+		for (int index = 0; index < resources.length; index++) {
+			hash ^= Zobrist.resources(index, resources[index]);
+			hash ^= Zobrist.developmentCards(index, developmentCards[index]);
+		}
+		for (int seat = 0; seat < numberOfPlayers; seat++)
+			hash ^= Zobrist.knights(seat, knights[seat]);
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			if (buildingOfVertex[vertex] != NONE)
+				hash ^= Zobrist.building(vertex, ownerOfVertex[vertex], buildingOfVertex[vertex]);
+		}
+		for (int edge = 0; edge < BoardTopology.NUMBER_OF_EDGES; edge++) {
+			if (ownerOfEdge[edge] != NO_PLAYER)
+				hash ^= Zobrist.street(edge, ownerOfEdge[edge]);
+		}
+	}
+
+	/**
+	 * Makes room for at least a move and its data
+	 */
+	private void ensureUndoCapacity() {
+		if (undoSize + 3 > undo.length)
+			undo = Arrays.copyOf(undo, undo.length * 2);
+	}
+
+	private static int getTotal(int[] values, int from, int to) {
+		int total = 0;
+		for (int i = from; i < to; i++)
+			total += values[i];
+		return total;
+	}
+
+	// Getters
+
+	public int getNumberOfPlayers() {
+		return numberOfPlayers;
+	}
+
+	public int getPlayerId(int seat) {
+		return playerIds[seat];
+	}
+
+	/**
+	 * @return the seat of a player, NO_PLAYER if the player does not take part
+	 */
+	public int getSeat(int playerId) {
+		for (int seat = 0; seat < numberOfPlayers; seat++) {
+			if (playerIds[seat] == playerId)
+				return seat;
+		}
+		return NO_PLAYER;
+	}
+
+	public int getCurrentSeat() {
+		return currentSeat;
+	}
+
+	/**
+	 * @return the Zobrist hash of the state: the board with its fields and
+	 *         buildings, the thief, the resources, development cards and played
+	 *         knights of every seat and the current seat. Equal states of the
+	 *         same board have equal hashes.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * @param type
+	 *            a resource column (WOOD to STONE or HIDDEN)
+	 */
+	public int getResource(int seat, int type) {
+		return resources[seat * COLUMNS + type];
+	}
+
+	public int getTotalResources(int seat) {
+		return getTotal(resources, seat * COLUMNS, seat * COLUMNS + COLUMNS);
+	}
+
+	/**
+	 * @param type
+	 *            a card column (KNIGHT to VICTORY_POINT or HIDDEN)
+	 */
+	public int getDevelopmentCards(int seat, int type) {
+		return developmentCards[seat * COLUMNS + type];
+	}
+
+	/**
+	 * @return the victory points including the known victory point cards
+	 */
+	public int getVictoryPoints(int seat) {
+		return victoryPoints[seat] + developmentCards[seat * COLUMNS + VICTORY_POINT];
+	}
+
+	public int getKnights(int seat) {
+		return knights[seat];
+	}
+
+	/**
+	 * @param index
+	 *            0 for streets, 1 for settlements, 2 for cities
+	 */
+	public int getBuildingsLeft(int seat, int index) {
+		return buildingsLeft[seat * 3 + index];
+	}
+
+	/**
+	 * @return NONE, VILLAGE or CASTLE
+	 */
+	public byte getBuildingOfVertex(int vertex) {
+		return buildingOfVertex[vertex];
+	}
+
+	/**
+	 * @return the seat of the owner, NO_PLAYER if empty
+	 */
+	public int getOwnerOfVertex(int vertex) {
+		return ownerOfVertex[vertex];
+	}
+
+	/**
+	 * @return the seat of the owner, NO_PLAYER if empty
+	 */
+	public int getOwnerOfEdge(int edge) {
+		return ownerOfEdge[edge];
+	}
+
+	public int getBank(int type) {
+		return bank[type];
+	}
+
+	public int getStack(int type) {
+		return stack[type];
+	}
+
+	/**
+	 * @return the resource of a field, NO_RESOURCE for the desert and water
+	 */
+	public int getResourceOfField(int field) {
+		return resourceOfField[field];
+	}
+
+	/**
+	 * @return the dice number of a field, 0 without production
+	 */
+	public int getNumberOfField(int field) {
+		return numberOfField[field];
+	}
+
+	/**
+	 * @return the field of the thief
+	 */
+	public int getThief() {
+		return thief;
+	}
+}
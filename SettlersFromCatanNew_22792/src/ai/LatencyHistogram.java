@@ -0,0 +1,67 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with buckets of powers of two microseconds, bucket i
+ * counts the latencies from 2^i to 2^(i+1) microseconds (bucket 0 also the
+ * shorter ones). It may be recorded by any number of threads without locks.
+ */
+public final class LatencyHistogram {
+	private static final int BUCKETS = 40;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos
+	 *            the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(nanos / 1000, 1);
+		counts.incrementAndGet(Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKETS - 1));
+		count.incrementAndGet();
+		long currentMax;
+		while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos))
+			;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the longest latency in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile
+	 *            0 to 100
+	 * @return an upper bound of the latency in nanoseconds below which the
+	 *         given share of the latencies is, 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long total = getCount();
+		if (total == 0)
+			return 0;
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank)
+				return Math.min((1000L << bucket + 1), getMax());
+		}
+		return getMax();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms", getCount(),
+				getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6, getMax() / 1e6);
+	}
+}
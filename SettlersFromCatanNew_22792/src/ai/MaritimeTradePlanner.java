@@ -0,0 +1,93 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import networking.MessageObjects.MaritimeTrade;
+import networking.MessageObjects.Resources;
+import tools.PortTypes;
+
+/**
+ * Plans the trades with the bank and ports an AI needs for a building, all at
+ * once. The ports of the AI are given as a bitmask of {@link #getPortBit},
+ * hands and costs are indexed like the resources of a {@link GameState}.
+ */
+public final class MaritimeTradePlanner {
+	// Wood, loam, wool, grain and stone of every building
+	public static final int[] STREET_COSTS = { 1, 1, 0, 0, 0 };
+	public static final int[] VILLAGE_COSTS = { 1, 1, 1, 1, 0 };
+	public static final int[] CASTLE_COSTS = { 0, 0, 0, 2, 3 };
+	public static final int[] CARD_COSTS = { 0, 0, 1, 1, 1 };
+
+	private static final int NUMBER_OF_RESOURCES = GameState.NUMBER_OF_RESOURCES;
+	// The 2:1 port of every resource
+	private static final PortTypes[] PORTS = { PortTypes.TWO_WOOD_FOR_ONE, PortTypes.TWO_LOAM_FOR_ONE,
+			PortTypes.TWO_WOOL_FOR_ONE, PortTypes.TWO_GRAIN_FOR_ONE, PortTypes.TWO_STONE_FOR_ONE };
+
+	private MaritimeTradePlanner() {
+	}
+
+	/**
+	 * @return the bit of a port in the bitmask of the ports of a player, 0 for
+	 *         none
+	 */
+	public static int getPortBit(PortTypes portType) {
+		return portType == null || portType == PortTypes.NONE ? 0 : 1 << portType.ordinal();
+	}
+
+	/**
+	 * @return the number of cards of every resource traded for one card
+	 */
+	public static int[] getRates(int portMask) {
+		int[] rates = new int[NUMBER_OF_RESOURCES];
+		int rate = (portMask & getPortBit(PortTypes.THREE_FOR_ONE)) != 0 ? 3 : 4;
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+			rates[type] = (portMask & getPortBit(PORTS[type])) != 0 ? 2 : rate;
+		return rates;
+	}
+
+	/**
+	 * Finds the trades giving the fewest cards for the resources missing for
+	 * the costs. Only cards not needed for the costs are given, each trade
+	 * gives the surplus resource with the best rate (the one with the most
+	 * cards left if equal).
+	 *
+	 * @param hand
+	 *            the resources of the player
+	 * @param costs
+	 *            the resources needed
+	 * @param portMask
+	 *            the ports of the player
+	 * @return the trades in the order to send them, empty if nothing is
+	 *         missing, null if the missing resources cannot be traded for
+	 */
+	public static List<MaritimeTrade> plan(int[] hand, int[] costs, int portMask) {
+		int[] rates = getRates(portMask);
+		int[] surplus = new int[NUMBER_OF_RESOURCES];
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+			surplus[type] = Math.max(hand[type] - costs[type], 0);
+		List<MaritimeTrade> trades = new ArrayList<>();
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++) {
+			for (int missing = costs[type] - hand[type]; missing > 0; missing--) {
+				int given = -1;
+				for (int other = 0; other < NUMBER_OF_RESOURCES; other++) {
+					if (surplus[other] >= rates[other] && (given < 0 || rates[other] < rates[given]
+							|| (rates[other] == rates[given] && surplus[other] > surplus[given])))
+						given = other;
+				}
+				if (given < 0)
+					return null;
+				surplus[given] -= rates[given];
+				trades.add(new MaritimeTrade(toResources(given, rates[given]), toResources(type, 1)));
+			}
+		}
+		return trades;
+	}
+
+	private static Resources toResources(int type, int amount) {
+		int[] amounts = new int[NUMBER_OF_RESOURCES];
+		amounts[type] = amount;
+		return new Resources(amounts[GameState.WOOD], amounts[GameState.LOAM], amounts[GameState.WOOL],
+				amounts[GameState.GRAIN], amounts[GameState.STONE], 0);
+	}
+}
@@ -0,0 +1,103 @@
+package ai;
+
+/**
+ * Rates domestic trade offers for an AI by how much closer they bring it to
+ * its next buildings.
+ *
+ * The utility of a hand is the sum over street, village, castle and
+ * development card of their value divided by the expected rolls until the
+ * missing resources are produced (see {@link BoardEvaluator#getProduction(int)}).
+ * A trade is accepted if it raises the utility of the hand. Hands are indexed
+ * like the resources of a {@link GameState}.
+ */
+public final class TradeEvaluator {
+	/**
+	 * Time to answer an offer in milliseconds if not given
+	 */
+	public static final long DEFAULT_BUDGET = 20;
+
+	private static final int NUMBER_OF_RESOURCES = GameState.NUMBER_OF_RESOURCES;
+	// Wood, loam, wool, grain and stone of a street, village, castle and card
+	private static final int[][] COSTS = { { 1, 1, 0, 0, 0 }, { 1, 1, 1, 1, 0 }, { 0, 0, 0, 2, 3 },
+			{ 0, 0, 1, 1, 1 } };
+	private static final double[] VALUES = { 1, 2, 2, 1 };
+	/**
+	 * Resources per roll of a type the AI does not produce, by trading with
+	 * the bank or stealing
+	 */
+	private static final double BASE_RATE = 0.05;
+	/**
+	 * Utility of a card in the hand apart from the buildings, so giving cards
+	 * away for nothing is a loss
+	 */
+	private static final double CARD_VALUE = 0.02;
+	/**
+	 * Cards in the hand a 7 does not halve
+	 */
+	private static final int SAFE_CARDS = 7;
+	/**
+	 * Least gain of utility to accept a trade
+	 */
+	private static final double MIN_GAIN = 0.01;
+
+	private final BoardEvaluator board;
+
+	/**
+	 * @param board
+	 *            the production of the AI is read from it
+	 */
+	public TradeEvaluator(BoardEvaluator board) {
+		this.board = board;
+	}
+
+	/**
+	 * @return the utility of a hand of resources
+	 */
+	public double getUtility(int[] hand) {
+		double[] rates = new double[NUMBER_OF_RESOURCES];
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+			rates[type] = board.getProduction(type) + BASE_RATE;
+		double utility = 0;
+		int total = 0;
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+			total += hand[type];
+		for (int building = 0; building < COSTS.length; building++) {
+			double rolls = 0;
+			for (int type = 0; type < NUMBER_OF_RESOURCES; type++)
+				rolls += Math.max(COSTS[building][type] - hand[type], 0) / rates[type];
+			utility += VALUES[building] / (1 + rolls);
+		}
+		utility += total * CARD_VALUE;
+		// A 7 is rolled every sixth roll and takes half of a large hand
+		if (total > SAFE_CARDS)
+			utility -= total / 2 * (CARD_VALUE + 1.0 / 36) / 6;
+		return utility;
+	}
+
+	/**
+	 * @param hand
+	 *            the resources of the AI
+	 * @param received
+	 *            the resources the AI gets
+	 * @param given
+	 *            the resources the AI gives
+	 * @return the change of the utility of the hand by the trade, negative
+	 *         infinity if the AI does not have the given resources
+	 */
+	public double getGain(int[] hand, int[] received, int[] given) {
+		int[] after = new int[NUMBER_OF_RESOURCES];
+		for (int type = 0; type < NUMBER_OF_RESOURCES; type++) {
+			after[type] = hand[type] + received[type] - given[type];
+			if (after[type] < 0)
+				return Double.NEGATIVE_INFINITY;
+		}
+		return getUtility(after) - getUtility(hand);
+	}
+
+	/**
+	 * @return True, if the trade gains enough utility to be accepted
+	 */
+	public boolean accepts(int[] hand, int[] received, int[] given) {
+		return getGain(hand, received, given) > MIN_GAIN;
+	}
+}
@@ -0,0 +1,220 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Table of the ratings of states, keyed by their hash (see
+ * {@link GameState#getHash()}), so a state reached by different orders of
+ * moves is rated once. It has a fixed size and may be shared by any number of
+ * search threads without locks.
+ *
+ * An entry holds the mean rewards of up to {@link #MAX_PLAYERS} seats and the
+ * number of ratings added. It is stored as three longs, the first is the key
+ * xor the other two. An entry read while an other thread writes it does not
+ * match its key and is taken as missing, concurrent updates of the same entry
+ * may lose a rating.
+ *
+ * Two entries share a bucket. A new state replaces the entry of an older
+ * search first, else the one with fewer ratings.
+ */
+public final class TranspositionTable {
+	public static final int MAX_PLAYERS = 4;
+	private static final int ENTRIES_PER_BUCKET = 2;
+	private static final int LONGS_PER_ENTRY = 3;
+	/**
+	 * A reward (0 to 1) is stored in 16 bits
+	 */
+	private static final double SCALE = 0xFFFF;
+
+	private final AtomicLongArray entries;
+	private final int bucketMask;
+	/**
+	 * Number of the current search, stored with the entries
+	 */
+	private volatile int generation;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+	private final LongAdder replacements = new LongAdder();
+
+	/**
+	 * @param size
+	 *            number of entries, rounded down to a power of two
+	 * @throws IllegalArgumentException
+	 *             if the size is smaller than a bucket
+	 */
+	public TranspositionTable(int size) {
+		if (size < ENTRIES_PER_BUCKET)
+			throw new IllegalArgumentException("Table too small: " + size);
+		int buckets = Integer.highestOneBit(size / ENTRIES_PER_BUCKET);
+		this.entries = new AtomicLongArray(buckets * ENTRIES_PER_BUCKET * LONGS_PER_ENTRY);
+		this.bucketMask = buckets - 1;
+	}
+
+	/**
+	 * Starts a new search, the entries of the earlier ones are replaced first.
+	 */
+	public void nextGeneration() {
+		generation = (generation + 1) & 0xFFFF;
+	}
+
+	/**
+	 * Looks up a state.
+	 *
+	 * @param rewards
+	 *            filled with the mean rewards of the seats if found
+	 * @return the number of ratings of the state, 0 if it is not in the table
+	 */
+	public int probe(long key, double[] rewards) {
+		probes.increment();
+		int bucket = getBucket(key);
+		for (int entry = bucket; entry < bucket + ENTRIES_PER_BUCKET * LONGS_PER_ENTRY; entry += LONGS_PER_ENTRY) {
+			long check = entries.get(entry);
+			long packedRewards = entries.get(entry + 1);
+			long data = entries.get(entry + 2);
+			if ((check ^ packedRewards ^ data) != key || getVisits(data) == 0)
+				continue;
+			for (int seat = 0; seat < rewards.length && seat < MAX_PLAYERS; seat++)
+				rewards[seat] = (packedRewards >>> seat * 16 & 0xFFFF) / SCALE;
+			hits.increment();
+			return getVisits(data);
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds a rating of a state.
+	 *
+	 * @param rewards
+	 *            the rewards of the seats, 0 to 1
+	 */
+	public void store(long key, double[] rewards) {
+		stores.increment();
+		int bucket = getBucket(key);
+		int currentGeneration = generation;
+		int victim = -1;
+		long victimData = 0;
+		for (int entry = bucket; entry < bucket + ENTRIES_PER_BUCKET * LONGS_PER_ENTRY; entry += LONGS_PER_ENTRY) {
+			long check = entries.get(entry);
+			long packedRewards = entries.get(entry + 1);
+			long data = entries.get(entry + 2);
+			int visits = getVisits(data);
+			if (visits > 0 && (check ^ packedRewards ^ data) == key) {
+				// Adds the rating to the means
+				long merged = 0;
+				for (int seat = 0; seat < rewards.length && seat < MAX_PLAYERS; seat++) {
+					double mean = (packedRewards >>> seat * 16 & 0xFFFF) / SCALE;
+					merged |= pack((mean * visits + rewards[seat]) / (visits + 1)) << seat * 16;
+				}
+				write(entry, key, merged, visits == Integer.MAX_VALUE ? visits : visits + 1, currentGeneration);
+				return;
+			}
+			if (victim < 0 || isReplacedBefore(data, victimData, currentGeneration)) {
+				victim = entry;
+				victimData = data;
+			}
+		}
+		if (getVisits(victimData) > 0)
+			replacements.increment();
+		long packed = 0;
+		for (int seat = 0; seat < rewards.length && seat < MAX_PLAYERS; seat++)
+			packed |= pack(rewards[seat]) << seat * 16;
+		write(victim, key, packed, 1, currentGeneration);
+	}
+
+	/**
+	 * @return True, if the first entry is replaced before the second one:
+	 *         empty, of an older search or with fewer ratings
+	 */
+	private static boolean isReplacedBefore(long data, long otherData, int generation) {
+		if (getVisits(data) == 0 || getVisits(otherData) == 0)
+			return getVisits(data) == 0;
+		boolean old = getGeneration(data) != generation;
+		if (old != (getGeneration(otherData) != generation))
+			return old;
+		return getVisits(data) < getVisits(otherData);
+	}
+
+	private void write(int entry, long key, long packedRewards, int visits, int generation) {
+		long data = (long) generation << 32 | visits & 0xFFFFFFFFL;
+		entries.set(entry + 1, packedRewards);
+		entries.set(entry + 2, data);
+		entries.set(entry, key ^ packedRewards ^ data);
+	}
+
+	private int getBucket(long key) {
+		return ((int) (key ^ key >>> 32) & bucketMask) * ENTRIES_PER_BUCKET * LONGS_PER_ENTRY;
+	}
+
+	private static long pack(double reward) {
+		return Math.round(Math.min(Math.max(reward, 0), 1) * SCALE);
+	}
+
+	private static int getVisits(long data) {
+		return (int) data;
+	}
+
+	private static int getGeneration(long data) {
+		return (int) (data >>> 32);
+	}
+
+	// Statistics
+
+	public int getSize() {
+		return entries.length() / LONGS_PER_ENTRY;
+	}
+
+	public long getProbes() {
+		return probes.sum();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getStores() {
+		return stores.sum();
+	}
+
+	/**
+	 * @return the number of entries of other states overwritten
+	 */
+	public long getReplacements() {
+		return replacements.sum();
+	}
+
+	/**
+	 * @return the share of the probes finding their state, 0 without probes
+	 */
+	public double getHitRate() {
+		long probeCount = getProbes();
+		return probeCount == 0 ? 0 : (double) getHits() / probeCount;
+	}
+
+	/**
+	 * @return the share of the entries in use
+	 */
+	public double getFillRate() {
+		int used = 0;
+		for (int entry = 0; entry < entries.length(); entry += LONGS_PER_ENTRY) {
+			if (getVisits(entries.get(entry + 2)) > 0)
+				used++;
+		}
+		return (double) used / getSize();
+	}
+
+	public void resetStatistics() {
+		probes.reset();
+		hits.reset();
+		stores.reset();
+		replacements.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %.1f%% used, %d probes, %.1f%% hits, %d stores, %d replacements", getSize(),
+				100 * getFillRate(), getProbes(), 100 * getHitRate(), getStores(), getReplacements());
+	}
+}
@@ -0,0 +1,117 @@
+package ai;
+
+import tools.BoardTopology;
+
+/**
+ * Random keys for the Zobrist hash of a {@link GameState}. The hash of a state
+ * is the xor of the keys of its parts, so a move changes it by the keys of the
+ * parts it changes. The keys are generated from a fixed seed, hashes are equal
+ * in every JVM.
+ */
+final class Zobrist {
+	/**
+	 * Seats a key exists for (4 bits of a move)
+	 */
+	static final int SEATS = 16;
+	/**
+	 * Counts of resources or cards of one type above are hashed like this one
+	 */
+	static final int MAX_COUNT = 31;
+	private static final int NUMBERS = 13;
+	/**
+	 * State of the key generator, declared before the keys
+	 */
+	private static long seed = 0x5EEDCA7AL;
+
+	// VILLAGE and CASTLE of every seat on every crossing
+	private static final long[] BUILDINGS = keys(BoardTopology.NUMBER_OF_VERTICES * SEATS * 2);
+	private static final long[] STREETS = keys(BoardTopology.NUMBER_OF_EDGES * SEATS);
+	// Field of the thief, index 0 if it is not on the board
+	private static final long[] THIEF = keys(BoardTopology.NUMBER_OF_FIELDS + 1);
+	private static final long[] CURRENT_SEAT = keys(SEATS);
+	// Count of every resource column of every seat
+	private static final long[] RESOURCES = keys(SEATS * 6 * (MAX_COUNT + 1));
+	// Count of every development card column and played knights of every seat
+	private static final long[] DEVELOPMENT_CARDS = keys(SEATS * 6 * (MAX_COUNT + 1));
+	private static final long[] KNIGHTS = keys(SEATS * (MAX_COUNT + 1));
+	// Resource (or none) and dice number of every field
+	private static final long[] FIELDS = keys(BoardTopology.NUMBER_OF_FIELDS * 6);
+	private static final long[] NUMBERS_OF_FIELDS = keys(BoardTopology.NUMBER_OF_FIELDS * NUMBERS);
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Generates the next keys with SplitMix64.
+	 */
+	private static long[] keys(int length) {
+		long[] keys = new long[length];
+		for (int i = 0; i < length; i++) {
+			seed += 0x9E3779B97F4A7C15L;
+			long z = seed;
+			z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+			keys[i] = z ^ z >>> 31;
+		}
+		return keys;
+	}
+
+	/**
+	 * @param building
+	 *            VILLAGE or CASTLE
+	 */
+	static long building(int vertex, int seat, int building) {
+		return BUILDINGS[(vertex * SEATS + seat) * 2 + building - 1];
+	}
+
+	static long street(int edge, int seat) {
+		return STREETS[edge * SEATS + seat];
+	}
+
+	/**
+	 * @param field
+	 *            the field of the thief, -1 if it is not on the board
+	 */
+	static long thief(int field) {
+		return THIEF[field + 1];
+	}
+
+	static long currentSeat(int seat) {
+		return CURRENT_SEAT[seat];
+	}
+
+	/**
+	 * @param index
+	 *            seat * 6 + resource column
+	 */
+	static long resources(int index, int count) {
+		return RESOURCES[index * (MAX_COUNT + 1) + limit(count)];
+	}
+
+	/**
+	 * @param index
+	 *            seat * 6 + card column
+	 */
+	static long developmentCards(int index, int count) {
+		return DEVELOPMENT_CARDS[index * (MAX_COUNT + 1) + limit(count)];
+	}
+
+	static long knights(int seat, int count) {
+		return KNIGHTS[seat * (MAX_COUNT + 1) + limit(count)];
+	}
+
+	private static int limit(int count) {
+		return Math.min(Math.max(count, 0), MAX_COUNT);
+	}
+
+	/**
+	 * @param resource
+	 *            the resource of the field, NO_RESOURCE if none
+	 * @param number
+	 *            its dice number, 0 if none
+	 */
+	static long field(int field, int resource, int number) {
+		int column = resource == GameState.NO_RESOURCE ? 5 : resource;
+		return FIELDS[field * 6 + column] ^ NUMBERS_OF_FIELDS[field * NUMBERS + Math.min(number, NUMBERS - 1)];
+	}
+}
@@ -4,6 +4,7 @@ import gameplay.SiedlerVonCatan;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import networking.Network;
+import networking.ProtocolCodec;
 import sound.SoundManager;
 import view.GameView;
 
@@ -46,6 +47,7 @@ public class GameStart extends Application {
      * @param args
      */
     public static void main(String[] args) {
+        ProtocolCodec.warmUp();
         launch();
     }
 
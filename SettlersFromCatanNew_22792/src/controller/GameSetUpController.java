@@ -233,22 +233,28 @@ public final class GameSetUpController {
 			computers.add(new Computer(PlayerTeam.TEAM_WHITE, "ComputerWhite", true));
 		if (playersColor != PlayerTeam.TEAM_ORANGE)
 			computers.add(new Computer(PlayerTeam.TEAM_ORANGE, "ComputerOrange", true));
-		// WAITING IS NEEDED
-		try {
-			Thread.sleep(1300);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		// WAITING IS NEEDED, unless the server runs in this JVM: the AIs are then
+		// connected already and every request is handled before it returns
+		boolean loopback = GameStart.network.getConnectionHandler().isLoopback();
+		if (!loopback) {
+			try {
+				Thread.sleep(1300);
+			} catch (InterruptedException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
 		}
 		// requests to join the lobby
 		for (Computer computer : computers) {
 			computer.getNetwork().getClientProtocol().sendPlayerRequest(computer);
 		}
-		try {
-			Thread.sleep(1300);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		if (!loopback) {
+			try {
+				Thread.sleep(1300);
+			} catch (InterruptedException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
 		}
 		// Requests to start the game
 		for (Computer computer : computers) {
@@ -43,7 +43,7 @@ public final class MainMenuController {
 		});
 		mainMenu.getSinglePlayerButton().setOnMouseClicked(event -> {
 			// If single player, check if server is running
-			connectToServer("127.0.0.1", 8080);
+			GameStart.network = Network.connectToLocalServer();
 			GameStart.gameView.showGameSetUp(false);
 		});
 		mainMenu.getMultiplayerButton().setOnMouseClicked(event -> {
@@ -42,6 +42,12 @@ public final class WayPoint extends GameMatrixEntry {
      */
     private Settlement settlement;
 
+    /**
+     * The id of the crossing in {@link tools.BoardTopology}, -1 if it is none
+     * (set by the world)
+     */
+    private int vertex = -1;
+
     /**
      * Constructor
      *
@@ -119,6 +125,21 @@ public final class WayPoint extends GameMatrixEntry {
 		return streetConnectedWaypoints;
 	}
 
+	/**
+	 * @return the id of the crossing in {@link tools.BoardTopology}, -1 if it is
+	 *         none
+	 */
+	public int getVertex() {
+		return vertex;
+	}
+
+	/**
+	 * @param vertex the id of the crossing in {@link tools.BoardTopology}
+	 */
+	void setVertex(int vertex) {
+		this.vertex = vertex;
+	}
+
 	/**
 	 * @return the portType
 	 */
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import gameobjects.Elements.Street;
+import tools.BoardTopology;
 import tools.Vector2D;
 import tools.Vector3D;
 
@@ -46,6 +47,14 @@ public final class World {
 	 * A list of all HexagonFields
 	 */
 	private ArrayList<HexagonField> fields = new ArrayList<HexagonField>();
+	/**
+	 * The wayPoints (crossings) by their vertex id in {@link BoardTopology}
+	 */
+	private WayPoint[] wayPointOfVertex;
+	/**
+	 * The streets by their edge id in {@link BoardTopology}
+	 */
+	private Street[] streetOfEdge;
 
 	/**
 	 * Constructor
@@ -205,14 +214,92 @@ public final class World {
 	 * @return
 	 */
 	public Street findStreetWithWayPoints(WayPoint wayPoint, WayPoint wayPoint2) {
-		Street tempStreetA = new Street(wayPoint, wayPoint2);
-		Street tempStreetB = new Street(wayPoint2, wayPoint);
+		// Both directions are stored in the hash map
+		return wayPointsToStreet.get(new Vector2D<WayPoint>(wayPoint, wayPoint2));
+	}
 
-		for (Street streetReal : streets) {
-			if (streetReal.equals(tempStreetA) || streetReal.equals(tempStreetB))
-				return streetReal;
+	/**
+	 * Assigns the wayPoints and streets to the vertices and edges of the shared
+	 * board topology, by the letters of their surrounding fields.
+	 */
+	private void assignTopology() {
+		wayPointOfVertex = new WayPoint[BoardTopology.NUMBER_OF_VERTICES];
+		streetOfEdge = new Street[BoardTopology.NUMBER_OF_EDGES];
+		for (WayPoint wayPoint : wayPoints) {
+			ArrayList<HexagonField> neighbours = wayPoint.getFieldNeighbours();
+			if (neighbours.size() != 3)
+				continue;
+			int vertex = BoardTopology.getVertex(getField(neighbours.get(0)), getField(neighbours.get(1)),
+					getField(neighbours.get(2)));
+			if (vertex >= 0) {
+				wayPointOfVertex[vertex] = wayPoint;
+				wayPoint.setVertex(vertex);
+			}
 		}
-		return null;
+		for (Street street : streets) {
+			// Streets at the border of the matrix lead to a missing wayPoint
+			if (street.getConnectionPoints()[0] == null || street.getConnectionPoints()[1] == null)
+				continue;
+			int[] commonFields = new int[2];
+			int numberOfCommonFields = 0;
+			for (HexagonField field : street.getConnectionPoints()[0].getFieldNeighbours()) {
+				if (numberOfCommonFields < 2 && street.getConnectionPoints()[1].getFieldNeighbours().contains(field))
+					commonFields[numberOfCommonFields++] = getField(field);
+			}
+			int edge = numberOfCommonFields == 2 ? BoardTopology.getEdge(commonFields[0], commonFields[1]) : -1;
+			if (edge >= 0)
+				streetOfEdge[edge] = street;
+		}
+	}
+
+	/**
+	 * @return the field id of a hexagonal field in {@link BoardTopology}
+	 */
+	private static int getField(HexagonField field) {
+		String letter = tools.WorldTranslation.getPositionToLetter(field.getPosition().castTo2D());
+		return letter.isEmpty() ? -1 : BoardTopology.getField(letter.charAt(0));
+	}
+
+	/**
+	 * Returns the wayPoint of a crossing.
+	 *
+	 * @param location
+	 *            the three letters of the surrounding fields (any order)
+	 * @return the wayPoint, null if the location is no crossing
+	 */
+	public WayPoint getWayPoint(String location) {
+		int vertex = BoardTopology.getVertex(location);
+		return vertex < 0 ? null : wayPointOfVertex[vertex];
+	}
+
+	/**
+	 * Returns the street between two fields.
+	 *
+	 * @param location
+	 *            the two letters of the fields (any order)
+	 * @return the street, null if the location is no street
+	 */
+	public Street getStreet(String location) {
+		int edge = BoardTopology.getEdge(location);
+		return edge < 0 ? null : streetOfEdge[edge];
+	}
+
+	/**
+	 * @param vertex
+	 *            id of the crossing in {@link BoardTopology}
+	 * @return the wayPoint of the crossing
+	 */
+	public WayPoint getWayPoint(int vertex) {
+		return wayPointOfVertex[vertex];
+	}
+
+	/**
+	 * @param edge
+	 *            id of the edge in {@link BoardTopology}
+	 * @return the street on the edge
+	 */
+	public Street getStreet(int edge) {
+		return streetOfEdge[edge];
 	}
 	// Getters
 
@@ -269,5 +356,6 @@ public final class World {
 		gameMatrix = new GameMatrixEntry[matrixSize][matrixSize][3];
 		createGameLayout();
 		createStreets();
+		assignTopology();
 	}
 }
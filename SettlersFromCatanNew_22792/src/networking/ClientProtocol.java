@@ -2,9 +2,14 @@ package networking;
 
 import java.io.FileNotFoundException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ai.AiLogic;
+import ai.AiScheduler;
+import ai.MaritimeTradePlanner;
 import application.GameStart;
 import controller.InGameController;
 import gameobjects.Elements.BuildingPrototype;
@@ -22,6 +27,11 @@ import view.ErrorPopUp;
 public class ClientProtocol {
 
 	private ServerConnectionHandler connectionHandler;
+	/**
+	 * Costs of our requests sent in a batch not received yet, the AI decides
+	 * again once all are received
+	 */
+	private final AtomicInteger pendingBatchCosts = new AtomicInteger();
 
 	public ClientProtocol(ServerConnectionHandler connectionHandler) {
 		this.connectionHandler = connectionHandler;
@@ -36,7 +46,10 @@ public class ClientProtocol {
 		}
 		if (versionSupported) {
 			GameStart.mainLogger.getLOGGER().fine("supp");
-			sendHelloMessage();
+			if (getConnectionHandler().isResuming())
+				getConnectionHandler().sendObject(getConnectionHandler().getResumeRequest());
+			else
+				sendHelloMessage();
 		} else
 			getConnectionHandler().disconnectFromServer();
 	}
@@ -58,6 +71,15 @@ public class ClientProtocol {
 	public void receiveWelcomeMessage(WelcomeMessage welcome) {
 		Integer playerID = welcome.getId();
 		getConnectionHandler().setPlayerId(playerID);
+		getConnectionHandler().setSessionToken(welcome.getSession());
+	}
+
+	/**
+	 * Answers a ping of the server, which would otherwise take the client for
+	 * dead.
+	 */
+	public void receivePing(Ping ping) {
+		getConnectionHandler().sendObject(new Pong());
 	}
 
 	// 5.1
@@ -179,6 +201,11 @@ public class ClientProtocol {
 	// 6.3Only one street could be built
 	public void receiveError(ServerError error) {
 		GameStart.mainLogger.getLOGGER().fine("Error received: " + error.getErrorMessage());
+		// The seat could not be resumed, the connection is given up
+		if (getConnectionHandler().isResuming()) {
+			getConnectionHandler().abandonSession();
+			return;
+		}
 		// Check different kind of error messages
 		if (error.getErrorMessage().equals("Farbe bereits vergeben")) {
 			GameStart.gameView.showGameSetUp(true);
@@ -202,15 +229,19 @@ public class ClientProtocol {
 		} else if (error.getErrorMessage().equals("Game was already started")) {
 			Platform.runLater(() -> new ErrorPopUp("Game already started", "You cannot join this game anymore.", true));
 		} else if (error.getErrorMessage().contains("location is invalid.")&&connectionHandler.isAI()) {
-			Object[] objects = getConnectionHandler().getAiLogic().handleThiefAction(true);
-			HexagonField hexagonField = (HexagonField) objects[0];
-			requestMoveThief(hexagonField.getPosition().castTo2D(), null);
+			getConnectionHandler().getAiScheduler().decide("Raeuber versetzen", AiScheduler.DEFAULT_BUDGET,
+					() -> getConnectionHandler().getAiLogic().handleThiefAction(true), null, objects -> {
+						HexagonField hexagonField = (HexagonField) objects[0];
+						requestMoveThief(hexagonField.getPosition().castTo2D(), null);
+					});
 		} else {
 			GameStart.gameView.updateInGameServerWindow(error.getErrorMessage());
 			if (!getConnectionHandler().isSinglePlayerAI())
 				Platform.runLater(() -> GameStart.gameView.displayLargeErrorMessage(error.getErrorMessage()));
 		}
 
+		// The rest of a batch is not waited for
+		pendingBatchCosts.set(0);
 		if (getConnectionHandler().isAI() && GameStart.siedlerVonCatan.findPlayerByID(connectionHandler.getPlayerId())
 				.getStatus().equals("Handeln oder Bauen")) {
 			waitAndRequestEndTurn();
@@ -246,6 +277,10 @@ public class ClientProtocol {
 
 		try {
 			PlayerForProtocol playerForProtocol = update.getPlayer();
+			// Our state has changed, the AI's decisions for the old one are void
+			if (checkSameIdAsConnectionHandler(playerForProtocol.getId())
+					&& getConnectionHandler().getAiScheduler() != null)
+				getConnectionHandler().getAiScheduler().cancelPending();
 			if (playerForProtocol.getStatus().equals("Spiel starten")
 					&& !checkSameIdAsConnectionHandler(update.getPlayer().getId())
 					&& !GameStart.siedlerVonCatan.isSinglePlayer())
@@ -356,10 +391,10 @@ public class ClientProtocol {
 						if (getConnectionHandler().isAI()
 								&& checkSameIdAsConnectionHandler(playerForProtocol.getId())) {
 							GameStart.mainLogger.getLOGGER().fine(playerForProtocol.getColor());
-							WayPoint waypointToBuild = getConnectionHandler().getAiLogic()
-									.initialSettlementPlacementAI();
-							Settlement settlement = new Settlement(waypointToBuild);
-							requestBuilding(settlement, BuildingType.VILLAGE);
+							getConnectionHandler().getAiScheduler().decide("Dorf bauen", AiScheduler.DEFAULT_BUDGET,
+									() -> getConnectionHandler().getAiLogic().initialSettlementPlacementAI(), null,
+									waypointToBuild -> requestBuilding(new Settlement(waypointToBuild),
+											BuildingType.VILLAGE));
 						}
 						/////////////////////////////////////////////////
 					} else if (playerForProtocol.getStatus().equals("Strasse bauen"))
@@ -381,18 +416,12 @@ public class ClientProtocol {
 						//////////////////// < AI >///////////////////////
 						if (getConnectionHandler().isAI()
 								&& checkSameIdAsConnectionHandler(playerForProtocol.getId())) {
-							try {
-								WayPoint[] wps = getConnectionHandler().getAiLogic().initialStreetPlacementAI();
-								if (wps == null)
-									return;
-								// GameStart.mainLogger.getLOGGER().fine(wps);
-								Street street = GameStart.siedlerVonCatan.getGameWorld().findStreetWithWayPoints(wps[0],
-										wps[1]);
-								requestBuilding(street, BuildingType.STREET);
-							} catch (Exception e1) {
-								GameStart.mainLogger.getLOGGER().fine("[ERROR?!]");
-								e1.printStackTrace();
-							}
+							getConnectionHandler().getAiScheduler().decide("Strasse bauen", AiScheduler.DEFAULT_BUDGET,
+									() -> getConnectionHandler().getAiLogic().initialStreetPlacementAI(), null, wps -> {
+										Street street = GameStart.siedlerVonCatan.getGameWorld()
+												.findStreetWithWayPoints(wps[0], wps[1]);
+										requestBuilding(street, BuildingType.STREET);
+									});
 						}
 						/////////////////////////////////////////////////
 					} else if (playerForProtocol.getStatus().equals("Karten wegen Raeuber abgeben")) {
@@ -426,9 +455,11 @@ public class ClientProtocol {
 						//////////////////// < AI >///////////////////////
 						if (getConnectionHandler().isAI()
 								&& checkSameIdAsConnectionHandler(playerForProtocol.getId())) {
-							Resources resources = getConnectionHandler().getAiLogic().dropHalfCards();
-							requestResourceCardsReturned(new ResourcesReturned(resources));
-							GameStart.mainLogger.getLOGGER().fine("AI DROPPED 50%: " + resources);
+							getConnectionHandler().getAiScheduler().decide("Karten abgeben", AiScheduler.DEFAULT_BUDGET,
+									() -> getConnectionHandler().getAiLogic().dropHalfCards(), null, resources -> {
+										requestResourceCardsReturned(new ResourcesReturned(resources));
+										GameStart.mainLogger.getLOGGER().fine("AI DROPPED 50%: " + resources);
+									});
 						}
 						/////////////////////////////////////////////////
 					} else if (playerForProtocol.getStatus().equals("Raeuber versetzen")
@@ -458,12 +489,8 @@ public class ClientProtocol {
 								GameStart.gameView.displayNotificationMessage("Trade & Build");
 							});
 						/////////////// < AI >////////////////////////
-						if (getConnectionHandler().isAI()) {
-							///////////////////////////// PLAY DEVELOPMENT
-							///////////////////////////// CARD////////////////////////////
-							getConnectionHandler().getAiLogic().tryPlayingDevelopmentCard(this);
-							tryToBuildOrRequestEndTurn(playerForProtocol.getId());
-						}
+						if (getConnectionHandler().isAI())
+							decideToBuildOrEndTurn(playerForProtocol.getId(), true);
 						/////////////// < AI >////////////////////////
 					}
 				}
@@ -508,10 +535,12 @@ public class ClientProtocol {
 		//////////////////// < AI >///////////////////////
 		if (getConnectionHandler().isAI() && checkSameIdAsConnectionHandler(id)) {
 			GameStart.mainLogger.getLOGGER().fine("Change Thief");
-			Object[] objects = getConnectionHandler().getAiLogic().handleThiefAction(false);
-			HexagonField hexagonField = (HexagonField) objects[0];
-			Player playerTarget = (Player) objects[1];
-			requestMoveThief(hexagonField.getPosition().castTo2D(), playerTarget.getPlayerID());
+			getConnectionHandler().getAiScheduler().decide("Raeuber versetzen", AiScheduler.DEFAULT_BUDGET,
+					() -> getConnectionHandler().getAiLogic().handleThiefAction(false), null, objects -> {
+						HexagonField hexagonField = (HexagonField) objects[0];
+						Player playerTarget = (Player) objects[1];
+						requestMoveThief(hexagonField.getPosition().castTo2D(), playerTarget.getPlayerID());
+					});
 		}
 		/////////////////////////////////////////////////
 	}
@@ -654,9 +683,12 @@ public class ClientProtocol {
 				|| costs.getResources().getTotalResources() > 0)) {
 			subtractCosts(costs);
 		}
+		if (checkSameIdAsConnectionHandler(costs.getPlayer()) && pendingBatchCosts.get() > 0
+				&& pendingBatchCosts.decrementAndGet() > 0)
+			return;
 		if (getConnectionHandler().isAI() && GameStart.siedlerVonCatan
 				.findPlayerByID(getConnectionHandler().getPlayerId()).getStatus().equals("Handeln oder Bauen")) {
-			tryToBuildOrRequestEndTurn(costs.getPlayer());
+			decideToBuildOrEndTurn(costs.getPlayer(), false);
 		}
 	}
 
@@ -719,8 +751,9 @@ public class ClientProtocol {
 						teamColor.toString() + " has stolen a card from " + teamColorTarget.toString() + ".");
 			}
 		}
-		// TODO: Check if AI
-		// ..
+		if (getConnectionHandler().isAI() && getConnectionHandler().getAiLogic() != null)
+			getConnectionHandler().getAiLogic().getEvaluator()
+					.onThiefMoved(BoardTopology.getField(thiefMoved.getLocation().charAt(0)));
 	}
 
 	// 7.4 building als attribut
@@ -743,6 +776,7 @@ public class ClientProtocol {
 				WayPoint wpCastle = (WayPoint) GameStart.gameView
 						.getActivGameMatrixEntries()[vecPosCastle.x][vecPosCastle.y][vecPosCastle.z];
 				wpCastle.getSettlement().upgradeToCastle();
+				updateEvaluator(wpCastle, building.getOwner(), buildingType);
 				if (!connectionHandler.isSinglePlayerAI())
 					Platform.runLater(() -> {
 						GameStart.gameView.changeButtonImage(
@@ -816,6 +850,7 @@ public class ClientProtocol {
 				WayPoint wpVillage = (WayPoint) GameStart.gameView
 						.getActivGameMatrixEntries()[vecPosVillage.x][vecPosVillage.y][vecPosVillage.z];
 				wpVillage.getSettlement().buildVillage(building.getOwner());
+				updateEvaluator(wpVillage, building.getOwner(), buildingType);
 				if (!getConnectionHandler().isSinglePlayerAI()) {
 					Platform.runLater(() -> {
 						GameStart.gameView.changeButtonImage(
@@ -836,7 +871,7 @@ public class ClientProtocol {
 						// Add waypoint to the ai list (to improve performance,
 						// but increases
 						// redundancy)
-						getConnectionHandler().getAiLogic().getSettlementWayPoints().add(wpVillage);
+						getConnectionHandler().getAiLogic().addSettlementWayPoint(wpVillage);
 					}
 					////////////////////////////////////////////
 					break;
@@ -853,6 +888,15 @@ public class ClientProtocol {
 		}
 	}
 
+	/**
+	 * Adds a village or castle to the board evaluator of the AI.
+	 */
+	private void updateEvaluator(WayPoint wayPoint, Integer owner, BuildingType buildingType) {
+		if (getConnectionHandler().isAI() && getConnectionHandler().getAiLogic() != null)
+			getConnectionHandler().getAiLogic().getEvaluator().onBuilding(wayPoint.getVertex(), owner,
+					buildingType);
+	}
+
 	/**
 	 * Marks immediate surround neighour waypoints as occupied (<=> non
 	 * buildable). Activates or deactivtes buttons accordingly.
@@ -915,7 +959,13 @@ public class ClientProtocol {
 	// modify it until the server accepts our request.
 	// That's why we must explicitly mention the requestedType.
 	public void requestBuilding(BuildingPrototype buildingPrototype, BuildingType requestedType) {
+		getConnectionHandler().sendObject(toBuilding(buildingPrototype, requestedType));
+	}
 
+	/**
+	 * @return the request to build, its owner is not set (it is not sent)
+	 */
+	private Building toBuilding(BuildingPrototype buildingPrototype, BuildingType requestedType) {
 		String typeString = "";
 		String location = "";
 
@@ -937,10 +987,7 @@ public class ClientProtocol {
 			break;
 		}
 
-		Building building = new Building(null, typeString, location);
-		getConnectionHandler().sendObject(building); // hier aber id nicht
-		// setzen
-		// (wird nicht mitgesendet)
+		return new Building(null, typeString, location);
 	}
 
 	// 8.3
@@ -949,21 +996,57 @@ public class ClientProtocol {
 
 		if (getConnectionHandler() == null || player == null)
 			return;
-		player.setPlayedDevelopmentCard(false);
-		// Reset development cards bought this round
-		player.resetDevelopmentCardsBoughtThisRound();
+		resetTurn();
 		// Inform server
 		getConnectionHandler().sendObject(new TurnEnd());
 		if (!getConnectionHandler().isSinglePlayerAI())
 			Platform.runLater(() -> GameStart.gameView.onTurnEnd());
 	}
 
+	/**
+	 * Ends the turn of the AI if it has not decided in time. Runs on the
+	 * thread of the deadlines, the player is reset on the thread of the AI.
+	 */
+	private void requestTurnEndAfterDeadline() {
+		AiScheduler scheduler = getConnectionHandler().getAiScheduler();
+		if (scheduler == null)
+			return;
+		scheduler.execute(this::resetTurn);
+		getConnectionHandler().sendObject(new TurnEnd());
+		if (!getConnectionHandler().isSinglePlayerAI())
+			Platform.runLater(() -> GameStart.gameView.onTurnEnd());
+	}
+
+	private void resetTurn() {
+		Player player = GameStart.siedlerVonCatan.findPlayerByID(getConnectionHandler().getPlayerId());
+		if (player == null)
+			return;
+		player.setPlayedDevelopmentCard(false);
+		// Reset development cards bought this round
+		player.resetDevelopmentCardsBoughtThisRound();
+	}
+
 	// 9.5
 	public void requestMaritimeTrade(MaritimeTrade maritimeTrade) {
 		GameStart.mainLogger.getLOGGER().fine("Request: " + maritimeTrade.toString());
 		getConnectionHandler().sendObject(maritimeTrade);
 	}
 
+	/**
+	 * Sends maritime trades and the request they are made for in one batch,
+	 * the server handles them in order.
+	 *
+	 * @param request
+	 *            the building or development card paid by the trades
+	 */
+	public void requestMaritimeTradesFor(List<MaritimeTrade> maritimeTrades, Object request) {
+		List<Object> batch = new ArrayList<>(maritimeTrades);
+		batch.add(request);
+		GameStart.mainLogger.getLOGGER().fine("Request: " + batch);
+		pendingBatchCosts.set(batch.size());
+		getConnectionHandler().sendObjects(batch);
+	}
+
 	// 9.7
 	public void receiveBoughtDevelopmentCard(DevelopmentCardBought developmentCardBought) {
 		String cardType = developmentCardBought.getDevelopmentCard();
@@ -1067,10 +1150,18 @@ public class ClientProtocol {
 			return;
 
 		if (getConnectionHandler().isAI()) {
-			// Always decline trades
-			// abandonDomesticTrade(receivedTradeOffer.getTradeId());
-			getConnectionHandler().sendObject(new PlayerReadyForDomesticTrade(receivedTradeOffer.getTradeId(), false));
-			Platform.runLater(() -> GameStart.gameView.displayLargeMessage("Trade received and AI declined..."));
+			// Declined if the AI cannot decide in time
+			AiLogic ai = getConnectionHandler().getAiLogic();
+			getConnectionHandler().getAiScheduler().decide("Handel annehmen", ai.getTradeBudget(),
+					() -> ai.acceptTradeOffer(receivedTradeOffer.getPlayer(), receivedTradeOffer.getResourcesSupply(),
+							receivedTradeOffer.getResourcesDemand()),
+					false, accepted -> {
+						getConnectionHandler().sendObject(
+								new PlayerReadyForDomesticTrade(receivedTradeOffer.getTradeId(), accepted));
+						if (!accepted && !getConnectionHandler().isSinglePlayerAI())
+							Platform.runLater(
+									() -> GameStart.gameView.displayLargeMessage("Trade received and AI declined..."));
+					});
 		} else {
 			Platform.runLater(() -> GameStart.gameView.drawTradeNotification(receivedTradeOffer));
 		}
@@ -1206,6 +1297,8 @@ public class ClientProtocol {
 		// Check if game is over (<=> somebody won <=> reaches 10 points or
 		// more)
 		GameStart.siedlerVonCatan.gameFinished = true;
+		// The seat is not held anymore
+		connectionHandler.endSession();
 		if (connectionHandler.isSinglePlayerAI())
 			return;
 		// Display victory screen if your id
@@ -1259,7 +1352,7 @@ public class ClientProtocol {
 		// If AI, end Turn
 		////////////////////////// AI ///////////////////////////
 		if (connectionHandler.isAI() && checkSameIdAsConnectionHandler(player.getPlayerID())) {
-			tryToBuildOrRequestEndTurn(player.getPlayerID());
+			decideToBuildOrEndTurn(player.getPlayerID(), false);
 		}
 		////////////////////////////////////////////////////////
 	}
@@ -1419,86 +1512,79 @@ public class ClientProtocol {
 	}
 
 	/**
-	 * Tries to build, trade,... or ends the turn if nothing is possible (useful
-	 * for AIs)
+	 * Lets the AI decide on its own thread what to trade and build (useful for
+	 * AIs). The turn is ended if it cannot decide in time.
+	 *
+	 * @param playDevelopmentCard
+	 *            True, if the AI may play a development card first
+	 */
+	private void decideToBuildOrEndTurn(Integer id, boolean playDevelopmentCard) {
+		Runnable endTurn = this::requestTurnEndAfterDeadline;
+		getConnectionHandler().getAiScheduler().decide("Handeln oder Bauen", AiScheduler.DEFAULT_BUDGET, () -> {
+			///////////////////////////// PLAY DEVELOPMENT
+			///////////////////////////// CARD////////////////////////////
+			// Played while deciding, as it reads the game
+			if (playDevelopmentCard && checkSameIdAsConnectionHandler(id))
+				getConnectionHandler().getAiLogic().tryPlayingDevelopmentCard(this);
+			return planToBuildOrEndTurn(id);
+		}, endTurn, Runnable::run);
+	}
+
+	/**
+	 * Decides what to trade and build, or to end the turn if nothing is possible
+	 * (useful for AIs). Nothing is sent yet, so the AI can decide on its own
+	 * thread.
+	 *
+	 * @return the requests to send
 	 */
-	private void tryToBuildOrRequestEndTurn(Integer id) {
+	private Runnable planToBuildOrEndTurn(Integer id) {
 
 		if (!checkSameIdAsConnectionHandler(id))
-			return;
+			return () -> {
+			};
 
+		AiLogic ai = getConnectionHandler().getAiLogic();
 		if (!GameStart.siedlerVonCatan.findPlayerByID(getConnectionHandler().getPlayerId()).getStatus()
 				.equals("Handeln oder Bauen")) {
-			waitAndRequestEndTurn();
-		} else {
-			///////////////////////////// CASTLE
-			///////////////////////////// /////////////////////////////////////
-			// Try to trade if there is not enough resources available
-			MaritimeTrade tradeRequestForCastle = getConnectionHandler().getAiLogic().tradeCardsWithBankForCastle();
-			if (tradeRequestForCastle != null) {
-				requestMaritimeTrade(tradeRequestForCastle);
-			}
-			// Try to build another settlement first
-			WayPoint wayPointToBuildCastle = getConnectionHandler().getAiLogic().getWayPointToBuildCastle();
-			if (wayPointToBuildCastle != null) {
-				GameStart.mainLogger.getLOGGER()
-						.fine("AI wants to build a castle at: " + wayPointToBuildCastle.toString());
-				// Request to build a village
-				Settlement settlement = new Settlement(wayPointToBuildCastle);
-				requestBuilding(settlement, BuildingType.CASTLE);
-			} else {
-				///////////////////////////// VILLAGE
-				///////////////////////////// /////////////////////////////////////
-				// Try to trade if there is not enough resources available
-				MaritimeTrade tradeRequestForVillage = getConnectionHandler().getAiLogic()
-						.tradeCardsWithBankForVillage();
-				if (tradeRequestForVillage != null) {
-					requestMaritimeTrade(tradeRequestForVillage);
-				}
-				// Try to build another settlement first
-				WayPoint wayPointToBuildVillage = getConnectionHandler().getAiLogic().getWayPointToBuildSettlement();
-
-				if (wayPointToBuildVillage != null) {
-					GameStart.mainLogger.getLOGGER()
-							.fine("AI wants to build a village at: " + wayPointToBuildVillage.toString());
-
-					// Request to build a village
-					Settlement settlement = new Settlement(wayPointToBuildVillage);
-					requestBuilding(settlement, BuildingType.VILLAGE);
-				}
-				// Else try to build a road
-				else {
-					///////////////////////////// ROAD
-					///////////////////////////// /////////////////////////////////////
-					// Try to trade if there is not enough resources available
-					MaritimeTrade tradeRequestForStreet = getConnectionHandler().getAiLogic()
-							.tradeCardsWithBankForStreet();
-					if (tradeRequestForStreet != null) {
-						requestMaritimeTrade(tradeRequestForStreet);
-					}
-					// Try to build a road
-					WayPoint[] waypointsForStreet = getConnectionHandler().getAiLogic().getStreetToBuild();
-					if (waypointsForStreet != null) {
-						GameStart.mainLogger.getLOGGER().fine("AI wants to build a street at: "
-								+ waypointsForStreet[0].toString() + " " + waypointsForStreet[1].toString());
-						// Build street
-						Street street = GameStart.siedlerVonCatan.getGameWorld()
-								.findStreetWithWayPoints(waypointsForStreet[0], waypointsForStreet[1]);
-						requestBuilding(street, BuildingType.STREET);
-
-					} else {
-						///////////////////////////// BUY DEVELOPMENT
-						///////////////////////////// CARD////////////////////////////
-						// TODO: Trade if necessary
-
-						if (getConnectionHandler().getAiLogic().tryBuyingDevelopmentCard())
-							sendBuyDevelopmentCardRequest();
-						else
-							waitAndRequestEndTurn();
-					}
-				}
-			}
+			return this::waitAndRequestEndTurn;
+		}
+		///////////////////////////// CASTLE
+		///////////////////////////// /////////////////////////////////////
+		// Trades for a building are planned at once and sent with it
+		List<MaritimeTrade> tradesForCastle = ai.planMaritimeTrades(MaritimeTradePlanner.CASTLE_COSTS);
+		WayPoint wayPointToBuildCastle = tradesForCastle == null ? null : ai.getWayPointToBuildCastle();
+		if (wayPointToBuildCastle != null) {
+			GameStart.mainLogger.getLOGGER().fine("AI wants to build a castle at: " + wayPointToBuildCastle.toString());
+			return () -> requestMaritimeTradesFor(tradesForCastle,
+					toBuilding(new Settlement(wayPointToBuildCastle), BuildingType.CASTLE));
+		}
+		///////////////////////////// VILLAGE
+		///////////////////////////// /////////////////////////////////////
+		List<MaritimeTrade> tradesForVillage = ai.planMaritimeTrades(MaritimeTradePlanner.VILLAGE_COSTS);
+		WayPoint wayPointToBuildVillage = tradesForVillage == null ? null : ai.getWayPointToBuildSettlement();
+		if (wayPointToBuildVillage != null) {
+			GameStart.mainLogger.getLOGGER().fine("AI wants to build a village at: " + wayPointToBuildVillage.toString());
+			return () -> requestMaritimeTradesFor(tradesForVillage,
+					toBuilding(new Settlement(wayPointToBuildVillage), BuildingType.VILLAGE));
+		}
+		///////////////////////////// ROAD
+		///////////////////////////// /////////////////////////////////////
+		List<MaritimeTrade> tradesForStreet = ai.planMaritimeTrades(MaritimeTradePlanner.STREET_COSTS);
+		WayPoint[] waypointsForStreet = tradesForStreet == null ? null : ai.getStreetToBuild();
+		Street street = waypointsForStreet == null ? null
+				: GameStart.siedlerVonCatan.getGameWorld().findStreetWithWayPoints(waypointsForStreet[0],
+						waypointsForStreet[1]);
+		if (street != null) {
+			GameStart.mainLogger.getLOGGER().fine("AI wants to build a street at: " + waypointsForStreet[0].toString()
+					+ " " + waypointsForStreet[1].toString());
+			return () -> requestMaritimeTradesFor(tradesForStreet, toBuilding(street, BuildingType.STREET));
 		}
+		///////////////////////////// BUY DEVELOPMENT
+		///////////////////////////// CARD////////////////////////////
+		List<MaritimeTrade> tradesForCard = ai.planMaritimeTrades(MaritimeTradePlanner.CARD_COSTS);
+		if (tradesForCard != null)
+			return () -> requestMaritimeTradesFor(tradesForCard, new BuyDevelopmentCard());
+		return this::waitAndRequestEndTurn;
 	}
 
 	/**
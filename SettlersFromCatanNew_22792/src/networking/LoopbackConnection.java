@@ -0,0 +1,156 @@
+package networking;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-memory connection between a client and a server running in the same JVM
+ * (single player). The message objects are handed over together with their
+ * top-level key, nothing is serialized.
+ *
+ * Requests of the client are handled by the server right away on the sending
+ * thread, so the requests of several clients reach the server in the order
+ * they have been sent. Messages of the server are queued and handled by the
+ * thread of the client's connection handler, like lines read from a socket.
+ * Neither side may change a message object after sending it.
+ */
+public class LoopbackConnection {
+	/**
+	 * Accepts the connections of the server running in this JVM, null if there
+	 * is none
+	 */
+	private static volatile Consumer<LoopbackConnection> acceptor;
+	/**
+	 * Put into the queue to wake up the client when the connection is closed
+	 */
+	private static final Message CLOSED = new Message(null, null);
+
+	private final LinkedBlockingQueue<Message> toClient = new LinkedBlockingQueue<>();
+	private volatile BiConsumer<String, Object> server;
+	private volatile Runnable closeHandler;
+	private volatile boolean closed;
+
+	/**
+	 * A message with its top-level key
+	 */
+	static final class Message {
+		final String key;
+		final Object value;
+
+		private Message(String key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private LoopbackConnection() {
+	}
+
+	/**
+	 * Lets clients of this JVM connect to a server without a socket.
+	 *
+	 * @param acceptor
+	 *            called with every new connection (on the thread of the
+	 *            connecting client)
+	 */
+	public static synchronized void bind(Consumer<LoopbackConnection> acceptor) {
+		LoopbackConnection.acceptor = acceptor;
+	}
+
+	/**
+	 * Stops accepting connections, if the acceptor is still bound.
+	 */
+	public static synchronized void unbind(Consumer<LoopbackConnection> acceptor) {
+		if (LoopbackConnection.acceptor == acceptor)
+			LoopbackConnection.acceptor = null;
+	}
+
+	/**
+	 * @return True, if a server is running in this JVM
+	 */
+	public static boolean isServerBound() {
+		return acceptor != null;
+	}
+
+	/**
+	 * Connects to the server running in this JVM.
+	 *
+	 * @return the connection, already accepted by the server
+	 * @throws IllegalStateException
+	 *             if there is no server in this JVM
+	 */
+	static LoopbackConnection connect() {
+		Consumer<LoopbackConnection> currentAcceptor = acceptor;
+		if (currentAcceptor == null)
+			throw new IllegalStateException("No server running in this JVM");
+		LoopbackConnection connection = new LoopbackConnection();
+		currentAcceptor.accept(connection);
+		return connection;
+	}
+
+	// Server side
+
+	/**
+	 * Sets the handler of the client's requests, called by the server when it
+	 * accepts the connection.
+	 *
+	 * @param server
+	 *            called with the key and the object of every request
+	 * @param closeHandler
+	 *            called once the connection is closed
+	 */
+	public void setServer(BiConsumer<String, Object> server, Runnable closeHandler) {
+		this.server = server;
+		this.closeHandler = closeHandler;
+	}
+
+	/**
+	 * Queues a message for the client. May be called from any thread.
+	 */
+	public void sendToClient(String key, Object message) {
+		if (!closed)
+			toClient.add(new Message(key, message));
+	}
+
+	// Client side
+
+	/**
+	 * Hands a request to the server and returns once it has been handled.
+	 */
+	void sendToServer(String key, Object message) {
+		BiConsumer<String, Object> currentServer = server;
+		if (!closed && currentServer != null)
+			currentServer.accept(key, message);
+	}
+
+	/**
+	 * Waits for the next message of the server.
+	 *
+	 * @return the message, null once the connection is closed
+	 */
+	Message receive() throws InterruptedException {
+		Message message = toClient.take();
+		return message == CLOSED ? null : message;
+	}
+
+	/**
+	 * Closes the connection (both sides). Messages still queued are dropped.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+		}
+		toClient.clear();
+		toClient.add(CLOSED);
+		Runnable currentCloseHandler = closeHandler;
+		if (currentCloseHandler != null)
+			currentCloseHandler.run();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+}
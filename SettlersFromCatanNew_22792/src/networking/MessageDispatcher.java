@@ -0,0 +1,111 @@
+package networking;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.function.BiConsumer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Dispatches received protocol messages (one JSON object per line, e.g.
+ * {"Bauen":{...}}) to their handlers. Only the top-level key is read to find
+ * the handler in a prebuilt table, the value is then deserialized straight from
+ * the same reader. Messages of a loopback connection are dispatched by their
+ * key without any JSON. Used by the client and by the server.
+ *
+ * @param <C>
+ *            the protocol handling the messages (passed to every handler)
+ */
+public class MessageDispatcher<C> {
+	private final Gson gson = ProtocolCodec.getGson();
+	private final HashMap<String, Route<C, ?>> routes = new HashMap<>();
+
+	/**
+	 * Registers the handler of a message.
+	 *
+	 * @param key
+	 *            top-level key of the message, e.g. "Bauen"
+	 * @param type
+	 *            class the value of the message is deserialized into
+	 * @param handler
+	 *            called with the protocol and the deserialized value
+	 * @return this dispatcher (to chain the registrations)
+	 */
+	public <T> MessageDispatcher<C> on(String key, Class<T> type, BiConsumer<C, T> handler) {
+		routes.put(key, new Route<>(type, handler));
+		return this;
+	}
+
+	/**
+	 * Dispatches one received line.
+	 *
+	 * @param protocol
+	 *            the protocol handling the message
+	 * @param line
+	 *            the received line
+	 * @return false if the message is unknown (nothing has been called)
+	 * @throws JsonSyntaxException
+	 *             if the line is no JSON object
+	 */
+	public boolean dispatch(C protocol, String line) {
+		if (line == null)
+			return false;
+		try (JsonReader reader = new JsonReader(new StringReader(line))) {
+			reader.beginObject();
+			if (reader.peek() != JsonToken.NAME)
+				return false;
+			Route<C, ?> route = routes.get(reader.nextName());
+			if (route == null)
+				return false;
+			route.handle(gson, reader, protocol);
+			return true;
+		} catch (IOException | IllegalStateException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	/**
+	 * Dispatches a message which has not been serialized (loopback connection).
+	 *
+	 * @param protocol
+	 *            the protocol handling the message
+	 * @param key
+	 *            top-level key of the message
+	 * @param message
+	 *            the message object, must be of the registered type
+	 * @return false if the message is unknown (nothing has been called)
+	 */
+	public boolean dispatch(C protocol, String key, Object message) {
+		Route<C, ?> route = routes.get(key);
+		if (route == null || !route.type.isInstance(message))
+			return false;
+		route.handle(protocol, message);
+		return true;
+	}
+
+	/**
+	 * Message type and handler registered for one key
+	 */
+	private static class Route<C, T> {
+		private final Class<T> type;
+		private final BiConsumer<C, T> handler;
+
+		private Route(Class<T> type, BiConsumer<C, T> handler) {
+			this.type = type;
+			this.handler = handler;
+		}
+
+		private void handle(Gson gson, JsonReader reader, C protocol) {
+			T value = gson.fromJson(reader, type);
+			handler.accept(protocol, value);
+		}
+
+		private void handle(C protocol, Object message) {
+			handler.accept(protocol, type.cast(message));
+		}
+	}
+}
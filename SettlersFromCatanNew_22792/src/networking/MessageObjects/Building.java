@@ -49,6 +49,13 @@ public class Building {
             letter += location[2].translateToLetter();
         return letter;
     }
+    /**
+     * @return the coordinates of the fields around the building (not to be modified)
+     */
+    public Coordinates[] getLocationCoordinates() {
+        return location;
+    }
+
     public void setLocation(String location) {
 
         if(location.length() == 3)
@@ -1,5 +1,11 @@
 package networking.MessageObjects;
 
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.gson.annotations.SerializedName;
 import tools.Vector2D;
 import tools.WorldTranslation;
@@ -49,5 +55,54 @@ import tools.WorldTranslation;
         public void setY(Integer y) {
             this.y = y;
         }
+
+        /**
+         * Hand-written JSON binding (used instead of reflection, see
+         * {@link networking.ProtocolCodec}). Missing values stay null like with
+         * the reflective binding.
+         */
+        public static class Adapter extends TypeAdapter<Coordinates> {
+            @Override
+            public void write(JsonWriter out, Coordinates value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginObject();
+                out.name("x").value(value.x);
+                out.name("y").value(value.y);
+                out.endObject();
+            }
+
+            @Override
+            public Coordinates read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                Integer x = null;
+                Integer y = null;
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        continue;
+                    }
+                    switch (name) {
+                    case "x":
+                        x = in.nextInt();
+                        break;
+                    case "y":
+                        y = in.nextInt();
+                        break;
+                    default:
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+                return new Coordinates(x, y);
+            }
+        }
     }
 
@@ -1,5 +1,11 @@
 package networking.MessageObjects;
 
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.gson.annotations.SerializedName;
 
 /**
@@ -103,5 +109,74 @@ public class DevelopmentCards {
 			if(victoryPoint!=null) totalCards+=victoryPoint;
 			return totalCards;
 		}
+
+		/**
+		 * Hand-written JSON binding (used instead of reflection, see
+		 * {@link networking.ProtocolCodec}). Missing values stay null like with
+		 * the reflective binding.
+		 */
+		public static class Adapter extends TypeAdapter<DevelopmentCards> {
+			@Override
+			public void write(JsonWriter out, DevelopmentCards value) throws IOException {
+				if (value == null) {
+					out.nullValue();
+					return;
+				}
+				out.beginObject();
+				out.name("Ritter").value(value.knight);
+				out.name("Strassenbau").value(value.roadBuilding);
+				out.name("Monopol").value(value.monopoly);
+				out.name("Erfindung").value(value.yearOfPlenty);
+				out.name("Siegpunkt").value(value.victoryPoint);
+				out.name("Unbekannt").value(value.hidden);
+				out.endObject();
+			}
+
+			@Override
+			public DevelopmentCards read(JsonReader in) throws IOException {
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					return null;
+				}
+				Integer knight = null;
+				Integer roadBuilding = null;
+				Integer monopoly = null;
+				Integer yearOfPlenty = null;
+				Integer victoryPoint = null;
+				Integer hidden = null;
+				in.beginObject();
+				while (in.hasNext()) {
+					String name = in.nextName();
+					if (in.peek() == JsonToken.NULL) {
+						in.nextNull();
+						continue;
+					}
+					switch (name) {
+					case "Ritter":
+						knight = in.nextInt();
+						break;
+					case "Strassenbau":
+						roadBuilding = in.nextInt();
+						break;
+					case "Monopol":
+						monopoly = in.nextInt();
+						break;
+					case "Erfindung":
+						yearOfPlenty = in.nextInt();
+						break;
+					case "Siegpunkt":
+						victoryPoint = in.nextInt();
+						break;
+					case "Unbekannt":
+						hidden = in.nextInt();
+						break;
+					default:
+						in.skipValue();
+					}
+				}
+				in.endObject();
+				return new DevelopmentCards(knight, roadBuilding, monopoly, yearOfPlenty, victoryPoint, hidden);
+			}
+		}
 	}
 
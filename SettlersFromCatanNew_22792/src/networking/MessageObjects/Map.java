@@ -1,8 +1,9 @@
 package networking.MessageObjects;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 
+import tools.BoardIndex;
+import tools.BoardTopology;
 import tools.BuildingType;
 import tools.PortTypes;
 
@@ -24,6 +25,10 @@ public class Map {
 	private Port[] ports;
 	@SerializedName("Raeuber")
 	private Coordinates thief;
+	/**
+	 * Occupancy of the crossings and edges, not sent
+	 */
+	private transient BoardIndex index;
 
 	/**
 	 * constructor
@@ -45,167 +50,127 @@ public class Map {
 	}
 
 	/**
-	 * checks if and by what building a given spot is occupied
+	 * checks if and by what building the location of a requested building is
+	 * occupied
 	 * 
-	 * @param checkedLocation
-	 *            location to be checked
-	 * @return
+	 * @param building
+	 *            requested building (only its type and location are used)
+	 * @return the current building type at this location
 	 */
-	public BuildingType isOccupiedBy(String checkedLocation) {
-		outerloop: for (Building building : buildings) {
-			if (checkedLocation.length() != building.getLocation().length())
-				continue;
-			for (char character : checkedLocation.toCharArray()) {
-				if (building.getLocation().indexOf(character) < 0)
-					continue outerloop;
-			}
-			return tools.WorldTranslation.getServerBuildingTypeToClientBuildingType(building.getType());
-		}
-		return BuildingType.NONE;
+	public BuildingType isOccupiedBy(Building building) {
+		int id = BoardIndex.getLocationId(building);
+		if (id < 0)
+			return BuildingType.NONE;
+		if (building.getType().equals("Strasse"))
+			return getIndex().getOwnerOfEdge(id) == BoardIndex.NO_OWNER ? BuildingType.NONE : BuildingType.STREET;
+		return getIndex().getTypeOfVertex(id);
 	}
 
 	/**
-	 * Check if there is a street (of the owner) next to the checkedLocation 
-	 * @param owner
-	 * @param checkedLocation
+	 * Check if there is a street or building of the owner next to the
+	 * requested settlement
+	 * 
+	 * @param settlement
+	 *            requested settlement
 	 */
-	public boolean villageCheckForStreetNearby(Integer owner, String checkedLocation){
-		for (Building building : buildings) {
-			String intersectingLetters = getIntersectingLetters(checkedLocation, building.getLocation());
-			if (intersectingLetters.length() == 2 && owner == building.getOwner())
+	public boolean villageCheckForStreetNearby(Building settlement) {
+		int vertex = BoardIndex.getLocationId(settlement);
+		if (vertex < 0)
+			return false;
+		int owner = settlement.getOwner();
+		for (int edge : BoardTopology.getEdgesOfVertex(vertex)) {
+			if (getIndex().getOwnerOfEdge(edge) == owner)
 				return true;
 		}
-		return false;
-	}
-	
-	/**
-	 * method used to check if there is a building nearby = if the street can be
-	 * built
-	 * 
-	 * @param owner
-	 * @param checkedLocation
-	 * @param crossings
-	 * @return
-	 */
-	public boolean streetCheckForOwnBuildingNearby(Integer owner, String checkedLocation, ArrayList<String> crossings) {
-		outerloop:
-		for (Building building : buildings) {
-			BuildingType buildingType = tools.WorldTranslation
-					.getServerBuildingTypeToClientBuildingType(building.getType());
-			String intersectingLetters = getIntersectingLetters(checkedLocation, building.getLocation());
-			if (intersectingLetters.length() < 1)
-				continue;
-			else if (intersectingLetters.length() == 2 && owner == building.getOwner())
+		for (int neighbour : BoardTopology.getNeighboursOfVertex(vertex)) {
+			if (getIndex().getOwnerOfVertex(neighbour) == owner)
 				return true;
-			else if (intersectingLetters.length() == 1 && owner == building.getOwner()
-					&& buildingType.equals(BuildingType.STREET)) {
-				String differentLetter = intersectingLetters.contains(checkedLocation.substring(0, 1))
-						? (checkedLocation.substring(1, 2)) : (checkedLocation.substring(0, 1));
-				String checkedCrossing = building.getLocation() + differentLetter;
-				//check if the two streets are not separated by an other player's settlement/castle
-				for (Building possiblyIntersectingBuilding: buildings){
-					if(possiblyIntersectingBuilding.getType()=="Strasse"||possiblyIntersectingBuilding.getOwner()==owner) continue;
-					int correctLetters = 0;
-					for (char character : possiblyIntersectingBuilding.getLocation().toCharArray()) {
-						if (checkedCrossing.indexOf(character) >= 0)
-							correctLetters++;
-					}
-					if (correctLetters == 3) continue outerloop;
-				}
-				for (String crossing : crossings) {
-					int correctLetters = 0;
-					for (char character : crossing.toCharArray()) {
-						if (checkedCrossing.indexOf(character) >= 0)
-							correctLetters++;
-					}
-					if (correctLetters == 3)
-						return true;
-				}
-			}
 		}
 		return false;
 	}
+
 	/**
-	 * returns an array of buildings near a location
-	 *
-	 * @param checkedLocation
-	 * @param crossings
-	 * @return
+	 * method used to check if there is a building or a street of the owner
+	 * nearby = if the street can be built. A street of the owner only counts if
+	 * the crossing between both streets is not occupied by an other player.
+	 * 
+	 * @param street
+	 *            requested street
+	 * @return true if the street can be built
 	 */
-	public HashSet<Building> streetGetBuildingNearby(String checkedLocation, ArrayList<String> crossings) {
-		HashSet<Building>  buildingsToReturn = new HashSet<>();
-		for (Building building : buildings) {
-			BuildingType buildingType = tools.WorldTranslation
-					.getServerBuildingTypeToClientBuildingType(building.getType());
-			String intersectingLetters = getIntersectingLetters(checkedLocation, building.getLocation());
-			if (intersectingLetters.length() < 1)
+	public boolean streetCheckForOwnBuildingNearby(Building street) {
+		int edge = BoardIndex.getLocationId(street);
+		if (edge < 0)
+			return false;
+		int owner = street.getOwner();
+		for (int vertex : BoardTopology.getVerticesOfEdge(edge)) {
+			int vertexOwner = getIndex().getOwnerOfVertex(vertex);
+			if (vertexOwner == owner)
+				return true;
+			if (vertexOwner != BoardIndex.NO_OWNER)
 				continue;
-			else if (intersectingLetters.length() == 2)
-				buildingsToReturn.add(building);
-			else if (intersectingLetters.length() == 1 && buildingType.equals(BuildingType.STREET)) {
-				String differentLetter = intersectingLetters.contains(checkedLocation.substring(0, 1))
-						? (checkedLocation.substring(1, 2)) : (checkedLocation.substring(0, 1));
-				String checkedCrossing = building.getLocation() + differentLetter;
-				for (String crossing : crossings) {
-					int correctLetters = 0;
-					for (char character : crossing.toCharArray()) {
-						if (checkedCrossing.indexOf(character) >= 0)
-							correctLetters++;
-					}
-					if (correctLetters == 3)
-						buildingsToReturn.add(building);
-				}
+			for (int otherEdge : BoardTopology.getEdgesOfVertex(vertex)) {
+				if (otherEdge != edge && getIndex().getOwnerOfEdge(otherEdge) == owner)
+					return true;
 			}
 		}
-		return buildingsToReturn;
+		return false;
 	}
 
 	/**
 	 * Checks if a requested street is next to a given building (used for the
 	 * second street built in the initial phase
 	 * 
-	 * @param buildingLocation
+	 * @param building
 	 *            building to be checked
-	 * @param streetLocation
+	 * @param street
 	 *            requested street
 	 * @return true if build possible
 	 */
-	public boolean streetCheckIfGivenBuildingNearby(String buildingLocation, String streetLocation) {
-		return (getIntersectingLetters(buildingLocation, streetLocation).length() == 2);
+	public boolean streetCheckIfGivenBuildingNearby(Building building, Building street) {
+		int vertex = BoardIndex.getLocationId(building);
+		int edge = BoardIndex.getLocationId(street);
+		if (vertex < 0 || edge < 0)
+			return false;
+		for (int vertexEdge : BoardTopology.getEdgesOfVertex(vertex)) {
+			if (vertexEdge == edge)
+				return true;
+		}
+		return false;
 	}
 
 	/**
 	 * method used to check if there is a street next to the chosen
 	 * settlement/city location
 	 * 
-	 * @param checkedLocation
-	 *            requested location for the building
+	 * @param building
+	 *            requested building
 	 * @return true if building accepted
 	 */
-	public boolean buildingCheckForStreetNearby(String checkedLocation) {
-		for (Building building : buildings) {
-			BuildingType buildingType = tools.WorldTranslation
-					.getServerBuildingTypeToClientBuildingType(building.getType());
-			if (!buildingType.equals(BuildingType.STREET))
-				continue;
-			String intersectingLetters = getIntersectingLetters(checkedLocation, building.getLocation());
-			if (intersectingLetters.length() == 2)
+	public boolean buildingCheckForStreetNearby(Building building) {
+		int vertex = BoardIndex.getLocationId(building);
+		if (vertex < 0)
+			return false;
+		for (int edge : BoardTopology.getEdgesOfVertex(vertex)) {
+			if (getIndex().getOwnerOfEdge(edge) != BoardIndex.NO_OWNER)
 				return true;
 		}
 		return false;
 	}
 
 	/**
-	 * used to check if there is a building on a neighbour crossing
+	 * used to check if there is a building on the crossing of the requested
+	 * building or on a neighbour crossing
 	 * 
-	 * @param location
+	 * @param building
+	 *            requested building
 	 */
-	public boolean checkIfNoBuildingNearby(String location) {
-		for (Building building : buildings) {
-			if (building.getType().equals("Strasse"))
-				continue;
-			String intersectingLetters = getIntersectingLetters(location, building.getLocation());
-			if (intersectingLetters.length() > 1)
+	public boolean checkIfNoBuildingNearby(Building building) {
+		int vertex = BoardIndex.getLocationId(building);
+		if (vertex < 0 || getIndex().getOwnerOfVertex(vertex) != BoardIndex.NO_OWNER)
+			return false;
+		for (int neighbour : BoardTopology.getNeighboursOfVertex(vertex)) {
+			if (getIndex().getOwnerOfVertex(neighbour) != BoardIndex.NO_OWNER)
 				return false;
 		}
 		return true;
@@ -219,37 +184,62 @@ public class Map {
 	 * @return true if this trading condition is fulfilled
 	 */
 	public boolean checkIfOwnPortNearby(PlayerForProtocol player, PortTypes portType) {
-		for (Building building : buildings) {
-			if (building.getOwner() != player.getId() || building.getType().equals("Strasse")
-					|| building.getType().equals(BuildingType.NONE))
-				continue;
-			for (Port port : ports) {
-				if (!tools.WorldTranslation.getServerPortTypeToClientPortType(port.getType()).equals(portType))
-					continue;
-				String intersectingLetters = getIntersectingLetters(building.getLocation(), port.getLocation());
-				if (intersectingLetters.length() == 2)
-					return true;
-			}
+		int owner = player.getId();
+		for (int vertex = 0; vertex < BoardTopology.NUMBER_OF_VERTICES; vertex++) {
+			if (getIndex().getOwnerOfVertex(vertex) == owner && getIndex().hasPort(vertex, portType))
+				return true;
 		}
 		return false;
 	}
 
 	/**
-	 * checks intersection of two strings
+	 * Adds a building to the map. A settlement is replaced by the city built
+	 * at its location.
+	 * 
+	 * @param building
+	 */
+	public void addBuilding(Building building) {
+		Building replaced = getIndex().add(building);
+		if (replaced != null) {
+			for (int i = 0; i < buildings.length; i++) {
+				if (buildings[i] == replaced) {
+					buildings[i] = building;
+					return;
+				}
+			}
+		}
+		buildings = Arrays.copyOf(buildings, buildings.length + 1);
+		buildings[buildings.length - 1] = building;
+	}
+
+	/**
+	 * Removes the building at the location of the given building from the map.
 	 * 
-	 * @param str1
-	 *            first string
-	 * @param str2
-	 *            second string
-	 * @return intersection of the two
+	 * @param building
 	 */
-	public String getIntersectingLetters(String str1, String str2) {
-		String intersectingLetters = "";
-		for (char character : str1.toCharArray()) {
-			if (str2.indexOf(character) >= 0)
-				intersectingLetters += character;
+	public void removeBuilding(Building building) {
+		Building removed = getIndex().remove(building);
+		if (removed == null)
+			return;
+		for (int i = 0; i < buildings.length; i++) {
+			if (buildings[i] == removed) {
+				Building[] buildingsNew = new Building[buildings.length - 1];
+				System.arraycopy(buildings, 0, buildingsNew, 0, i);
+				System.arraycopy(buildings, i + 1, buildingsNew, i, buildings.length - i - 1);
+				buildings = buildingsNew;
+				return;
+			}
 		}
-		return intersectingLetters;
+	}
+
+	/**
+	 * @return the index of the buildings and ports (created on first use, as
+	 *         maps received from the server are created by gson)
+	 */
+	public BoardIndex getIndex() {
+		if (index == null)
+			index = new BoardIndex(buildings, ports);
+		return index;
 	}
 
 	// Getters and Setters
@@ -267,6 +257,7 @@ public class Map {
 
 	public void setBuildings(Building[] buildings) {
 		this.buildings = buildings;
+		this.index = null;
 	}
 
 	public Port[] getPorts() {
@@ -275,6 +266,7 @@ public class Map {
 
 	public void setPorts(Port[] ports) {
 		this.ports = ports;
+		this.index = null;
 	}
 
 	public String getThief() {
@@ -0,0 +1,8 @@
+package networking.MessageObjects;
+
+/**
+ * Sent by the server to a client it has not sent anything to for a while, the client answers with a {@link Pong}
+ * so the server knows the connection is alive
+ */
+public class Ping {
+}
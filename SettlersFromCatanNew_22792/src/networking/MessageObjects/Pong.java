@@ -0,0 +1,7 @@
+package networking.MessageObjects;
+
+/**
+ * The answer of the client to a {@link Ping}
+ */
+public class Pong {
+}
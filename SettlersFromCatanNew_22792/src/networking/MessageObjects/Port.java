@@ -33,6 +33,13 @@ public class Port {
         letter += location[1].translateToLetter();
         return WorldTranslation.sortString(letter);
     }
+    /**
+     * @return the coordinates of the two fields of the port (not to be modified)
+     */
+    public Coordinates[] getLocationCoordinates() {
+        return location;
+    }
+
     public void setLocation(String location) {
         this.location[0] = new Coordinates(location.charAt(0)+"");
         this.location[1] = new Coordinates(location.charAt(1)+"");
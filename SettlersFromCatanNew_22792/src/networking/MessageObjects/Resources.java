@@ -2,6 +2,12 @@ package networking.MessageObjects;
 
 import application.GameStart;
 
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.gson.annotations.SerializedName;
 
 /**
@@ -189,4 +195,73 @@ public class Resources {
 //
 //		return isStreetCost || isVillageCost || isCastleCost || isDevelopmentCost;
 //	}
+
+	/**
+	 * Hand-written JSON binding (used instead of reflection, see
+	 * {@link networking.ProtocolCodec}). Missing values stay null like with
+	 * the reflective binding.
+	 */
+	public static class Adapter extends TypeAdapter<Resources> {
+		@Override
+		public void write(JsonWriter out, Resources value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("Holz").value(value.wood);
+			out.name("Lehm").value(value.loam);
+			out.name("Wolle").value(value.wool);
+			out.name("Getreide").value(value.grain);
+			out.name("Erz").value(value.stone);
+			out.name("Unbekannt").value(value.hidden);
+			out.endObject();
+		}
+
+		@Override
+		public Resources read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			Integer wood = null;
+			Integer loam = null;
+			Integer wool = null;
+			Integer grain = null;
+			Integer stone = null;
+			Integer hidden = null;
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (in.peek() == JsonToken.NULL) {
+					in.nextNull();
+					continue;
+				}
+				switch (name) {
+				case "Holz":
+					wood = in.nextInt();
+					break;
+				case "Lehm":
+					loam = in.nextInt();
+					break;
+				case "Wolle":
+					wool = in.nextInt();
+					break;
+				case "Getreide":
+					grain = in.nextInt();
+					break;
+				case "Erz":
+					stone = in.nextInt();
+					break;
+				case "Unbekannt":
+					hidden = in.nextInt();
+					break;
+				default:
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			return new Resources(wood, loam, wool, grain, stone, hidden);
+		}
+	}
 }
@@ -0,0 +1,31 @@
+package networking.MessageObjects;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Class representing the request of a client to resume its seat on a new connection, sent instead of the hello
+ * message after the connection to the server has dropped
+ */
+public class ResumeSession {
+	@SerializedName("Sitzung") private String session;
+	@SerializedName("Empfangen") private long received;
+
+	/**
+	 * Constructor
+	 * @param session The token of the session sent with the welcome message.
+	 * @param received The number of messages received since the welcome message.
+	 */
+	public ResumeSession(String session, long received) {
+		this.session = session;
+		this.received = received;
+	}
+	//Getters and Setters
+
+	public String getSession() {
+		return session;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+}
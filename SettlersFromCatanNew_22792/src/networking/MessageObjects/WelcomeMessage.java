@@ -1,5 +1,6 @@
 package networking.MessageObjects;
 
+import com.google.gson.annotations.SerializedName;
 
 /**
  * Class representing the welcome message object that will be send from server to client at the beginning of their communication; in this message the player is informed about their received id
@@ -7,6 +8,10 @@ package networking.MessageObjects;
  */
 public class WelcomeMessage {
 	private Integer id;
+	/**
+	 * Token to resume the seat with if the connection drops (see {@link ResumeSession}), missing for spectators
+	 */
+	@SerializedName("Sitzung") private String session;
 	/**
 	 * Constructor
 	 * @param id The (player's) unique id to assign.
@@ -14,11 +19,23 @@ public class WelcomeMessage {
 	public WelcomeMessage(Integer id) {
 		setId(id);
 	}
+	/**
+	 * Constructor
+	 * @param id The (player's) unique id to assign.
+	 * @param session The token of the player's session.
+	 */
+	public WelcomeMessage(Integer id, String session) {
+		setId(id);
+		this.session = session;
+	}
 	public Integer getId() {
 		return id;
 	}
 	public void setId(int id) {
 		this.id = id;
 	}
+	public String getSession() {
+		return session;
+	}
 	
 }
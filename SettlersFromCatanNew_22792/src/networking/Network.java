@@ -9,6 +9,10 @@ public class Network{
 	 */
 	private ClientProtocol protocol;
 	private ServerConnectionHandler connectionHandler;
+	/**
+	 * Maximum time to wait for the server in this JVM to welcome a new client
+	 */
+	private static final long LOOPBACK_HANDSHAKE_TIMEOUT = 2000;
 	private String serverIP;
 	private int serverPort;
 	
@@ -22,6 +26,29 @@ public class Network{
 		connectionHandler.start();
 		protocol = new ClientProtocol(connectionHandler);		
 	}
+
+	/**
+	 * Constructor for a connection to the server running in this JVM. Returns
+	 * once the server has welcomed the client, so requests can be sent right
+	 * away.
+	 */
+	private Network(LoopbackConnection loopbackConnection) {
+		this.serverIP = "127.0.0.1";
+		connectionHandler = new ServerConnectionHandler(this, loopbackConnection);
+		connectionHandler.start();
+		protocol = new ClientProtocol(connectionHandler);
+		connectionHandler.awaitPlayerId(LOOPBACK_HANDSHAKE_TIMEOUT);
+	}
+
+	/**
+	 * Connects to the local server of a single player game. If the server runs in
+	 * this JVM no socket is used, the messages are handed over in memory.
+	 */
+	public static Network connectToLocalServer() {
+		if (LoopbackConnection.isServerBound())
+			return new Network(LoopbackConnection.connect());
+		return new Network("127.0.0.1", 8080);
+	}
 	public void sendMessage(String message){
 		connectionHandler.sendMessage(message);
 	}
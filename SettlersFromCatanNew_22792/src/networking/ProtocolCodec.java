@@ -0,0 +1,56 @@
+package networking;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import networking.MessageObjects.*;
+
+/**
+ * Central JSON codec of the protocol, shared by the client and the server. Gson
+ * is thread-safe and caches the binding of every class it has seen, so one
+ * instance is used everywhere instead of creating a new one per message. The
+ * small value classes nested in almost every message (resources, development
+ * cards, coordinates) use hand-written adapters, all other message classes are
+ * bound once in {@link #warmUp()}.
+ */
+public final class ProtocolCodec {
+	/**
+	 * All classes in networking.MessageObjects
+	 */
+	private static final Class<?>[] MESSAGE_CLASSES = { AbandonDomesticTrade.class, AbandonedTrade.class,
+			Building.class, BuildingEvent.class, BuyDevelopmentCard.class, CompleteDomesticTrade.class,
+			Coordinates.class, Costs.class, DevelopmentCardBought.class, DevelopmentCards.class, DiceThrow.class,
+			DomesticTradeOffer.class, Earnings.class, Field.class, GameOver.class, GameStarted.class,
+			InitialMessage.class, LargestArmy.class, LongestRoad.class, Map.class, MaritimeTrade.class, Monopoly.class,
+			MoveThief.class, Ping.class, PlayKnightCard.class, PlayRoadBuildingCard.class, PlayerForProtocol.class,
+			PlayerReadyForDomesticTrade.class, PlayerStatusUpdate.class, PlayerWhoAcceptedTrade.class, Pong.class,
+			Port.class, ReceiveChat.class, ReceivedTradeOffer.class, Resources.class, ResourcesReturned.class,
+			ResumeSession.class, SendChat.class, ServerError.class, ServerResponse.class, StartGame.class,
+			ThiefMoved.class, ThrowDiceRequest.class, TradeFinished.class, TurnEnd.class, WelcomeMessage.class,
+			YearOfPlenty.class };
+
+	private static final Gson gson = new GsonBuilder()
+			.registerTypeAdapter(Resources.class, new Resources.Adapter())
+			.registerTypeAdapter(DevelopmentCards.class, new DevelopmentCards.Adapter())
+			.registerTypeAdapter(Coordinates.class, new Coordinates.Adapter())
+			.create();
+
+	private ProtocolCodec() {
+	}
+
+	/**
+	 * Binds all message classes, so the first messages of a game do not pay for
+	 * the reflection. Call once at startup.
+	 */
+	public static void warmUp() {
+		for (Class<?> messageClass : MESSAGE_CLASSES)
+			gson.getAdapter(messageClass);
+	}
+
+	/**
+	 * @return the shared Gson instance
+	 */
+	public static Gson getGson() {
+		return gson;
+	}
+}
@@ -6,11 +6,15 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import networking.MessageObjects.*;
 import tools.PlayerTeam;
 import view.ErrorPopUp;
 import ai.AiLogic;
+import ai.AiScheduler;
 import application.GameStart;
 
 import com.google.gson.Gson;
@@ -29,11 +33,52 @@ public class ServerConnectionHandler extends Thread {
 	private PrintWriter writer;
 	private Boolean connected;
 	private Socket socket;
+	/**
+	 * Only set if the client is connected to a server running in this JVM
+	 */
+	private LoopbackConnection loopbackConnection;
 	private Integer playerId;
+	/**
+	 * Released once the server has sent the id of the client (welcome message)
+	 */
+	private final CountDownLatch welcomed = new CountDownLatch(1);
+	/**
+	 * Time (ms) to try resuming the seat after the connection has dropped, the server holds it as long
+	 */
+	private static final long RESUME_TIMEOUT = 60000;
+	private static final long RESUME_INTERVAL = 2000;
+	/**
+	 * Token of the session sent with the welcome message, null if the seat cannot be resumed
+	 */
+	private volatile String sessionToken;
+	/**
+	 * Messages received since the welcome message (the welcome messages themselves and the pings are not counted)
+	 */
+	private long received;
+	/**
+	 * Start of a ping of the server, pings are not kept for a resume
+	 */
+	private static final String PING = "{\"Ping\"";
+	/**
+	 * True once the current connection has been welcomed, the messages before are not counted
+	 */
+	private boolean welcomedOnConnection;
+	/**
+	 * True while a new connection waits for the server to accept the resume
+	 */
+	private volatile boolean resuming;
+	/**
+	 * True once we have closed the connection ourselves
+	 */
+	private volatile boolean closing;
 	private String[] supportedServerVersions = {"1.0"};
 	private static final String clientVersion = "1.0";
 	private HashMap<Integer, PlayerTeam> idToColor = new HashMap<Integer, PlayerTeam>();
 	private AiLogic ai;
+	/**
+	 * Runs the decisions of the AI, created with the AI logic
+	 */
+	private volatile AiScheduler aiScheduler;
 
 	/**
 	 * Added to "clientVersion" in method "getClientVersion"
@@ -53,18 +98,38 @@ public class ServerConnectionHandler extends Thread {
 		protocol = new ClientProtocol(this);
 	}
 
+	/**
+	 * Connects to the server running in this JVM. The connection is established
+	 * right away, requests can be sent before the thread is started.
+	 */
+	public ServerConnectionHandler(Network network, LoopbackConnection loopbackConnection) {
+		this.network = network;
+		this.loopbackConnection = loopbackConnection;
+		this.connected = true;
+		protocol = new ClientProtocol(this);
+	}
+
 	@Override
 	public void run() {
+		if (loopbackConnection != null) {
+			runLoopback();
+			return;
+		}
 		try {
-			socket = new Socket(serverIP, serverPort);
-			GameStart.mainLogger.getLOGGER().fine("Connection to server established");
-
-			reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-			writer = new PrintWriter(socket.getOutputStream(), true);
-			connected = true;
-			String line;
-			while ((line = reader.readLine()) != null)
-				receiveMessage(line);
+			connect();
+			while (true) {
+				try {
+					String line;
+					while ((line = reader.readLine()) != null)
+						receiveMessage(line);
+				} catch (IOException e) {
+					if (!reconnect())
+						throw e;
+					continue;
+				}
+				if (!reconnect())
+					break;
+			}
 
 			reader.close();
 			writer.close();
@@ -85,9 +150,80 @@ public class ServerConnectionHandler extends Thread {
 		}
 	}
 
+	private void connect() throws IOException {
+		socket = new Socket(serverIP, serverPort);
+		GameStart.mainLogger.getLOGGER().fine("Connection to server established");
+
+		reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		writer = new PrintWriter(socket.getOutputStream(), true);
+		// After the messages of the old connection
+		handle(() -> welcomedOnConnection = false);
+		connected = true;
+	}
+
+	/**
+	 * Connects again after the connection has dropped during a game, the hello message of the server is answered
+	 * with a request to resume the seat (see {@link ClientProtocol#receiveHelloMessage}).
+	 *
+	 * @return True, if a new connection has been established in time
+	 */
+	private boolean reconnect() {
+		if (sessionToken == null || closing)
+			return false;
+		GameStart.mainLogger.getLOGGER().fine("Connection to server lost, resuming");
+		try {
+			socket.close();
+		} catch (IOException e) {
+			GameStart.mainLogger.getLOGGER().fine(e.getMessage());
+		}
+		long deadline = System.currentTimeMillis() + RESUME_TIMEOUT;
+		while (System.currentTimeMillis() < deadline && !closing) {
+			try {
+				Thread.sleep(RESUME_INTERVAL);
+				resuming = true;
+				connect();
+				return true;
+			} catch (IOException e) {
+				GameStart.mainLogger.getLOGGER().fine(e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		resuming = false;
+		return false;
+	}
+
+	/**
+	 * @return the request to resume the seat on the current connection
+	 */
+	public ResumeSession getResumeRequest() {
+		return new ResumeSession(sessionToken, received);
+	}
+
+	/**
+	 * The seat is not resumed anymore if the connection drops (game over).
+	 */
+	public void endSession() {
+		sessionToken = null;
+	}
+
+	/**
+	 * The server has refused to resume the seat, the connection is closed.
+	 */
+	public void abandonSession() {
+		endSession();
+		resuming = false;
+		disconnectFromServer();
+	}
+
 	public void sendMessage(String message) {
 		if (connected) {
-			Gson gson = new Gson();
+			if (loopbackConnection != null) {
+				loopbackConnection.sendToServer(null, message);
+				return;
+			}
+			Gson gson = ProtocolCodec.getGson();
 			String mes = gson.toJson(message);
 			writer.println(mes);
 		}
@@ -95,222 +231,218 @@ public class ServerConnectionHandler extends Thread {
 
 	public void sendObject(Object obj) {
 		if (connected) {
-			Gson gson = new Gson();
-			// 3.2
-			if (obj instanceof InitialMessage)
-				writer.println("{\"Hallo\":" + gson.toJson(obj, InitialMessage.class) + "}");
-			// 5.2
-			else if (obj instanceof SendChat)
-				writer.println("{\"Chatnachricht senden\":" + gson.toJson(obj, SendChat.class) + "}");
-			// 6.1
-			else if (obj instanceof PlayerForProtocol)
-				writer.println("{\"Spieler\":" + gson.toJson(obj, PlayerForProtocol.class) + "}");
-			// 6.2
-			else if (obj instanceof StartGame)
-				writer.println("{\"Spiel starten\":" + gson.toJson(obj, StartGame.class) + "}");
-			// 8.2
-			else if (obj instanceof Building)
-				writer.println("{\"Bauen\":" + gson.toJson(obj, Building.class) + "}");
-			// 8.3
-			else if (obj instanceof TurnEnd)
-				writer.println("{\"Zug beenden\":" + gson.toJson(obj, TurnEnd.class) + "}");
-			// 9.2
-			else if (obj instanceof ResourcesReturned)
-				writer.println("{\"Karten abgeben\":" + gson.toJson(obj, ResourcesReturned.class) + "}");
-			// 9.3
-			else if (obj instanceof MoveThief)
-				writer.println("{\"Raeuber versetzen\":" + gson.toJson(obj, MoveThief.class) + "}");
-			// 9.5
-			else if (obj instanceof MaritimeTrade)
-				writer.println("{\"Seehandel\":" + gson.toJson(obj, MaritimeTrade.class) + "}");
-			// 10.1
-			else if (obj instanceof DomesticTradeOffer)
-				writer.println("{\"Handel anbieten\":" + gson.toJson(obj, DomesticTradeOffer.class) + "}");
-			// 10.2
-			else if (obj instanceof PlayerReadyForDomesticTrade)
-				writer.println("{\"Handel annehmen\":" + gson.toJson(obj, PlayerReadyForDomesticTrade.class) + "}");
-			// 10.3
-			else if (obj instanceof CompleteDomesticTrade)
-				writer.println("{\"Handel abschliessen\":" + gson.toJson(obj, CompleteDomesticTrade.class) + "}");
-			// 10.4
-			else if (obj instanceof AbandonDomesticTrade)
-				writer.println("{\"Handel abbrechen\":" + gson.toJson(obj, AbandonDomesticTrade.class) + "}");
-			// 10.5
-			else if (obj instanceof BuyDevelopmentCard)
-				writer.println("{\"Entwicklungskarte kaufen\":" + gson.toJson(obj, BuyDevelopmentCard.class) + "}");
-			else if (obj instanceof ThrowDiceRequest)
-				writer.println("{\"Wuerfeln\":" + gson.toJson(obj, ThrowDiceRequest.class) + "}");
-			//12.1
-			else if (obj instanceof PlayKnightCard)
-				writer.println("{\"Ritter ausspielen\":" + gson.toJson(obj, PlayKnightCard.class) + "}");
-			//12.2
-			else if (obj instanceof PlayRoadBuildingCard)
-				writer.println("{\"Strassenbaukarte ausspielen\":" + gson.toJson(obj, PlayRoadBuildingCard.class) + "}");
-			//12.3
-			else if (obj instanceof Monopoly)
-				writer.println("{\"Monopol\":" + gson.toJson(obj, Monopoly.class) + "}");
-			//12.4
-			else if (obj instanceof YearOfPlenty)
-				writer.println("{\"Erfindung\":" + gson.toJson(obj, YearOfPlenty.class) + "}");
+			String key = getKey(obj);
+			if (key == null)
+				return;
+			if (loopbackConnection != null)
+				loopbackConnection.sendToServer(key, obj);
+			else
+				writer.println(encode(key, obj));
 		}
 	}
 
-	public void receiveMessage(String message) {
-		Gson gson = new Gson();
-		GameStart.mainLogger.getLOGGER().fine(message);
-
-		// 3.1
-		if (message.contains("Chatnachricht")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Chatnachricht\":", "");
-			ReceiveChat chat = gson.fromJson(objFromMessage, ReceiveChat.class);
-			protocol.receiveChat(chat);
-		}
-		else if (message.contains("Hallo")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Hallo\":", "");
-			InitialMessage hello = gson.fromJson(objFromMessage, InitialMessage.class);
-			protocol.receiveHelloMessage(hello);
-		}
-		// 3.3
-		else if (message.contains("Willkommen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Willkommen\":", "");
-			WelcomeMessage welcome = gson.fromJson(objFromMessage, WelcomeMessage.class);
-			protocol.receiveWelcomeMessage(welcome);
-		}
-		// 3.1
-		else if (message.contains("Serverantwort")) {
-			ServerResponse response = gson.fromJson(message, ServerResponse.class);
-			protocol.receiveServerResponse(response);
-		}
-		// 6.3
-		else if (message.contains("Fehler")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Fehler\":", "");
-			ServerError error = gson.fromJson(objFromMessage, ServerError.class);
-			protocol.receiveError(error);
-		}
-		// 6.4
-		else if (message.contains("Spiel gestartet")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Spiel gestartet\":", "");
-			GameStarted gameStarted = gson.fromJson(objFromMessage, GameStarted.class);
-			protocol.receiveGameStarted(gameStarted);
-		}
-		// 7.1
-		else if (message.contains("Statusupdate")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Statusupdate\":", "");
-			PlayerStatusUpdate update = gson.fromJson(objFromMessage, PlayerStatusUpdate.class);
-			protocol.receivePlayerStatusUpdate(update);
-		}
-		// 7.2
-		else if (message.contains("Wuerfelwurf")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Wuerfelwurf\":", "");
-			DiceThrow diceThrow = gson.fromJson(objFromMessage, DiceThrow.class);
-			protocol.receiveDiceThrow(diceThrow);
-		}
-		// 7.3
-		else if (message.contains("Ertrag")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Ertrag\":", "");
-			Earnings earnings = gson.fromJson(objFromMessage, Earnings.class);
-			protocol.receiveEarnings(earnings);
+	/**
+	 * Sends several messages to the server in one write, they are handled in
+	 * order.
+	 */
+	public void sendObjects(List<?> objects) {
+		if (!connected)
+			return;
+		StringBuilder batch = new StringBuilder();
+		for (Object obj : objects) {
+			String key = getKey(obj);
+			if (key == null)
+				continue;
+			if (loopbackConnection != null)
+				loopbackConnection.sendToServer(key, obj);
+			else
+				batch.append(encode(key, obj)).append(System.lineSeparator());
 		}
-		// 8.5
-		else if (message.contains("Raeuber versetzt")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Raeuber versetzt\":", "");
-			ThiefMoved thiefMoved = gson.fromJson(objFromMessage, ThiefMoved.class);
-			protocol.receiveThiefMoved(thiefMoved);
+		if (batch.length() > 0) {
+			writer.print(batch);
+			writer.flush();
 		}
+	}
 
-		// 8.4 MADE BY FELIP. CHECK IF CORRECT?
-		else if (message.contains("Kosten")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Kosten\":", "");
-			Costs costs = gson.fromJson(objFromMessage, Costs.class);
-			protocol.receiveCosts(costs);
-		}
+	private static String encode(String key, Object obj) {
+		return "{\"" + key + "\":" + ProtocolCodec.getGson().toJson(obj, obj.getClass()) + "}";
+	}
 
-		// 7.4
-		else if (message.contains("Bauvorgang")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Bauvorgang\":", "");
-			BuildingEvent event = gson.fromJson(objFromMessage, BuildingEvent.class);
-			protocol.receiveBuildingEvent(event);
-		}
-		//9.7
-		else if (message.contains("Entwicklungskarte gekauft")) {
-			String objFromMessage = message.substring(0, message.length() - 1)
-					.replace("{\"Entwicklungskarte gekauft\":", "");
-			DevelopmentCardBought developmentCardBought = gson.fromJson(objFromMessage, DevelopmentCardBought.class);
-			protocol.receiveBoughtDevelopmentCard(developmentCardBought);
-		}
-		//9.10
-		else if (message.contains("Laengste Handelsstrasse")) {
-			String objFromMessage = message.substring(0, message.length() - 1)
-					.replace("{\"Laengste Handelsstrasse\":", "");
-			LongestRoad longestRoad = gson.fromJson(objFromMessage, LongestRoad.class);
-			protocol.receiveLongestRoadInfo(longestRoad);
-		}
-		//9.10
-		else if (message.contains("Groesste Rittermacht")) {
-			String objFromMessage = message.substring(0, message.length() - 1)
-					.replace("{\"Groesste Rittermacht\":", "");
-			LargestArmy largestArmy = gson.fromJson(objFromMessage, LargestArmy.class);
-			protocol.receiveLargestArmyInfo(largestArmy);
-		}
+	/**
+	 * @return the top-level key of a message sent to the server, null if the
+	 *         object is no such message
+	 */
+	private static String getKey(Object obj) {
+		// 3.2
+		if (obj instanceof InitialMessage)
+			return "Hallo";
+		else if (obj instanceof ResumeSession)
+			return "Sitzung fortsetzen";
+		else if (obj instanceof Pong)
+			return "Pong";
+		// 5.2
+		else if (obj instanceof SendChat)
+			return "Chatnachricht senden";
+		// 6.1
+		else if (obj instanceof PlayerForProtocol)
+			return "Spieler";
+		// 6.2
+		else if (obj instanceof StartGame)
+			return "Spiel starten";
+		// 8.2
+		else if (obj instanceof Building)
+			return "Bauen";
+		// 8.3
+		else if (obj instanceof TurnEnd)
+			return "Zug beenden";
+		// 9.2
+		else if (obj instanceof ResourcesReturned)
+			return "Karten abgeben";
+		// 9.3
+		else if (obj instanceof MoveThief)
+			return "Raeuber versetzen";
+		// 9.5
+		else if (obj instanceof MaritimeTrade)
+			return "Seehandel";
+		// 10.1
+		else if (obj instanceof DomesticTradeOffer)
+			return "Handel anbieten";
 		// 10.2
-		else if (message.contains("Handelsangebot angenommen")) {
-			String objFromMessage = message.substring(0, message.length() - 1)
-					.replace("{\"Handelsangebot angenommen\":", "");
-			PlayerWhoAcceptedTrade playerWhoAcceptedTrade = gson.fromJson(objFromMessage, PlayerWhoAcceptedTrade.class);
-			protocol.receiveAcceptedTrade(playerWhoAcceptedTrade);
-		}
+		else if (obj instanceof PlayerReadyForDomesticTrade)
+			return "Handel annehmen";
 		// 10.3
-		else if (message.contains("Handel ausgefuehrt")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Handel ausgefuehrt\":", "");
-			TradeFinished tradeFinished = gson.fromJson(objFromMessage, TradeFinished.class);
-			protocol.receiveTradeFinished(tradeFinished);
-		}
+		else if (obj instanceof CompleteDomesticTrade)
+			return "Handel abschliessen";
 		// 10.4
-		else if (message.contains("Handelsangebot abgebrochen")) {
-			String objFromMessage = message.substring(0, message.length() - 1)
-					.replace("{\"Handelsangebot abgebrochen\":", "");
-			AbandonedTrade abandonedTrade = gson.fromJson(objFromMessage, AbandonedTrade.class);
-			protocol.receiveAbandonedTrade(abandonedTrade);
-		}
-		// 10.1 // IMPORTANT: HAVE THIS BELOW ANY OTHER "HANDELANGEBOT" messages!
-		else if (message.contains("Handelsangebot")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Handelsangebot\":", "");
-			ReceivedTradeOffer receivedTradeOffer = gson.fromJson(objFromMessage, ReceivedTradeOffer.class);
-			protocol.receiveTradeOffer(receivedTradeOffer);
-		}
-		// 7.5 (neues Blatt)
-		else if (message.contains("Spiel beendet")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Spiel beendet\":", "");
-			GameOver gameOver = gson.fromJson(objFromMessage, GameOver.class);
-			protocol.receiveGameOver(gameOver);
-		}
+		else if (obj instanceof AbandonDomesticTrade)
+			return "Handel abbrechen";
+		// 10.5
+		else if (obj instanceof BuyDevelopmentCard)
+			return "Entwicklungskarte kaufen";
+		else if (obj instanceof ThrowDiceRequest)
+			return "Wuerfeln";
 		//12.1
-		else if (message.contains("Ritter ausspielen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Ritter ausspielen\":", "");
-			PlayKnightCard playedKnightCard = gson.fromJson(objFromMessage, PlayKnightCard.class);
-			protocol.receiveKnightCardPlayed(playedKnightCard);
-		}
+		else if (obj instanceof PlayKnightCard)
+			return "Ritter ausspielen";
 		//12.2
-		else if (message.contains("Strassenbaukarte ausspielen")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Strassenbaukarte ausspielen\":", "");
-			PlayRoadBuildingCard playedRoadBuildingCard= gson.fromJson(objFromMessage, PlayRoadBuildingCard.class);
-			protocol.receiveRoadBuildingCardPlayed(playedRoadBuildingCard);
-		}
+		else if (obj instanceof PlayRoadBuildingCard)
+			return "Strassenbaukarte ausspielen";
 		//12.3
-		else if (message.contains("Monopol")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Monopol\":", "");
-			Monopoly monopolyCard= gson.fromJson(objFromMessage, Monopoly.class);
-			protocol.receiveMonopolyCardPlayed(monopolyCard);
-		}
+		else if (obj instanceof Monopoly)
+			return "Monopol";
 		//12.4
-		else if (message.contains("Erfindung")) {
-			String objFromMessage = message.substring(0, message.length() - 1).replace("{\"Erfindung\":", "");
-			YearOfPlenty yearOfPlentyCard= gson.fromJson(objFromMessage, YearOfPlenty.class);
-			protocol.receiveYearOfPlentyCardPlayed(yearOfPlentyCard);
+		else if (obj instanceof YearOfPlenty)
+			return "Erfindung";
+		return null;
+	}
+
+	/**
+	 * Handlers of all messages sent by the server, looked up by the top-level key
+	 */
+	private static final MessageDispatcher<ClientProtocol> dispatcher = new MessageDispatcher<ClientProtocol>()
+			// 3.1
+			.on("Chatnachricht", ReceiveChat.class, ClientProtocol::receiveChat)
+			.on("Hallo", InitialMessage.class, ClientProtocol::receiveHelloMessage)
+			// 3.3
+			.on("Willkommen", WelcomeMessage.class, ClientProtocol::receiveWelcomeMessage)
+			.on("Ping", Ping.class, ClientProtocol::receivePing)
+			// 3.1
+			.on("Serverantwort", String.class, (p, response) -> p.receiveServerResponse(new ServerResponse(response)))
+			// 6.3
+			.on("Fehler", ServerError.class, ClientProtocol::receiveError)
+			// 6.4
+			.on("Spiel gestartet", GameStarted.class, ClientProtocol::receiveGameStarted)
+			// 7.1
+			.on("Statusupdate", PlayerStatusUpdate.class, ClientProtocol::receivePlayerStatusUpdate)
+			// 7.2
+			.on("Wuerfelwurf", DiceThrow.class, ClientProtocol::receiveDiceThrow)
+			// 7.3
+			.on("Ertrag", Earnings.class, ClientProtocol::receiveEarnings)
+			// 8.5
+			.on("Raeuber versetzt", ThiefMoved.class, ClientProtocol::receiveThiefMoved)
+			// 8.4
+			.on("Kosten", Costs.class, ClientProtocol::receiveCosts)
+			// 7.4
+			.on("Bauvorgang", BuildingEvent.class, ClientProtocol::receiveBuildingEvent)
+			// 9.7
+			.on("Entwicklungskarte gekauft", DevelopmentCardBought.class, ClientProtocol::receiveBoughtDevelopmentCard)
+			// 9.10
+			.on("Laengste Handelsstrasse", LongestRoad.class, ClientProtocol::receiveLongestRoadInfo)
+			// 9.10
+			.on("Groesste Rittermacht", LargestArmy.class, ClientProtocol::receiveLargestArmyInfo)
+			// 10.1
+			.on("Handelsangebot", ReceivedTradeOffer.class, ClientProtocol::receiveTradeOffer)
+			// 10.2
+			.on("Handelsangebot angenommen", PlayerWhoAcceptedTrade.class, ClientProtocol::receiveAcceptedTrade)
+			// 10.3
+			.on("Handel ausgefuehrt", TradeFinished.class, ClientProtocol::receiveTradeFinished)
+			// 10.4
+			.on("Handelsangebot abgebrochen", AbandonedTrade.class, ClientProtocol::receiveAbandonedTrade)
+			// 7.5 (neues Blatt)
+			.on("Spiel beendet", GameOver.class, ClientProtocol::receiveGameOver)
+			// 12.1
+			.on("Ritter ausspielen", PlayKnightCard.class, ClientProtocol::receiveKnightCardPlayed)
+			// 12.2
+			.on("Strassenbaukarte ausspielen", PlayRoadBuildingCard.class, ClientProtocol::receiveRoadBuildingCardPlayed)
+			// 12.3
+			.on("Monopol", Monopoly.class, ClientProtocol::receiveMonopolyCardPlayed)
+			// 12.4
+			.on("Erfindung", YearOfPlenty.class, ClientProtocol::receiveYearOfPlentyCardPlayed);
+
+	/**
+	 * Handles the messages of a loopback connection until it is closed.
+	 */
+	private void runLoopback() {
+		try {
+			LoopbackConnection.Message message;
+			while ((message = loopbackConnection.receive()) != null) {
+				LoopbackConnection.Message received = message;
+				handle(() -> {
+					if (!dispatcher.dispatch(protocol, received.key, received.value))
+						GameStart.mainLogger.getLOGGER().fine("Unknown message: " + received.key);
+				});
+			}
+		} catch (InterruptedException e) {
+			GameStart.mainLogger.getLOGGER().fine("Connection to server disrupted");
 		}
+		disconnectFromServer();
+	}
+
+	public void receiveMessage(String message) {
+		GameStart.mainLogger.getLOGGER().fine(message);
+		// The server counts the same messages to find the ones missed if the connection drops
+		handle(() -> {
+			boolean counted = welcomedOnConnection && !message.startsWith(PING);
+			if (!dispatcher.dispatch(protocol, message))
+				GameStart.mainLogger.getLOGGER().fine("Unknown message: " + message);
+			if (counted)
+				received++;
+		});
+	}
+
+	/**
+	 * Handles a message of the server. The messages to an AI are handled on
+	 * the thread of its decisions, so its decisions do not run while a
+	 * message of this connection changes the game (the other clients of a
+	 * single player game still do). The messages are counted by the handlers
+	 * too, in their order.
+	 */
+	private void handle(Runnable handler) {
+		AiScheduler scheduler = aiScheduler;
+		if (scheduler == null)
+			handler.run();
+		else
+			scheduler.execute(handler);
 	}
 
 	public void disconnectFromServer() {
+		closing = true;
+		stopAiScheduler();
+		if (loopbackConnection != null) {
+			connected = false;
+			loopbackConnection.close();
+			return;
+		}
 		if(socket == null)
 			return;
 		try {
@@ -322,12 +454,55 @@ public class ServerConnectionHandler extends Thread {
 
 	public void setPlayerId(Integer id) {
 		this.playerId = id;
+		welcomed.countDown();
+	}
+
+	/**
+	 * The server has welcomed the client on the current connection.
+	 *
+	 * @param sessionToken
+	 *            the token to resume the seat with, null if it cannot be resumed
+	 */
+	public void setSessionToken(String sessionToken) {
+		this.sessionToken = sessionToken;
+		welcomedOnConnection = true;
+		resuming = false;
+	}
+
+	/**
+	 * @return True, while a new connection waits for the server to accept the resume
+	 */
+	public boolean isResuming() {
+		return resuming;
+	}
+
+	/**
+	 * Waits until the server has welcomed the client with its id.
+	 *
+	 * @param timeoutMillis
+	 *            maximum time to wait
+	 * @return True, if the id has been received
+	 */
+	public boolean awaitPlayerId(long timeoutMillis) {
+		try {
+			return welcomed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 
 	public Integer getPlayerId() {
 		return playerId;
 	}
 
+	/**
+	 * @return True, if the server runs in this JVM (loopback connection)
+	 */
+	public boolean isLoopback() {
+		return loopbackConnection != null;
+	}
+
 	public String[] getSupporedServerVersions() {
 		return this.supportedServerVersions;
 	}
@@ -356,8 +531,10 @@ public class ServerConnectionHandler extends Thread {
 	 *            its reference to null.
 	 */
 	public void setAI(boolean isAI) {
-		if (!isAI)
+		if (!isAI) {
 			ai = null;
+			stopAiScheduler();
+		}
 		this.isAI = isAI;
 	}
 
@@ -405,5 +582,26 @@ public class ServerConnectionHandler extends Thread {
 	public void addAILogic(AiLogic ai) {
 		this.ai = ai;
 		setAI(true);
+		if (aiScheduler == null)
+			aiScheduler = new AiScheduler("AI " + playerId);
+	}
+
+	/**
+	 * @return the scheduler of the AI's decisions, null if we are no AI
+	 */
+	public AiScheduler getAiScheduler() {
+		return aiScheduler;
+	}
+
+	/**
+	 * Stops the AI's decisions and logs their latencies.
+	 */
+	private void stopAiScheduler() {
+		AiScheduler scheduler = aiScheduler;
+		if (scheduler == null)
+			return;
+		aiScheduler = null;
+		scheduler.shutdown();
+		GameStart.mainLogger.getLOGGER().fine(scheduler.toString());
 	}
 }
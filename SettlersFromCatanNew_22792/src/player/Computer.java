@@ -41,7 +41,7 @@ public class Computer extends Player {
 	 * Joins the single player host server by sending requests to join.
 	 */
 	private void joinSinglePlayerServer() {
-		network = new Network("127.0.0.1", 8080);
+		network = Network.connectToLocalServer();
 		//Mark as singleplayer ai
 		network.getConnectionHandler().setSinglePlayerAI(true);
 	}
@@ -0,0 +1,65 @@
+package testing;
+
+import com.google.gson.Gson;
+
+import networking.ProtocolCodec;
+import networking.MessageObjects.*;
+
+/**
+ * Compares the shared codec ({@link ProtocolCodec}) with the former path (a new
+ * reflective Gson per message) for the messages sent most often. Run as a plain
+ * Java application, every case is warmed up before it is measured.
+ */
+public class CodecBenchmark {
+	private static final int WARMUP_ITERATIONS = 20000;
+	private static final int ITERATIONS = 100000;
+	private static final String FIELD_LETTERS = "ABCDEFGHIJKLMNOPQRS";
+
+	/**
+	 * Serialization and deserialization of one message
+	 */
+	private interface Case {
+		void run(Gson gson);
+	}
+
+	public static void main(String[] args) {
+		ProtocolCodec.warmUp();
+
+		Field[] fields = new Field[FIELD_LETTERS.length()];
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = new Field(FIELD_LETTERS.charAt(i) + "", "Holz", i % 11 + 2);
+		Building[] buildings = { new Building(1, "Dorf", "ABM"), new Building(2, "Strasse", "BC") };
+		Port[] ports = { new Port("ae", "Holz Hafen"), new Port("gi", "Hafen") };
+		GameStarted gameStarted = new GameStarted(new Map(fields, buildings, ports, "S"));
+		BuildingEvent buildingEvent = new BuildingEvent(new Building(3, "Stadt", "MNS"));
+		PlayerStatusUpdate statusUpdate = new PlayerStatusUpdate(new PlayerForProtocol(1, "Rot", "Spieler",
+				"Handeln oder Bauen", 4, new Resources(2, 1, 0, 3, 1, 7), 1, new DevelopmentCards(1, 0, 0, 1, 0, 2)));
+
+		compare("GameStarted", gson -> gson.fromJson(gson.toJson(gameStarted), GameStarted.class));
+		compare("BuildingEvent", gson -> gson.fromJson(gson.toJson(buildingEvent), BuildingEvent.class));
+		compare("PlayerStatusUpdate", gson -> gson.fromJson(gson.toJson(statusUpdate), PlayerStatusUpdate.class));
+
+		// Both paths have to produce the same JSON
+		System.out.println("Same JSON: " + (new Gson().toJson(gameStarted).equals(ProtocolCodec.getGson().toJson(gameStarted))
+				&& new Gson().toJson(statusUpdate).equals(ProtocolCodec.getGson().toJson(statusUpdate))));
+	}
+
+	private static void compare(String name, Case benchmarkCase) {
+		double reflective = measure(() -> benchmarkCase.run(new Gson()));
+		double shared = measure(() -> benchmarkCase.run(ProtocolCodec.getGson()));
+		System.out.printf("%-20s new Gson(): %8.2f us/op   shared codec: %8.2f us/op   (%.1fx)%n", name, reflective,
+				shared, reflective / shared);
+	}
+
+	/**
+	 * @return average time of one run in microseconds
+	 */
+	private static double measure(Runnable run) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+			run.run();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			run.run();
+		return (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+	}
+}
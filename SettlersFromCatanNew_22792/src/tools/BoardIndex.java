@@ -0,0 +1,151 @@
+package tools;
+
+import java.util.Arrays;
+
+import networking.MessageObjects.Building;
+import networking.MessageObjects.Port;
+
+/**
+ * Occupancy of the board of one game, indexed by the ids of
+ * {@link BoardTopology}. For every vertex it stores the settlement/city and its
+ * owner, for every edge the street and its owner, plus the ports reachable from
+ * every vertex. Kept in sync with the buildings of a
+ * {@link networking.MessageObjects.Map}, so the build checks are simple array
+ * lookups.
+ */
+public class BoardIndex {
+	/**
+	 * Owner of an empty vertex/edge
+	 */
+	public static final int NO_OWNER = -1;
+
+	private final Building[] buildingAtVertex = new Building[BoardTopology.NUMBER_OF_VERTICES];
+	private final BuildingType[] typeOfVertex = new BuildingType[BoardTopology.NUMBER_OF_VERTICES];
+	private final int[] ownerOfVertex = new int[BoardTopology.NUMBER_OF_VERTICES];
+	private final Building[] buildingAtEdge = new Building[BoardTopology.NUMBER_OF_EDGES];
+	private final int[] ownerOfEdge = new int[BoardTopology.NUMBER_OF_EDGES];
+	/**
+	 * Port types (bit per ordinal of {@link PortTypes}) usable from a vertex
+	 */
+	private final int[] portsOfVertex = new int[BoardTopology.NUMBER_OF_VERTICES];
+
+	/**
+	 * Creates the index of the given buildings and ports.
+	 *
+	 * @param buildings
+	 *            buildings on the board (may be null)
+	 * @param ports
+	 *            ports of the board (may be null)
+	 */
+	public BoardIndex(Building[] buildings, Port[] ports) {
+		Arrays.fill(typeOfVertex, BuildingType.NONE);
+		Arrays.fill(ownerOfVertex, NO_OWNER);
+		Arrays.fill(ownerOfEdge, NO_OWNER);
+		if (ports != null) {
+			for (Port port : ports) {
+				int edge = BoardTopology.getEdge(port.getLocationCoordinates());
+				PortTypes portType = WorldTranslation.getServerPortTypeToClientPortType(port.getType());
+				if (edge < 0 || portType == null)
+					continue;
+				for (int vertex : BoardTopology.getVerticesOfEdge(edge))
+					portsOfVertex[vertex] |= 1 << portType.ordinal();
+			}
+		}
+		if (buildings != null) {
+			for (Building building : buildings) {
+				if (building != null)
+					add(building);
+			}
+		}
+	}
+
+	/**
+	 * Returns the vertex of a settlement/city or the edge of a street.
+	 *
+	 * @param building
+	 * @return the id, -1 if the location does not fit the type
+	 */
+	public static int getLocationId(Building building) {
+		if (building.getType().equals("Strasse"))
+			return BoardTopology.getEdge(building.getLocationCoordinates());
+		return BoardTopology.getVertex(building.getLocationCoordinates());
+	}
+
+	/**
+	 * Adds a building or upgrades the building at its location.
+	 *
+	 * @param building
+	 * @return the building which has been replaced (settlement upgraded to a
+	 *         city), null if there was none
+	 */
+	public Building add(Building building) {
+		int id = getLocationId(building);
+		if (id < 0)
+			return null;
+		int owner = building.getOwner() == null ? NO_OWNER : building.getOwner();
+		Building replaced;
+		if (building.getType().equals("Strasse")) {
+			replaced = buildingAtEdge[id];
+			buildingAtEdge[id] = building;
+			ownerOfEdge[id] = owner;
+		} else {
+			replaced = buildingAtVertex[id];
+			buildingAtVertex[id] = building;
+			typeOfVertex[id] = WorldTranslation.getServerBuildingTypeToClientBuildingType(building.getType());
+			ownerOfVertex[id] = owner;
+		}
+		return replaced;
+	}
+
+	/**
+	 * Removes the building at the location of the given building.
+	 *
+	 * @param building
+	 * @return the building which has been removed, null if there was none
+	 */
+	public Building remove(Building building) {
+		int id = getLocationId(building);
+		if (id < 0)
+			return null;
+		Building removed;
+		if (building.getType().equals("Strasse")) {
+			removed = buildingAtEdge[id];
+			buildingAtEdge[id] = null;
+			ownerOfEdge[id] = NO_OWNER;
+		} else {
+			removed = buildingAtVertex[id];
+			buildingAtVertex[id] = null;
+			typeOfVertex[id] = BuildingType.NONE;
+			ownerOfVertex[id] = NO_OWNER;
+		}
+		return removed;
+	}
+
+	// Getters
+	public BuildingType getTypeOfVertex(int vertex) {
+		return typeOfVertex[vertex];
+	}
+
+	public int getOwnerOfVertex(int vertex) {
+		return ownerOfVertex[vertex];
+	}
+
+	public Building getBuildingAtVertex(int vertex) {
+		return buildingAtVertex[vertex];
+	}
+
+	public int getOwnerOfEdge(int edge) {
+		return ownerOfEdge[edge];
+	}
+
+	public Building getBuildingAtEdge(int edge) {
+		return buildingAtEdge[edge];
+	}
+
+	/**
+	 * @return True, if a port of the given type can be used from the vertex
+	 */
+	public boolean hasPort(int vertex, PortTypes portType) {
+		return (portsOfVertex[vertex] & (1 << portType.ordinal())) != 0;
+	}
+}
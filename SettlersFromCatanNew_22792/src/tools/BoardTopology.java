@@ -0,0 +1,318 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import networking.MessageObjects.Coordinates;
+
+/**
+ * Static topology of the board. Every field (hexagon), crossing (vertex, three
+ * field letters) and edge (street location, two field letters) gets a fixed
+ * integer id, the adjacency between them is stored in arrays. The tables are
+ * computed once from the server coordinates of the fields and never change, so
+ * they may be shared by any number of games and threads. Queries do not
+ * allocate, the returned arrays are shared and must not be modified.
+ *
+ * The server coordinates (see {@link WorldTranslation#COORDINATE_TO_LETTER})
+ * are axial coordinates, two fields are neighbours if their coordinates differ
+ * by (1,0), (0,1) or (1,1).
+ */
+public final class BoardTopology {
+	/**
+	 * Offsets to the six neighbours of a field, in circular order
+	 */
+	private static final int[][] DIRECTIONS = { { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 0 }, { -1, -1 }, { 0, -1 } };
+	private static final int RADIUS = 3;
+	private static final int SIZE = 2 * RADIUS + 1;
+
+	public static final int NUMBER_OF_FIELDS;
+	public static final int NUMBER_OF_VERTICES;
+	public static final int NUMBER_OF_EDGES;
+
+	private static final int[] fieldByLetter = new int[128];
+	private static final int[] fieldByPosition = new int[SIZE * SIZE];
+	private static final char[] letterOfField;
+	private static final boolean[] landField;
+
+	private static final int[][] verticesOfField;
+	private static final int[][] edgesOfField;
+	private static final int[][] fieldsOfVertex;
+	private static final int[][] edgesOfVertex;
+	private static final int[][] neighboursOfVertex;
+	private static final int[][] fieldsOfEdge;
+	private static final int[][] verticesOfEdge;
+
+	static {
+		Arrays.fill(fieldByLetter, -1);
+		Arrays.fill(fieldByPosition, -1);
+		// Fields, ordered by position
+		ArrayList<Vector2D<Integer>> positions = new ArrayList<>(WorldTranslation.COORDINATE_TO_LETTER.keySet());
+		positions.sort((a, b) -> a.x.equals(b.x) ? a.y - b.y : a.x - b.x);
+		NUMBER_OF_FIELDS = positions.size();
+		letterOfField = new char[NUMBER_OF_FIELDS];
+		landField = new boolean[NUMBER_OF_FIELDS];
+		int[] xOfField = new int[NUMBER_OF_FIELDS];
+		int[] yOfField = new int[NUMBER_OF_FIELDS];
+		for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+			Vector2D<Integer> position = positions.get(field);
+			char letter = WorldTranslation.COORDINATE_TO_LETTER.get(position).charAt(0);
+			letterOfField[field] = letter;
+			landField[field] = Character.isUpperCase(letter);
+			fieldByLetter[letter] = field;
+			fieldByPosition[getPositionIndex(position.x, position.y)] = field;
+			xOfField[field] = position.x;
+			yOfField[field] = position.y;
+		}
+
+		// Vertices: three fields which are pairwise neighbours (at least one of them land)
+		ArrayList<int[]> vertices = new ArrayList<>();
+		for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				int[] next = DIRECTIONS[(d + 1) % DIRECTIONS.length];
+				int second = getField(xOfField[field] + DIRECTIONS[d][0], yOfField[field] + DIRECTIONS[d][1]);
+				int third = getField(xOfField[field] + next[0], yOfField[field] + next[1]);
+				// Every vertex is found from each of its fields, keep it once
+				if (second < field || third < field)
+					continue;
+				if (landField[field] || landField[second] || landField[third])
+					vertices.add(new int[] { field, second, third });
+			}
+		}
+		NUMBER_OF_VERTICES = vertices.size();
+		fieldsOfVertex = vertices.toArray(new int[NUMBER_OF_VERTICES][]);
+
+		// Edges: two neighbouring fields (at least one of them land)
+		ArrayList<int[]> edges = new ArrayList<>();
+		for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+			for (int[] direction : DIRECTIONS) {
+				int other = getField(xOfField[field] + direction[0], yOfField[field] + direction[1]);
+				if (other > field && (landField[field] || landField[other]))
+					edges.add(new int[] { field, other });
+			}
+		}
+		NUMBER_OF_EDGES = edges.size();
+		fieldsOfEdge = edges.toArray(new int[NUMBER_OF_EDGES][]);
+
+		verticesOfField = new int[NUMBER_OF_FIELDS][];
+		edgesOfField = new int[NUMBER_OF_FIELDS][];
+		for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+			verticesOfField[field] = collect(fieldsOfVertex, field, -1);
+			edgesOfField[field] = collect(fieldsOfEdge, field, -1);
+		}
+		verticesOfEdge = new int[NUMBER_OF_EDGES][];
+		for (int edge = 0; edge < NUMBER_OF_EDGES; edge++)
+			verticesOfEdge[edge] = collect(fieldsOfVertex, fieldsOfEdge[edge][0], fieldsOfEdge[edge][1]);
+		edgesOfVertex = new int[NUMBER_OF_VERTICES][];
+		neighboursOfVertex = new int[NUMBER_OF_VERTICES][];
+		for (int vertex = 0; vertex < NUMBER_OF_VERTICES; vertex++) {
+			int[] fields = fieldsOfVertex[vertex];
+			int[] vertexEdges = new int[3];
+			int[] neighbours = new int[3];
+			int numberOfEdges = 0, numberOfNeighbours = 0;
+			for (int i = 0; i < 3; i++) {
+				int edge = getEdge(fields[i], fields[(i + 1) % 3]);
+				if (edge >= 0)
+					vertexEdges[numberOfEdges++] = edge;
+			}
+			for (int other = 0; other < NUMBER_OF_VERTICES; other++) {
+				if (other != vertex && countCommonFields(fields, fieldsOfVertex[other]) == 2)
+					neighbours[numberOfNeighbours++] = other;
+			}
+			edgesOfVertex[vertex] = Arrays.copyOf(vertexEdges, numberOfEdges);
+			neighboursOfVertex[vertex] = Arrays.copyOf(neighbours, numberOfNeighbours);
+		}
+	}
+
+	private BoardTopology() {
+	}
+
+	private static int getPositionIndex(int x, int y) {
+		return (x + RADIUS) * SIZE + (y + RADIUS);
+	}
+
+	/**
+	 * Ids of all elements (vertices or edges) containing the given field(s)
+	 */
+	private static int[] collect(int[][] fieldsOfElement, int field, int otherField) {
+		int[] result = new int[fieldsOfElement.length];
+		int count = 0;
+		for (int element = 0; element < fieldsOfElement.length; element++) {
+			if (contains(fieldsOfElement[element], field) && (otherField < 0 || contains(fieldsOfElement[element], otherField)))
+				result[count++] = element;
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private static boolean contains(int[] array, int value) {
+		for (int element : array) {
+			if (element == value)
+				return true;
+		}
+		return false;
+	}
+
+	private static int countCommonFields(int[] fields, int[] otherFields) {
+		int count = 0;
+		for (int field : fields) {
+			if (contains(otherFields, field))
+				count++;
+		}
+		return count;
+	}
+
+	// Fields
+
+	/**
+	 * @return the field at the given server coordinates, -1 if outside the board
+	 */
+	public static int getField(int x, int y) {
+		if (x < -RADIUS || x > RADIUS || y < -RADIUS || y > RADIUS)
+			return -1;
+		return fieldByPosition[getPositionIndex(x, y)];
+	}
+
+	/**
+	 * @return the field with the given letter, -1 if there is none
+	 */
+	public static int getField(char letter) {
+		return letter < fieldByLetter.length ? fieldByLetter[letter] : -1;
+	}
+
+	/**
+	 * @return the field at the given coordinates, -1 if outside the board
+	 */
+	public static int getField(Coordinates coordinates) {
+		if (coordinates == null || coordinates.getX() == null || coordinates.getY() == null)
+			return -1;
+		return getField(coordinates.getX(), coordinates.getY());
+	}
+
+	public static char getLetter(int field) {
+		return letterOfField[field];
+	}
+
+	public static boolean isLand(int field) {
+		return landField[field];
+	}
+
+	// Vertices
+
+	/**
+	 * @return the vertex between the three fields (any order), -1 if they do
+	 *         not form one
+	 */
+	public static int getVertex(int field, int secondField, int thirdField) {
+		if (field < 0 || secondField < 0 || thirdField < 0)
+			return -1;
+		for (int vertex : verticesOfField[field]) {
+			int[] fields = fieldsOfVertex[vertex];
+			if (contains(fields, secondField) && contains(fields, thirdField) && secondField != thirdField)
+				return vertex;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param location
+	 *            three field letters (any order)
+	 * @return the vertex, -1 if the location is no vertex
+	 */
+	public static int getVertex(String location) {
+		if (location == null || location.length() != 3)
+			return -1;
+		return getVertex(getField(location.charAt(0)), getField(location.charAt(1)), getField(location.charAt(2)));
+	}
+
+	/**
+	 * @param location
+	 *            coordinates of three fields (any order)
+	 * @return the vertex, -1 if the location is no vertex
+	 */
+	public static int getVertex(Coordinates[] location) {
+		if (location == null || location.length != 3)
+			return -1;
+		return getVertex(getField(location[0]), getField(location[1]), getField(location[2]));
+	}
+
+	public static int[] getFieldsOfVertex(int vertex) {
+		return fieldsOfVertex[vertex];
+	}
+
+	/**
+	 * @return the edges (street locations) ending at the vertex
+	 */
+	public static int[] getEdgesOfVertex(int vertex) {
+		return edgesOfVertex[vertex];
+	}
+
+	/**
+	 * @return the vertices sharing two fields with the vertex (one street
+	 *         away)
+	 */
+	public static int[] getNeighboursOfVertex(int vertex) {
+		return neighboursOfVertex[vertex];
+	}
+
+	/**
+	 * @return the vertices around a field
+	 */
+	public static int[] getVerticesOfField(int field) {
+		return verticesOfField[field];
+	}
+
+	// Edges
+
+	/**
+	 * @return the edge between two fields (any order), -1 if there is none
+	 */
+	public static int getEdge(int field, int otherField) {
+		if (field < 0 || otherField < 0)
+			return -1;
+		for (int edge : edgesOfField[field]) {
+			int[] fields = fieldsOfEdge[edge];
+			if (fields[0] == otherField || fields[1] == otherField)
+				return edge;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param location
+	 *            two field letters (any order)
+	 * @return the edge, -1 if the location is no edge
+	 */
+	public static int getEdge(String location) {
+		if (location == null || location.length() != 2)
+			return -1;
+		return getEdge(getField(location.charAt(0)), getField(location.charAt(1)));
+	}
+
+	/**
+	 * @param location
+	 *            coordinates of two fields (any order)
+	 * @return the edge, -1 if the location is no edge
+	 */
+	public static int getEdge(Coordinates[] location) {
+		if (location == null || location.length != 2)
+			return -1;
+		return getEdge(getField(location[0]), getField(location[1]));
+	}
+
+	public static int[] getFieldsOfEdge(int edge) {
+		return fieldsOfEdge[edge];
+	}
+
+	/**
+	 * @return the (one or two) vertices at the ends of the edge
+	 */
+	public static int[] getVerticesOfEdge(int edge) {
+		return verticesOfEdge[edge];
+	}
+
+	/**
+	 * @return the edges along a field
+	 */
+	public static int[] getEdgesOfField(int field) {
+		return edgesOfField[field];
+	}
+}
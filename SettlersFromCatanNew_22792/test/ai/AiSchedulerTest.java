@@ -0,0 +1,79 @@
+package ai;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of {@link AiScheduler}: the changes of the game wait for the running
+ * decision, a late decision is answered by its fallback and a cancelled one
+ * is not answered.
+ */
+public class AiSchedulerTest {
+	private final AiScheduler scheduler = new AiScheduler("AI test");
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void updateWaitsForTheRunningDecision() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.decide("test", 1000, () -> {
+			started.countDown();
+			Thread.sleep(100);
+			events.add("decided");
+			return "answer";
+		}, null, answer -> events.add(answer));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		scheduler.execute(() -> {
+			events.add("updated");
+			done.countDown();
+		});
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("decided", "answer", "updated"), events);
+	}
+
+	@Test
+	public void lateDecisionIsAnsweredByItsFallback() throws InterruptedException {
+		CountDownLatch answered = new CountDownLatch(1);
+		scheduler.decide("test", 50, () -> {
+			Thread.sleep(1000);
+			return "answer";
+		}, "fallback", answer -> {
+			events.add(answer);
+			answered.countDown();
+		});
+		assertTrue(answered.await(1, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList("fallback"), events);
+		assertEquals(1, scheduler.getTimeouts());
+	}
+
+	@Test
+	public void cancelledDecisionIsNotAnswered() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.decide("test", 1000, () -> {
+			started.countDown();
+			Thread.sleep(1000);
+			return "answer";
+		}, null, answer -> events.add(answer));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		scheduler.cancelPending();
+		scheduler.execute(done::countDown);
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertTrue(events.isEmpty());
+		assertEquals(1, scheduler.getCancellations());
+	}
+}
@@ -0,0 +1,85 @@
+package ai;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link TranspositionTable}. The small keys used here all fall into
+ * the first bucket of a table of two entries, so the replacement of an entry
+ * can be seen.
+ */
+public class TranspositionTableTest {
+	private static final double PRECISION = 1.0 / 0xFFFF;
+
+	private static final long A = 2, B = 4, C = 6;
+
+	private static int probe(TranspositionTable table, long key) {
+		return table.probe(key, new double[TranspositionTable.MAX_PLAYERS]);
+	}
+
+	@Test
+	public void storedStateIsFound() {
+		TranspositionTable table = new TranspositionTable(1 << 10);
+		table.store(A, new double[] { 0.25, 0.5, 0.75, 0 });
+		double[] rewards = new double[4];
+		assertEquals(1, table.probe(A, rewards));
+		assertArrayEquals(new double[] { 0.25, 0.5, 0.75, 0 }, rewards, PRECISION);
+		assertEquals(0, probe(table, B));
+	}
+
+	@Test
+	public void ratingsAreAveraged() {
+		TranspositionTable table = new TranspositionTable(1 << 10);
+		table.store(A, new double[] { 1, 0, 0.5 });
+		table.store(A, new double[] { 0, 0, 0.5 });
+		table.store(A, new double[] { 0.5, 1, 0.5 });
+		double[] rewards = new double[3];
+		assertEquals(3, table.probe(A, rewards));
+		assertArrayEquals(new double[] { 0.5, 1 / 3.0, 0.5 }, rewards, 3 * PRECISION);
+	}
+
+	@Test
+	public void stateWithFewerRatingsIsReplaced() {
+		TranspositionTable table = new TranspositionTable(2);
+		table.store(A, new double[] { 1 });
+		table.store(A, new double[] { 1 });
+		table.store(B, new double[] { 1 });
+		table.store(C, new double[] { 1 });
+		assertEquals(2, probe(table, A));
+		assertEquals(0, probe(table, B));
+		assertEquals(1, probe(table, C));
+		assertEquals(1, table.getReplacements());
+	}
+
+	@Test
+	public void stateOfAnOlderSearchIsReplaced() {
+		TranspositionTable table = new TranspositionTable(2);
+		for (int i = 0; i < 3; i++)
+			table.store(A, new double[] { 1 });
+		table.nextGeneration();
+		table.store(B, new double[] { 1 });
+		table.store(C, new double[] { 1 });
+		assertEquals(0, probe(table, A));
+		assertEquals(1, probe(table, B));
+		assertEquals(1, probe(table, C));
+	}
+
+	@Test
+	public void statisticsCountTheAccesses() {
+		TranspositionTable table = new TranspositionTable(8);
+		assertEquals(8, table.getSize());
+		table.store(A, new double[] { 1 });
+		table.store(B, new double[] { 1 });
+		probe(table, A);
+		probe(table, C);
+		assertEquals(2, table.getStores());
+		assertEquals(2, table.getProbes());
+		assertEquals(1, table.getHits());
+		assertEquals(0.5, table.getHitRate(), 0);
+		assertEquals(0.25, table.getFillRate(), 0);
+		table.resetStatistics();
+		assertEquals(0, table.getProbes());
+		assertEquals(0, table.getHitRate(), 0);
+	}
+}